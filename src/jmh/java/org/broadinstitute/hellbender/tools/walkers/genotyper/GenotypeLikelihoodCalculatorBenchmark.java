@@ -0,0 +1,68 @@
+package org.broadinstitute.hellbender.tools.walkers.genotyper;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeLikelihoods;
+import org.broadinstitute.hellbender.utils.SyntheticBenchmarkData;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Genotype likelihoods of one sample from its read likelihoods, as computed by the HaplotypeCaller genotyping
+ * engine for every variant site.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenotypeLikelihoodCalculatorBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final int READ_LENGTH = 100;
+
+    @Param({"1", "2", "4"})
+    public int ploidy;
+
+    @Param({"2", "3", "6"})
+    public int alleleCount;
+
+    @Param({"30", "300"})
+    public int readCount;
+
+    private GenotypeLikelihoodCalculator calculator;
+    private LikelihoodMatrix<Allele> likelihoods;
+
+    @Setup
+    public void setup() {
+        final SyntheticBenchmarkData data = new SyntheticBenchmarkData(42);
+        final List<Haplotype> haplotypes = data.haplotypes(data.randomBases(2 * READ_LENGTH), alleleCount);
+        final List<GATKRead> reads = data.reads(haplotypes, readCount, READ_LENGTH);
+
+        final List<Allele> alleles = haplotypes.stream().map(h -> (Allele) h).collect(Collectors.toList());
+        likelihoods = new ReadLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(alleles),
+                Collections.singletonMap(SAMPLE, reads)).sampleMatrix(0);
+        for (int a = 0; a < alleleCount; a++) {
+            for (int r = 0; r < readCount; r++) {
+                likelihoods.set(a, r, data.log10Likelihood());
+            }
+        }
+
+        calculator = new GenotypeLikelihoodCalculators().getInstance(ploidy, alleleCount);
+    }
+
+    @Benchmark
+    public GenotypeLikelihoods genotypeLikelihoods() {
+        return calculator.genotypeLikelihoods(likelihoods);
+    }
+}
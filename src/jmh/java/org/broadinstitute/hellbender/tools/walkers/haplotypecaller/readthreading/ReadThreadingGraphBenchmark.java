@@ -0,0 +1,83 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.utils.SyntheticBenchmarkData;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and pruning of the read threading graph for one assembly region, following the steps of
+ * {@link ReadThreadingAssembler} with its default settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadThreadingGraphBenchmark {
+
+    private static final int READ_COUNT = 200;
+    private static final int PRUNE_FACTOR = 2;
+    private static final int MIN_DANGLING_BRANCH_LENGTH = 4;
+
+    @Param({"10", "25"})
+    public int kmerSize;
+
+    @Param({"100", "250"})
+    public int readLength;
+
+    @Param({"2", "8"})
+    public int haplotypeCount;
+
+    private byte[] reference;
+    private List<GATKRead> reads;
+    private SmithWatermanAligner aligner;
+
+    /**
+     * A freshly built graph for each invocation of {@link #pruneGraph}, which modifies it.
+     */
+    @State(Scope.Thread)
+    public static class BuiltGraph {
+        ReadThreadingGraph graph;
+
+        @Setup(Level.Invocation)
+        public void build(final ReadThreadingGraphBenchmark benchmark) {
+            graph = benchmark.buildGraph();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final SyntheticBenchmarkData data = new SyntheticBenchmarkData(42);
+        reference = data.randomBases(3 * readLength);
+        final List<Haplotype> haplotypes = data.haplotypes(reference, haplotypeCount);
+        reads = data.reads(haplotypes, READ_COUNT, readLength);
+        aligner = SmithWatermanAligner.getAligner(SmithWatermanAligner.Implementation.JAVA);
+    }
+
+    @Benchmark
+    public ReadThreadingGraph buildGraph() {
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize);
+        graph.addSequence("ref", reference, true);
+        for (final GATKRead read : reads) {
+            graph.addSequence(read.getName(), read.getBases(), false);
+        }
+        graph.buildGraphIfNecessary();
+        return graph;
+    }
+
+    @Benchmark
+    public ReadThreadingGraph pruneGraph(final BuiltGraph built) {
+        final ReadThreadingGraph graph = built.graph;
+        graph.pruneLowWeightChains(PRUNE_FACTOR);
+        graph.recoverDanglingTails(PRUNE_FACTOR, MIN_DANGLING_BRANCH_LENGTH, aligner);
+        graph.recoverDanglingHeads(PRUNE_FACTOR, MIN_DANGLING_BRANCH_LENGTH, aligner);
+        graph.removePathsNotConnectedToRef();
+        return graph;
+    }
+}
@@ -0,0 +1,112 @@
+package org.broadinstitute.hellbender.utils;
+
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.*;
+
+/**
+ * Deterministic synthetic data for the JMH benchmarks, so that the suite runs offline and results are comparable
+ * across runs: a random reference, haplotypes derived from it by a few substitutions and indels, and
+ * error-free reads (apart from the odd substitution) sampled from those haplotypes.
+ */
+public final class SyntheticBenchmarkData {
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private static final byte BASE_QUALITY = 30;
+    private static final byte INDEL_QUALITY = 45;
+
+    private final Random random;
+
+    /**
+     * @param seed seed for all the random choices made by this generator
+     */
+    public SyntheticBenchmarkData(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @return {@code length} random bases
+     */
+    public byte[] randomBases(final int length) {
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    /**
+     * Makes {@code count} haplotypes from {@code reference}. The first one is the reference itself, every other one
+     * differs from it by a substitution and, for every second haplotype, a small insertion or deletion. All the
+     * haplotypes are distinct.
+     */
+    public List<Haplotype> haplotypes(final byte[] reference, final int count) {
+        Utils.validateArg(count > 0, "count must be > 0");
+        final Set<Haplotype> haplotypes = new LinkedHashSet<>(count);
+        haplotypes.add(new Haplotype(reference, true));
+        while (haplotypes.size() < count) {
+            final byte[] bases = reference.clone();
+            substitute(bases, random.nextInt(bases.length));
+            haplotypes.add(new Haplotype(haplotypes.size() % 2 == 0 ? withIndel(bases) : bases, false));
+        }
+        return new ArrayList<>(haplotypes);
+    }
+
+    /**
+     * Samples {@code count} reads of {@code readLength} bases uniformly from the haplotypes, with one substitution
+     * each. Reads have flat base, insertion and deletion qualities.
+     */
+    public List<GATKRead> reads(final List<Haplotype> haplotypes, final int count, final int readLength) {
+        final List<GATKRead> reads = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            final byte[] haplotype = haplotypes.get(random.nextInt(haplotypes.size())).getBases();
+            Utils.validateArg(haplotype.length >= readLength, "haplotypes must be at least as long as the reads");
+            final int start = random.nextInt(haplotype.length - readLength + 1);
+            final byte[] bases = Arrays.copyOfRange(haplotype, start, start + readLength);
+            substitute(bases, random.nextInt(readLength));
+
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, Utils.dupBytes(BASE_QUALITY, readLength), readLength + "M");
+            read.setName("read" + r);
+            ReadUtils.setInsertionBaseQualities(read, Utils.dupBytes(INDEL_QUALITY, readLength));
+            ReadUtils.setDeletionBaseQualities(read, Utils.dupBytes(INDEL_QUALITY, readLength));
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    /**
+     * @return a random log10 likelihood between -10 and 0
+     */
+    public double log10Likelihood() {
+        return -10.0 * random.nextDouble();
+    }
+
+    private void substitute(final byte[] bases, final int position) {
+        byte base;
+        do {
+            base = BASES[random.nextInt(BASES.length)];
+        } while (base == bases[position]);
+        bases[position] = base;
+    }
+
+    private byte[] withIndel(final byte[] bases) {
+        final int position = 1 + random.nextInt(bases.length - 10);
+        final int length = 1 + random.nextInt(5);
+        final byte[] result;
+        if (random.nextBoolean()) {
+            result = new byte[bases.length + length];
+            System.arraycopy(bases, 0, result, 0, position);
+            System.arraycopy(randomBases(length), 0, result, position, length);
+            System.arraycopy(bases, position, result, position + length, bases.length - position);
+        } else {
+            result = new byte[bases.length - length];
+            System.arraycopy(bases, 0, result, 0, position);
+            System.arraycopy(bases, position + length, result, position, bases.length - position - length);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package org.broadinstitute.hellbender.utils.genotyper;
+
+import htsjdk.variant.variantcontext.Allele;
+import org.broadinstitute.hellbender.utils.SyntheticBenchmarkData;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marginalization of per-haplotype read likelihoods onto the alleles of a variant site, as done by the
+ * HaplotypeCaller genotyping engine for every site.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadLikelihoodsBenchmark {
+
+    private static final int READ_LENGTH = 100;
+    private static final String[] ALLELE_BASES = {"A", "C", "G", "T", "AC", "AG"};
+
+    @Param({"8", "32", "128"})
+    public int haplotypeCount;
+
+    @Param({"2", "4"})
+    public int alleleCount;
+
+    @Param({"1", "5"})
+    public int sampleCount;
+
+    @Param({"100", "1000"})
+    public int readsPerSample;
+
+    private ReadLikelihoods<Haplotype> likelihoods;
+    private Map<Allele, List<Haplotype>> alleleMapper;
+
+    @Setup
+    public void setup() {
+        final SyntheticBenchmarkData data = new SyntheticBenchmarkData(42);
+        final List<Haplotype> haplotypes = data.haplotypes(data.randomBases(2 * READ_LENGTH), haplotypeCount);
+
+        final List<String> samples = new ArrayList<>(sampleCount);
+        final Map<String, List<GATKRead>> readsBySample = new LinkedHashMap<>(sampleCount);
+        for (int s = 0; s < sampleCount; s++) {
+            samples.add("sample" + s);
+            readsBySample.put(samples.get(s), data.reads(haplotypes, readsPerSample, READ_LENGTH));
+        }
+
+        likelihoods = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(haplotypes), readsBySample);
+        for (int s = 0; s < sampleCount; s++) {
+            final LikelihoodMatrix<Haplotype> matrix = likelihoods.sampleMatrix(s);
+            for (int h = 0; h < haplotypeCount; h++) {
+                for (int r = 0; r < readsPerSample; r++) {
+                    matrix.set(h, r, data.log10Likelihood());
+                }
+            }
+        }
+
+        // haplotypes are spread evenly over the alleles, the reference haplotype supporting the reference allele
+        alleleMapper = new LinkedHashMap<>(alleleCount);
+        for (int a = 0; a < alleleCount; a++) {
+            alleleMapper.put(Allele.create(ALLELE_BASES[a], a == 0), new ArrayList<>());
+        }
+        final List<Allele> alleles = new ArrayList<>(alleleMapper.keySet());
+        for (int h = 0; h < haplotypeCount; h++) {
+            alleleMapper.get(alleles.get(h % alleleCount)).add(haplotypes.get(h));
+        }
+    }
+
+    @Benchmark
+    public ReadLikelihoods<Allele> marginalize() {
+        return likelihoods.marginalize(alleleMapper);
+    }
+}
@@ -0,0 +1,78 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.PairHMMNativeArgumentCollection;
+import org.broadinstitute.hellbender.utils.SyntheticBenchmarkData;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likelihoods of a region's worth of reads against its haplotypes, as computed by the HaplotypeCaller.
+ *
+ * The AVX implementation needs hardware support and the native library; on machines without them its
+ * trials fail in setup, and the other implementations still run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PairHMMBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final int READ_COUNT = 100;
+    private static final byte GAP_CONTINUATION_PENALTY = 10;
+
+    @Param({"LOGLESS_CACHING", "INTERLEAVED_LOGLESS", "AVX_LOGLESS_CACHING"})
+    public PairHMM.Implementation implementation;
+
+    @Param({"100", "250"})
+    public int readLength;
+
+    @Param({"2", "8", "32"})
+    public int haplotypeCount;
+
+    private PairHMM hmm;
+    private LikelihoodMatrix<Haplotype> likelihoods;
+    private List<GATKRead> reads;
+    private Map<GATKRead, byte[]> gapContinuationPenalties;
+
+    @Setup
+    public void setup() {
+        final SyntheticBenchmarkData data = new SyntheticBenchmarkData(42);
+        final List<Haplotype> haplotypes = data.haplotypes(data.randomBases(2 * readLength), haplotypeCount);
+        reads = data.reads(haplotypes, READ_COUNT, readLength);
+
+        gapContinuationPenalties = new LinkedHashMap<>();
+        reads.forEach(read -> gapContinuationPenalties.put(read, Utils.dupBytes(GAP_CONTINUATION_PENALTY, readLength)));
+
+        final Map<String, List<GATKRead>> readsBySample = Collections.singletonMap(SAMPLE, reads);
+        likelihoods = new ReadLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(haplotypes), readsBySample).sampleMatrix(0);
+
+        hmm = implementation.makeNewHMM(new PairHMMNativeArgumentCollection().getPairHMMArgs());
+        final int maxHaplotypeLength = haplotypes.stream().mapToInt(h -> h.getBases().length).max().getAsInt();
+        hmm.initialize(haplotypes, readsBySample, readLength, maxHaplotypeLength);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (hmm != null) {
+            hmm.close();
+        }
+    }
+
+    @Benchmark
+    public double[] computeLog10Likelihoods() {
+        hmm.computeLog10Likelihoods(likelihoods, reads, gapContinuationPenalties);
+        return hmm.getLogLikelihoodArray();
+    }
+}
@@ -0,0 +1,61 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.hellbender.utils.SyntheticBenchmarkData;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alignment of haplotypes to the reference, as done by the HaplotypeCaller for every assembled haplotype.
+ *
+ * The AVX aligner needs hardware support and the native library; on machines without them its trials fail
+ * in setup, and the Java aligner still runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmithWatermanAlignerBenchmark {
+
+    private static final int HAPLOTYPE_COUNT = 16;
+
+    @Param({"JAVA", "AVX_ENABLED"})
+    public SmithWatermanAligner.Implementation implementation;
+
+    @Param({"100", "300", "1000"})
+    public int haplotypeLength;
+
+    private SmithWatermanAligner aligner;
+    private byte[] reference;
+    private List<Haplotype> haplotypes;
+
+    @Setup
+    public void setup() {
+        final SyntheticBenchmarkData data = new SyntheticBenchmarkData(42);
+        reference = data.randomBases(haplotypeLength);
+        haplotypes = data.haplotypes(reference, HAPLOTYPE_COUNT);
+        aligner = SmithWatermanAligner.getAligner(implementation);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (aligner != null) {
+            aligner.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HAPLOTYPE_COUNT)
+    public void alignHaplotypesToReference(final Blackhole blackhole) {
+        for (final Haplotype haplotype : haplotypes) {
+            blackhole.consume(aligner.align(reference, haplotype.getBases(), CigarUtils.NEW_SW_PARAMETERS, SWOverhangStrategy.SOFTCLIP));
+        }
+    }
+}
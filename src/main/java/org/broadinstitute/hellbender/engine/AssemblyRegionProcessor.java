@@ -0,0 +1,59 @@
+package org.broadinstitute.hellbender.engine;
+
+import java.util.List;
+
+/**
+ * Thread-confined processing of assembly regions, used by the multi-threaded traversal mode of
+ * {@link AssemblyRegionWalker}.
+ *
+ * Each worker thread of the traversal gets its own processor (created via {@link Factory#createProcessor}),
+ * so implementations may keep unsynchronized per-thread state such as a calling engine with its own
+ * reference reader. The results returned by {@link #process} are handed to {@link Factory#accept} on the
+ * traversal thread, in exactly the order in which the single-threaded traversal would have produced them.
+ *
+ * @param <T> type of the results produced for each region (eg., VariantContext)
+ */
+public interface AssemblyRegionProcessor<T> {
+
+    /**
+     * @return The evaluator used by this processor's worker thread to determine whether each locus is active or not.
+     *         Must not be shared with any other processor.
+     */
+    AssemblyRegionEvaluator assemblyRegionEvaluator();
+
+    /**
+     * Process an individual AssemblyRegion. Same contract as {@link AssemblyRegionWalker#apply}, except that
+     * results must be returned rather than written out directly.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the full extended span of the assembly region
+     * @param featureContext features overlapping the full extended span of the assembly region
+     * @return results for this region, in output order (never null)
+     */
+    List<T> process( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * Release any resources held by this processor. Called once, after traversal is complete.
+     */
+    default void close() { }
+
+    /**
+     * Creates the per-thread processors and consumes their results.
+     *
+     * @param <T> type of the results produced for each region
+     */
+    interface Factory<T> {
+
+        /**
+         * @return a new processor for the exclusive use of one traversal worker thread
+         */
+        AssemblyRegionProcessor<T> createProcessor();
+
+        /**
+         * Consume one result. Always called on the traversal thread, in traversal order.
+         *
+         * @param result result produced by one of this factory's processors
+         */
+        void accept( final T result );
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -8,7 +9,9 @@ import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
@@ -16,6 +19,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.iterators.PrefetchingIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.File;
@@ -24,6 +28,14 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An AssemblyRegionWalker is a tool that processes an entire region of reads at a time, each marked as either "active"
@@ -42,6 +54,13 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools that provide an {@link AssemblyRegionProcessor.Factory} (see {@link #makeAssemblyRegionProcessorFactory})
+ * may also be run with {@link #THREADS_LONG_NAME} > 1, in which case read shards are traversed concurrently, each
+ * worker thread using its own data sources and its own {@link AssemblyRegionProcessor}. The results are handed
+ * back to the tool in the same order as in a single-threaded traversal. Such tools may also be run with
+ * {@link #PIPELINE_LONG_NAME}, in which case region discovery, region processing and the consumption of results
+ * happen on separate threads, with bounded queues between them.
  */
 public abstract class AssemblyRegionWalker extends GATKTool {
 
@@ -54,6 +73,20 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     public static final String PROPAGATION_LONG_NAME = "max-prob-propagation-distance";
     public static final String PROFILE_OUT_LONG_NAME = "activity-profile-out";
     public static final String ASSEMBLY_REGION_OUT_LONG_NAME = "assembly-region-out";
+    public static final String THREADS_LONG_NAME = "threads";
+    public static final String PIPELINE_LONG_NAME = "pipelined-traversal";
+
+    /**
+     * Maximum number of items buffered between two stages of a pipelined traversal.
+     */
+    public static final int PIPELINE_QUEUE_CAPACITY = 16;
+
+    /**
+     * Maximum number of read shards per thread of a multi-threaded traversal that may be in flight (being processed,
+     * or processed and waiting to be written out) at once. This bounds how far the workers can run ahead of a slow
+     * shard, and so how many results are held in memory.
+     */
+    public static final int MAX_SHARDS_IN_FLIGHT_PER_THREAD = 2;
 
     @Advanced
     @Argument(fullName = MIN_ASSEMBLY_LONG_NAME, doc = "Minimum size of an assembly region", optional = true)
@@ -104,6 +137,28 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
     private PrintStream assemblyRegionOutStream;
 
+    /**
+     * Number of read shards (ie., contigs) to traverse concurrently. Each worker thread opens its own reads, reference
+     * and feature data sources and uses its own tool engine, and the results are written out in the same order as in a
+     * single-threaded run. Results of shards that finish ahead of the shard currently being written are held in memory.
+     *
+     * Only supported by tools that override {@link #makeAssemblyRegionProcessorFactory}.
+     */
+    @Argument(fullName = THREADS_LONG_NAME, doc = "Number of read shards (contigs) to traverse concurrently. Requires tool support.", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
+    /**
+     * If true, assembly regions are discovered (reads loaded, pileups built and evaluated for activity) on one thread,
+     * processed by the tool on another, and the results consumed (eg., written to the output) on a third, so that the
+     * I/O-bound discovery of the next regions overlaps with the CPU-bound processing of the current one. Bounded queues
+     * between the stages keep the discovery from running too far ahead. Output is the same as without pipelining.
+     *
+     * May be combined with {@link #THREADS_LONG_NAME}, in which case every worker pipelines its shards this way.
+     * Only supported by tools that override {@link #makeAssemblyRegionProcessorFactory}.
+     */
+    @Argument(fullName = PIPELINE_LONG_NAME, doc = "Discover, process and output assembly regions on separate threads. Requires tool support.", optional = true)
+    protected boolean pipelinedTraversal = false;
+
     /**
      * @return Default value for the {@link #minAssemblyRegionSize} parameter, if none is provided on the command line
      */
@@ -247,25 +302,61 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         return defaultFilters;
     }
 
-    protected ReadsDownsampler createDownsampler() {
-        return maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads()) : null;
+    /**
+     * Create the downsampler for a read shard.
+     *
+     * @param random source of randomness for the downsampler, private to the shard and seeded from its position
+     * @return a new downsampler, or null if the reads are not downsampled
+     */
+    protected ReadsDownsampler createDownsampler( final Random random ) {
+        return maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads(), random) : null;
+    }
+
+    /**
+     * Downsampling of each shard draws from its own random number generator, seeded from the position of the shard,
+     * so that the reads kept do not depend on which shards were processed before (or concurrently with) it. This
+     * makes multi-threaded traversals downsample exactly as single-threaded ones.
+     */
+    private static Random makeDownsamplingRandom( final MultiIntervalLocalReadShard shard ) {
+        final SimpleInterval firstInterval = shard.getIntervals().get(0);
+        return new Random(31L * firstInterval.getContig().hashCode() + firstInterval.getStart());
+    }
+
+    /**
+     * Tools that support traversing read shards concurrently (see {@link #THREADS_LONG_NAME}) or pipelined traversals
+     * (see {@link #PIPELINE_LONG_NAME}) must override this to return a factory of per-thread {@link AssemblyRegionProcessor}s.
+     * The processors take the place of {@link #apply} in such traversals. Called after {@link #onTraversalStart}.
+     *
+     * @return a factory of per-thread processors, or null (the default) if the tool only supports single-threaded traversal
+     */
+    protected AssemblyRegionProcessor.Factory<?> makeAssemblyRegionProcessorFactory() {
+        return null;
     }
 
     @Override
     public final void traverse() {
 
-        CountingReadFilter countedFilter = makeReadFilter();
-
         // Since we're processing regions rather than individual reads, tell the progress
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
+        if ( traversalThreads > 1 || pipelinedTraversal ) {
+            final AssemblyRegionProcessor.Factory<?> processorFactory = makeAssemblyRegionProcessorFactory();
+            if ( processorFactory == null ) {
+                throw new CommandLineException.BadArgumentValue(getClass().getSimpleName() + " does not support multi-threaded or pipelined traversal");
+            }
+            traverseConcurrently(processorFactory);
+            return;
+        }
+
+        CountingReadFilter countedFilter = makeReadFilter();
+
         for ( final MultiIntervalLocalReadShard readShard : readShards ) {
             // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
             // instead of filtering the reads directly here
             readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
             readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
+            readShard.setDownsampler(createDownsampler(makeDownsamplingRandom(readShard)));
             readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
 
             processReadShard(readShard, reference, features);
@@ -301,6 +392,228 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         }
     }
 
+    /**
+     * Traverse the read shards on {@link #traversalThreads} worker threads, streaming the results of each shard to the
+     * processor factory in shard order. The shard at the head of the queue is written out as it is processed, while the
+     * results of later shards accumulate until all preceding shards are done. At most {@link #MAX_SHARDS_IN_FLIGHT_PER_THREAD}
+     * shards per thread are submitted ahead of the shard being written out, so the results held in memory are bounded
+     * even when the head shard is slow. With a single (pipelined) worker there is only ever one shard being processed,
+     * so its output queue is also bounded to provide back-pressure from the consumer.
+     *
+     * @param processorFactory factory for the per-thread processors
+     */
+    private <T> void traverseConcurrently( final AssemblyRegionProcessor.Factory<T> processorFactory ) {
+        logger.info("Traversing " + readShards.size() + " read shards on " + traversalThreads + " threads" + (pipelinedTraversal ? " (pipelined)" : ""));
+        final int shardOutputCapacity = traversalThreads == 1 ? PIPELINE_QUEUE_CAPACITY : Integer.MAX_VALUE;
+
+        // Workers (and their data sources) are created up front on this thread, and are handed out to tasks through
+        // this queue: since there are exactly as many workers as pool threads, a task never waits for a worker.
+        final BlockingQueue<TraversalWorker<T>> idleWorkers = new LinkedBlockingQueue<>();
+        final List<TraversalWorker<T>> workers = new ArrayList<>(traversalThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(traversalThreads,
+                new ThreadFactoryBuilder().setNameFormat("assemblyRegionTraversal-thread-%d").setDaemon(true).build());
+
+        try {
+            for ( int i = 0; i < traversalThreads; i++ ) {
+                final TraversalWorker<T> worker = new TraversalWorker<>(processorFactory);
+                workers.add(worker);
+                idleWorkers.add(worker);
+            }
+
+            final List<BlockingQueue<ProcessedRegion<T>>> shardOutputs = new ArrayList<>(readShards.size());
+            final List<Future<?>> shardTasks = new ArrayList<>(readShards.size());
+            final int maxShardsInFlight = MAX_SHARDS_IN_FLIGHT_PER_THREAD * traversalThreads;
+            for ( int shardIndex = 0; shardIndex < readShards.size(); shardIndex++ ) {
+                // Only submit a shard once the shard maxShardsInFlight before it has been written out
+                if ( shardIndex >= maxShardsInFlight ) {
+                    writeShardOutput(shardIndex - maxShardsInFlight, shardOutputs, shardTasks, processorFactory);
+                }
+
+                final MultiIntervalLocalReadShard readShard = readShards.get(shardIndex);
+                // Transformers and downsamplers are stateful, so every shard gets new ones, as in the single-threaded traversal
+                final ReadTransformer preReadFilterTransformer = makePreReadFilterTransformer();
+                final ReadTransformer postReadFilterTransformer = makePostReadFilterTransformer();
+                final ReadsDownsampler downsampler = createDownsampler(makeDownsamplingRandom(readShard));
+                final BlockingQueue<ProcessedRegion<T>> shardOutput = new LinkedBlockingQueue<>(shardOutputCapacity);
+
+                shardOutputs.add(shardOutput);
+                shardTasks.add(executor.submit(() -> {
+                    try {
+                        final TraversalWorker<T> worker = idleWorkers.take();
+                        try {
+                            worker.processReadShard(readShard, preReadFilterTransformer, postReadFilterTransformer, downsampler, shardOutput);
+                        } finally {
+                            idleWorkers.add(worker);
+                        }
+                    } finally {
+                        shardOutput.put(ProcessedRegion.endOfShard());
+                    }
+                    return null;
+                }));
+            }
+
+            for ( int shardIndex = Math.max(0, readShards.size() - maxShardsInFlight); shardIndex < readShards.size(); shardIndex++ ) {
+                writeShardOutput(shardIndex, shardOutputs, shardTasks, processorFactory);
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during multi-threaded assembly region traversal", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Error during multi-threaded assembly region traversal", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            workers.forEach(TraversalWorker::close);
+        }
+
+        workers.forEach(worker -> logger.info(worker.countedFilter.getSummaryLine()));
+    }
+
+    /**
+     * Write out the results of a shard of a multi-threaded traversal as they are produced, waiting for the shard's task
+     * to finish.
+     */
+    private <T> void writeShardOutput( final int shardIndex, final List<BlockingQueue<ProcessedRegion<T>>> shardOutputs,
+                                       final List<Future<?>> shardTasks, final AssemblyRegionProcessor.Factory<T> processorFactory )
+            throws InterruptedException, ExecutionException {
+        final BlockingQueue<ProcessedRegion<T>> shardOutput = shardOutputs.get(shardIndex);
+        ProcessedRegion<T> processedRegion;
+        while ( ! (processedRegion = shardOutput.take()).isEndOfShard() ) {
+            if ( processedRegion.region != null ) {
+                writeAssemblyRegion(processedRegion.region);
+            }
+            processedRegion.results.forEach(processorFactory::accept);
+
+            // For this traversal, the progress meter unit is the assembly region rather than the read shard
+            progressMeter.update(processedRegion.span);
+        }
+        // Propagates any failure of the shard's task
+        shardTasks.get(shardIndex).get();
+        shardOutputs.set(shardIndex, null);
+    }
+
+    /**
+     * State owned by one worker of a multi-threaded or pipelined traversal: private data sources, read filter and region
+     * processor. Only ever used by one thread at a time, except that in pipelined traversals region discovery runs on a
+     * separate thread, with its own reference and feature data sources and its own processor (for its evaluator).
+     */
+    private final class TraversalWorker<T> {
+        private final ReadsDataSource workerReads = createReadsDataSource();
+        private final ReferenceDataSource workerReference = createReferenceDataSource();
+        private final FeatureManager workerFeatures = createFeatureManager();
+        private final CountingReadFilter countedFilter = makeReadFilter();
+        private final AssemblyRegionProcessor<T> processor;
+
+        private final ReferenceDataSource discoveryReference;
+        private final FeatureManager discoveryFeatures;
+        private final AssemblyRegionProcessor<T> discoveryProcessor;
+
+        private TraversalWorker( final AssemblyRegionProcessor.Factory<T> processorFactory ) {
+            this.processor = Utils.nonNull(processorFactory.createProcessor());
+            if ( pipelinedTraversal ) {
+                this.discoveryReference = createReferenceDataSource();
+                this.discoveryFeatures = createFeatureManager();
+                this.discoveryProcessor = Utils.nonNull(processorFactory.createProcessor());
+            } else {
+                this.discoveryReference = workerReference;
+                this.discoveryFeatures = workerFeatures;
+                this.discoveryProcessor = processor;
+            }
+        }
+
+        /**
+         * Process the given shard with this worker's data sources, adding a {@link ProcessedRegion} to the output
+         * queue for each assembly region in the shard.
+         */
+        private void processReadShard( final MultiIntervalLocalReadShard readShard,
+                                       final ReadTransformer preReadFilterTransformer,
+                                       final ReadTransformer postReadFilterTransformer,
+                                       final ReadsDownsampler downsampler,
+                                       final BlockingQueue<ProcessedRegion<T>> output ) throws InterruptedException {
+            // The shard's intervals are already padded, sorted and merged, so this yields the same shard on our own reads source
+            final MultiIntervalLocalReadShard shard = new MultiIntervalLocalReadShard(readShard.getIntervals(), assemblyRegionPadding, workerReads);
+            shard.setPreReadFilterTransformer(preReadFilterTransformer);
+            shard.setReadFilter(countedFilter);
+            shard.setDownsampler(downsampler);
+            shard.setPostReadFilterTransformer(postReadFilterTransformer);
+
+            final Iterator<AssemblyRegion> discoveredRegions = new AssemblyRegionIterator(shard, getHeaderForReads(), discoveryReference, discoveryFeatures, discoveryProcessor.assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+            final PrefetchingIterator<AssemblyRegion> prefetchedRegions = pipelinedTraversal ?
+                    new PrefetchingIterator<>(discoveredRegions, PIPELINE_QUEUE_CAPACITY, Thread.currentThread().getName() + "-discovery") : null;
+            final Iterator<AssemblyRegion> assemblyRegionIter = prefetchedRegions != null ? prefetchedRegions : discoveredRegions;
+            final boolean keepRegions = activityProfileOutStream != null || assemblyRegionOutStream != null;
+
+            try {
+                while ( assemblyRegionIter.hasNext() ) {
+                    final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+
+                    logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+
+                    final List<T> results = processor.process(assemblyRegion,
+                            new ReferenceContext(workerReference, assemblyRegion.getExtendedSpan()),
+                            new FeatureContext(workerFeatures, assemblyRegion.getExtendedSpan()));
+                    output.put(new ProcessedRegion<>(assemblyRegion.getSpan(), keepRegions ? assemblyRegion : null, Utils.nonNull(results)));
+                }
+            } finally {
+                if ( prefetchedRegions != null ) {
+                    prefetchedRegions.close();
+                }
+            }
+        }
+
+        private void close() {
+            processor.close();
+            if ( pipelinedTraversal ) {
+                discoveryProcessor.close();
+                if ( discoveryReference != null ) {
+                    discoveryReference.close();
+                }
+                if ( discoveryFeatures != null ) {
+                    discoveryFeatures.close();
+                }
+            }
+            if ( workerReads != null ) {
+                workerReads.close();
+            }
+            if ( workerReference != null ) {
+                workerReference.close();
+            }
+            if ( workerFeatures != null ) {
+                workerFeatures.close();
+            }
+        }
+    }
+
+    /**
+     * The results of processing one assembly region in a multi-threaded traversal, or the end-of-shard marker.
+     */
+    private static final class ProcessedRegion<T> {
+        private final SimpleInterval span;
+        private final AssemblyRegion region; // only retained when assembly regions/activity profiles are being written
+        private final List<T> results;
+
+        private ProcessedRegion( final SimpleInterval span, final AssemblyRegion region, final List<T> results ) {
+            this.span = span;
+            this.region = region;
+            this.results = results;
+        }
+
+        private static <T> ProcessedRegion<T> endOfShard() {
+            return new ProcessedRegion<>(null, null, null);
+        }
+
+        private boolean isEndOfShard() {
+            return span == null;
+        }
+    }
+
     private void writeAssemblyRegion(final AssemblyRegion region) {
         writeActivityProfile(region.getSupportingStates());
 
@@ -30,6 +30,9 @@ import java.util.stream.Collectors;
  * return empty Lists. You can determine whether there is a backing source of Features via
  * {@link #hasBackingDataSource()}, and whether there is an interval via {@link #getInterval}
  *
+ * Instead of a FeatureManager, a FeatureContext may be backed by an in-memory {@link FeatureIntervalIndex}
+ * (see {@link #fromFeatureIndex}), for instance in Spark tools, where the index is broadcast to the executors.
+ *
  * Note: This class is NOT intended to be extended outside of the testing harness.
  */
 @DoNotSubclass
@@ -41,6 +44,12 @@ public class FeatureContext {
      */
     private final FeatureManager featureManager;
 
+    /**
+     * In-memory index of Features used instead of a FeatureManager. Null if we are backed by a FeatureManager, or if
+     * there are no sources of Features.
+     */
+    private final FeatureIntervalIndex featureIndex;
+
     /**
      * We will return Features overlapping this interval. Null if this context has no known location
      * (eg., we are dealing with unmapped data).
@@ -52,7 +61,7 @@ public class FeatureContext {
      * return an empty List.
      */
     public FeatureContext() {
-        this(null, null);
+        this(null, null, null);
     }
 
     /**
@@ -64,7 +73,24 @@ public class FeatureContext {
      * @param interval Interval to constrain queries on this FeatureContext. Null if we have no known location.
      */
     public FeatureContext(final FeatureManager featureManager, final SimpleInterval interval) {
+        this(featureManager, null, interval);
+    }
+
+    /**
+     * Creates a new FeatureContext backed by an in-memory index of Features rather than by a FeatureManager.
+     * Queries on this context return the indexed Features overlapping the query interval, and
+     * {@link #getHeader} returns null, since the index does not keep headers.
+     *
+     * @param featureIndex index of the Features of the FeatureInputs that may be queried. Null if there are no sources of Features.
+     * @param interval Interval to constrain queries on this FeatureContext. Null if we have no known location.
+     */
+    public static FeatureContext fromFeatureIndex(final FeatureIntervalIndex featureIndex, final SimpleInterval interval) {
+        return new FeatureContext(null, featureIndex, interval);
+    }
+
+    private FeatureContext(final FeatureManager featureManager, final FeatureIntervalIndex featureIndex, final SimpleInterval interval) {
         this.featureManager = featureManager;
+        this.featureIndex = featureIndex;
         this.interval = interval;
     }
 
@@ -75,7 +101,7 @@ public class FeatureContext {
      * @return true if this FeatureContext has a backing source of Features, otherwise false
      */
     public boolean hasBackingDataSource() {
-        return featureManager != null;
+        return featureManager != null || featureIndex != null;
     }
 
     /**
@@ -93,7 +119,8 @@ public class FeatureContext {
      *
      * @param featureDescriptor FeatureInput whose header we want to retrieve
      * @param <T> type of Feature in our FeatureInput
-     * @return header for the provided FeatureInput (null if we have no backing data sources)
+     * @return header for the provided FeatureInput (null if we have no backing data sources, or are backed by a
+     *         {@link FeatureIntervalIndex})
      */
     public <T extends Feature> Object getHeader(final FeatureInput<T> featureDescriptor) {
         return featureManager != null ? featureManager.getHeader(featureDescriptor) : null;
@@ -157,10 +184,12 @@ public class FeatureContext {
      *         Empty List if there is no backing data source and/or interval.
      */
     public <T extends Feature> List<T> getValues(final FeatureInput<T> featureDescriptor, final SimpleInterval queryInterval) {
-        if (featureManager == null || queryInterval == null || featureDescriptor == null) {
+        if (! hasBackingDataSource() || queryInterval == null || featureDescriptor == null) {
             return Collections.emptyList();
         }
-        return featureManager.getFeatures(featureDescriptor, queryInterval);
+        return featureManager != null ?
+                featureManager.getFeatures(featureDescriptor, queryInterval) :
+                featureIndex.getFeatures(featureDescriptor, queryInterval);
     }
 
     /**
@@ -223,7 +252,7 @@ public class FeatureContext {
      *         Empty List if there is no backing data source and/or interval.
      */
     public <T extends Feature> List<T> getValues(final FeatureInput<T> featureDescriptor, final int featureStart) {
-        if (featureManager == null || interval == null) {
+        if (! hasBackingDataSource() || interval == null) {
             return Collections.emptyList();
         }
 
@@ -244,7 +273,7 @@ public class FeatureContext {
      *         this FeatureContext's query interval. Empty List if there is no backing data source and/or interval.
      */
     public <T extends Feature> List<T> getValues(final Collection<FeatureInput<T>> featureDescriptors) {
-        if (featureManager == null || interval == null || featureDescriptors.isEmpty()) {
+        if (! hasBackingDataSource() || interval == null || featureDescriptors.isEmpty()) {
             return Collections.emptyList();
         }
 
@@ -272,7 +301,7 @@ public class FeatureContext {
      *         Empty List if there is no backing data source and/or interval.
      */
     public <T extends Feature> List<T> getValues(final Collection<FeatureInput<T>> featureDescriptors, final int featureStart) {
-        if (featureManager == null || interval == null) {
+        if (! hasBackingDataSource() || interval == null) {
             return Collections.emptyList();
         }
 
@@ -0,0 +1,130 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * In-memory, serializable index of the Features of some of a FeatureManager's sources that overlap a set of intervals.
+ *
+ * This makes it possible to back {@link FeatureContext}s with Features where the feature files can't be queried
+ * efficiently, such as in the tasks of a Spark tool: the Features are loaded once, on the driver, and the index is
+ * broadcast to the executors, rather than each task re-opening and querying the files.
+ *
+ * The Features of each source are held in an {@link IntervalsSkipList}. To keep the index compact, VariantContexts
+ * are stored with only their position, alleles, ID and filters (without their INFO fields or genotypes), and headers
+ * are not kept. This is all that is needed to annotate the IDs of overlapping variants or to genotype given alleles.
+ */
+public final class FeatureIntervalIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<FeatureInput<? extends Feature>, IntervalsSkipList<? extends Feature>> featuresBySource;
+
+    private FeatureIntervalIndex(final Map<FeatureInput<? extends Feature>, IntervalsSkipList<? extends Feature>> featuresBySource) {
+        this.featuresBySource = featuresBySource;
+    }
+
+    /**
+     * Load the Features of some sources of a FeatureManager that overlap the given intervals.
+     *
+     * @param featureManager sources of Features
+     * @param featureInputs FeatureInputs of the sources of featureManager to index
+     * @param intervals only Features overlapping these intervals are loaded. They need not be sorted, and may overlap.
+     * @return an index of the Features of the given sources that overlap the intervals
+     */
+    public static FeatureIntervalIndex of(final FeatureManager featureManager, final Collection<FeatureInput<? extends Feature>> featureInputs,
+                                          final List<SimpleInterval> intervals) {
+        Utils.nonNull(featureManager);
+        Utils.nonNull(featureInputs);
+        Utils.nonNull(intervals);
+
+        final List<SimpleInterval> mergedIntervals = sortAndMerge(intervals);
+        final Map<FeatureInput<? extends Feature>, IntervalsSkipList<? extends Feature>> featuresBySource = new LinkedHashMap<>();
+        for ( final FeatureInput<? extends Feature> featureInput : featureInputs ) {
+            featuresBySource.put(featureInput, loadFeatures(featureManager, featureInput, mergedIntervals));
+        }
+        return new FeatureIntervalIndex(featuresBySource);
+    }
+
+    /**
+     * @param mergedIntervals sorted intervals, none of which overlap
+     */
+    private static <T extends Feature> IntervalsSkipList<T> loadFeatures(final FeatureManager featureManager, final FeatureInput<T> featureInput,
+                                                                        final List<SimpleInterval> mergedIntervals) {
+        final List<T> features = new ArrayList<>();
+        SimpleInterval previousInterval = null;
+        for ( final SimpleInterval interval : mergedIntervals ) {
+            for ( final T feature : featureManager.getFeatures(featureInput, interval) ) {
+                // A Feature spanning several intervals is only added with the first one
+                if ( previousInterval == null || ! previousInterval.overlaps(feature) ) {
+                    features.add(compact(feature));
+                }
+            }
+            previousInterval = interval;
+        }
+        return new IntervalsSkipList<>(features);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Feature> T compact(final T feature) {
+        if ( feature instanceof VariantContext ) {
+            final VariantContext vc = (VariantContext) feature;
+            return (T) new VariantContextBuilder(vc.getSource(), vc.getContig(), vc.getStart(), vc.getEnd(), vc.getAlleles())
+                    .id(vc.getID())
+                    .filters(vc.getFiltersMaybeNull())
+                    .make();
+        }
+        return feature;
+    }
+
+    private static List<SimpleInterval> sortAndMerge(final List<SimpleInterval> intervals) {
+        final List<SimpleInterval> sortedIntervals = new ArrayList<>(intervals);
+        sortedIntervals.sort(Comparator.comparing(SimpleInterval::getContig).thenComparingInt(SimpleInterval::getStart));
+
+        final List<SimpleInterval> mergedIntervals = new ArrayList<>(sortedIntervals.size());
+        for ( final SimpleInterval interval : sortedIntervals ) {
+            final SimpleInterval last = mergedIntervals.isEmpty() ? null : mergedIntervals.get(mergedIntervals.size() - 1);
+            if ( last != null && last.getContig().equals(interval.getContig()) && interval.getStart() <= last.getEnd() + 1 ) {
+                mergedIntervals.set(mergedIntervals.size() - 1,
+                        new SimpleInterval(last.getContig(), last.getStart(), Math.max(last.getEnd(), interval.getEnd())));
+            } else {
+                mergedIntervals.add(interval);
+            }
+        }
+        return mergedIntervals;
+    }
+
+    /**
+     * @return the FeatureInputs of all the sources in this index
+     */
+    public Set<FeatureInput<? extends Feature>> getAllInputs() {
+        return Collections.unmodifiableSet(featuresBySource.keySet());
+    }
+
+    /**
+     * Get the indexed Features of a source that overlap an interval. Features outside of the intervals the index was
+     * created with are not returned.
+     *
+     * @param featureDescriptor FeatureInput of the source to query
+     * @param interval interval to query over (returned Features will overlap this interval)
+     * @param <T> type of Feature in the source represented by featureDescriptor
+     * @return a List of all the indexed Features of the source that overlap the interval (may be empty, but never null)
+     */
+    public <T extends Feature> List<T> getFeatures(final FeatureInput<T> featureDescriptor, final SimpleInterval interval) {
+        // No danger of a ClassCastException here, since the Features of each FeatureInput were loaded from the
+        // FeatureManager's data source for that input
+        @SuppressWarnings("unchecked")
+        final IntervalsSkipList<T> features = (IntervalsSkipList<T>) featuresBySource.get(featureDescriptor);
+        if ( features == null ) {
+            throw new GATKException(String.format("FeatureInput %s not found in the feature index", featureDescriptor.getName()));
+        }
+        return features.getOverlapping(interval);
+    }
+}
@@ -331,6 +331,13 @@ public final class FeatureManager implements AutoCloseable {
         return dataSource.iterator();
     }
 
+    /**
+     * @return the FeatureInputs of all our data sources, in the order in which they were added
+     */
+    public Set<FeatureInput<? extends Feature>> getAllInputs() {
+        return Collections.unmodifiableSet(featureSources.keySet());
+    }
+
     /**
      * Get the header associated with a particular FeatureInput
      *
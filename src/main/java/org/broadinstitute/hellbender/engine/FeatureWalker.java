@@ -48,6 +48,10 @@ public abstract class FeatureWalker<F extends Feature> extends GATKTool {
     @Override
     protected final void onStartup() {
         super.onStartup();
+        // Driving features are sorted, so successive queries for their reads are often nearby and overlapping
+        if ( hasReads() ) {
+            reads.setQueryCaching(true);
+        }
         // set the intervals for the feature here, because they are not initialized when initialize features is set
         if ( hasIntervals() ) {
             drivingFeatures.setIntervalsForTraversal(intervalsForTraversal);
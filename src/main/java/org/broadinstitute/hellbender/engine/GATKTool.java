@@ -144,6 +144,12 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     FeatureManager features;
 
+    /**
+     * Sources of Features added by the tool through {@link #addFeatureInputsAfterInitialization}, with their Feature types,
+     * so that the additional FeatureManagers opened by multi-threaded traversals can serve them as well.
+     */
+    private final Map<FeatureInput<? extends Feature>, Class<? extends Feature>> featureInputsAddedAfterInitialization = new LinkedHashMap<>();
+
     /**
      * Intervals to be used for traversal (null if no intervals were provided).
      *
@@ -292,7 +298,16 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        reference = createReferenceDataSource();
+    }
+
+    /**
+     * Create a new, independent source of reference data (or return null if no reference argument was provided).
+     *
+     * Package-private so that traversals that need one data source per thread can open additional ones.
+     */
+    ReferenceDataSource createReferenceDataSource() {
+        return referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
     }
 
     /**
@@ -302,6 +317,15 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reads data source.
      */
     void initializeReads() {
+        reads = createReadsDataSource();
+    }
+
+    /**
+     * Create a new, independent source of reads data (or return null if no reads argument(s) were provided).
+     *
+     * Package-private so that traversals that need one data source per thread can open additional ones.
+     */
+    ReadsDataSource createReadsDataSource() {
         if (! readArguments.getReadFiles().isEmpty()) {
             SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
             if (hasReference()) { // pass in reference if available, because CRAM files need it
@@ -315,11 +339,11 @@ public abstract class GATKTool extends CommandLineProgram {
                 factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
             }
 
-            reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            return new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
         }
         else {
-            reads = null;
+            return null;
         }
     }
 
@@ -344,11 +368,24 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+        features = createFeatureManager();
+    }
+
+    /**
+     * Create a new, independent FeatureManager over this tool's Feature arguments (or return null if no sources of
+     * Features were discovered for this tool), using the default lookahead cache of
+     * {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
+     *
+     * Package-private so that traversals that need one data source per thread can open additional ones.
+     */
+    FeatureManager createFeatureManager() {
+        final FeatureManager featureManager = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
                                       referenceArguments.getReferencePath());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
+        addFeatureInputsAddedAfterInitialization(featureManager);
+        if ( featureManager.isEmpty() ) {  // No available sources of Features discovered for this tool
+            return null;
         }
+        return featureManager;
     }
 
     /**
@@ -820,10 +857,21 @@ public abstract class GATKTool extends CommandLineProgram {
                 cloudIndexPrefetchBuffer,
                 referenceArguments.getReferencePath()
         );
+        featureInputsAddedAfterInitialization.put(featureInput, featureType);
 
         return featureInput;
     }
 
+    /**
+     * Add the sources of Features that the tool added through {@link #addFeatureInputsAfterInitialization} so far
+     * to another FeatureManager, such as one owned by a single thread of a multi-threaded traversal.
+     */
+    void addFeatureInputsAddedAfterInitialization(final FeatureManager featureManager) {
+        featureInputsAddedAfterInitialization.forEach((featureInput, featureType) ->
+                featureManager.addToFeatureSources(0, featureInput, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                        referenceArguments.getReferencePath()));
+    }
+
     /**
      * Returns the name of this tool.
      * The default implementation returns the result of calling {@link #getToolkitName} followed by the simple
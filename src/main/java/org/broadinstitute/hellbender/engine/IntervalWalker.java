@@ -53,6 +53,10 @@ public abstract class IntervalWalker extends GATKTool {
     protected final void onStartup() {
         // Overridden only to make final so that concrete tool implementations don't override
         super.onStartup();
+        // Traversal intervals are sorted, and often dense and overlapping when padded
+        if ( hasReads() ) {
+            reads.setQueryCaching(true);
+        }
     }
 
     @Override
@@ -0,0 +1,244 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.*;
+
+/**
+ * ReadCache: helper class for {@link ReadsDataSource} to keep the decoded reads of the last query window, so that
+ * successive queries over nearby, overlapping intervals (as issued by walkers over dense lists of targets or sites)
+ * don't decode the same reads (and decompress the same blocks) again.
+ *
+ * Unlike {@link FeatureCache}, there is no lookahead, since reads are much larger and more numerous than most
+ * Features: the cache covers exactly the union of the last queries. It is optimized for queries with gradually
+ * increasing start positions:
+ *
+ * -Test how each query interval relates to the cache with {@link #lookup(SimpleInterval)}
+ *
+ * -If it is a {@link Lookup#HIT}, trim the cache to the start of the interval via {@link #trimToNewStartPosition(int)},
+ *  then retrieve the reads up to the end of the interval with {@link #getCachedReadsUpToStopPosition(int)}.
+ *
+ * -If it is an {@link Lookup#EXTENSION}, ie. the interval starts within (or just after) the cache but ends after it,
+ *  trim the cache, then query only the part of the interval after the cache and append its reads via {@link #extend},
+ *  before retrieving the reads as for a hit.
+ *
+ * -If it is a {@link Lookup#MISS}, reset the cache with the reads of the interval using {@link #fill}.
+ *
+ * Reads are compared with intervals using their assigned positions, so that unmapped reads placed with their mates
+ * are cached like the index queries return them.
+ */
+class ReadCache {
+    private static final Logger logger = LogManager.getLogger(ReadCache.class);
+
+    /**
+     * How a query interval relates to the contents of the cache
+     */
+    enum Lookup {
+        /** all the reads overlapping the interval are in the cache */
+        HIT,
+        /** the cache holds the reads overlapping the start of the interval, but not those overlapping its end */
+        EXTENSION,
+        /** the cache must be refilled */
+        MISS
+    }
+
+    /**
+     * Our cache of reads in coordinate order, optimized for insertion/removal at both ends.
+     */
+    private final Deque<GATKRead> cache;
+
+    /**
+     * Our cache currently contains all reads overlapping this interval
+     */
+    private SimpleInterval cachedInterval;
+
+    private int numCacheHits = 0;
+    private int numCacheExtensions = 0;
+    private int numCacheMisses = 0;
+
+    /**
+     * Initial capacity of our cache (will grow by doubling if needed)
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * When we trim our cache to a new start position, this is the maximum number of reads we expect to need to
+     * place into temporary storage for the duration of the trim operation. Performance only suffers slightly if our
+     * estimate is wrong.
+     */
+    private static final int EXPECTED_MAX_OVERLAPPING_READS_DURING_CACHE_TRIM = 1024;
+
+    /**
+     * Create an initially-empty ReadCache
+     */
+    public ReadCache() {
+        cache = new ArrayDeque<>(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the interval that all reads overlapping it are in our cache, or null if nothing has been cached yet
+     */
+    public SimpleInterval getCachedInterval() {
+        return cachedInterval;
+    }
+
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    public int getNumCacheExtensions() {
+        return numCacheExtensions;
+    }
+
+    public int getNumCacheMisses() {
+        return numCacheMisses;
+    }
+
+    /**
+     * Determines whether the reads overlapping the provided interval are in our cache, and records the outcome in
+     * our statistics.
+     *
+     * @param interval the interval to check against the contents of our cache
+     * @return {@link Lookup#HIT} if all the reads overlapping the interval are in our cache, {@link Lookup#EXTENSION}
+     *         if the interval starts within our cache, or right after it, and ends after it, otherwise {@link Lookup#MISS}
+     */
+    public Lookup lookup( final SimpleInterval interval ) {
+        if ( cachedInterval != null && cachedInterval.contains(interval) ) {
+            ++numCacheHits;
+            return Lookup.HIT;
+        }
+        if ( cachedInterval != null && cachedInterval.getContig().equals(interval.getContig()) &&
+                interval.getStart() >= cachedInterval.getStart() && interval.getStart() <= cachedInterval.getEnd() + 1 ) {
+            ++numCacheExtensions;
+            return Lookup.EXTENSION;
+        }
+        ++numCacheMisses;
+        return Lookup.MISS;
+    }
+
+    /**
+     * Clear our cache and fill it with the reads from the provided iterator, preserving their relative ordering.
+     *
+     * @param readIter iterator over the reads overlapping interval, in coordinate order
+     * @param interval all reads from readIter overlap this interval
+     */
+    public void fill( final Iterator<GATKRead> readIter, final SimpleInterval interval ) {
+        cache.clear();
+        while ( readIter.hasNext() ) {
+            cache.add(readIter.next());
+        }
+
+        cachedInterval = interval;
+    }
+
+    /**
+     * Extend our cache to a new stop position on the current contig, after the current one.
+     *
+     * @param readIter iterator over the reads overlapping the interval from the end of our cache (exclusive) to the
+     *                 new stop position, in coordinate order
+     * @param newStop new stop position on the current contig
+     */
+    public void extend( final Iterator<GATKRead> readIter, final int newStop ) {
+        if ( newStop <= cachedInterval.getEnd() ) {
+            throw new GATKException(String.format("BUG: attempted to extend read cache to an improper new stop position (%d). Cache stop = %d",
+                    newStop, cachedInterval.getEnd()));
+        }
+
+        // Reads that start within our cache and overlap the extension are already cached, since they
+        // overlap the end of our cache
+        while ( readIter.hasNext() ) {
+            final GATKRead read = readIter.next();
+            if ( read.getAssignedStart() > cachedInterval.getEnd() ) {
+                cache.add(read);
+            }
+        }
+
+        cachedInterval = new SimpleInterval(cachedInterval.getContig(), cachedInterval.getStart(), newStop);
+    }
+
+    /**
+     * Trims the cache to the specified new start position by discarding all reads that end before it
+     * while preserving relative ordering of reads.
+     *
+     * @param newStart new start position on the current contig to which to trim the cache, which must be within our
+     *                 cache (extend the cache first to trim it past its current end)
+     */
+    public void trimToNewStartPosition( final int newStart ) {
+        if ( newStart > cachedInterval.getEnd() ) {
+            throw new GATKException(String.format("BUG: attempted to trim read cache to an improper new start position (%d). Cache stop = %d",
+                    newStart, cachedInterval.getEnd()));
+        }
+
+        final List<GATKRead> overlappingReadsBeforeNewStart = new ArrayList<>(EXPECTED_MAX_OVERLAPPING_READS_DURING_CACHE_TRIM);
+
+        // Reads are sorted by start position only, so we look at all the reads that start before the new start position,
+        // and keep those that overlap it.
+        while ( ! cache.isEmpty() && cache.getFirst().getAssignedStart() < newStart ) {
+            final GATKRead readBeforeNewStart = cache.removeFirst();
+
+            if ( getEnd(readBeforeNewStart) >= newStart ) {
+                overlappingReadsBeforeNewStart.add(readBeforeNewStart);
+            }
+        }
+
+        // Add back the reads that started before the new start but overlapped it in the reverse of the order in which
+        // we encountered them so that their original relative ordering in the cache is restored.
+        for ( int i = overlappingReadsBeforeNewStart.size() - 1; i >= 0; --i ) {
+            cache.addFirst(overlappingReadsBeforeNewStart.get(i));
+        }
+
+        // Record our new start boundary
+        cachedInterval = new SimpleInterval(cachedInterval.getContig(), newStart, cachedInterval.getEnd());
+    }
+
+    /**
+     * Returns (but does not remove) all cached reads that overlap the region from the start of our cache to the
+     * specified stop position.
+     *
+     * @param stopPosition Endpoint of the interval that returned reads must overlap
+     * @return all cached reads that overlap the region from the start of our cache to the specified stop position
+     */
+    public List<GATKRead> getCachedReadsUpToStopPosition( final int stopPosition ) {
+        final List<GATKRead> matchingReads = new ArrayList<>(cache.size());
+
+        for ( final GATKRead candidateRead : cache ) {
+            if ( candidateRead.getAssignedStart() > stopPosition ) {
+                break; // No more possible matches among the remaining cached reads, so stop looking
+            }
+            matchingReads.add(candidateRead);
+        }
+        return matchingReads;
+    }
+
+    /**
+     * Discard the contents of our cache (but not our statistics)
+     */
+    public void clear() {
+        cache.clear();
+        cachedInterval = null;
+    }
+
+    /**
+     * End of the read on its contig: unmapped reads with an assigned position are returned by the index queries
+     * overlapping that position.
+     */
+    private static int getEnd( final GATKRead read ) {
+        return read.isUnmapped() ? read.getAssignedStart() : read.getEnd();
+    }
+
+    /**
+     * Print statistics about the cache hit rate for debugging
+     */
+    public void printCacheStatistics() {
+        final int totalQueries = getNumCacheHits() + getNumCacheExtensions() + getNumCacheMisses();
+        logger.debug(String.format("Read cache hit rate was %.2f%% (%d hits and %d partial hits out of %d total queries)",
+                totalQueries > 0 ? ((double)getNumCacheHits() / totalQueries) * 100.0 : 0.0,
+                getNumCacheHits(),
+                getNumCacheExtensions(),
+                totalQueries));
+    }
+}
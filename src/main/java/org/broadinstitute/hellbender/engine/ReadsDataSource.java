@@ -78,6 +78,18 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Queries spanning more than this many bases bypass the query cache, so that their reads are streamed rather
+     * than all held in memory at once.
+     */
+    public static final int MAX_CACHED_QUERY_LENGTH = 10_000;
+
+    /**
+     * Reads of the last query window, shared across successive queries. Null if query caching is disabled
+     * (see {@link #setQueryCaching}).
+     */
+    private ReadCache queryCache = null;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -330,10 +342,41 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
     }
 
+    /**
+     * Enable or disable the caching of the reads of the last query window across successive queries. When enabled,
+     * a query that overlaps the previous one, and starts at or after it, decodes only the reads after the end of the
+     * previous query instead of querying its whole interval again, which helps clients that issue many nearby,
+     * overlapping queries with increasing start positions. Queries longer than {@link #MAX_CACHED_QUERY_LENGTH}
+     * bases bypass the cache.
+     *
+     * Disabled by default.
+     *
+     * @param enabled true to cache the reads of queries
+     */
+    public void setQueryCaching( final boolean enabled ) {
+        if ( enabled && queryCache == null ) {
+            queryCache = new ReadCache();
+        } else if ( ! enabled && queryCache != null ) {
+            queryCache.printCacheStatistics();
+            queryCache = null;
+        }
+    }
+
+    /**
+     * @return the query cache, or null if query caching is disabled
+     */
+    @VisibleForTesting
+    ReadCache getQueryCache() {
+        return queryCache;
+    }
+
     /**
      * Query reads over a specific interval. This operation is not affected by prior calls to
      * {@link #setTraversalBounds}
      *
+     * If query caching is enabled (see {@link #setQueryCaching}), the reads returned are copies of cached reads, which
+     * may be modified freely.
+     *
      * @param interval The interval over which to query
      * @return Iterator over reads overlapping the query interval
      */
@@ -343,7 +386,44 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             raiseExceptionForMissingIndex("Cannot query reads data source by interval unless all files are indexed");
         }
 
-        return prepareIteratorsForTraversal(Arrays.asList(interval));
+        if ( queryCache == null || interval.size() > MAX_CACHED_QUERY_LENGTH ) {
+            return prepareIteratorsForTraversal(Arrays.asList(interval));
+        }
+        return queryAndCache(interval);
+    }
+
+    /**
+     * Answer a query from our query cache, after going to disk for the reads of the query that aren't cached yet.
+     *
+     * @param interval The interval over which to query
+     * @return Iterator over copies of the reads overlapping the query interval
+     */
+    private Iterator<GATKRead> queryAndCache( final SimpleInterval interval ) {
+        switch ( queryCache.lookup(interval) ) {
+            case HIT:
+                queryCache.trimToNewStartPosition(interval.getStart());
+                break;
+            case EXTENSION:
+                // Extend before trimming, so that the cache still ends where the reads from disk begin (trimming to a
+                // start just past the end of the cache would move its end)
+                final int cachedEnd = queryCache.getCachedInterval().getEnd();
+                queryCache.extend(prepareIteratorsForTraversal(Arrays.asList(new SimpleInterval(interval.getContig(), cachedEnd + 1, interval.getEnd()))),
+                        interval.getEnd());
+                closePreviousIterationsIfNecessary();
+                queryCache.trimToNewStartPosition(interval.getStart());
+                break;
+            case MISS:
+                queryCache.fill(prepareIteratorsForTraversal(Arrays.asList(interval)), interval);
+                closePreviousIterationsIfNecessary();
+                break;
+        }
+
+        final List<GATKRead> cachedReads = queryCache.getCachedReadsUpToStopPosition(interval.getEnd());
+        final List<GATKRead> reads = new ArrayList<>(cachedReads.size());
+        for ( final GATKRead read : cachedReads ) {
+            reads.add(read.copy());
+        }
+        return reads.iterator();
     }
 
     /**
@@ -472,6 +552,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     @Override
     public void close() {
         closePreviousIterationsIfNecessary();
+        setQueryCaching(false);
 
         try {
             for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
@@ -0,0 +1,197 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.PeekableIterator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Source of reads for a traversal that queries intervals in coordinate order, such as the variant-by-variant
+ * traversal of a {@link VariantWalkerBase}. Rather than doing an index query (and decompressing the same
+ * BGZF blocks again) for every interval, it streams the reads of a contig once, alongside the queries, and
+ * answers each query from a sliding window of the reads overlapping the current position.
+ *
+ * The stream is opened with a single query from the position of the first query on a contig to the end of that
+ * contig. It is re-opened at the position of a query when the query is on a different contig, or when the query
+ * is more than {@code maxGapForStreaming} bases past the last read streamed, since skipping far ahead with an index
+ * query is cheaper than decoding all of the reads in between when the queries are sparse. A query that goes
+ * backwards (before the start of the previous query on the same contig) is answered with a plain query on the
+ * underlying data source.
+ *
+ * Each query returns copies of the reads in the window, so that clients may modify them as they could the reads
+ * returned by {@link ReadsDataSource#query}.
+ *
+ * NOTE: since a {@link ReadsDataSource} has only one open iteration at a time, the underlying data source must not
+ * be iterated or queried by anyone else while this source is in use.
+ */
+final class SweepingReadsDataSource implements GATKDataSource<GATKRead> {
+    private static final Logger logger = LogManager.getLogger(SweepingReadsDataSource.class);
+
+    /**
+     * Default maximum distance, in bases, that the stream is advanced to reach the next query. Beyond this, the
+     * stream is re-opened at the position of the query with an index query.
+     */
+    public static final int DEFAULT_MAX_GAP_FOR_STREAMING = 10_000;
+
+    private final ReadsDataSource reads;
+    private final int maxGapForStreaming;
+
+    /**
+     * Reads streamed so far that may overlap the current or a later query, in coordinate order
+     */
+    private final Deque<GATKRead> window = new ArrayDeque<>();
+
+    /**
+     * Reads of the current contig in coordinate order, from the position at which the stream was opened.
+     * Null if there is no stream open.
+     */
+    private PeekableIterator<GATKRead> stream = null;
+    private String streamContig = null;
+    // start of the last read streamed, or the start of the query that opened the stream
+    private int streamPosition = 0;
+    // start of the previous query, which bounds the reads that the window may have discarded
+    private int windowStart = 0;
+
+    private int numQueriesFromWindow = 0;
+    private int numSeeks = 0;
+    private int numDirectQueries = 0;
+
+    /**
+     * @param reads backing source of reads, which must be indexed, and must not be used by anyone else while this
+     *              source is in use
+     */
+    SweepingReadsDataSource( final ReadsDataSource reads ) {
+        this(reads, DEFAULT_MAX_GAP_FOR_STREAMING);
+    }
+
+    /**
+     * @param reads backing source of reads, which must be indexed, and must not be used by anyone else while this
+     *              source is in use
+     * @param maxGapForStreaming maximum distance, in bases, that the stream is advanced to reach the next query
+     *                           before re-opening it with an index query instead
+     */
+    SweepingReadsDataSource( final ReadsDataSource reads, final int maxGapForStreaming ) {
+        this.reads = Utils.nonNull(reads);
+        Utils.validateArg(maxGapForStreaming >= 0, "maxGapForStreaming must be non-negative");
+        this.maxGapForStreaming = maxGapForStreaming;
+    }
+
+    /**
+     * Iterate over all reads in the backing data source. Ends the current sweep.
+     */
+    @Override
+    public Iterator<GATKRead> iterator() {
+        endSweep();
+        return reads.iterator();
+    }
+
+    /**
+     * Get the reads overlapping an interval. Fastest when successive queries are on increasing positions of a contig.
+     *
+     * @param interval The interval over which to query
+     * @return Iterator over copies of the reads overlapping the query interval, in coordinate order
+     */
+    @Override
+    public Iterator<GATKRead> query( final SimpleInterval interval ) {
+        Utils.nonNull(interval);
+        final String contig = interval.getContig();
+        if ( stream != null && contig.equals(streamContig) && interval.getStart() < windowStart ) {
+            // The window may have discarded reads that overlap this query, and a direct query would close the stream anyway
+            endSweep();
+            ++numDirectQueries;
+            return reads.query(interval);
+        }
+
+        if ( stream == null || ! contig.equals(streamContig) || interval.getStart() - streamPosition > maxGapForStreaming ) {
+            final SAMSequenceRecord contigRecord = reads.getSequenceDictionary() == null ? null : reads.getSequenceDictionary().getSequence(contig);
+            if ( contigRecord == null ) {
+                endSweep();
+                ++numDirectQueries;
+                return reads.query(interval);
+            }
+            seek(new SimpleInterval(contig, interval.getStart(), Math.max(interval.getStart(), contigRecord.getSequenceLength())));
+        } else {
+            ++numQueriesFromWindow;
+        }
+
+        windowStart = interval.getStart();
+        window.removeIf(read -> getEnd(read) < interval.getStart());
+        while ( stream.hasNext() && stream.peek().getAssignedStart() <= interval.getEnd() ) {
+            final GATKRead read = stream.next();
+            streamPosition = Math.max(streamPosition, read.getAssignedStart());
+            if ( getEnd(read) >= interval.getStart() ) {
+                window.add(read);
+            }
+        }
+
+        final List<GATKRead> overlappingReads = new ArrayList<>();
+        for ( final GATKRead read : window ) {
+            if ( read.getAssignedStart() > interval.getEnd() ) {
+                break;
+            }
+            if ( getEnd(read) >= interval.getStart() ) {
+                overlappingReads.add(read.copy());
+            }
+        }
+        return overlappingReads.iterator();
+    }
+
+    /**
+     * Re-open the stream with a query over the given interval, discarding the current window
+     */
+    private void seek( final SimpleInterval streamInterval ) {
+        window.clear();
+        stream = new PeekableIterator<>(reads.query(streamInterval));
+        streamContig = streamInterval.getContig();
+        streamPosition = streamInterval.getStart();
+        ++numSeeks;
+    }
+
+    /**
+     * Discard the window, and forget the stream (which is closed by the next query or iteration on the backing source).
+     */
+    private void endSweep() {
+        window.clear();
+        stream = null;
+        streamContig = null;
+    }
+
+    /**
+     * End of the read on its contig, for the purpose of overlap with the queries. Unmapped reads that have been
+     * assigned a position are returned by index queries overlapping that position.
+     */
+    private static int getEnd( final GATKRead read ) {
+        return read.isUnmapped() ? read.getAssignedStart() : read.getEnd();
+    }
+
+    int getNumQueriesFromWindow() {
+        return numQueriesFromWindow;
+    }
+
+    int getNumSeeks() {
+        return numSeeks;
+    }
+
+    int getNumDirectQueries() {
+        return numDirectQueries;
+    }
+
+    /**
+     * Log how many queries were answered by streaming, by re-opening the stream, or with a direct query.
+     */
+    void printStatistics() {
+        final int totalQueries = numQueriesFromWindow + numSeeks + numDirectQueries;
+        logger.debug(String.format("Answered %.2f%% of read queries from the streamed window (%d streamed, %d re-opened the stream, %d direct queries, out of %d total queries)",
+                totalQueries > 0 ? ((double)numQueriesFromWindow / totalQueries) * 100.0 : 0.0,
+                numQueriesFromWindow, numSeeks, numDirectQueries, totalQueries));
+    }
+}
@@ -0,0 +1,55 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import java.util.List;
+
+/**
+ * Thread-confined processing of variants, used by the multi-threaded traversal mode of {@link VariantWalker}.
+ *
+ * Each worker thread of the traversal gets its own processor (created via {@link Factory#createProcessor}),
+ * so implementations may keep unsynchronized per-thread state such as a genotyping or annotation engine.
+ * The results returned by {@link #process} are handed to {@link Factory#accept} on the traversal thread,
+ * in exactly the order in which the single-threaded traversal would have produced them.
+ *
+ * @param <T> type of the results produced for each variant (eg., VariantContext)
+ */
+public interface VariantProcessor<T> {
+
+    /**
+     * Process an individual variant. Same contract as {@link VariantWalker#apply}, except that results must be
+     * returned rather than written out directly.
+     *
+     * @param variant current variant being processed
+     * @param readsContext reads overlapping the current variant, from this processor's worker data sources
+     * @param referenceContext reference bases spanning the current variant, from this processor's worker data sources
+     * @param featureContext features overlapping the current variant, from this processor's worker data sources
+     * @return results for this variant, in output order (never null)
+     */
+    List<T> process( final VariantContext variant, final ReadsContext readsContext, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * Release any resources held by this processor. Called once, after traversal is complete.
+     */
+    default void close() { }
+
+    /**
+     * Creates the per-thread processors and consumes their results.
+     *
+     * @param <T> type of the results produced for each variant
+     */
+    interface Factory<T> {
+
+        /**
+         * @return a new processor for the exclusive use of one traversal worker thread
+         */
+        VariantProcessor<T> createProcessor();
+
+        /**
+         * Consume one result. Always called on the traversal thread, in traversal order.
+         *
+         * @param result result produced by one of this factory's processors
+         */
+        void accept( final T result );
+    }
+}
@@ -1,13 +1,37 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
+import org.broadinstitute.hellbender.engine.filters.VariantFilter;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A VariantWalker is a tool that processes a variant at a time from a source of variants, with
@@ -16,9 +40,23 @@ import java.util.Spliterator;
  *
  * VariantWalker authors must implement the {@link #apply} method to process each variant, and may optionally implement
  * {@link #onTraversalStart}, {@link #onTraversalSuccess} and/or {@link #closeTool}.
+ *
+ * Tools that provide a {@link VariantProcessor.Factory} (see {@link #makeVariantProcessorFactory}) may also be run
+ * with {@link #THREADS_LONG_NAME} > 1, in which case the traversal intervals are split into contiguous partitions
+ * that are traversed concurrently, each worker thread using its own data sources (including its own reader of the
+ * driving variants) and its own {@link VariantProcessor}. The results are handed back to the tool in the same order
+ * as in a single-threaded traversal.
  */
 public abstract class VariantWalker extends VariantWalkerBase {
 
+    public static final String THREADS_LONG_NAME = "threads";
+    public static final String PARTITION_SIZE_LONG_NAME = "variant-partition-size";
+
+    /**
+     * Number of partitions submitted ahead of the partition currently being written out, per worker thread.
+     */
+    private static final int MAX_PENDING_PARTITIONS_PER_THREAD = 2;
+
     // NOTE: using File rather than FeatureInput<VariantContext> here so that we can keep this driving source
     //       of variants separate from any other potential sources of Features
     @Argument(fullName = StandardArgumentDefinitions.VARIANT_LONG_NAME, shortName = StandardArgumentDefinitions.VARIANT_SHORT_NAME, doc = "A VCF file containing variants", common = false, optional = false)
@@ -29,6 +67,25 @@ public abstract class VariantWalker extends VariantWalkerBase {
     private FeatureDataSource<VariantContext> drivingVariants;
     private FeatureInput<VariantContext> drivingVariantsFeatureInput;
 
+    /**
+     * Number of partitions of the traversal intervals to traverse concurrently. Each worker thread opens its own
+     * reader of the driving variants and its own reads, reference and feature data sources, and uses its own tool
+     * engine. The output is the same, and in the same order, as in a single-threaded run.
+     *
+     * Only supported by tools that override {@link #makeVariantProcessorFactory}.
+     */
+    @Argument(fullName = THREADS_LONG_NAME, doc = "Number of partitions of the traversal intervals to traverse concurrently. Requires tool support.", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
+    /**
+     * Size of the partitions traversed concurrently when {@link #THREADS_LONG_NAME} > 1. Traversal intervals larger
+     * than this are split, and smaller consecutive ones are grouped together. Results of partitions that finish
+     * ahead of the partition currently being written are held in memory, so this shouldn't be made too large.
+     */
+    @Advanced
+    @Argument(fullName = PARTITION_SIZE_LONG_NAME, doc = "Number of bases in each partition of the traversal intervals, when traversing on multiple threads", optional = true, minValue = 1)
+    protected int partitionSize = 1_000_000;
+
     @Override
     protected SAMSequenceDictionary getSequenceDictionaryForDrivingVariants() { return drivingVariants.getSequenceDictionary(); }
 
@@ -54,14 +111,281 @@ public abstract class VariantWalker extends VariantWalkerBase {
         drivingVariants = new FeatureDataSource<>(drivingVariantsFeatureInput, FEATURE_CACHE_LOOKAHEAD, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
                                                   referenceArguments.getReferencePath());
 
-        //Add the driving datasource to the feature manager too so that it can be queried. Setting lookahead to 0 to avoid caching.
-        //Note: we are disabling lookahead here because of windowed queries that need to "look behind" as well.
-        features.addToFeatureSources(0, drivingVariantsFeatureInput, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                     referenceArguments.getReferencePath());
+        addDrivingVariantsToFeatureManager(features);
 
         //Note: the intervals for the driving variants are set in onStartup
     }
 
+    /**
+     * Add the driving datasource to the feature manager too so that it can be queried. Setting lookahead to 0 to avoid caching.
+     * Note: we are disabling lookahead here because of windowed queries that need to "look behind" as well.
+     */
+    private void addDrivingVariantsToFeatureManager( final FeatureManager featureManager ) {
+        featureManager.addToFeatureSources(0, drivingVariantsFeatureInput, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                           referenceArguments.getReferencePath());
+    }
+
+    /**
+     * Tools that support traversing partitions of the intervals concurrently (see {@link #THREADS_LONG_NAME}) must
+     * override this to return a factory of per-thread {@link VariantProcessor}s. The processors take the place of
+     * {@link #apply} in multi-threaded traversals. Called after {@link #onTraversalStart}.
+     *
+     * @return a factory of per-thread processors, or null (the default) if the tool only supports single-threaded traversal
+     */
+    protected VariantProcessor.Factory<?> makeVariantProcessorFactory() {
+        return null;
+    }
+
+    @Override
+    public void traverse() {
+        if ( traversalThreads > 1 ) {
+            final VariantProcessor.Factory<?> processorFactory = makeVariantProcessorFactory();
+            if ( processorFactory == null ) {
+                throw new CommandLineException.BadArgumentValue(THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                        getClass().getSimpleName() + " does not support multi-threaded traversal");
+            }
+            traverseConcurrently(processorFactory);
+        } else {
+            super.traverse();
+        }
+    }
+
+    /**
+     * Traverse the partitions of the traversal intervals on {@link #traversalThreads} worker threads, streaming the
+     * results of each partition to the processor factory in partition order. At most
+     * {@link #MAX_PENDING_PARTITIONS_PER_THREAD} partitions per thread are submitted ahead of the one being written out.
+     *
+     * @param processorFactory factory for the per-thread processors
+     */
+    private <T> void traverseConcurrently( final VariantProcessor.Factory<T> processorFactory ) {
+        final List<SimpleInterval> traversalIntervals;
+        if ( hasIntervals() ) {
+            traversalIntervals = intervalsForTraversal;
+        } else {
+            final SAMSequenceDictionary dictionary = getBestAvailableSequenceDictionary();
+            if ( dictionary == null ) {
+                throw new UserException("Multi-threaded traversal of " + drivingVariantFile + " requires a sequence dictionary, from either the reference or the variants");
+            }
+            traversalIntervals = IntervalUtils.getAllIntervalsForReference(dictionary);
+        }
+        final List<VariantPartition> partitions = makePartitions(traversalIntervals, partitionSize);
+        logger.info("Traversing " + partitions.size() + " partitions of the intervals on " + traversalThreads + " threads");
+
+        // Workers (and their data sources) are created up front on this thread, and are handed out to tasks through
+        // this queue: since there are exactly as many workers as pool threads, a task never waits for a worker.
+        final BlockingQueue<TraversalWorker<T>> idleWorkers = new LinkedBlockingQueue<>();
+        final List<TraversalWorker<T>> workers = new ArrayList<>(traversalThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(traversalThreads,
+                new ThreadFactoryBuilder().setNameFormat("variantTraversal-thread-%d").setDaemon(true).build());
+
+        try {
+            for ( int i = 0; i < traversalThreads; i++ ) {
+                final TraversalWorker<T> worker = new TraversalWorker<>(processorFactory.createProcessor());
+                workers.add(worker);
+                idleWorkers.add(worker);
+            }
+
+            final Deque<BlockingQueue<ProcessedVariant<T>>> partitionOutputs = new ArrayDeque<>();
+            final Deque<Future<?>> partitionTasks = new ArrayDeque<>();
+            final Iterator<VariantPartition> partitionIter = partitions.iterator();
+            while ( partitionIter.hasNext() || ! partitionTasks.isEmpty() ) {
+                while ( partitionIter.hasNext() && partitionTasks.size() < traversalThreads * MAX_PENDING_PARTITIONS_PER_THREAD ) {
+                    final VariantPartition partition = partitionIter.next();
+                    final VariantFilter variantFilter = makeVariantFilter();
+                    final BlockingQueue<ProcessedVariant<T>> partitionOutput = new LinkedBlockingQueue<>();
+
+                    partitionOutputs.add(partitionOutput);
+                    partitionTasks.add(executor.submit(() -> {
+                        try {
+                            final TraversalWorker<T> worker = idleWorkers.take();
+                            try {
+                                worker.processPartition(partition, variantFilter, partitionOutput);
+                            } finally {
+                                idleWorkers.add(worker);
+                            }
+                        } finally {
+                            partitionOutput.add(ProcessedVariant.endOfPartition());
+                        }
+                        return null;
+                    }));
+                }
+
+                final BlockingQueue<ProcessedVariant<T>> partitionOutput = partitionOutputs.remove();
+                ProcessedVariant<T> processedVariant;
+                while ( ! (processedVariant = partitionOutput.take()).isEndOfPartition() ) {
+                    processedVariant.results.forEach(processorFactory::accept);
+                    progressMeter.update(processedVariant.span);
+                }
+                // Propagates any failure of the partition's task
+                partitionTasks.remove().get();
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during multi-threaded variant traversal", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Error during multi-threaded variant traversal", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            workers.forEach(TraversalWorker::close);
+        }
+    }
+
+    /**
+     * Split sorted, merged traversal intervals into contiguous partitions of about {@code partitionSize} bases:
+     * intervals larger than that are cut into pieces, and consecutive smaller intervals are grouped together.
+     *
+     * @param intervals sorted, non-overlapping intervals
+     * @param partitionSize maximum number of bases in each partition
+     * @return the partitions, in traversal order
+     */
+    @VisibleForTesting
+    static List<VariantPartition> makePartitions( final List<SimpleInterval> intervals, final int partitionSize ) {
+        Utils.nonNull(intervals);
+        Utils.validateArg(partitionSize > 0, "partitionSize must be positive");
+
+        final List<VariantPartition> partitions = new ArrayList<>();
+        List<SimpleInterval> currentIntervals = new ArrayList<>();
+        long currentSize = 0;
+        SimpleInterval precedingInterval = null;
+        for ( final SimpleInterval interval : intervals ) {
+            int start = interval.getStart();
+            while ( start <= interval.getEnd() ) {
+                final int end = (int)Math.min(interval.getEnd(), start + (partitionSize - currentSize) - 1);
+                currentIntervals.add(new SimpleInterval(interval.getContig(), start, end));
+                currentSize += end - start + 1;
+                start = end + 1;
+
+                if ( currentSize >= partitionSize ) {
+                    partitions.add(new VariantPartition(currentIntervals, precedingInterval));
+                    precedingInterval = currentIntervals.get(currentIntervals.size() - 1);
+                    currentIntervals = new ArrayList<>();
+                    currentSize = 0;
+                }
+            }
+        }
+        if ( ! currentIntervals.isEmpty() ) {
+            partitions.add(new VariantPartition(currentIntervals, precedingInterval));
+        }
+        return partitions;
+    }
+
+    /**
+     * A contiguous group of traversal intervals, traversed by a single worker in a multi-threaded traversal.
+     */
+    @VisibleForTesting
+    static final class VariantPartition {
+        private final List<SimpleInterval> intervals;
+        // last interval of the previous partition, if any
+        private final SimpleInterval precedingInterval;
+
+        VariantPartition( final List<SimpleInterval> intervals, final SimpleInterval precedingInterval ) {
+            this.intervals = Collections.unmodifiableList(intervals);
+            this.precedingInterval = precedingInterval;
+        }
+
+        List<SimpleInterval> getIntervals() {
+            return intervals;
+        }
+
+        SimpleInterval getPrecedingInterval() {
+            return precedingInterval;
+        }
+
+        /**
+         * Like the single-threaded traversal, which skips variants overlapping the previous traversal interval,
+         * a partition leaves out the variants that overlap the last interval of the preceding partition, since
+         * these are output by the preceding partition.
+         */
+        boolean isTraversedByPrecedingPartition( final VariantContext variant ) {
+            return precedingInterval != null && precedingInterval.overlaps(variant);
+        }
+    }
+
+    /**
+     * State owned by one worker of a multi-threaded traversal: private data sources, read filter and variant processor.
+     * Only ever used by one thread at a time.
+     */
+    private final class TraversalWorker<T> {
+        private final FeatureDataSource<VariantContext> workerDrivingVariants = new FeatureDataSource<>(drivingVariantsFeatureInput, FEATURE_CACHE_LOOKAHEAD,
+                VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, referenceArguments.getReferencePath());
+        private final ReadsDataSource workerReads = createReadsDataSource();
+        private final ReferenceDataSource workerReference = createReferenceDataSource();
+        private final FeatureManager workerFeatures = new FeatureManager(VariantWalker.this, FEATURE_CACHE_LOOKAHEAD, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                referenceArguments.getReferencePath());
+        private final CountingReadFilter readFilter = makeReadFilter();
+        private final VariantProcessor<T> processor;
+
+        private TraversalWorker( final VariantProcessor<T> processor ) {
+            this.processor = Utils.nonNull(processor);
+            addDrivingVariantsToFeatureManager(workerFeatures);
+            addFeatureInputsAddedAfterInitialization(workerFeatures);
+        }
+
+        /**
+         * Process the variants of the given partition with this worker's data sources, adding a
+         * {@link ProcessedVariant} to the output queue for each of them.
+         */
+        private void processPartition( final VariantPartition partition, final VariantFilter variantFilter, final BlockingQueue<ProcessedVariant<T>> output ) {
+            workerDrivingVariants.setIntervalsForTraversal(partition.getIntervals());
+            // The reads of this worker are private, so the sweep can share them; a new sweep starts with each partition
+            final GATKDataSource<GATKRead> partitionReads = sweepReads && workerReads != null ? new SweepingReadsDataSource(workerReads) : workerReads;
+            final Iterator<VariantContext> variantIter = workerDrivingVariants.iterator();
+            while ( variantIter.hasNext() ) {
+                final VariantContext variant = variantIter.next();
+                if ( partition.isTraversedByPrecedingPartition(variant) || ! variantFilter.test(variant) ) {
+                    continue;
+                }
+                final SimpleInterval variantInterval = new SimpleInterval(variant);
+                final List<T> results = processor.process(variant,
+                        new ReadsContext(partitionReads, variantInterval, readFilter),
+                        new ReferenceContext(workerReference, variantInterval),
+                        new FeatureContext(workerFeatures, variantInterval));
+                output.add(new ProcessedVariant<>(variantInterval, Utils.nonNull(results)));
+            }
+        }
+
+        private void close() {
+            processor.close();
+            workerDrivingVariants.close();
+            if ( workerReads != null ) {
+                workerReads.close();
+            }
+            if ( workerReference != null ) {
+                workerReference.close();
+            }
+            workerFeatures.close();
+        }
+    }
+
+    /**
+     * The results of processing one variant in a multi-threaded traversal, or the end-of-partition marker.
+     */
+    private static final class ProcessedVariant<T> {
+        private final SimpleInterval span;
+        private final List<T> results;
+
+        private ProcessedVariant( final SimpleInterval span, final List<T> results ) {
+            this.span = span;
+            this.results = results;
+        }
+
+        private static <T> ProcessedVariant<T> endOfPartition() {
+            return new ProcessedVariant<>(null, null);
+        }
+
+        private boolean isEndOfPartition() {
+            return span == null;
+        }
+    }
+
     /**
      * Returns the feature input for the driving variants file.
      */
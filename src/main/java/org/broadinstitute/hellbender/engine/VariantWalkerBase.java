@@ -3,11 +3,14 @@ package org.broadinstitute.hellbender.engine;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.VariantFilter;
 import org.broadinstitute.hellbender.engine.filters.VariantFilterLibrary;
 import org.broadinstitute.hellbender.utils.IndexUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.nio.file.Path;
 import java.util.Spliterator;
@@ -31,6 +34,19 @@ public abstract class VariantWalkerBase extends GATKTool {
      */
     public static final int FEATURE_CACHE_LOOKAHEAD = 100_000;
 
+    public static final String SWEEP_READS_LONG_NAME = "sweep-reads";
+
+    /**
+     * Stream the reads in coordinate order alongside the (sorted) variants, and serve the reads overlapping each
+     * variant from a sliding window, instead of doing an index query for each variant (see
+     * {@link SweepingReadsDataSource}). This is much faster when there are many variants close to one another,
+     * such as a list of population sites, since each block of the reads files is decompressed only once.
+     * The reads are still queried directly where the variants are sparse.
+     */
+    @Advanced
+    @Argument(fullName = SWEEP_READS_LONG_NAME, doc = "Stream the reads alongside the variants rather than querying the reads overlapping each variant", optional = true)
+    public boolean sweepReads = false;
+
     @Override
     public boolean requiresFeatures() { return true; }
 
@@ -102,18 +118,29 @@ public abstract class VariantWalkerBase extends GATKTool {
     public void traverse() {
         final VariantFilter variantfilter = makeVariantFilter();
         final CountingReadFilter readFilter = makeReadFilter();
-        // Process each variant in the input stream.
-        StreamSupport.stream(getSpliteratorForDrivingVariants(), false)
-                .filter(variantfilter)
-                .forEach(variant -> {
-                    final SimpleInterval variantInterval = new SimpleInterval(variant);
-                    apply(variant,
-                            new ReadsContext(reads, variantInterval, readFilter),
-                            new ReferenceContext(reference, variantInterval),
-                            new FeatureContext(features, variantInterval));
-
-                    progressMeter.update(variantInterval);
-                });
+        // The sweep uses its own data source, so that it isn't disturbed by tools that query the reads directly
+        final ReadsDataSource sweptReads = sweepReads && hasReads() ? createReadsDataSource() : null;
+        final SweepingReadsDataSource sweepingReads = sweptReads != null ? new SweepingReadsDataSource(sweptReads) : null;
+        final GATKDataSource<GATKRead> readsForVariants = sweepingReads != null ? sweepingReads : reads;
+        try {
+            // Process each variant in the input stream.
+            StreamSupport.stream(getSpliteratorForDrivingVariants(), false)
+                    .filter(variantfilter)
+                    .forEach(variant -> {
+                        final SimpleInterval variantInterval = new SimpleInterval(variant);
+                        apply(variant,
+                                new ReadsContext(readsForVariants, variantInterval, readFilter),
+                                new ReferenceContext(reference, variantInterval),
+                                new FeatureContext(features, variantInterval));
+
+                        progressMeter.update(variantInterval);
+                    });
+        } finally {
+            if ( sweptReads != null ) {
+                sweepingReads.printStatistics();
+                sweptReads.close();
+            }
+        }
     }
 
     /**
@@ -98,6 +98,10 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     @Argument(doc = "whether to use the shuffle implementation or not", shortName = "shuffle", fullName = "shuffle", optional = true)
     public boolean shuffle = false;
 
+    @Advanced
+    @Argument(fullName = "adaptiveReadShards", shortName = "adaptiveReadShards", doc = "Make read shards with many reads smaller than readShardSize (down to maxAssemblyRegionSize), using the BAM index to estimate the number of reads in each shard, so that high-depth regions don't slow down their tasks. Only supported for indexed BAM input.", optional = true)
+    public boolean adaptiveReadShards = false;
+
     @Override
     public final boolean requiresReads() { return true; }
 
@@ -120,6 +124,8 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
 
     private List<ShardBoundary> intervalShards;
 
+    private ShardTimingAccumulator shardTimings;
+
     /**
      * Note that this sets {@code intervalShards} as a side effect, in order to add padding to the intervals.
      */
@@ -127,9 +133,14 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     protected List<SimpleInterval> editIntervals(List<SimpleInterval> rawIntervals) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
         List<SimpleInterval> intervals = rawIntervals == null ? IntervalUtils.getAllIntervalsForReference(sequenceDictionary) : rawIntervals;
-        intervalShards = intervals.stream()
-                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, sequenceDictionary).stream())
-                .collect(Collectors.toList());
+        ReadDensityEstimate readDensity = adaptiveReadShards ? ReadDensityEstimate.fromReadsPath(getReadSourceName()) : null;
+        if (readDensity != null) {
+            intervalShards = readDensity.divideIntervalsIntoShards(intervals, readShardSize, Math.min(maxAssemblyRegionSize, readShardSize), readShardPadding, sequenceDictionary);
+        } else {
+            intervalShards = intervals.stream()
+                    .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, sequenceDictionary).stream())
+                    .collect(Collectors.toList());
+        }
         List<SimpleInterval> paddedIntervalsForReads =
                 intervals.stream().map(interval -> interval.expandWithinContig(readShardPadding, sequenceDictionary)).collect(Collectors.toList());
         return paddedIntervalsForReads;
@@ -147,10 +158,18 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
         JavaRDD<Shard<GATKRead>> shardedReads = SparkSharder.shard(ctx, getReads(), GATKRead.class, sequenceDictionary, intervalShards, readShardSize, shuffle);
         Broadcast<ReferenceMultiSource> bReferenceSource = hasReference() ? ctx.broadcast(getReference()) : null;
         Broadcast<FeatureManager> bFeatureManager = features == null ? null : ctx.broadcast(features);
+        if (shardTimings == null) {
+            shardTimings = ShardTimingAccumulator.register(ctx, "assembly region shard timings");
+        }
         return shardedReads.flatMap(getAssemblyRegionsFunction(bReferenceSource, bFeatureManager, sequenceDictionary, getHeaderForReads(),
-                assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance));
+                assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance,
+                shardTimings));
     }
 
+    /**
+     * The time taken by each shard includes the processing of its assembly regions by the tool, when the tool
+     * processes them as they are created (with narrow transformations of the RDD of assembly regions).
+     */
     private static FlatMapFunction<Shard<GATKRead>, AssemblyRegionWalkerContext> getAssemblyRegionsFunction(
             final Broadcast<ReferenceMultiSource> bReferenceSource,
             final Broadcast<FeatureManager> bFeatureManager,
@@ -161,8 +180,10 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
             final int maxAssemblyRegionSize,
             final int assemblyRegionPadding,
             final double activeProbThreshold,
-            final int maxProbPropagationDistance) {
+            final int maxProbPropagationDistance,
+            final ShardTimingAccumulator shardTimings) {
         return (FlatMapFunction<Shard<GATKRead>, AssemblyRegionWalkerContext>) shardedRead -> {
+            final long startNanos = System.nanoTime();
             SimpleInterval paddedInterval = shardedRead.getPaddedInterval();
             SimpleInterval assemblyRegionPaddedInterval = paddedInterval.expandWithinContig(assemblyRegionPadding, sequenceDictionary);
 
@@ -176,16 +197,18 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
                     header, referenceContext, featureContext, evaluator,
                     minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold,
                     maxProbPropagationDistance);
-            return StreamSupport.stream(assemblyRegions.spliterator(), false).map(assemblyRegion ->
+            return shardTimings.recordWhenExhausted(shardedRead.getInterval(), startNanos,
+                    StreamSupport.stream(assemblyRegions.spliterator(), false).map(assemblyRegion ->
                     new AssemblyRegionWalkerContext(assemblyRegion,
                         new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
-                        new FeatureContext(features, assemblyRegion.getExtendedSpan()))).iterator();
+                        new FeatureContext(features, assemblyRegion.getExtendedSpan()))).iterator());
         };
     }
 
     @Override
     protected void runTool(JavaSparkContext ctx) {
         processAssemblyRegions(getAssemblyRegions(ctx), ctx);
+        logger.info(shardTimings.value());
     }
 
     /**
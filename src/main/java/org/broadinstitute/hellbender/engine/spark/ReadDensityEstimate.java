@@ -0,0 +1,234 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.util.*;
+
+/**
+ * Estimate of how much read data overlaps each part of the genome, made from a BAM index without reading any reads,
+ * and used to divide intervals into shards of roughly equal work ({@link #divideIntervalsIntoShards}).
+ *
+ * The finest bins of a BAM index each span a 16kb window of a contig, and hold the chunks of the file (ranges of
+ * BGZF virtual offsets) with the reads that lie entirely within that window. The compressed size of these chunks is
+ * used as the cost of the window. The span of a window's bin also includes the chunks of the coarser bins containing
+ * it, which hold the reads crossing window boundaries, so these are counted in each window they may overlap: they are
+ * a small fraction of the reads unless the reads are long, so this only smooths the estimate slightly.
+ */
+public final class ReadDensityEstimate {
+    private static final Logger logger = LogManager.getLogger(ReadDensityEstimate.class);
+
+    /**
+     * Level of the finest (16kb) bins of a BAM index
+     */
+    private static final int LEAF_BIN_LEVEL = GenomicIndexUtil.LEVEL_STARTS.length - 1;
+    private static final int WINDOW_SHIFT = 14;
+    public static final int WINDOW_SIZE = 1 << WINDOW_SHIFT;
+
+    /**
+     * A chunk within a single BGZF block has no compressed size, so its uncompressed size is scaled by the typical
+     * compression ratio of BAM files instead
+     */
+    private static final int ASSUMED_COMPRESSION_RATIO = 4;
+
+    /**
+     * For each contig, the cumulative cost of its windows: element i is the cost of windows 0 to i-1
+     */
+    private final Map<String, double[]> cumulativeCostsByContig;
+
+    private ReadDensityEstimate(final Map<String, double[]> cumulativeCostsByContig) {
+        this.cumulativeCostsByContig = cumulativeCostsByContig;
+    }
+
+    /**
+     * Make an estimate from the index of a BAM file.
+     *
+     * @param readsPath path of an indexed BAM file
+     * @return the estimate, or null if the reads don't have a BAM index that can be used (for instance, a CRAM
+     *         file, or a file on a filesystem that can't be accessed from the driver)
+     */
+    public static ReadDensityEstimate fromReadsPath(final String readsPath) {
+        Utils.nonNull(readsPath);
+        try ( final SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(IOUtils.getPath(readsPath)) ) {
+            if ( ! reader.hasIndex() || ! reader.indexing().hasBrowseableIndex() ) {
+                logger.warn(String.format("No BAM index found for %s, so the read density can't be estimated", readsPath));
+                return null;
+            }
+            return fromBAMIndex(reader.indexing().getBrowseableIndex(), reader.getFileHeader().getSequenceDictionary());
+        } catch ( final Exception e ) {
+            logger.warn(String.format("Could not read the BAM index of %s, so the read density can't be estimated: %s", readsPath, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Make an estimate from a BAM index.
+     *
+     * @param index BAM index
+     * @param dictionary sequence dictionary of the indexed BAM file
+     * @return the estimate of the read density over the contigs of the dictionary
+     */
+    public static ReadDensityEstimate fromBAMIndex(final BrowseableBAMIndex index, final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(index);
+        Utils.nonNull(dictionary);
+        final Map<String, double[]> cumulativeCostsByContig = new LinkedHashMap<>();
+        for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+            // BAM indices can't index positions beyond the genomic span of their bins
+            final int numWindows = Math.min(getWindow(contig.getSequenceLength()) + 1, GenomicIndexUtil.BIN_GENOMIC_SPAN >> WINDOW_SHIFT);
+            final double[] cumulativeCosts = new double[numWindows + 1];
+            for ( int window = 0; window < numWindows; window++ ) {
+                final Bin bin = new Bin(contig.getSequenceIndex(), GenomicIndexUtil.LEVEL_STARTS[LEAF_BIN_LEVEL] + window);
+                cumulativeCosts[window + 1] = cumulativeCosts[window] + getCompressedSize(index.getSpanOverlapping(bin));
+            }
+            cumulativeCostsByContig.put(contig.getSequenceName(), cumulativeCosts);
+        }
+        return new ReadDensityEstimate(cumulativeCostsByContig);
+    }
+
+    /**
+     * @return estimated size of a span of a BAM file, in compressed bytes
+     */
+    private static double getCompressedSize(final BAMFileSpan span) {
+        if ( span == null ) {
+            return 0.0;
+        }
+        double size = 0.0;
+        for ( final Chunk chunk : span.getChunks() ) {
+            final long compressedSize = (chunk.getChunkEnd() >>> 16) - (chunk.getChunkStart() >>> 16);
+            if ( compressedSize > 0 ) {
+                size += compressedSize;
+            } else {
+                size += (double)Math.max(0L, (chunk.getChunkEnd() & 0xFFFF) - (chunk.getChunkStart() & 0xFFFF)) / ASSUMED_COMPRESSION_RATIO;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param position 1-based position on a contig
+     * @return 0-based index of the window containing the position
+     */
+    private static int getWindow(final int position) {
+        return (position - 1) >> WINDOW_SHIFT;
+    }
+
+    /**
+     * Estimate the cost (in compressed bytes of reads) of an interval, assuming that the reads of each window are
+     * spread uniformly over it.
+     *
+     * @param contig contig of the interval
+     * @param start 1-based start of the interval
+     * @param end 1-based, inclusive end of the interval
+     * @return the estimated cost of the interval, or 0 if the contig is unknown
+     */
+    public double estimateCost(final String contig, final int start, final int end) {
+        final double[] cumulativeCosts = cumulativeCostsByContig.get(contig);
+        if ( cumulativeCosts == null || end < start ) {
+            return 0.0;
+        }
+        return getCumulativeCost(cumulativeCosts, end) - getCumulativeCost(cumulativeCosts, start - 1);
+    }
+
+    /**
+     * @return the estimated cost of positions 1 to position of a contig
+     */
+    private static double getCumulativeCost(final double[] cumulativeCosts, final int position) {
+        if ( position <= 0 ) {
+            return 0.0;
+        }
+        final int window = Math.min(getWindow(position), cumulativeCosts.length - 2);
+        final double windowCost = cumulativeCosts[window + 1] - cumulativeCosts[window];
+        final int positionsInWindow = Math.min(position - (window << WINDOW_SHIFT), WINDOW_SIZE);
+        return cumulativeCosts[window] + windowCost * positionsInWindow / WINDOW_SIZE;
+    }
+
+    /**
+     * Divide intervals into shards of roughly equal estimated cost. Shards are at most maxShardSize bases, as with
+     * {@link org.broadinstitute.hellbender.engine.Shard#divideIntervalIntoShards}, but shards with more reads than
+     * the typical (median) shard of that size are made smaller, down to minShardSize bases, so that the tasks
+     * processing high-depth regions (such as centromeres, or amplified regions of a tumour) don't take much longer
+     * than the rest.
+     *
+     * @param intervals intervals to shard; must be on the contigs of the dictionary
+     * @param maxShardSize maximum size of a shard
+     * @param minShardSize minimum size of a shard, other than the last shard of an interval
+     * @param shardPadding each shard's interval will be padded on both sides by this number of bases (may be 0)
+     * @param dictionary sequence dictionary of the reads
+     * @return the shards of all of the intervals, in the order of the intervals
+     */
+    public List<ShardBoundary> divideIntervalsIntoShards(final List<SimpleInterval> intervals, final int maxShardSize, final int minShardSize,
+                                                         final int shardPadding, final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(intervals);
+        Utils.nonNull(dictionary);
+        Utils.validateArg(maxShardSize >= 1, "maxShardSize must be >= 1");
+        Utils.validateArg(minShardSize >= 1 && minShardSize <= maxShardSize, "minShardSize must be >= 1 and <= maxShardSize");
+        Utils.validateArg(shardPadding >= 0, "shardPadding must be >= 0");
+        for ( final SimpleInterval interval : intervals ) {
+            Utils.validateArg(IntervalUtils.intervalIsOnDictionaryContig(interval, dictionary), () ->
+                    "Interval " + interval + " not within the bounds of a contig in the provided dictionary");
+        }
+
+        final double targetCost = getMedianShardCost(intervals, maxShardSize);
+        final List<ShardBoundary> shards = new ArrayList<>();
+        for ( final SimpleInterval interval : intervals ) {
+            int start = interval.getStart();
+            while ( start <= interval.getEnd() ) {
+                final int end = getShardEnd(interval, start, maxShardSize, minShardSize, targetCost);
+                final SimpleInterval shardInterval = new SimpleInterval(interval.getContig(), start, end);
+                shards.add(new ShardBoundary(shardInterval, shardInterval.expandWithinContig(shardPadding, dictionary)));
+                start = end + 1;
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * @return the median cost of the non-empty shards of maxShardSize bases of the intervals, or 0 if they are all empty
+     */
+    private double getMedianShardCost(final List<SimpleInterval> intervals, final int maxShardSize) {
+        final List<Double> shardCosts = new ArrayList<>();
+        for ( final SimpleInterval interval : intervals ) {
+            for ( long start = interval.getStart(); start <= interval.getEnd(); start += maxShardSize ) {
+                final int end = (int)Math.min(start + maxShardSize - 1, interval.getEnd());
+                final double cost = estimateCost(interval.getContig(), (int)start, end);
+                if ( cost > 0.0 ) {
+                    shardCosts.add(cost);
+                }
+            }
+        }
+        if ( shardCosts.isEmpty() ) {
+            return 0.0;
+        }
+        Collections.sort(shardCosts);
+        return shardCosts.get(shardCosts.size() / 2);
+    }
+
+    /**
+     * @return the end of the shard of the interval that starts at start: the first position at which the shard
+     *         reaches the target cost, but making the shard no smaller than minShardSize or larger than maxShardSize
+     */
+    private int getShardEnd(final SimpleInterval interval, final int start, final int maxShardSize, final int minShardSize, final double targetCost) {
+        final int maxEnd = (int)Math.min((long)start + maxShardSize - 1, interval.getEnd());
+        int low = (int)Math.min((long)start + minShardSize - 1, maxEnd);
+        if ( targetCost <= 0.0 || estimateCost(interval.getContig(), start, maxEnd) <= targetCost ) {
+            return maxEnd;
+        }
+        // the cost is non-decreasing with the end, so search for the first end at which it reaches the target
+        int high = maxEnd;
+        while ( low < high ) {
+            final int mid = low + (high - low) / 2;
+            if ( estimateCost(interval.getContig(), start, mid) >= targetCost ) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,223 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.util.AccumulatorV2;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spark accumulator of the time taken to process each shard of a tool, to check how well the work is balanced across
+ * shards (and therefore tasks) after the tool has run. Only summary statistics are kept: the number of shards, the
+ * total and maximum times, the slowest shard, and a histogram of the times in powers of two of milliseconds, from
+ * which approximate percentiles are reported.
+ *
+ * As with any accumulator updated in a transformation, the times of tasks that are re-run are counted again.
+ */
+public final class ShardTimingAccumulator extends AccumulatorV2<ShardTimingAccumulator.ShardTiming, ShardTimingAccumulator.Statistics> {
+    private static final long serialVersionUID = 1L;
+
+    private Statistics statistics = new Statistics();
+
+    /**
+     * Create an accumulator, and register it with the given context so that it can be used in its jobs
+     */
+    public static ShardTimingAccumulator register(final JavaSparkContext ctx, final String name) {
+        final ShardTimingAccumulator accumulator = new ShardTimingAccumulator();
+        ctx.sc().register(accumulator, name);
+        return accumulator;
+    }
+
+    /**
+     * Record the time taken to process a shard
+     *
+     * @param shard interval of the shard
+     * @param nanos time taken, in nanoseconds
+     */
+    public void add(final SimpleInterval shard, final long nanos) {
+        add(new ShardTiming(shard, nanos));
+    }
+
+    /**
+     * Wrap an iterator over the results of a shard, so that the time from startNanos until the iterator is exhausted
+     * is recorded for the shard. When the results are processed as they are iterated (as they are by narrow
+     * transformations such as map, flatMap or filter, or by an action such as saving them), this includes the time
+     * taken to process them.
+     *
+     * @param shard interval of the shard
+     * @param startNanos value of {@link System#nanoTime()} when the processing of the shard started
+     * @param results iterator over the results of the shard
+     * @return an iterator over the same results
+     */
+    public <T> Iterator<T> recordWhenExhausted(final SimpleInterval shard, final long startNanos, final Iterator<T> results) {
+        return new Iterator<T>() {
+            private boolean recorded = false;
+
+            @Override
+            public boolean hasNext() {
+                final boolean hasNext = results.hasNext();
+                if ( ! hasNext && ! recorded ) {
+                    recorded = true;
+                    add(shard, System.nanoTime() - startNanos);
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                return results.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean isZero() {
+        return statistics.numShards == 0;
+    }
+
+    @Override
+    public AccumulatorV2<ShardTiming, Statistics> copy() {
+        final ShardTimingAccumulator copy = new ShardTimingAccumulator();
+        copy.statistics = statistics.copy();
+        return copy;
+    }
+
+    @Override
+    public void reset() {
+        statistics = new Statistics();
+    }
+
+    @Override
+    public void add(final ShardTiming timing) {
+        statistics.add(timing);
+    }
+
+    @Override
+    public void merge(final AccumulatorV2<ShardTiming, Statistics> other) {
+        statistics.merge(other.value());
+    }
+
+    @Override
+    public Statistics value() {
+        return statistics;
+    }
+
+    /**
+     * The time taken to process one shard
+     */
+    public static final class ShardTiming implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final SimpleInterval shard;
+        private final long nanos;
+
+        public ShardTiming(final SimpleInterval shard, final long nanos) {
+            this.shard = Utils.nonNull(shard);
+            Utils.validateArg(nanos >= 0, "nanos must be non-negative");
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Summary statistics of the times taken to process shards
+     */
+    public static final class Statistics implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Bucket i of the histogram counts the shards that took less than 2^i ms (and at least 2^(i-1) ms for i > 0)
+         */
+        private static final int NUM_HISTOGRAM_BUCKETS = 40;
+
+        private long numShards = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+        private SimpleInterval slowestShard = null;
+        private final long[] histogram = new long[NUM_HISTOGRAM_BUCKETS];
+
+        private void add(final ShardTiming timing) {
+            ++numShards;
+            totalNanos += timing.nanos;
+            if ( slowestShard == null || timing.nanos > maxNanos ) {
+                maxNanos = timing.nanos;
+                slowestShard = timing.shard;
+            }
+            ++histogram[getBucket(timing.nanos)];
+        }
+
+        private void merge(final Statistics other) {
+            numShards += other.numShards;
+            totalNanos += other.totalNanos;
+            if ( other.slowestShard != null && (slowestShard == null || other.maxNanos > maxNanos) ) {
+                maxNanos = other.maxNanos;
+                slowestShard = other.slowestShard;
+            }
+            for ( int i = 0; i < NUM_HISTOGRAM_BUCKETS; i++ ) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        private Statistics copy() {
+            final Statistics copy = new Statistics();
+            copy.merge(this);
+            return copy;
+        }
+
+        private static int getBucket(final long nanos) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            return Math.min(64 - Long.numberOfLeadingZeros(millis), NUM_HISTOGRAM_BUCKETS - 1);
+        }
+
+        public long getNumShards() {
+            return numShards;
+        }
+
+        public double getMeanMillis() {
+            return numShards == 0 ? 0.0 : (double)totalNanos / numShards / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getMaxMillis() {
+            return (double)maxNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return the slowest shard, or null if no shard was recorded
+         */
+        public SimpleInterval getSlowestShard() {
+            return slowestShard;
+        }
+
+        /**
+         * @param fraction fraction of the shards, between 0 and 1
+         * @return an upper bound on the time, in ms, taken by that fraction of the shards (a power of two, from the
+         *         histogram of the times), or 0 if no shard was recorded
+         */
+        public long getPercentileUpperBoundMillis(final double fraction) {
+            Utils.validateArg(fraction >= 0.0 && fraction <= 1.0, "fraction must be between 0 and 1");
+            final long rank = (long)Math.ceil(fraction * numShards);
+            long count = 0;
+            for ( int i = 0; i < NUM_HISTOGRAM_BUCKETS; i++ ) {
+                count += histogram[i];
+                if ( count >= rank && count > 0 ) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            if ( numShards == 0 ) {
+                return "No shards were processed";
+            }
+            return String.format("Processed %d shards in %.1f ms each on average (50%% took < %d ms, 90%% < %d ms, 99%% < %d ms). " +
+                            "Slowest shard %s took %.1f ms (%.1f times the average)",
+                    numShards, getMeanMillis(), getPercentileUpperBoundMillis(0.5), getPercentileUpperBoundMillis(0.9),
+                    getPercentileUpperBoundMillis(0.99), slowestShard, getMaxMillis(),
+                    totalNanos == 0 ? 1.0 : (double)maxNanos * numShards / totalNanos);
+        }
+    }
+}
@@ -190,11 +190,20 @@ public class SparkSharder {
         JavaRDD<L> coalescedRdd = coalesce(locatables, locatableClass, new RangePartitionCoalescer(maxEndPartitionIndexes));
 
         // Create an RDD of intervals with the same number of partitions as the locatables, and where each interval
-        // is in its start partition.
-        JavaRDD<I> intervalsRdd = ctx.parallelize(indexedIntervals)
-                .mapToPair(interval ->
-                        new Tuple2<>(interval.getPartitionIndex(), interval.getLocatable()))
-                .partitionBy(new KeyPartitioner(locatables.getNumPartitions())).values();
+        // is in its start partition. The shuffle does not preserve the order of the intervals, so each interval is
+        // tagged with its index and each partition is sorted again, which keeps the output of f in coordinate order.
+        List<Tuple2<Integer, Tuple2<Integer, I>>> partitionedIntervals = new ArrayList<>(indexedIntervals.size());
+        for (int i = 0; i < indexedIntervals.size(); i++) {
+            PartitionLocatable<I> interval = indexedIntervals.get(i);
+            partitionedIntervals.add(new Tuple2<>(interval.getPartitionIndex(), new Tuple2<>(i, interval.getLocatable())));
+        }
+        JavaRDD<I> intervalsRdd = ctx.parallelizePairs(partitionedIntervals)
+                .partitionBy(new KeyPartitioner(locatables.getNumPartitions())).values()
+                .mapPartitions((FlatMapFunction<Iterator<Tuple2<Integer, I>>, I>) it -> {
+                    List<Tuple2<Integer, I>> partition = Lists.newArrayList(it);
+                    partition.sort((a, b) -> Integer.compare(a._1(), b._1()));
+                    return partition.stream().map(Tuple2::_2).iterator();
+                });
 
         // zipPartitions on coalesced locatable partitions and intervals, and apply the function f
         return coalescedRdd.zipPartitions(intervalsRdd, f);
@@ -21,6 +21,7 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
 import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
@@ -33,6 +34,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -170,12 +172,32 @@ public final class VariantsSparkSink {
             final VCFHeader header, final boolean writeGvcf, final List<Integer> gqPartitions, final int defaultPloidy,
             final int numReducers) throws IOException {
         String absoluteOutputFile = BucketUtils.makeFilePathAbsolute(outputFile);
-        writeVariantsSingle(ctx, absoluteOutputFile, variants, header, writeGvcf, gqPartitions, defaultPloidy, numReducers);
+        writeVariantsSingle(ctx, absoluteOutputFile, sortVariants(variants, header, numReducers), header, writeGvcf, gqPartitions, defaultPloidy);
     }
 
-    private static void writeVariantsSingle(
+    /**
+     * Write variants that are already sorted to the given output file in VCF format with the given header, without
+     * sorting them again. This avoids a shuffle, and the extra evaluation of the variants RDD that a sort does to find
+     * the partition boundaries, so the RDD need not be cached. Note that writing sharded output is not supported.
+     * @param ctx the JavaSparkContext
+     * @param outputFile path to the output VCF
+     * @param variants variants to write, which must be sorted by the header's record comparator both within each
+     *                 partition and across partitions (all the records in partition i are less than or equal to
+     *                 those in partition i+1), as when they are produced from coordinate-sorted shards in order
+     * @param header the header to put at the top of the output file
+     * @throws IOException if an error occurs while writing
+     * @throws GATKException if the variants of a partition are found to be out of order while writing
+     */
+    public static void writeSortedVariants(
             final JavaSparkContext ctx, final String outputFile, final JavaRDD<VariantContext> variants,
-            final VCFHeader header, final boolean writeGvcf, final List<Integer> gqPartitions, final int defaultPloidy, final int numReducers) throws IOException {
+            final VCFHeader header, final boolean writeGvcf, final List<Integer> gqPartitions, final int defaultPloidy) throws IOException {
+        String absoluteOutputFile = BucketUtils.makeFilePathAbsolute(outputFile);
+        writeVariantsSingle(ctx, absoluteOutputFile, checkSortedWithinPartitions(variants, header), header, writeGvcf, gqPartitions, defaultPloidy);
+    }
+
+    private static void writeVariantsSingle(
+            final JavaSparkContext ctx, final String outputFile, final JavaRDD<VariantContext> sortedVariants,
+            final VCFHeader header, final boolean writeGvcf, final List<Integer> gqPartitions, final int defaultPloidy) throws IOException {
 
         final Configuration conf = ctx.hadoopConfiguration();
         if (outputFile.endsWith(BGZFCodec.DEFAULT_EXTENSION) || outputFile.endsWith(".gz")) {
@@ -190,7 +212,6 @@ public final class VariantsSparkSink {
             SparkHeaderlessVCFOutputFormat.unsetGvcf(conf);
         }
 
-        final JavaRDD<VariantContext> sortedVariants = sortVariants(variants, header, numReducers);
         final String outputPartsDirectory = outputFile + ".parts/";
         saveAsShardedHadoopFiles(ctx, conf, outputPartsDirectory, sortedVariants,  header, false);
         VCFFileMerger.mergeParts(outputPartsDirectory, outputFile, header);
@@ -215,6 +236,36 @@ public final class VariantsSparkSink {
         return variantVoidPairs.map(Tuple2::_1);
     }
 
+    /**
+     * Lazily check that the variants of each partition are in order as they are written. Checking the order across
+     * partitions would take an extra pass, so it is up to the caller to ensure it.
+     */
+    private static JavaRDD<VariantContext> checkSortedWithinPartitions(final JavaRDD<VariantContext> variants, final VCFHeader header) {
+        final Comparator<VariantContext> comparator = header.getVCFRecordComparator();
+        if (comparator == null) {
+            return variants;
+        }
+        return variants.mapPartitions(iterator -> new Iterator<VariantContext>() {
+            private VariantContext previous = null;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public VariantContext next() {
+                final VariantContext variant = iterator.next();
+                if (previous != null && comparator.compare(previous, variant) > 0) {
+                    throw new GATKException(String.format("Variants are not sorted: %s:%d is followed by %s:%d",
+                            previous.getContig(), previous.getStart(), variant.getContig(), variant.getStart()));
+                }
+                previous = variant;
+                return variant;
+            }
+        });
+    }
+
     private static void saveAsShardedHadoopFiles(
             final JavaSparkContext ctx, final Configuration conf, final String outputFile, JavaRDD<VariantContext> variants,
             final VCFHeader header, final boolean writeHeader) throws IOException {
@@ -5,11 +5,15 @@ import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.util.LongAccumulator;
 import org.broadinstitute.barclay.argparser.*;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -22,6 +26,8 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
+import org.broadinstitute.hellbender.engine.spark.ReadDensityEstimate;
+import org.broadinstitute.hellbender.engine.spark.ShardTimingAccumulator;
 import org.broadinstitute.hellbender.engine.spark.SparkSharder;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSink;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -54,7 +60,14 @@ import java.util.stream.StreamSupport;
  *
  * <p>This is an implementation of {@link HaplotypeCaller} using spark to distribute the computation.
  * It is still in an early stage of development and does not yet support all the options that the non-spark version does.
- * Specifically it does not support the --dbsnp, --comp, and --bamOutput options.</p>
+ * Specifically it does not support the --bamOutput option.</p>
+ *
+ * <p>The features of the --dbsnp, --comp and --alleles inputs that overlap the intervals are loaded on the driver,
+ * and broadcast to the executors in a {@link FeatureIntervalIndex}. Only their positions, alleles, IDs and filters are
+ * kept, but they should still be restricted with -L when they are large.</p>
+ *
+ * <p>With --adaptive-read-shards, read shards over regions with many reads are made smaller, using the BAM index of
+ * the input to estimate the number of reads in each shard. The time taken by the shards is logged after calling.</p>
  *
  * <h3>Usage Example</h3>
  * <pre>
@@ -70,6 +83,13 @@ import java.util.stream.StreamSupport;
 @BetaFeature
 public final class HaplotypeCallerSpark extends GATKSparkTool {
     private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(HaplotypeCallerSpark.class);
+
+    /**
+     * A warning is logged when the features of intervals spanning more than this fraction of the reference are loaded
+     * onto the driver
+     */
+    private static final double FEATURE_INDEX_WARNING_REFERENCE_FRACTION = 0.1;
 
     public static final int DEFAULT_READSHARD_SIZE = 5000;
 
@@ -82,9 +102,13 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     public static class ShardingArgumentCollection implements Serializable {
         private static final long serialVersionUID = 1L;
 
-        @Argument(fullName="read-shard-size", doc = "Maximum size of each read shard, in bases. For good performance, this should be much larger than the maximum assembly region size.", optional = true)
+        @Argument(fullName="read-shard-size", doc = "Maximum size of each read shard, in bases. For good performance, this should be much larger than the maximum assembly region size. Reads that span more bases than this are skipped.", optional = true)
         public int readShardSize = DEFAULT_READSHARD_SIZE;
 
+        @Advanced
+        @Argument(fullName="adaptive-read-shards", doc = "Make read shards with many reads smaller than the read shard size (down to the maximum assembly region size), using the BAM index to estimate the number of reads in each shard, so that high-depth regions don't slow down their tasks. Only supported for indexed BAM input.", optional = true)
+        public boolean adaptiveReadShards = false;
+
         @Argument(fullName="read-shard-padding", doc = "Each read shard has this many bases of extra context on each side. Read shards must have as much or more padding than assembly regions.", optional = true)
         public int readShardPadding = HaplotypeCaller.DEFAULT_ASSEMBLY_REGION_PADDING;
 
@@ -127,7 +151,8 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     @Override
     protected void runTool(final JavaSparkContext ctx) {
         final List<SimpleInterval> intervals = hasIntervals() ? getIntervals() : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        callVariantsWithHaplotypeCallerAndWriteOutput(ctx, getReads(), getHeaderForReads(), getReference(), intervals, hcArgs, shardingArgs, numReducers, output);
+        final ReadDensityEstimate readDensity = shardingArgs.adaptiveReadShards ? ReadDensityEstimate.fromReadsPath(getReadSourceName()) : null;
+        callVariantsWithHaplotypeCallerAndWriteOutput(ctx, getReads(), getHeaderForReads(), getReference(), features, intervals, readDensity, hcArgs, shardingArgs, numReducers, output);
     }
 
     @Override
@@ -144,7 +169,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      * @param reads the reads variants should be called from
      * @param header the header that goes with the reads
      * @param reference the reference to use when calling
+     * @param features the tool's sources of features, which must include the feature inputs of hcArgs. May be null
+     *                 if hcArgs has no feature inputs.
      * @param intervals the intervals to restrict calling to
+     * @param readDensity estimate of the read density, used to make shards with many reads smaller. May be null, in
+     *                    which case all shards are the read shard size.
      * @param hcArgs haplotype caller arguments
      * @param shardingArgs arguments to control how the assembly regions are sharded
      * @param numReducers the number of reducers to use when sorting
@@ -155,7 +184,9 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final JavaRDD<GATKRead> reads,
             final SAMFileHeader header,
             final ReferenceMultiSource reference,
+            final FeatureManager features,
             final List<SimpleInterval> intervals,
+            final ReadDensityEstimate readDensity,
             final HaplotypeCallerArgumentCollection hcArgs,
             final ShardingArgumentCollection shardingArgs,
             final int numReducers,
@@ -166,14 +197,22 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         final JavaRDD<GATKRead> coordinateSortedReads = SparkUtils.coordinateSortReads(reads, readsHeader, numReducers);
 
         final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs, false, false, readsHeader, new ReferenceMultiSourceAdapter(reference));
-        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(ctx, coordinateSortedReads, readsHeader, reference, intervals, hcArgs, shardingArgs);
-        variants.cache(); // without caching, computations are run twice as a side effect of finding partition boundaries for sorting
+        final ShardTimingAccumulator shardTimings = ShardTimingAccumulator.register(ctx, "HaplotypeCaller shard timings");
+        final LongAccumulator skippedReads = ctx.sc().longAccumulator("Reads longer than the read shard size");
+        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(ctx, coordinateSortedReads, readsHeader, reference, features, intervals, readDensity, hcArgs, shardingArgs, shardTimings, skippedReads);
         try {
-            VariantsSparkSink.writeVariants(ctx, output, variants, hcEngine.makeVCFHeader(readsHeader.getSequenceDictionary(), new HashSet<>()),
+            // The variants are sorted by construction, since the shards are processed in coordinate order, and each
+            // shard only emits the variants that start within it
+            VariantsSparkSink.writeSortedVariants(ctx, output, variants, hcEngine.makeVCFHeader(readsHeader.getSequenceDictionary(), new HashSet<>()),
                     hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF, hcArgs.GVCFGQBands, hcArgs.genotypeArgs.samplePloidy);
         } catch (IOException e) {
             throw new UserException.CouldNotCreateOutputFile(output, "writing failed", e);
         }
+        logger.info(shardTimings.value());
+        if ( skippedReads.value() > 0 ) {
+            logger.warn(String.format("Skipped %d reads spanning more than the read shard size (%d bases). Increase --read-shard-size to call variants from them.",
+                    skippedReads.value(), shardingArgs.readShardSize));
+        }
     }
 
     /**
@@ -185,9 +224,16 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      * @param reads the reads variants should be called from
      * @param header the header that goes with the reads
      * @param reference the reference to use when calling
+     * @param features the tool's sources of features, which must include the feature inputs of hcArgs. May be null
+     *                 if hcArgs has no feature inputs.
      * @param intervals the intervals to restrict calling to
+     * @param readDensity estimate of the read density, used to make shards with many reads smaller. May be null, in
+     *                    which case all shards are the read shard size.
      * @param hcArgs haplotype caller arguments
      * @param shardingArgs arguments to control how the assembly regions are sharded
+     * @param shardTimings accumulator of the time taken to call the variants of each shard. May be null.
+     * @param skippedReads accumulator of the number of reads skipped because they span more bases than the read shard
+     *                     size. May be null.
      * @return an RDD of Variants
      */
     public static JavaRDD<VariantContext> callVariantsWithHaplotypeCaller(
@@ -195,11 +241,13 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final JavaRDD<GATKRead> reads,
             final SAMFileHeader header,
             final ReferenceMultiSource reference,
+            final FeatureManager features,
             final List<SimpleInterval> intervals,
+            final ReadDensityEstimate readDensity,
             final HaplotypeCallerArgumentCollection hcArgs,
-            final ShardingArgumentCollection shardingArgs) {
-        Utils.validateArg(hcArgs.dbsnp.dbsnp == null, "HaplotypeCallerSpark does not yet support -D or --dbsnp arguments" );
-        Utils.validateArg(hcArgs.comps.isEmpty(), "HaplotypeCallerSpark does not yet support -comp or --comp arguments" );
+            final ShardingArgumentCollection shardingArgs,
+            final ShardTimingAccumulator shardTimings,
+            final LongAccumulator skippedReads) {
         Utils.validateArg(hcArgs.bamOutputPath == null, "HaplotypeCallerSpark does not yet support -bamout or --bamOutput");
         if ( !reference.isCompatibleWithSparkBroadcast()){
             throw new UserException.Require2BitReferenceForBroadcast();
@@ -211,36 +259,75 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         final VariantAnnotatorEngine variantAnnotatorEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(hcArgs.variantAnnotationArgumentCollection, hcArgs.dbsnp.dbsnp, hcArgs.comps);
         final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast = ctx.broadcast(variantAnnotatorEngine);
 
-        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding);
+        final FeatureIntervalIndex featureIndex = makeFeatureIndex(features, header, intervals, hcArgs, shardingArgs);
+        final Broadcast<FeatureIntervalIndex> featureIndexBroadcast = featureIndex == null ? null : ctx.broadcast(featureIndex);
 
-        final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
+        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, readDensity, shardingArgs);
 
-        final JavaRDD<Shard<GATKRead>> readShards = SparkSharder.shard(ctx, reads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, maxReadLength);
+        // The sharding relies on reads extending past the start of the next partition by at most a shard's length. Rather
+        // than running a separate job over all of the reads to find the longest one, the few reads that are longer are skipped.
+        final JavaRDD<GATKRead> shardableReads = skipReadsLongerThan(reads, shardingArgs.readShardSize, skippedReads);
+        final JavaRDD<Shard<GATKRead>> readShards = SparkSharder.shard(ctx, shardableReads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, shardingArgs.readShardSize);
 
-        final JavaRDD<Tuple2<AssemblyRegion, SimpleInterval>> assemblyRegions = readShards
-                .mapPartitions(shardsToAssemblyRegions(referenceBroadcast,
-                                                       hcArgsBroadcast, shardingArgs, header, annotatorEngineBroadcast));
+        return readShards.mapPartitions(shardsToVariants(referenceBroadcast, hcArgsBroadcast, shardingArgs, header,
+                                                         annotatorEngineBroadcast, featureIndexBroadcast, shardTimings));
+    }
 
-        return assemblyRegions.mapPartitions(callVariantsFromAssemblyRegions(header, referenceBroadcast, hcArgsBroadcast, annotatorEngineBroadcast));
+    /**
+     * Remove the mapped reads that span more than the given number of bases, which {@link SparkSharder} would
+     * otherwise reject (failing the job), keeping the order and partitioning of the other reads.
+     *
+     * @param skippedReads accumulator of the number of reads removed. May be null.
+     */
+    @VisibleForTesting
+    static JavaRDD<GATKRead> skipReadsLongerThan(final JavaRDD<GATKRead> reads, final int maxReadLength, final LongAccumulator skippedReads) {
+        return reads.filter(read -> {
+            if ( read.getContig() == null || read.getEnd() - read.getStart() + 1 <= maxReadLength ) {
+                return true;
+            }
+            if ( skippedReads != null ) {
+                skippedReads.add(1L);
+            }
+            return false;
+        });
     }
 
     /**
-     * Call variants from Tuples of AssemblyRegion and Simple Interval
-     * The interval should be the non-padded shard boundary for the shard that the corresponding AssemblyRegion was
-     * created in, it's used to eliminate redundant variant calls at the edge of shard boundaries.
+     * Load the features of the --dbsnp, --comp and --alleles inputs that overlap the intervals (padded by as much
+     * as the assembly regions may extend beyond them) into an index that can be broadcast.
+     *
+     * @return the index, or null if there are no feature inputs
      */
-    private static FlatMapFunction<Iterator<Tuple2<AssemblyRegion, SimpleInterval>>, VariantContext> callVariantsFromAssemblyRegions(
+    private static FeatureIntervalIndex makeFeatureIndex(
+            final FeatureManager features,
             final SAMFileHeader header,
-            final Broadcast<ReferenceMultiSource> referenceBroadcast,
-            final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast,
-            final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast) {
-        return regionAndIntervals -> {
-            //HaplotypeCallerEngine isn't serializable but is expensive to instantiate, so construct and reuse one for every partition
-            final ReferenceMultiSource referenceMultiSource = referenceBroadcast.value();
-            final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource);
-            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
-            return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine)).iterator();
-        };
+            final List<SimpleInterval> intervals,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final ShardingArgumentCollection shardingArgs) {
+        final List<FeatureInput<? extends Feature>> featureInputs = new ArrayList<>();
+        if ( hcArgs.dbsnp.dbsnp != null ) {
+            featureInputs.add(hcArgs.dbsnp.dbsnp);
+        }
+        featureInputs.addAll(hcArgs.comps);
+        if ( hcArgs.alleles != null ) {
+            featureInputs.add(hcArgs.alleles);
+        }
+        if ( featureInputs.isEmpty() ) {
+            return null;
+        }
+        Utils.nonNull(features, "a FeatureManager is required for the feature inputs of HaplotypeCallerSpark");
+
+        final long intervalsSpan = intervals.stream().mapToLong(SimpleInterval::size).sum();
+        if ( intervalsSpan > FEATURE_INDEX_WARNING_REFERENCE_FRACTION * header.getSequenceDictionary().getReferenceLength() ) {
+            logger.warn(String.format("Loading the features of the --dbsnp, --comp and --alleles inputs over %d bases onto the driver, " +
+                    "and broadcasting them: for large inputs such as dbSNP, restrict the intervals with -L, or use inputs subset to the intervals.", intervalsSpan));
+        }
+
+        final int padding = shardingArgs.readShardPadding + shardingArgs.assemblyRegionPadding;
+        final List<SimpleInterval> paddedIntervals = intervals.stream()
+                .map(interval -> interval.expandWithinContig(padding, header.getSequenceDictionary()))
+                .collect(Collectors.toList());
+        return FeatureIntervalIndex.of(features, featureInputs, paddedIntervals);
     }
 
     private static <T> Stream<T> iteratorToStream(Iterator<T> iterator) {
@@ -248,9 +335,16 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         return StreamSupport.stream(regionsIterable.spliterator(), false);
     }
 
-    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine) {
+    /**
+     * Call variants from Tuples of AssemblyRegion and Simple Interval
+     * The interval should be the non-padded shard boundary for the shard that the corresponding AssemblyRegion was
+     * created in, it's used to eliminate redundant variant calls at the edge of shard boundaries.
+     */
+    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine,
+                                                                                                                     FeatureIntervalIndex featureIndex) {
         return regionAndInterval -> {
-            final List<VariantContext> variantContexts = hcEngine.callRegion(regionAndInterval._1(), new FeatureContext());
+            final AssemblyRegion region = regionAndInterval._1();
+            final List<VariantContext> variantContexts = hcEngine.callRegion(region, FeatureContext.fromFeatureIndex(featureIndex, region.getExtendedSpan()));
             final SimpleInterval shardBoundary = regionAndInterval._2();
             return variantContexts.stream()
                 .filter(vc -> shardBoundary.contains(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())));
@@ -261,33 +355,51 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      * @return a list of {@link ShardBoundary}
      * based on the -L intervals
      */
-    private static List<ShardBoundary> getShardBoundaries(final SAMFileHeader
-        header, final List<SimpleInterval> intervals, final int readShardSize, final int readShardPadding) {
+    private static List<ShardBoundary> getShardBoundaries(final SAMFileHeader header, final List<SimpleInterval> intervals,
+                                                          final ReadDensityEstimate readDensity, final ShardingArgumentCollection shardingArgs) {
+        if ( readDensity != null ) {
+            return readDensity.divideIntervalsIntoShards(intervals, shardingArgs.readShardSize,
+                    Math.min(shardingArgs.maxAssemblyRegionSize, shardingArgs.readShardSize), shardingArgs.readShardPadding, header.getSequenceDictionary());
+        }
         return intervals.stream()
-            .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, header.getSequenceDictionary()).stream())
+            .flatMap(interval -> Shard.divideIntervalIntoShards(interval, shardingArgs.readShardSize, shardingArgs.readShardPadding, header.getSequenceDictionary()).stream())
             .collect(Collectors.toList());
     }
 
     /**
-     * @return and RDD of {@link Tuple2<AssemblyRegion, SimpleInterval>} which pairs each AssemblyRegion with the
-     * interval it was generated in
+     * @return a function that calls the variants of the shards of a partition. The assembly regions of each shard are
+     * found and their variants called together, so that the time taken by each shard can be recorded.
      */
-    private static FlatMapFunction<Iterator<Shard<GATKRead>>, Tuple2<AssemblyRegion, SimpleInterval>> shardsToAssemblyRegions(
+    private static FlatMapFunction<Iterator<Shard<GATKRead>>, VariantContext> shardsToVariants(
             final Broadcast<ReferenceMultiSource> reference,
             final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast,
             final ShardingArgumentCollection assemblyArgs,
             final SAMFileHeader header,
-            final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast) {
+            final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast,
+            final Broadcast<FeatureIntervalIndex> featureIndexBroadcast,
+            final ShardTimingAccumulator shardTimings) {
         return shards -> {
+            //HaplotypeCallerEngine isn't serializable but is expensive to instantiate, so construct and reuse one for every partition
             final ReferenceMultiSource referenceMultiSource = reference.value();
             final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource);
             final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
+            final FeatureIntervalIndex featureIndex = featureIndexBroadcast == null ? null : featureIndexBroadcast.value();
 
             final ReadsDownsampler readsDownsampler = assemblyArgs.maxReadsPerAlignmentStart > 0 ?
                 new PositionalDownsampler(assemblyArgs.maxReadsPerAlignmentStart, header) : null;
+            final Function<Shard<GATKRead>, Stream<? extends Tuple2<AssemblyRegion, SimpleInterval>>> toRegions =
+                    shardToRegion(assemblyArgs, header, referenceSource, hcEngine, featureIndex);
+            final Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> toVariants = regionToVariants(hcEngine, featureIndex);
             return iteratorToStream(shards)
                 .map(shard -> new DownsampleableSparkReadShard(new ShardBoundary(shard.getInterval(), shard.getPaddedInterval()), shard, readsDownsampler))
-                .flatMap(shardToRegion(assemblyArgs, header, referenceSource, hcEngine)).iterator();
+                .flatMap(shard -> {
+                    final long startNanos = System.nanoTime();
+                    final List<VariantContext> variants = toRegions.apply(shard).flatMap(toVariants).collect(Collectors.toList());
+                    if ( shardTimings != null ) {
+                        shardTimings.add(shard.getInterval(), System.nanoTime() - startNanos);
+                    }
+                    return variants.stream();
+                }).iterator();
         };
     }
 
@@ -295,12 +407,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             ShardingArgumentCollection assemblyArgs,
             SAMFileHeader header,
             ReferenceMultiSourceAdapter referenceSource,
-            HaplotypeCallerEngine evaluator) {
+            HaplotypeCallerEngine evaluator,
+            FeatureIntervalIndex featureIndex) {
         return shard -> {
             final ReferenceContext refContext = new ReferenceContext(referenceSource, shard.getPaddedInterval());
-
-            //TODO load features as a side input
-            final FeatureContext features = new FeatureContext();
+            final FeatureContext features = FeatureContext.fromFeatureIndex(featureIndex, shard.getPaddedInterval());
 
             // TODO: this should use the new AssemblyRegionIterator instead of AssemblyRegion.createFromReadShard(),
             // TODO: since AssemblyRegion.createFromReadShard() slurps all reads in the shard into memory at once,
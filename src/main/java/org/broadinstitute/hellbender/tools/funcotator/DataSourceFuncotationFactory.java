@@ -54,6 +54,18 @@ public abstract class DataSourceFuncotationFactory implements AutoCloseable {
      */
     public void close() {}
 
+    /**
+     * Get a {@link DataSourceFuncotationFactory} configured like this one, for the exclusive use of another thread
+     * (as in multi-threaded runs of {@link Funcotator}).
+     * Factories whose {@code createFuncotations} methods may safely be called concurrently (for instance because they
+     * only hold immutable in-memory data) return themselves, which is the default.  Factories holding readers or
+     * connections that cannot be shared must override this to return a new instance, to be closed by the caller.
+     * @return A {@link DataSourceFuncotationFactory} to be used by a single thread.
+     */
+    public DataSourceFuncotationFactory copyForThread() {
+        return this;
+    }
+
     /**
      * Apply the override values in {@link DataSourceFuncotationFactory#annotationOverrideMap} to every
      * {@link Funcotation} in the given {@code outputFuncotations}.
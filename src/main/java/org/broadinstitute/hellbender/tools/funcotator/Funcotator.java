@@ -5,6 +5,7 @@ import htsjdk.tribble.util.ParsingUtils;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ExperimentalFeature;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -37,6 +38,11 @@ import java.util.stream.Collectors;
  *
  * This tool is the GATK analog of the Oncotator.
  *
+ * Large inputs can be annotated on several threads with {@code --threads}: the variants are split into contiguous
+ * partitions of {@code --variant-partition-size} bases that are annotated concurrently, each thread with its own
+ * reference and feature readers and its own Gencode and COSMIC data sources, and the annotated variants are written
+ * out in input order.
+ *
  * Created by jonn on 8/22/17.
  */
 @CommandLineProgramProperties(
@@ -108,6 +114,14 @@ public class Funcotator extends VariantWalker {
     )
     protected List<String> annotationOverrides = FuncotatorArgumentDefinitions.ANNOTATION_OVERRIDES_DEFAULT_VALUE;
 
+    @Advanced
+    @Argument(
+            fullName  = FuncotatorArgumentDefinitions.XSV_STORE_DIRECTORY_LONG_NAME,
+            optional = true,
+            doc = "Local directory in which to keep the lookup stores built from simple XSV data sources.  By default each store is kept next to its data source file."
+    )
+    protected File xsvStoreDirectory = null;
+
     //==================================================================================================================
 
     private OutputRenderer outputRenderer;
@@ -116,6 +130,8 @@ public class Funcotator extends VariantWalker {
 
     private List<FeatureInput<? extends Feature>> manualFeatureInputs = new ArrayList<>();
 
+    private VariantFuncotator variantFuncotator;
+
     //==================================================================================================================
 
     @Override
@@ -147,6 +163,8 @@ public class Funcotator extends VariantWalker {
                                                unaccountedForOverrideAnnotations);
 
         outputRenderer.open();
+
+        variantFuncotator = new VariantFuncotator(gencodeFuncotationFactories, dataSourceFactories, Collections.emptyList());
     }
 
     @Override
@@ -160,6 +178,39 @@ public class Funcotator extends VariantWalker {
         enqueueAndHandleVariant(variant, referenceContext, featureContext);
     }
 
+    /**
+     * In multi-threaded runs each thread annotates with its own copy of the data source factories that can't be
+     * shared (see {@link DataSourceFuncotationFactory#copyForThread}), while the annotated variants are all written
+     * by the single output renderer, in input order.
+     */
+    @Override
+    protected VariantProcessor.Factory<FuncotatedVariant> makeVariantProcessorFactory() {
+        return new VariantProcessor.Factory<FuncotatedVariant>() {
+            @Override
+            public VariantProcessor<FuncotatedVariant> createProcessor() {
+                final List<DataSourceFuncotationFactory> workerDataSourceFactories = new ArrayList<>(dataSourceFactories.size());
+                final List<GencodeFuncotationFactory> workerGencodeFactories = new ArrayList<>(gencodeFuncotationFactories.size());
+                final List<DataSourceFuncotationFactory> workerOwnedFactories = new ArrayList<>();
+                for ( final DataSourceFuncotationFactory factory : dataSourceFactories ) {
+                    final DataSourceFuncotationFactory workerFactory = factory.copyForThread();
+                    workerDataSourceFactories.add(workerFactory);
+                    if ( workerFactory instanceof GencodeFuncotationFactory ) {
+                        workerGencodeFactories.add((GencodeFuncotationFactory)workerFactory);
+                    }
+                    if ( workerFactory != factory ) {
+                        workerOwnedFactories.add(workerFactory);
+                    }
+                }
+                return new VariantFuncotator(workerGencodeFactories, workerDataSourceFactories, workerOwnedFactories);
+            }
+
+            @Override
+            public void accept(final FuncotatedVariant result) {
+                outputRenderer.write(result.variant, result.funcotations);
+            }
+        };
+    }
+
     @Override
     public Object onTraversalSuccess() {
         return true;
@@ -212,42 +263,98 @@ public class Funcotator extends VariantWalker {
      * @param featureContext {@link FeatureContext} corresponding to the given {@code variant}.
      */
     private void enqueueAndHandleVariant(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+        outputRenderer.write(variant, variantFuncotator.createFuncotations(variant, referenceContext, featureContext));
+    }
 
-        // Get our feature inputs:
-        final List<Feature> featureList = new ArrayList<>();
-        for ( final FeatureInput<? extends Feature> featureInput : manualFeatureInputs ) {
-            featureList.addAll( featureContext.getValues(featureInput) );
+    /**
+     * Creates the {@link Funcotation}s for a variant from a given set of data source factories.
+     * Used on the traversal thread with the tool's own factories, and in multi-threaded runs on each worker thread
+     * with that thread's factories.
+     */
+    private final class VariantFuncotator implements VariantProcessor<FuncotatedVariant> {
+        private final List<GencodeFuncotationFactory> gencodeFactories;
+        private final List<DataSourceFuncotationFactory> dataSourceFactories;
+        // factories created for this VariantFuncotator only, to be closed along with it
+        private final List<DataSourceFuncotationFactory> ownedFactories;
+
+        private VariantFuncotator(final List<GencodeFuncotationFactory> gencodeFactories,
+                                  final List<DataSourceFuncotationFactory> dataSourceFactories,
+                                  final List<DataSourceFuncotationFactory> ownedFactories) {
+            this.gencodeFactories = gencodeFactories;
+            this.dataSourceFactories = dataSourceFactories;
+            this.ownedFactories = ownedFactories;
         }
 
-        // Create a place to keep our funcotations:
-        final List<Funcotation> funcotations = new ArrayList<>();
+        @Override
+        public List<FuncotatedVariant> process(final VariantContext variant, final ReadsContext readsContext, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+            if ( !referenceContext.hasBackingDataSource() ) {
+                throw new GATKException("No reference context for variant.  Cannot annotate!");
+            }
+            return Collections.singletonList(new FuncotatedVariant(variant, createFuncotations(variant, referenceContext, featureContext)));
+        }
 
-        // Annotate with Gencode first:
+        @Override
+        public void close() {
+            ownedFactories.forEach(DataSourceFuncotationFactory::close);
+        }
 
-        // Create a list of GencodeFuncotation to use for other Data Sources:
-        final List<GencodeFuncotation> gencodeFuncotations = new ArrayList<>();
+        /**
+         * @param variant {@link VariantContext} to annotate.
+         * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variant}.
+         * @param featureContext {@link FeatureContext} corresponding to the given {@code variant}.
+         * @return The {@link Funcotation}s for the given {@code variant}, Gencode funcotations first.
+         */
+        private List<Funcotation> createFuncotations(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+
+            // Get our feature inputs:
+            final List<Feature> featureList = new ArrayList<>();
+            for ( final FeatureInput<? extends Feature> featureInput : manualFeatureInputs ) {
+                featureList.addAll( featureContext.getValues(featureInput) );
+            }
 
-        for ( final GencodeFuncotationFactory factory : gencodeFuncotationFactories ) {
-            final List<Funcotation> funcotationsFromGencodeFactory = factory.createFuncotations(variant, referenceContext, featureList);
-            funcotations.addAll(funcotationsFromGencodeFactory);
-            gencodeFuncotations.addAll(
-                    funcotationsFromGencodeFactory.stream()
-                    .map(x -> (GencodeFuncotation)x)
-                    .collect(Collectors.toList())
-            );
-        }
+            // Create a place to keep our funcotations:
+            final List<Funcotation> funcotations = new ArrayList<>();
 
-        // Annotate with the rest of the data sources:
-        for ( final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories ) {
+            // Annotate with Gencode first:
 
-            // Make sure we don't double up on the Gencodes:
-            if ( funcotationFactory.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE) ) {
-                continue;
+            // Create a list of GencodeFuncotation to use for other Data Sources:
+            final List<GencodeFuncotation> gencodeFuncotations = new ArrayList<>();
+
+            for ( final GencodeFuncotationFactory factory : gencodeFactories ) {
+                final List<Funcotation> funcotationsFromGencodeFactory = factory.createFuncotations(variant, referenceContext, featureList);
+                funcotations.addAll(funcotationsFromGencodeFactory);
+                gencodeFuncotations.addAll(
+                        funcotationsFromGencodeFactory.stream()
+                        .map(x -> (GencodeFuncotation)x)
+                        .collect(Collectors.toList())
+                );
+            }
+
+            // Annotate with the rest of the data sources:
+            for ( final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories ) {
+
+                // Make sure we don't double up on the Gencodes:
+                if ( funcotationFactory.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE) ) {
+                    continue;
+                }
+
+                funcotations.addAll( funcotationFactory.createFuncotations(variant, referenceContext, featureList, gencodeFuncotations) );
             }
+            return funcotations;
+        }
+    }
+
+    /**
+     * A variant with its {@link Funcotation}s, on its way from a worker thread to the output renderer.
+     */
+    private static final class FuncotatedVariant {
+        private final VariantContext variant;
+        private final List<Funcotation> funcotations;
 
-            funcotations.addAll( funcotationFactory.createFuncotations(variant, referenceContext, featureList, gencodeFuncotations) );
+        private FuncotatedVariant(final VariantContext variant, final List<Funcotation> funcotations) {
+            this.variant = variant;
+            this.funcotations = funcotations;
         }
-        outputRenderer.write(variant, funcotations);
     }
 
     /**
@@ -450,7 +557,8 @@ public class Funcotator extends VariantWalker {
                     SimpleKeyXsvFuncotationFactory.XsvDataKeyType.valueOf(dataSourceProperties.getProperty("xsv_key")),
                     annotationOverridesMap,
                     0,
-                    Boolean.valueOf(dataSourceProperties.getProperty("xsv_permissive_cols"))
+                    Boolean.valueOf(dataSourceProperties.getProperty("xsv_permissive_cols")),
+                    xsvStoreDirectory == null ? null : xsvStoreDirectory.toPath()
                 );
 
         // Add it to our sources:
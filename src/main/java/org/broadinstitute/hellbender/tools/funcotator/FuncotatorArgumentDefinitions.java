@@ -35,6 +35,8 @@ public class FuncotatorArgumentDefinitions {
     public static final String ANNOTATION_OVERRIDES_LONG_NAME = "annotation-override";
     public static final List<String> ANNOTATION_OVERRIDES_DEFAULT_VALUE = new ArrayList<>();
 
+    public static final String XSV_STORE_DIRECTORY_LONG_NAME = "xsv-store-directory";
+
     // ------------------------------------------------------------
     // Helper Types:
 
@@ -13,6 +13,7 @@ import org.broadinstitute.hellbender.tools.funcotator.Funcotation;
 import org.broadinstitute.hellbender.tools.funcotator.FuncotatorArgumentDefinitions;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotation;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
+import org.broadinstitute.hellbender.utils.LRUCache;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 
@@ -28,6 +29,9 @@ import java.util.regex.Pattern;
  * The raw datasource (http://cancer.sanger.ac.uk/cosmic/download - CosmicCompleteTargetedScreensMutantExport.tsv.gz)
  * must be unzipped and preprocessed with the script `createSqliteCosmicDb.sh`.
  *
+ * The records of a gene are read from the database the first time the gene is seen, and kept in memory with their
+ * genome and protein positions already parsed, so that the overlaps for subsequent variants in the same gene are counted
+ * without querying the database again.  The records of the {@link #MAX_CACHED_GENES} most recently used genes are kept.
  *
  * This is a high-level object that interfaces with the internals of {@link org.broadinstitute.hellbender.tools.funcotator.Funcotator}.
  * Created by jonn on 12/16/17.
@@ -88,10 +92,16 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     private static final String FIELD_NAME_QUERY = "SELECT * FROM " + TABLE_NAME + " LIMIT 1;";
 
     /**
-     * Template for results query for matching genes in the database.
+     * Query for the positions of the records of a gene in the database.
      */
-    private static final String RESULT_QUERY_TEMPLATE = "SELECT * FROM " + TABLE_NAME + " WHERE \""
-            + GENE_NAME_COLUMN + "\" == ";
+    private static final String GENE_POSITIONS_QUERY = "SELECT \"" + GENOME_POSITION_COLUMN_NAME + "\", \""
+            + PROTEIN_POSITION_COLUMN_NAME + "\" FROM " + TABLE_NAME + " WHERE \"" + GENE_NAME_COLUMN + "\" == ?;";
+
+    /**
+     * Maximum number of genes whose records are kept in memory.
+     */
+    @VisibleForTesting
+    static final int MAX_CACHED_GENES = 1000;
 
     //==================================================================================================================
     // Private Members:
@@ -116,6 +126,16 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
      */
     private final LinkedHashSet<String> supportedFields;
 
+    /**
+     * Statement for {@link #GENE_POSITIONS_QUERY}, prepared on first use.
+     */
+    private PreparedStatement genePositionsStatement;
+
+    /**
+     * Parsed positions of the records of the most recently used genes, by gene name.
+     */
+    private final Map<String, CosmicGeneRecords> geneRecordsCache = new LRUCache<>(MAX_CACHED_GENES);
+
     //==================================================================================================================
     // Constructors:
 
@@ -152,10 +172,22 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Override Methods:
 
+    /**
+     * {@inheritDoc}
+     * The connection to the COSMIC database can't be shared across threads, so this returns a new {@link CosmicFuncotationFactory}.
+     */
+    @Override
+    public CosmicFuncotationFactory copyForThread() {
+        return new CosmicFuncotationFactory(pathToCosmicDb, new LinkedHashMap<>(annotationOverrideMap));
+    }
+
     @Override
     public void close() {
         if (dbConnection != null) {
             try {
+                if ( genePositionsStatement != null ) {
+                    genePositionsStatement.close();
+                }
                 dbConnection.close();
             }
             catch (final SQLException ex) {
@@ -194,8 +226,8 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         int numOverlappingMutations = 0;
 
         // If we have gencodeFuncotations we go through them and get the gene name
-        // Then query our DB for matches on the gene name.
-        // Then grab Genome position / Protein position and see if we overlap.
+        // Then get the records for the gene name (from our DB, unless we've cached them already).
+        // Then check their Genome position / Protein position to see if we overlap.
         // If any do, we create our CosmicFuncotation
         for (  final GencodeFuncotation gencodeFuncotation : gencodeFuncotations ) {
             final String geneName = gencodeFuncotation.getHugoSymbol();
@@ -210,39 +242,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
                 proteinPosition = null;
             }
 
-            try {
-                try ( final Statement statement = dbConnection.createStatement() ) {
-                    try ( final ResultSet resultSet = statement.executeQuery(RESULT_QUERY_TEMPLATE + "\"" + geneName + "\";") ) {
-                        // iterate through our results:
-                        while ( resultSet.next() ) {
-                            // Get the genome position and protein position:
-                            final SimpleInterval cosmicGenomePosition = getGenomePositionFromResults(resultSet);
-                            final SimpleInterval cosmicProteinPosition = getProteinPositionFromResults(resultSet);
-
-                            // Try to match on genome position first:
-                            if ( cosmicGenomePosition != null ) {
-                                // If we overlap the records, we update the counter:
-                                if ( genomePosition.overlaps(cosmicGenomePosition) ) {
-                                    ++numOverlappingMutations;
-                                    continue;
-                                }
-                            }
-
-                            // Now try to match on protein position:
-                            if ( proteinPosition != null ) {
-                                // If we overlap the records, we update the counter:
-                                if ( proteinPosition.overlaps(cosmicProteinPosition) ) {
-                                    ++numOverlappingMutations;
-                                }
-                            }
-                            // NOTE: We can't annotate if the protein position and the genome position are null.
-                        }
-                    }
-                }
-            }
-            catch (final SQLException ex) {
-                throw new GATKException("Unable to query the database for geneName: " + geneName, ex);
-            }
+            numOverlappingMutations += getGeneRecords(geneName).countOverlaps(genomePosition, proteinPosition);
         }
 
         // Add our tally for this variant:
@@ -269,6 +269,47 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Instance Methods:
 
+    /**
+     * Get the records of the given gene, from the cache if possible, or else from the database.
+     * @param geneName The name of the gene whose records to get.
+     * @return The {@link CosmicGeneRecords} of the given gene (possibly empty).
+     */
+    private CosmicGeneRecords getGeneRecords(final String geneName) {
+        CosmicGeneRecords geneRecords = geneRecordsCache.get(geneName);
+        if ( geneRecords == null ) {
+            geneRecords = queryGeneRecords(geneName);
+            geneRecordsCache.put(geneName, geneRecords);
+        }
+        return geneRecords;
+    }
+
+    /**
+     * Read the records of the given gene from the database and parse their positions.
+     * @param geneName The name of the gene whose records to read.
+     * @return The {@link CosmicGeneRecords} of the given gene (possibly empty).
+     */
+    private CosmicGeneRecords queryGeneRecords(final String geneName) {
+        final List<SimpleInterval> genomePositions = new ArrayList<>();
+        final List<SimpleInterval> proteinPositions = new ArrayList<>();
+        try {
+            if ( genePositionsStatement == null ) {
+                genePositionsStatement = dbConnection.prepareStatement(GENE_POSITIONS_QUERY);
+            }
+            genePositionsStatement.setString(1, geneName);
+            try ( final ResultSet resultSet = genePositionsStatement.executeQuery() ) {
+                // iterate through our results:
+                while ( resultSet.next() ) {
+                    genomePositions.add(getGenomePositionFromResults(resultSet));
+                    proteinPositions.add(getProteinPositionFromResults(resultSet));
+                }
+            }
+        }
+        catch (final SQLException ex) {
+            throw new GATKException("Unable to query the database for geneName: " + geneName, ex);
+        }
+        return new CosmicGeneRecords(genomePositions, proteinPositions);
+    }
+
     /**
      * Get the genome position of the current record in the given {@link ResultSet}.
      * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
@@ -279,6 +320,9 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
 
         try {
             final String rawPosition = resultSet.getString(GENOME_POSITION_COLUMN_NAME);
+            if ( rawPosition == null ) {
+                return null;
+            }
             final Matcher matcher = GENOME_POSITION_REGEX.matcher(rawPosition);
             if ( matcher.matches() ) {
                 // We have a position, so we should parse it:
@@ -313,7 +357,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
 
         try {
             final String rawPosition = resultSet.getString(PROTEIN_POSITION_COLUMN_NAME);
-            return parseProteinString(rawPosition);
+            return ( rawPosition == null ) ? null : parseProteinString(rawPosition);
         }
         catch (final SQLException ex) {
             throw new GATKException("Cannot get Protein Position from column: " + GENOME_POSITION_COLUMN_NAME, ex);
@@ -345,4 +389,93 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Helper Data Types:
 
+    /**
+     * The genome and protein positions of the COSMIC records of a single gene, parsed and held in parallel arrays.
+     */
+    @VisibleForTesting
+    static final class CosmicGeneRecords {
+        /** Sentinel start position for records without a genome or protein position. */
+        private static final int NO_POSITION = -1;
+
+        private final String[] genomeContigs;
+        private final int[] genomeStarts;
+        private final int[] genomeEnds;
+        private final int[] proteinStarts;
+        private final int[] proteinEnds;
+
+        /**
+         * @param genomePositions The genome position of each record, or {@code null} for records without one.
+         * @param proteinPositions The protein position of each record, or {@code null} for records without one.
+         */
+        CosmicGeneRecords(final List<SimpleInterval> genomePositions, final List<SimpleInterval> proteinPositions) {
+            Utils.nonNull(genomePositions);
+            Utils.nonNull(proteinPositions);
+            Utils.validateArg(genomePositions.size() == proteinPositions.size(), "Every record must have a genome position and a protein position, or nulls");
+
+            final int numRecords = genomePositions.size();
+            genomeContigs = new String[numRecords];
+            genomeStarts = new int[numRecords];
+            genomeEnds = new int[numRecords];
+            proteinStarts = new int[numRecords];
+            proteinEnds = new int[numRecords];
+
+            for ( int i = 0; i < numRecords; ++i ) {
+                final SimpleInterval genomePosition = genomePositions.get(i);
+                if ( genomePosition == null ) {
+                    genomeStarts[i] = NO_POSITION;
+                }
+                else {
+                    // Records of a gene are nearly always on the same contig, so share the name:
+                    genomeContigs[i] = (i > 0 && genomePosition.getContig().equals(genomeContigs[i - 1])) ? genomeContigs[i - 1] : genomePosition.getContig();
+                    genomeStarts[i] = genomePosition.getStart();
+                    genomeEnds[i] = genomePosition.getEnd();
+                }
+
+                final SimpleInterval proteinPosition = proteinPositions.get(i);
+                if ( proteinPosition == null ) {
+                    proteinStarts[i] = NO_POSITION;
+                }
+                else {
+                    proteinStarts[i] = proteinPosition.getStart();
+                    proteinEnds[i] = proteinPosition.getEnd();
+                }
+            }
+        }
+
+        /**
+         * @return The number of records of this gene.
+         */
+        int size() {
+            return genomeStarts.length;
+        }
+
+        /**
+         * Count the records that overlap the given genome position or, failing that, the given protein position.
+         * @param genomePosition The genome position of a variant (must not be {@code null}).
+         * @param proteinPosition The protein position of the variant, or {@code null}.
+         * @return The number of records overlapping the given positions.
+         */
+        int countOverlaps(final SimpleInterval genomePosition, final SimpleInterval proteinPosition) {
+            Utils.nonNull(genomePosition);
+
+            final String contig = genomePosition.getContig();
+            final int start = genomePosition.getStart();
+            final int end = genomePosition.getEnd();
+
+            int numOverlaps = 0;
+            for ( int i = 0; i < genomeStarts.length; ++i ) {
+                // Try to match on genome position first:
+                if ( genomeStarts[i] != NO_POSITION && start <= genomeEnds[i] && genomeStarts[i] <= end && contig.equals(genomeContigs[i]) ) {
+                    ++numOverlaps;
+                }
+                // Now try to match on protein position:
+                else if ( proteinPosition != null && proteinStarts[i] != NO_POSITION
+                        && proteinPosition.getStart() <= proteinEnds[i] && proteinStarts[i] <= proteinPosition.getEnd() ) {
+                    ++numOverlaps;
+                }
+                // NOTE: We can't annotate if the protein position and the genome position are null.
+            }
+            return numOverlaps;
+        }
+    }
 }
@@ -181,6 +181,22 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         initializeAnnotationOverrides( annotationOverrides );
     }
 
+    /**
+     * Create a {@link GencodeFuncotationFactory} with the same configuration as {@code other}, with its own reader of the
+     * transcript FASTA file.  The (immutable) transcript ID map is shared rather than rebuilt.
+     */
+    private GencodeFuncotationFactory(final GencodeFuncotationFactory other) {
+        this.gencodeTranscriptFastaFile = other.gencodeTranscriptFastaFile;
+
+        transcriptFastaReferenceDataSource = ReferenceDataSource.of(gencodeTranscriptFastaFile);
+        transcriptIdMap = other.transcriptIdMap;
+
+        this.transcriptSelectionMode = other.transcriptSelectionMode;
+        this.version = other.version;
+        this.userRequestedTranscripts = other.userRequestedTranscripts;
+        this.annotationOverrideMap = other.annotationOverrideMap;
+    }
+
     //==================================================================================================================
     // Override Methods:
 
@@ -189,6 +205,15 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         transcriptFastaReferenceDataSource.close();
     }
 
+    /**
+     * {@inheritDoc}
+     * The transcript FASTA reader can't be shared across threads, so this returns a new {@link GencodeFuncotationFactory}.
+     */
+    @Override
+    public GencodeFuncotationFactory copyForThread() {
+        return new GencodeFuncotationFactory(this);
+    }
+
     @Override
     public String getName() {
         return "Gencode";
@@ -20,6 +20,9 @@ import java.util.stream.Collectors;
  * Factory for creating {@link TableFuncotation}s by handling `Separated Value` files with arbitrary delimiters
  * (e.g. CSV/TSV files) which contain data that use a simple key (i.e. {@link XsvDataKeyType}).
  *
+ * The rows of the file are looked up in a memory-mapped {@link SimpleKeyXsvStore}, which is built the first time the
+ * file is used and kept next to it (or in a given store directory), rather than being loaded onto the heap.
+ *
  * This is a high-level object that interfaces with the internals of {@link org.broadinstitute.hellbender.tools.funcotator.Funcotator}.
  * Created by jonn on 11/28/17.
  */
@@ -71,9 +74,9 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     private final List<String> annotationColumnNames;
 
     /**
-     * Map containing the annotations that we have to
+     * Store containing the annotations (rows of the XSV file, without the key column) by key.
      */
-    private final Map<String, List<String>> annotationMap;
+    private final SimpleKeyXsvStore annotationStore;
 
     //==================================================================================================================
     // Constructors:
@@ -99,6 +102,23 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
                                           final LinkedHashMap<String, String> annotationOverrides,
                                           final int numHeaderLinesToIgnore,
                                           final boolean permissiveColumns ) {
+        this(name, filePath, version, delim, keyColumn, keyType, annotationOverrides, numHeaderLinesToIgnore, permissiveColumns, null);
+    }
+
+    /**
+     * @param storeDirectory Local directory in which to keep the store of the rows of the XSV file, or {@code null} to
+     *                       keep it next to the XSV file (see {@link SimpleKeyXsvStore}).
+     */
+    public SimpleKeyXsvFuncotationFactory(final String name,
+                                          final Path filePath,
+                                          final String version,
+                                          final String delim,
+                                          final int keyColumn,
+                                          final XsvDataKeyType keyType,
+                                          final LinkedHashMap<String, String> annotationOverrides,
+                                          final int numHeaderLinesToIgnore,
+                                          final boolean permissiveColumns,
+                                          final Path storeDirectory ) {
         this.name = name;
 
         delimiter = delim;
@@ -112,21 +132,28 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
 
         this.numHeaderLinesToIgnore = numHeaderLinesToIgnore;
 
-        // Initialize our annotations map:
-        annotationMap = new HashMap<>();
-
-        // Create our iterator:
+        // Get our column names:
         try ( final PathLineIterator pathLineIterator = new PathLineIterator(xsvInputPath) ) {
+            annotationColumnNames = createColumnNames( pathLineIterator.iterator(), numHeaderLinesToIgnore );
+        }
 
-            // Get a line iterator for our lines:
-            final Iterator<String> it = pathLineIterator.iterator();
+        // Open our annotation store, populating it from the file if necessary:
+        final String storeSettings = "delimiter=" + delimiter + ";keyColumn=" + keyColumn + ";numHeaderLinesToIgnore=" + numHeaderLinesToIgnore + ";permissiveColumns=" + permissiveColumns;
+        annotationStore = SimpleKeyXsvStore.openOrBuild(xsvInputPath, storeDirectory, storeSettings, annotationColumnNames.size(), storeBuilder -> {
+            try ( final PathLineIterator pathLineIterator = new PathLineIterator(xsvInputPath) ) {
 
-            // Get our column names:
-            annotationColumnNames = createColumnNames( it, numHeaderLinesToIgnore );
+                // Get a line iterator for our lines:
+                final Iterator<String> it = pathLineIterator.iterator();
 
-            // Populate our annotation map:
-            populateAnnotationMap( it, permissiveColumns );
-        }
+                // Skip the leading lines and the header:
+                for ( int i = 0; i <= numHeaderLinesToIgnore ; ++i ) {
+                    it.next();
+                }
+
+                // Populate our annotation store:
+                populateAnnotationStore( it, permissiveColumns, storeBuilder );
+            }
+        });
 
         // Initialize overrides / defaults:
         initializeAnnotationOverrides( annotationOverrides );
@@ -135,6 +162,11 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     //==================================================================================================================
     // Override Methods:
 
+    @Override
+    public void close() {
+        annotationStore.close();
+    }
+
     @Override
     public String getName() {
         return name;
@@ -159,7 +191,7 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     /**
      * {@inheritDoc}
      * For each {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation}, the Transcript ID or Gene Name (Hugo Symbol)
-     * is checked for a match against the key of any annotation in {@link SimpleKeyXsvFuncotationFactory#annotationMap}.
+     * is checked for a match against the key of any annotation in {@link SimpleKeyXsvFuncotationFactory#annotationStore}.
      * If a match is found, an {@link TableFuncotation} is added to the list to be returned.
      */
     public List<Funcotation> createFuncotations(final VariantContext variant,
@@ -182,7 +214,7 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
             }
 
             // Get our annotations:
-            final List<String> annotations = annotationMap.get( key );
+            final List<String> annotations = annotationStore.get( key );
             if ( annotations != null ) {
                 // Add our annotations to the list:
                 outputFuncotations.add( new TableFuncotation(annotationColumnNames, annotations) );
@@ -238,15 +270,17 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     }
 
     /**
-     * Populates {@link SimpleKeyXsvFuncotationFactory#annotationMap} with data from the given iterator.
+     * Populates the given {@link SimpleKeyXsvStore.Builder} with data from the given iterator.
      * Assumes that {@link SimpleKeyXsvFuncotationFactory#annotationColumnNames} is populated.
      * @param it An {@link Iterator} of {@link String} starting at the first data line in the file to parse.
      * @param permissiveColumnNumbers A flag which if true indicates to allow mismatches between the number of columns in the header row and data rows.
      *                                In the event of a mismatch, the data row with either be padded to the number of columns in the header
      *                                or it will be truncated to match the number of columns in the header.
+     * @param storeBuilder The {@link SimpleKeyXsvStore.Builder} to which to add the rows.
      */
-    private void populateAnnotationMap(final Iterator<String> it,
-                                       final boolean permissiveColumnNumbers) {
+    private void populateAnnotationStore(final Iterator<String> it,
+                                         final boolean permissiveColumnNumbers,
+                                         final SimpleKeyXsvStore.Builder storeBuilder) {
 
         boolean emptyLineFlag = false;
 
@@ -280,7 +314,9 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
                     throw new UserException.MalformedFile("Data Source is badly formatted (" + xsvInputPath.toUri().toString() + ") - row " + dataRowNum + " does not contain the same number of columns as header (" + dataRow.size() + " != " + annotationColumnNames.size() + ")!");
                 }
                 else if ( dataRow.size() > annotationColumnNames.size() ) {
-                    dataRow.remove(dataRow.size()-1);
+                    while ( dataRow.size() > annotationColumnNames.size() ) {
+                        dataRow.remove(dataRow.size()-1);
+                    }
                 }
                 else {
                     while ( dataRow.size() < annotationColumnNames.size() ) {
@@ -289,8 +325,8 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
                 }
             }
 
-            // Store this in our map:
-            annotationMap.put(rowKey, dataRow);
+            // Store this in our store:
+            storeBuilder.add(rowKey, dataRow);
 
             // Increment our row counter:
             ++dataRowNum;
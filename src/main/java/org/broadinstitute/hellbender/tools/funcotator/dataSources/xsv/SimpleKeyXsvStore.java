@@ -0,0 +1,483 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv;
+
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only store of the rows of a simple-key XSV data source, looked up by key, used by {@link SimpleKeyXsvFuncotationFactory}
+ * so that large annotation tables are not held on the heap.
+ *
+ * A store is a single file made of:
+ *  - a header identifying the source file (and settings) it was built from,
+ *  - the values of each row, as length-prefixed UTF-8 strings,
+ *  - an index of the keys, sorted by their UTF-8 bytes, with the offsets of their rows.
+ * Both the values and the index are memory-mapped, so they are paged in by the OS as needed, and keys are found by
+ * binary search over the mapped index.
+ *
+ * The store of a source file is built once and kept next to it, or in a given store directory, (with the
+ * {@link #STORE_EXTENSION} extension) to be reused by subsequent runs, unless the source file is modified.  If it can't
+ * be written there, it is built in a temporary file instead.
+ *
+ * Stores are immutable once opened, and may be read by multiple threads concurrently.
+ */
+final class SimpleKeyXsvStore implements AutoCloseable {
+
+    /** Standard Logger.  */
+    private static final Logger logger = LogManager.getLogger(SimpleKeyXsvStore.class);
+
+    /**
+     * Extension appended to the name of the source file to get the name of its store.
+     */
+    static final String STORE_EXTENSION = ".xsvstore";
+
+    private static final int MAGIC = 0x58535653; // "XSVS"
+    private static final int VERSION = 1;
+
+    /** Length of the fixed part of the header: magic, version and the offset of the index. */
+    private static final int FIXED_HEADER_LENGTH = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int INDEX_OFFSET_POSITION = Integer.BYTES + Integer.BYTES;
+
+    /**
+     * The values are mapped in chunks of at most this many bytes (mappings are limited to 2GB).
+     * Rows never straddle two chunks.
+     */
+    @VisibleForTesting
+    static final int VALUE_CHUNK_SIZE = 1 << 30;
+
+    private final int numKeys;
+    private final int numColumns;
+    private final long valuesOffset;
+
+    private final MappedByteBuffer index;
+    private final int keyOffsetsStart;
+    private final int rowOffsetsStart;
+    private final int keyBytesStart;
+
+    private final MappedByteBuffer[] valueChunks;
+
+    private SimpleKeyXsvStore(final FileChannel channel, final long valuesOffset, final long indexOffset) throws IOException {
+        this.valuesOffset = valuesOffset;
+
+        final long indexLength = channel.size() - indexOffset;
+        if ( indexLength > Integer.MAX_VALUE ) {
+            throw new GATKException("The key index of an XSV store is too large to be mapped: " + indexLength + " bytes");
+        }
+        index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexLength);
+        numKeys = index.getInt(0);
+        numColumns = index.getInt(Integer.BYTES);
+        keyOffsetsStart = 2 * Integer.BYTES;
+        rowOffsetsStart = keyOffsetsStart + (numKeys + 1) * Integer.BYTES;
+        keyBytesStart = rowOffsetsStart + numKeys * Long.BYTES;
+
+        final long valuesLength = indexOffset - valuesOffset;
+        valueChunks = new MappedByteBuffer[(int) ((valuesLength + VALUE_CHUNK_SIZE - 1) / VALUE_CHUNK_SIZE)];
+        for ( int i = 0; i < valueChunks.length; ++i ) {
+            final long chunkStart = (long) i * VALUE_CHUNK_SIZE;
+            valueChunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, valuesOffset + chunkStart, Math.min(VALUE_CHUNK_SIZE, valuesLength - chunkStart));
+        }
+    }
+
+    //==================================================================================================================
+    // Static Methods:
+
+    /**
+     * Open the store of the given source file, building it first if there is no up-to-date store for the source file
+     * and settings next to the source file (or in the given store directory).
+     * @param sourcePath The XSV file whose rows are in the store.
+     * @param storeDirectory The local directory in which to keep the store, or {@code null} to keep it next to the source file.
+     * @param settings A description of the settings with which the rows are read from the source file.  A store built with other settings is rebuilt.
+     * @param numColumns The number of values in each row.
+     * @param rowSource Adds all the rows of the source file to the given {@link Builder}.  Only called if the store has to be built.
+     * @return The {@link SimpleKeyXsvStore} of the given source file.
+     */
+    static SimpleKeyXsvStore openOrBuild(final Path sourcePath, final Path storeDirectory, final String settings, final int numColumns, final Consumer<Builder> rowSource) {
+        Utils.nonNull(sourcePath);
+        Utils.nonNull(settings);
+        Utils.nonNull(rowSource);
+
+        final String signature = makeSignature(sourcePath, settings, numColumns);
+
+        // Stores are only kept next to local files, unless they have a store directory:
+        if ( storeDirectory != null || sourcePath.getFileSystem() == FileSystems.getDefault() ) {
+            final String storeFileName = sourcePath.getFileName() + STORE_EXTENSION;
+            final Path storePath = storeDirectory != null ? storeDirectory.resolve(storeFileName) : sourcePath.resolveSibling(storeFileName);
+            final SimpleKeyXsvStore existingStore = open(storePath, signature);
+            if ( existingStore != null ) {
+                logger.debug("Using the existing store of " + sourcePath.toUri() + ": " + storePath.toUri());
+                return existingStore;
+            }
+
+            final Builder builder;
+            try {
+                builder = new Builder(storePath, signature, numColumns);
+            }
+            catch (final IOException ex) {
+                logger.warn("Unable to write the store of " + sourcePath.toUri() + " to " + storePath.toUri() + " (" + ex.getMessage() + ").  Using a temporary file instead.");
+                return buildAndOpen(IOUtils.createTempFile(sourcePath.getFileName().toString(), STORE_EXTENSION).toPath(), signature, numColumns, rowSource);
+            }
+            logger.info("Building the store of " + sourcePath.toUri() + ": " + storePath.toUri());
+            return buildAndOpen(builder, storePath, signature, rowSource);
+        }
+
+        return buildAndOpen(IOUtils.createTempFile(sourcePath.getFileName().toString(), STORE_EXTENSION).toPath(), signature, numColumns, rowSource);
+    }
+
+    /**
+     * Open the store at the given path.
+     * @param storePath The path of the store to open.
+     * @param signature The signature that the store must have.
+     * @return The store at the given path, or {@code null} if there is no complete store with the given signature at this path.
+     */
+    @VisibleForTesting
+    static SimpleKeyXsvStore open(final Path storePath, final String signature) {
+        if ( !Files.exists(storePath) ) {
+            return null;
+        }
+
+        // Everything is read through the same channel, in case the store is concurrently replaced:
+        try ( final FileChannel channel = FileChannel.open(storePath, StandardOpenOption.READ) ) {
+            final byte[] expectedSignature = signature.getBytes(StandardCharsets.UTF_8);
+            final long valuesOffset = FIXED_HEADER_LENGTH + Integer.BYTES + expectedSignature.length;
+            if ( channel.size() < valuesOffset ) {
+                return null;
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate((int) valuesOffset);
+            while ( header.hasRemaining() && channel.read(header, header.position()) >= 0 ) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+
+            if ( header.getInt() != MAGIC || header.getInt() != VERSION ) {
+                return null;
+            }
+            final long indexOffset = header.getLong();
+            if ( indexOffset < valuesOffset || indexOffset > channel.size() || header.getInt() != expectedSignature.length ) {
+                return null;
+            }
+            final byte[] actualSignature = new byte[expectedSignature.length];
+            header.get(actualSignature);
+            if ( !Arrays.equals(actualSignature, expectedSignature) ) {
+                return null;
+            }
+
+            return new SimpleKeyXsvStore(channel, valuesOffset, indexOffset);
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(storePath, "Unable to read the XSV store", ex);
+        }
+    }
+
+    /**
+     * Identifies the contents of a store built from the given source with the given settings.
+     * Includes the size and modification time of the source file, so that a store is rebuilt if its source file changes.
+     */
+    private static String makeSignature(final Path sourcePath, final String settings, final int numColumns) {
+        try {
+            return sourcePath.toAbsolutePath().toUri() + "\t" + Files.size(sourcePath) + "\t" + Files.getLastModifiedTime(sourcePath).toMillis()
+                    + "\t" + numColumns + "\t" + settings;
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(sourcePath, "Unable to get the size and modification time of the file", ex);
+        }
+    }
+
+    private static SimpleKeyXsvStore buildAndOpen(final Path storePath, final String signature, final int numColumns, final Consumer<Builder> rowSource) {
+        try {
+            return buildAndOpen(new Builder(storePath, signature, numColumns), storePath, signature, rowSource);
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(storePath.toString(), "Unable to create the XSV store", ex);
+        }
+    }
+
+    private static SimpleKeyXsvStore buildAndOpen(final Builder builder, final Path storePath, final String signature, final Consumer<Builder> rowSource) {
+        try {
+            rowSource.accept(builder);
+            builder.build();
+        }
+        finally {
+            builder.discard();
+        }
+
+        final SimpleKeyXsvStore store = open(storePath, signature);
+        if ( store == null ) {
+            throw new GATKException("The XSV store just built at " + storePath.toUri() + " is incomplete");
+        }
+        return store;
+    }
+
+    /**
+     * Compare two UTF-8 encoded keys, byte by byte (as unsigned values).
+     */
+    private static int compareKeys(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for ( int i = 0; i < length; ++i ) {
+            final int comparison = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if ( comparison != 0 ) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    //==================================================================================================================
+    // Instance Methods:
+
+    /**
+     * @return The number of distinct keys in this store.
+     */
+    int size() {
+        return numKeys;
+    }
+
+    /**
+     * @return The number of values in each row of this store.
+     */
+    int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Get the values of the row with the given key.
+     * @param key The key of the row to get.
+     * @return A new {@link List} of the values of the row with the given key, or {@code null} if there is no such row.
+     */
+    List<String> get(final String key) {
+        if ( key == null ) {
+            return null;
+        }
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        int low = 0;
+        int high = numKeys - 1;
+        while ( low <= high ) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = compareToKeyAt(keyBytes, middle);
+            if ( comparison > 0 ) {
+                low = middle + 1;
+            }
+            else if ( comparison < 0 ) {
+                high = middle - 1;
+            }
+            else {
+                return readRow(index.getLong(rowOffsetsStart + middle * Long.BYTES));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compare the given UTF-8 encoded key to the key at the given position of the index, as in {@link #compareKeys}.
+     */
+    private int compareToKeyAt(final byte[] keyBytes, final int keyIndex) {
+        final int start = keyBytesStart + index.getInt(keyOffsetsStart + keyIndex * Integer.BYTES);
+        final int length = keyBytesStart + index.getInt(keyOffsetsStart + (keyIndex + 1) * Integer.BYTES) - start;
+        final int commonLength = Math.min(keyBytes.length, length);
+        for ( int i = 0; i < commonLength; ++i ) {
+            final int comparison = Integer.compare(keyBytes[i] & 0xFF, index.get(start + i) & 0xFF);
+            if ( comparison != 0 ) {
+                return comparison;
+            }
+        }
+        return Integer.compare(keyBytes.length, length);
+    }
+
+    private List<String> readRow(final long rowOffset) {
+        final long relativeOffset = rowOffset - valuesOffset;
+        // A view of our own, since buffer positions are not thread-safe:
+        final ByteBuffer chunk = valueChunks[(int) (relativeOffset / VALUE_CHUNK_SIZE)].duplicate();
+        chunk.position((int) (relativeOffset % VALUE_CHUNK_SIZE));
+
+        final List<String> row = new ArrayList<>(numColumns);
+        for ( int i = 0; i < numColumns; ++i ) {
+            final byte[] value = new byte[chunk.getInt()];
+            chunk.get(value);
+            row.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return row;
+    }
+
+    /**
+     * Mapped files can't be explicitly unmapped; the mappings are released once this store is garbage collected.
+     */
+    @Override
+    public void close() {}
+
+    //==================================================================================================================
+    // Helper Data Types:
+
+    /**
+     * Writes a new store, one row at a time.  Rows are written out as they are added, so that only the keys (and not the
+     * values) are kept in memory while building.
+     * The store is written to a temporary file in the same directory and moved into place by {@link #build}, so that
+     * a partially written store is never seen at the final path.
+     */
+    static final class Builder {
+        private final Path storePath;
+        private final Path tempPath;
+        private final int numColumns;
+        private final long valuesOffset;
+        private final DataOutputStream out;
+        private long position;
+
+        // Offsets of the rows by key.  If a key is added again, its latest row wins.
+        private final Object2LongOpenHashMap<String> rowOffsets = new Object2LongOpenHashMap<>();
+
+        private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+        private final DataOutputStream rowOut = new DataOutputStream(rowBytes);
+
+        private Builder(final Path storePath, final String signature, final int numColumns) throws IOException {
+            Utils.validateArg(numColumns >= 0, "numColumns must be non-negative");
+            this.storePath = storePath;
+            this.numColumns = numColumns;
+
+            final Path directory = storePath.toAbsolutePath().getParent();
+            tempPath = Files.createTempFile(directory, storePath.getFileName().toString(), ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)));
+
+            final byte[] signatureBytes = signature.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(0L); // offset of the index, filled in once known
+            out.writeInt(signatureBytes.length);
+            out.write(signatureBytes);
+            valuesOffset = FIXED_HEADER_LENGTH + Integer.BYTES + signatureBytes.length;
+            position = valuesOffset;
+        }
+
+        /**
+         * Add a row to the store.
+         * @param key The key of the row.
+         * @param values The values of the row (there must be exactly as many as the store has columns).
+         */
+        void add(final String key, final List<String> values) {
+            Utils.nonNull(key);
+            Utils.validateArg(values.size() == numColumns, () -> "Expected " + numColumns + " values for key " + key + " but got " + values.size());
+
+            try {
+                rowBytes.reset();
+                for ( final String value : values ) {
+                    final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+                    rowOut.writeInt(valueBytes.length);
+                    rowOut.write(valueBytes);
+                }
+                rowOut.flush();
+
+                final int rowLength = rowBytes.size();
+                if ( rowLength > VALUE_CHUNK_SIZE ) {
+                    throw new UserException.BadInput("The row for key " + key + " is too large (" + rowLength + " bytes)");
+                }
+                // Start a new chunk if this row would straddle the end of the current one:
+                final long remainingInChunk = VALUE_CHUNK_SIZE - (position - valuesOffset) % VALUE_CHUNK_SIZE;
+                if ( rowLength > remainingInChunk ) {
+                    for ( long i = 0; i < remainingInChunk; ++i ) {
+                        out.write(0);
+                    }
+                    position += remainingInChunk;
+                }
+
+                rowOffsets.put(key, position);
+                rowBytes.writeTo(out);
+                position += rowLength;
+            }
+            catch (final IOException ex) {
+                throw new UserException.CouldNotCreateOutputFile(tempPath.toString(), "Unable to write to the XSV store", ex);
+            }
+        }
+
+        /**
+         * Write the index of the keys and move the finished store into place.
+         */
+        private void build() {
+            final byte[][] keys = new byte[rowOffsets.size()][];
+            final long[] offsets = new long[rowOffsets.size()];
+            final Integer[] order = new Integer[rowOffsets.size()];
+            int i = 0;
+            for ( final Object2LongMap.Entry<String> entry : rowOffsets.object2LongEntrySet() ) {
+                keys[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                offsets[i] = entry.getLongValue();
+                order[i] = i;
+                ++i;
+            }
+            Arrays.sort(order, (a, b) -> compareKeys(keys[a], keys[b]));
+
+            long totalKeyLength = 0;
+            for ( final byte[] key : keys ) {
+                totalKeyLength += key.length;
+            }
+            final long indexLength = 2L * Integer.BYTES + (keys.length + 1L) * Integer.BYTES + keys.length * (long) Long.BYTES + totalKeyLength;
+            if ( indexLength > Integer.MAX_VALUE ) {
+                throw new UserException.BadInput("Too many keys for an XSV store (" + keys.length + " keys, " + totalKeyLength + " bytes)");
+            }
+
+            try {
+                final long indexOffset = position;
+                out.writeInt(keys.length);
+                out.writeInt(numColumns);
+                int keyOffset = 0;
+                for ( final int k : order ) {
+                    out.writeInt(keyOffset);
+                    keyOffset += keys[k].length;
+                }
+                out.writeInt(keyOffset);
+                for ( final int k : order ) {
+                    out.writeLong(offsets[k]);
+                }
+                for ( final int k : order ) {
+                    out.write(keys[k]);
+                }
+                out.close();
+
+                // Only now that the store is complete, record where its index is:
+                try ( final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE) ) {
+                    final ByteBuffer indexOffsetBytes = ByteBuffer.allocate(Long.BYTES).putLong(0, indexOffset);
+                    while ( indexOffsetBytes.hasRemaining() ) {
+                        channel.write(indexOffsetBytes, INDEX_OFFSET_POSITION + indexOffsetBytes.position());
+                    }
+                }
+
+                try {
+                    Files.move(tempPath, storePath, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (final AtomicMoveNotSupportedException ex) {
+                    Files.move(tempPath, storePath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (final IOException ex) {
+                throw new UserException.CouldNotCreateOutputFile(storePath.toString(), "Unable to write the XSV store", ex);
+            }
+        }
+
+        /**
+         * Remove the temporary file of this builder, unless it was moved into place.
+         */
+        private void discard() {
+            try {
+                out.close();
+                Files.deleteIfExists(tempPath);
+            }
+            catch (final IOException ex) {
+                logger.warn("Unable to delete temporary file " + tempPath.toUri() + ": " + ex.getMessage());
+            }
+        }
+    }
+}
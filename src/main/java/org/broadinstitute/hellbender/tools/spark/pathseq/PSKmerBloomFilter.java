@@ -62,6 +62,10 @@ public final class PSKmerBloomFilter extends PSKmerCollection {
         return falsePositiveProbability;
     }
 
+    LongBloomFilter getMaskedKmerBloomFilter() {
+        return kmerSet;
+    }
+
     private void serialize(final Kryo kryo, final Output output) {
         output.writeInt(kmerSize);
         output.writeLong(kmerMask.getLong());
@@ -67,6 +67,10 @@ public final class PSKmerSet extends PSKmerCollection {
         return kmerSet.size();
     }
 
+    LargeLongHopscotchSet getMaskedKmerSet() {
+        return kmerSet;
+    }
+
     private void serialize(final Kryo kryo, final Output output) {
         output.writeInt(kmerSize);
         output.writeLong(kmerMask.getLong());
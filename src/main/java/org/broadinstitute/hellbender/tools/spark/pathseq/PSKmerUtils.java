@@ -13,8 +13,11 @@ import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,6 +30,8 @@ public class PSKmerUtils {
 
     public static final String HOPSCOTCH_SET_EXTENSION = ".hss";
     public static final String BLOOM_FILTER_EXTENSION = ".bfi";
+    public static final String MAPPED_HOPSCOTCH_SET_EXTENSION = ".hssm";
+    public static final String MAPPED_BLOOM_FILTER_EXTENSION = ".bfim";
     private static final Logger logger = LogManager.getLogger(PSKmerUtils.class);
 
     /**
@@ -127,7 +132,38 @@ public class PSKmerUtils {
         writeKryoObject(bloomFilter, filePath);
     }
 
+    /**
+     * Writes a kmer set in the memory-mappable format of {@link PSMappedKmerCollection}.
+     */
+    public static void writeMappedKmerSet(final String uri, final PSKmerSet set) {
+        final String filePath = addExtensionIfMissing(uri, MAPPED_HOPSCOTCH_SET_EXTENSION);
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(BucketUtils.createFile(filePath)))) {
+            PSMappedKmerCollection.write(set, output);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(filePath, "could not write the kmer library", e);
+        }
+    }
+
+    /**
+     * Writes a kmer Bloom filter in the memory-mappable format of {@link PSMappedKmerCollection}.
+     */
+    public static void writeMappedKmerBloomFilter(final String uri, final PSKmerBloomFilter bloomFilter) {
+        final String filePath = addExtensionIfMissing(uri, MAPPED_BLOOM_FILTER_EXTENSION);
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(BucketUtils.createFile(filePath)))) {
+            PSMappedKmerCollection.write(bloomFilter, output);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(filePath, "could not write the kmer library", e);
+        }
+    }
+
+    private static String addExtensionIfMissing(final String uri, final String extension) {
+        return uri.toLowerCase().endsWith(extension.toLowerCase()) ? uri : uri + extension;
+    }
+
     public static PSKmerCollection readKmerFilter(final String uri) {
+        if (uri.endsWith(MAPPED_HOPSCOTCH_SET_EXTENSION) || uri.endsWith(MAPPED_BLOOM_FILTER_EXTENSION)) {
+            return mapKmerFilter(uri);
+        }
         final Input input = new Input(BucketUtils.openFile(uri));
         final Kryo kryo = new Kryo();
         if (uri.endsWith(HOPSCOTCH_SET_EXTENSION)) {
@@ -138,6 +174,24 @@ public class PSKmerUtils {
         throw new UserException.BadInput("Unknown kmer set extension in file name " + uri);
     }
 
+    /**
+     * Maps a memory-mappable kmer library into memory. Libraries in remote storage are copied to a local temporary
+     * file first, since only local files can be mapped.
+     */
+    private static PSKmerCollection mapKmerFilter(final String uri) {
+        try {
+            String localPath = uri;
+            if (BucketUtils.isRemoteStorageUrl(uri)) {
+                localPath = IOUtils.createTempFile("kmerLibrary", uri.substring(uri.lastIndexOf('.'))).getAbsolutePath();
+                logger.info("Copying kmer library " + uri + " to " + localPath + " in order to map it into memory...");
+                BucketUtils.copyFile(uri, localPath);
+            }
+            return PSMappedKmerCollection.map(IOUtils.getPath(localPath));
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile("Could not map kmer library " + uri, e);
+        }
+    }
+
     private final static class ProgressCounter {
         long processedItems, processedItemsSinceLast;
         final long initialTime, totalItems, itemsInterval;
@@ -0,0 +1,115 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.LargeMappedBuffer;
+import org.broadinstitute.hellbender.tools.spark.utils.MappedLargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.MappedLongBloomFilter;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongPredicate;
+
+/**
+ * Kmer set or Bloom filter that is memory-mapped from a local file rather than deserialized onto the heap, so that
+ * it loads instantly and its pages are shared by every task (and every executor) on a host.
+ * The file holds a header (kmer size, kmer mask, false positive probability) followed by either a
+ * {@link MappedLargeLongHopscotchSet} or a {@link MappedLongBloomFilter}.
+ */
+public final class PSMappedKmerCollection extends PSKmerCollection {
+
+    private static final int MAGIC = 0x50534B4D; // "PSKM"
+    private static final int VERSION = 1;
+    private static final int HASH_SET_TYPE = 0;
+    private static final int BLOOM_FILTER_TYPE = 1;
+    private static final long HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final LongPredicate maskedKmerSet;
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+    private final double falsePositiveProbability;
+
+    private PSMappedKmerCollection(final LongPredicate maskedKmerSet, final int kmerSize, final SVKmerShort kmerMask,
+                                   final double falsePositiveProbability) {
+        this.maskedKmerSet = maskedKmerSet;
+        this.kmerSize = kmerSize;
+        this.kmerMask = kmerMask;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Map a file written by one of the write methods of this class.
+     *
+     * @param path local path of the file
+     */
+    public static PSMappedKmerCollection map(final Path path) throws IOException {
+        Utils.nonNull(path);
+        final LargeMappedBuffer buffer = LargeMappedBuffer.map(path);
+        if (buffer.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new UserException.BadInput("Not a memory-mappable kmer library: " + path.toUri());
+        }
+        final int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new UserException.BadInput("Memory-mappable kmer library " + path.toUri() + " has format version " +
+                    version + " but only version " + VERSION + " is supported");
+        }
+        final int type = buffer.getInt(2 * Integer.BYTES);
+        final int kmerSize = buffer.getInt(3 * Integer.BYTES);
+        final SVKmerShort kmerMask = new SVKmerShort(buffer.getLong(4 * Integer.BYTES));
+        final double falsePositiveProbability = buffer.getDouble(4 * Integer.BYTES + Long.BYTES);
+        if (type == HASH_SET_TYPE) {
+            return new PSMappedKmerCollection(new MappedLargeLongHopscotchSet(buffer, HEADER_SIZE)::contains,
+                    kmerSize, kmerMask, falsePositiveProbability);
+        } else if (type == BLOOM_FILTER_TYPE) {
+            return new PSMappedKmerCollection(new MappedLongBloomFilter(buffer, HEADER_SIZE)::contains,
+                    kmerSize, kmerMask, falsePositiveProbability);
+        }
+        throw new UserException.BadInput("Unknown kmer library type " + type + " in " + path.toUri());
+    }
+
+    public static void write(final PSKmerSet kmerSet, final DataOutputStream output) throws IOException {
+        Utils.nonNull(kmerSet);
+        writeHeader(output, HASH_SET_TYPE, kmerSet);
+        MappedLargeLongHopscotchSet.write(kmerSet.getMaskedKmerSet(), output);
+    }
+
+    public static void write(final PSKmerBloomFilter kmerBloomFilter, final DataOutputStream output) throws IOException {
+        Utils.nonNull(kmerBloomFilter);
+        writeHeader(output, BLOOM_FILTER_TYPE, kmerBloomFilter);
+        MappedLongBloomFilter.write(kmerBloomFilter.getMaskedKmerBloomFilter(), output);
+    }
+
+    private static void writeHeader(final DataOutputStream output, final int type, final PSKmerCollection kmers) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(type);
+        output.writeInt(kmers.kmerSize());
+        output.writeLong(kmers.getMask().getLong());
+        output.writeDouble(kmers.getFalsePositiveProbability());
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        return maskedKmerSet.test(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+}
@@ -30,7 +30,9 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
 
     @Argument(doc = "File for kmer library output. Extension will be automatically added if not present ("
             + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set or "
-            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter)",
+            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter, or "
+            + PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION + " and "
+            + PSKmerUtils.MAPPED_BLOOM_FILTER_EXTENSION + " with --memoryMappable)",
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     public String outputFile;
@@ -59,6 +61,16 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
             optional = true)
     public String kmerMaskString = "";
 
+    /**
+     * A memory-mappable library is mapped into memory by the filter rather than deserialized onto the heap, which
+     * saves executor memory and start-up time, particularly for large hash sets. When it is not on a local file
+     * system, each executor copies it to a local temporary file first.
+     */
+    @Argument(doc = "Write the kmer library in a format that is memory-mapped, rather than loaded on the heap, by PathSeqFilterSpark",
+            fullName = "memoryMappable",
+            optional = true)
+    public boolean memoryMappable = false;
+
     @Argument(doc = "Spacing between successive kmers",
             fullName = "kmerSpacing",
             minValue = 1,
@@ -84,12 +96,20 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
             final LongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
             final PSKmerBloomFilter kmerBloomFilter = new PSKmerBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
             logger.info("Theoretical Bloom filter false positive probability: " + kmerBloomFilter.getFalsePositiveProbability());
-            PSKmerUtils.writeKmerBloomFilter(outputFile, kmerBloomFilter);
+            if (memoryMappable) {
+                PSKmerUtils.writeMappedKmerBloomFilter(outputFile, kmerBloomFilter);
+            } else {
+                PSKmerUtils.writeKmerBloomFilter(outputFile, kmerBloomFilter);
+            }
         } else {
             logger.info("Building kmer hash set...");
             final LargeLongHopscotchSet kmerHopscotchSet = PSKmerUtils.longArrayCollectionToSet(maskedKmerCollection, numLongs);
             final PSKmerSet kmerSet = new PSKmerSet(kmerHopscotchSet, kmerSize, kmerMask);
-            PSKmerUtils.writeKmerSet(outputFile, kmerSet);
+            if (memoryMappable) {
+                PSKmerUtils.writeMappedKmerSet(outputFile, kmerSet);
+            } else {
+                PSKmerUtils.writeKmerSet(outputFile, kmerSet);
+            }
         }
         return null;
     }
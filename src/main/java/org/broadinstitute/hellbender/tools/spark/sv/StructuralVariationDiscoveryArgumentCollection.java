@@ -152,7 +152,8 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
         /**
          * This is a path to a file of kmers that appear too frequently in the reference to be usable as probes to localize
          * reads.  We don't calculate it here, because it depends only on the reference.
-         * The program FindBadGenomicKmersSpark can produce such a list for you.
+         * The program FindBadGenomicKmersSpark can produce such a list for you, either as text or, much faster to load,
+         * in a binary format (for an output file name ending with ".bin").
          */
         @Argument(doc = "file containing ubiquitous kmer list. see FindBadGenomicKmersSpark to generate it.",
                 fullName = "kmers-to-ignore")
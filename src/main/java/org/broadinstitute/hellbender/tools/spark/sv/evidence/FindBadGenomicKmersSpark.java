@@ -37,6 +37,10 @@ import java.util.List;
  * input file by the StructuralVariationDiscoveryPipelineSpark tool, which will ignore these kmers when trying
  * to produce candidate reads for local assemblies.</p>
  *
+ * <p>The kmers depend only on the reference and on the kmer size, so the output can be reused by every run on that
+ * reference.  If the output file name ends with ".bin", the kmers are written in a compact binary format that loads
+ * much faster than the text format.</p>
+ *
  * <h3>Inputs</h3>
  * <ul>
  *     <li>A reference.</li>
@@ -44,7 +48,7 @@ import java.util.List;
  *
  * <h3>Output</h3>
  * <ul>
- *     <li>A text file describing the ubiquitous kmers.</li>
+ *     <li>A text (or binary) file describing the ubiquitous kmers.</li>
  * </ul>
  *
  * <h3>Usage example</h3>
@@ -53,6 +57,11 @@ import java.util.List;
  *     -R reference.fasta \
  *     -O kmers_to_ignore.txt
  * </pre>
+ * <pre>
+ *   gatk FindBadGenomicKmersSpark \
+ *     -R reference.fasta \
+ *     -O kmers_to_ignore.bin
+ * </pre>
  * <p>This tool can be run without explicitly specifying Spark options. That is to say, the given example command
  * without Spark options will run locally. See
  * <a href ="https://software.broadinstitute.org/gatk/documentation/article?id=10060">Tutorial#10060</a>
@@ -108,7 +117,7 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
             killList = SVUtils.uniquify(killList, processFasta(kSize, maxDUSTScore, highCopyFastaFilename));
         }
 
-        SVFileUtils.writeKmersFile(outputFile, kSize, killList);
+        SVFileUtils.writeKmersFile(outputFile, kSize, killList, referenceMultiSource.getReferenceSequenceDictionary(dict));
     }
 
     /** Find high copy number kmers in the reference sequence */
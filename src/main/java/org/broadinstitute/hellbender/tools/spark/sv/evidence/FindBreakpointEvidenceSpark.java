@@ -168,7 +168,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             alignedAssemblyOrExcuseList = new ArrayList<>();
         } else {
             alignedAssemblyOrExcuseList = addAssemblyQNames(params, readMetadata, ctx, qNamesMultiMap, intervals.size(),
-                    unfilteredReads, filter, logger);
+                    unfilteredReads, filter, header.getSequenceDictionary(), logger);
         }
 
         // write a FASTQ file for each interval
@@ -428,11 +428,12 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final int nIntervals,
             final JavaRDD<GATKRead> unfilteredReads,
             final SVReadFilter filter,
+            final SAMSequenceDictionary dictionary,
             final Logger logger)
     {
         final Tuple2<List<AlignedAssemblyOrExcuse>, HopscotchUniqueMultiMap<SVKmer, Integer, KmerAndInterval>> kmerIntervalsAndDispositions =
                 getKmerAndIntervalsSet(params, readMetadata, ctx, qNamesMultiMap, nIntervals,
-                                        unfilteredReads, filter, logger);
+                                        unfilteredReads, filter, dictionary, logger);
 
         final HopscotchUniqueMultiMap<SVKmer, Integer, KmerAndInterval> kmersAndIntervals =
                 removeUbiquitousKmers(params, readMetadata, ctx, kmerIntervalsAndDispositions._2(), unfilteredReads, filter, logger);
@@ -463,10 +464,11 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final int nIntervals,
             final JavaRDD<GATKRead> unfilteredReads,
             final SVReadFilter filter,
+            final SAMSequenceDictionary dictionary,
             final Logger logger)
     {
         final Set<SVKmer> kmerKillSet =
-                SVFileUtils.readKmersFile(params.kmersToIgnoreFile, params.kSize);
+                SVFileUtils.readKmersFile(params.kmersToIgnoreFile, params.kSize, dictionary);
         if ( params.adapterSequence != null ) {
             SVKmerizer.stream(params.adapterSequence, params.kSize, 0, new SVKmerLong())
                     .forEach(kmer -> kmerKillSet.add(kmer.canonical(params.kSize)));
@@ -1,6 +1,8 @@
 package org.broadinstitute.hellbender.tools.spark.sv.utils;
 
 import htsjdk.samtools.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.spark.utils.HopscotchSet;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -11,8 +13,22 @@ import java.util.*;
 
 public final class SVFileUtils {
 
+    private static final Logger logger = LogManager.getLogger(SVFileUtils.class);
+
     private static final String REFERENCE_GAP_INTERVAL_FILE_COMMENT_LINE_PROMPT = "#";
 
+    /**
+     * Kmers files with this extension are written in a binary format rather than as text:
+     * a header (magic number, format version, K, a signature of the reference, number of kmers) followed by
+     * the two longs of each {@link SVKmerLong}.
+     * Reading such a file needs no parsing, which matters for the tens of millions of kmers of a human reference.
+     */
+    public static final String BINARY_KMERS_FILE_EXTENSION = ".bin";
+    private static final int BINARY_KMERS_FILE_MAGIC = 0x53564B4D; // "SVKM", which no text kmers file starts with
+    private static final int BINARY_KMERS_FILE_VERSION = 1;
+    private static final int BINARY_KMERS_FILE_BUFFER_SIZE = 1 << 20;
+    private static final long UNKNOWN_REFERENCE_SIGNATURE = 0L;
+
     public static void writeSAMFile(final String outputName, final Iterator<SAMRecord> alignments, final SAMFileHeader header,
                                     final boolean preOrdered) {
         Utils.nonNull(alignments, "provided alignments to write out is null");
@@ -54,15 +70,76 @@ public final class SVFileUtils {
      * Each line must be exactly
      * {@link org.broadinstitute.hellbender.tools.spark.sv.StructuralVariationDiscoveryArgumentCollection.FindBreakpointEvidenceSparkArgumentCollection#KMER_SIZE}
      * characters long, and must match [ACGT]*.
+     * Binary kmers files (see {@link #BINARY_KMERS_FILE_EXTENSION}) are recognized by their contents, whatever their name.
      */
     public static Set<SVKmer> readKmersFile(final String kmersFilePath, final int kSize) {
+        return readKmersFile(kmersFilePath, kSize, null);
+    }
+
+    /**
+     * Read a file of kmers, as {@link #readKmersFile(String, int)} does, and warn if a binary kmers file was computed
+     * for a reference other than the one described by the given dictionary.
+     *
+     * @param dictionary dictionary of the reference of the reads, or null not to check the reference of the kmers
+     */
+    public static Set<SVKmer> readKmersFile(final String kmersFilePath, final int kSize,
+                                            final SAMSequenceDictionary dictionary) {
         Utils.nonNull(kmersFilePath, "provided path for file containing kmers is null");
         Utils.validateArg(kSize > 0, "provided k-size is non positive: " + kSize);
 
+        try ( final BufferedInputStream inputStream =
+                      new BufferedInputStream(BucketUtils.openFile(kmersFilePath), BINARY_KMERS_FILE_BUFFER_SIZE) ) {
+            inputStream.mark(Integer.BYTES);
+            final DataInputStream dataInputStream = new DataInputStream(inputStream);
+            final boolean isBinary = BucketUtils.fileSize(kmersFilePath) >= Integer.BYTES &&
+                    dataInputStream.readInt() == BINARY_KMERS_FILE_MAGIC;
+            inputStream.reset();
+            return isBinary ? readBinaryKmers(dataInputStream, kmersFilePath, kSize, dictionary) :
+                    readTextKmers(inputStream, kmersFilePath, kSize);
+        }
+        catch ( final IOException ioe ) {
+            throw new GATKException("Unable to read kmers from " + kmersFilePath, ioe);
+        }
+    }
+
+    private static Set<SVKmer> readBinaryKmers(final DataInputStream inputStream, final String kmersFilePath,
+                                               final int kSize, final SAMSequenceDictionary dictionary)
+            throws IOException {
+        inputStream.readInt(); // magic number
+        final int version = inputStream.readInt();
+        if ( version != BINARY_KMERS_FILE_VERSION ) {
+            throw new GATKException("SVKmer kill set " + kmersFilePath + " has format version " + version +
+                    " but we can only read version " + BINARY_KMERS_FILE_VERSION);
+        }
+        final int fileKSize = inputStream.readInt();
+        if ( fileKSize != kSize ) {
+            throw new GATKException("SVKmer kill set contains kmers of length " + fileKSize +
+                    " but we were expecting K = " + kSize);
+        }
+        final long referenceSignature = inputStream.readLong();
+        if ( dictionary != null && referenceSignature != UNKNOWN_REFERENCE_SIGNATURE &&
+                referenceSignature != getReferenceSignature(dictionary) ) {
+            logger.warn("The kmers of " + kmersFilePath + " were computed for a reference whose contigs differ from " +
+                    "those of the reads. Consider running FindBadGenomicKmersSpark again on the right reference.");
+        }
+        final long nKmers = inputStream.readLong();
+        if ( nKmers < 0 || nKmers > Integer.MAX_VALUE ) {
+            throw new GATKException("SVKmer kill set " + kmersFilePath + " claims to contain " + nKmers + " kmers.");
+        }
+
+        final Set<SVKmer> kmers = new HopscotchSet<>((int)nKmers);
+        for ( long kmerIdx = 0; kmerIdx < nKmers; ++kmerIdx ) {
+            final long valHigh = inputStream.readLong();
+            kmers.add(new SVKmerLong(valHigh, inputStream.readLong()));
+        }
+        return kmers;
+    }
+
+    private static Set<SVKmer> readTextKmers(final InputStream inputStream, final String kmersFilePath,
+                                             final int kSize) throws IOException {
         final Set<SVKmer> kmers;
 
-        try ( final BufferedReader rdr =
-                      new BufferedReader(new InputStreamReader(BucketUtils.openFile(kmersFilePath))) ) {
+        try ( final BufferedReader rdr = new BufferedReader(new InputStreamReader(inputStream)) ) {
             final long fileLength = BucketUtils.fileSize(kmersFilePath);
             kmers = new HopscotchSet<>((int)(fileLength/(kSize+1)));
             String line;
@@ -80,9 +157,6 @@ public final class SVFileUtils {
                 kmers.add(kmerizer.next());
             }
         }
-        catch ( final IOException ioe ) {
-            throw new GATKException("Unable to read kmers from " + kmersFilePath, ioe);
-        }
 
         return kmers;
     }
@@ -90,6 +164,25 @@ public final class SVFileUtils {
     /** Write kmers to file. */
     public static <KType extends SVKmer> void writeKmersFile(final String kmersFilePath, final int kSize,
                                                              final Collection<KType> kmers) {
+        writeKmersFile(kmersFilePath, kSize, kmers, null);
+    }
+
+    /**
+     * Write kmers to file, in the binary format if the file name ends with {@link #BINARY_KMERS_FILE_EXTENSION}
+     * (in which case the kmers must be {@link SVKmerLong}s), and as text otherwise.
+     *
+     * @param dictionary dictionary of the reference from which the kmers were computed, recorded in binary files
+     *                   so that they can be checked against the reference of the reads (may be null)
+     */
+    public static <KType extends SVKmer> void writeKmersFile(final String kmersFilePath, final int kSize,
+                                                             final Collection<KType> kmers,
+                                                             final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(kmersFilePath, "provided path for file containing kmers is null");
+        Utils.nonNull(kmers, "provided kmers are null");
+        if ( kmersFilePath.endsWith(BINARY_KMERS_FILE_EXTENSION) ) {
+            writeBinaryKmersFile(kmersFilePath, kSize, kmers, dictionary);
+            return;
+        }
         try ( final Writer writer =
                       new BufferedWriter(new OutputStreamWriter(BucketUtils.createFile(kmersFilePath))) ) {
             for ( final KType kmer : kmers ) {
@@ -102,6 +195,43 @@ public final class SVFileUtils {
         }
     }
 
+    private static <KType extends SVKmer> void writeBinaryKmersFile(final String kmersFilePath, final int kSize,
+                                                                    final Collection<KType> kmers,
+                                                                    final SAMSequenceDictionary dictionary) {
+        try ( final DataOutputStream outputStream = new DataOutputStream(
+                new BufferedOutputStream(BucketUtils.createFile(kmersFilePath), BINARY_KMERS_FILE_BUFFER_SIZE)) ) {
+            outputStream.writeInt(BINARY_KMERS_FILE_MAGIC);
+            outputStream.writeInt(BINARY_KMERS_FILE_VERSION);
+            outputStream.writeInt(kSize);
+            outputStream.writeLong(dictionary == null ? UNKNOWN_REFERENCE_SIGNATURE : getReferenceSignature(dictionary));
+            outputStream.writeLong(kmers.size());
+            for ( final KType kmer : kmers ) {
+                if ( !(kmer instanceof SVKmerLong) ) {
+                    throw new GATKException("Only SVKmerLongs can be written to binary kmers file " + kmersFilePath);
+                }
+                final SVKmerLong kmerLong = (SVKmerLong)kmer;
+                outputStream.writeLong(kmerLong.getValHigh());
+                outputStream.writeLong(kmerLong.getValLow());
+            }
+        }
+        catch ( final IOException ioe ) {
+            throw new GATKException("Unable to write kmers to " + kmersFilePath, ioe);
+        }
+    }
+
+    /**
+     * @return a signature of the names and lengths of the contigs of a reference, which is never
+     *         {@link #UNKNOWN_REFERENCE_SIGNATURE}
+     */
+    private static long getReferenceSignature(final SAMSequenceDictionary dictionary) {
+        long signature = 1L;
+        for ( final SAMSequenceRecord sequence : dictionary.getSequences() ) {
+            signature = 31L * signature + sequence.getSequenceName().hashCode();
+            signature = 31L * signature + sequence.getSequenceLength();
+        }
+        return signature == UNKNOWN_REFERENCE_SIGNATURE ? 1L : signature;
+    }
+
     /** Read intervals from file. */
     public static List<SVInterval> readIntervalsFile(final String intervalsFilePath,
                                                      final Map<String, Integer> contigNameMap ) {
@@ -38,7 +38,11 @@ public class SVKmerLong extends SVKmer implements Comparable<SVKmerLong>  {
         this.valLow = thatLong.valLow;
     }
 
-    private SVKmerLong( final long valHigh, final long valLow ) { this.valHigh = valHigh; this.valLow = valLow; }
+    // package private for binary kmer files (see SVFileUtils)
+    SVKmerLong( final long valHigh, final long valLow ) { this.valHigh = valHigh; this.valLow = valLow; }
+
+    long getValHigh() { return valHigh; }
+    long getValLow() { return valLow; }
 
     protected SVKmerLong( final Kryo kryo, final Input input ) {
         valHigh = input.readLong();
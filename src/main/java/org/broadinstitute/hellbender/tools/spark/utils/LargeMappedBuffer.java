@@ -0,0 +1,100 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file mapped into memory, which may be larger than the 2GB a single MappedByteBuffer can address.
+ * The file is mapped in chunks of 1GB, so a long at an offset that is a multiple of 8 never straddles two chunks.
+ * <p>
+ * The mapped pages live outside of the Java heap, in the OS page cache, so they are shared by all the threads of
+ * the JVM (and by all the processes on the host that map the same file), and they are paged in on demand rather than
+ * deserialized up front.
+ */
+public final class LargeMappedBuffer {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private LargeMappedBuffer(final MappedByteBuffer[] chunks, final long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Map the whole of a local file into memory, read-only.
+     */
+    public static LargeMappedBuffer map(final Path path) throws IOException {
+        Utils.nonNull(path);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+            }
+            // the mappings remain valid once the channel is closed
+            return new LargeMappedBuffer(chunks, size);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte getByte(final long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].get((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * @param offset offset of the (big-endian) int, which must be a multiple of 4
+     */
+    public int getInt(final long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * @param offset offset of the (big-endian) long, which must be a multiple of 8
+     */
+    public long getLong(final long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * @param offset offset of the (big-endian) double, which must be a multiple of 8
+     */
+    public double getDouble(final long offset) {
+        return Double.longBitsToDouble(getLong(offset));
+    }
+
+    /**
+     * @return the smallest multiple of 8 that is at least {@code offset}, ie. where the next long of a file written
+     *         with {@link #padToLong} goes
+     */
+    public static long alignToLong(final long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * Write zeros to {@code output} until {@code bytesWritten} is a multiple of 8.
+     *
+     * @return the number of bytes written after padding
+     */
+    public static long padToLong(final DataOutput output, final long bytesWritten) throws IOException {
+        final long alignedBytesWritten = alignToLong(bytesWritten);
+        for (long i = bytesWritten; i < alignedBytesWritten; i++) {
+            output.writeByte(0);
+        }
+        return alignedBytesWritten;
+    }
+}
@@ -39,7 +39,7 @@ public final class LongBloomFilter {
             4294967311L, 8589934609L, 17179869209L, 34359738337L, 68719476767L,
             137438953481L, 274877906951L, 549755813881L, 1099511627791L};
 
-    private final static long HASH_SEED_2 = 0x6cebe6dca7f118a6L;
+    final static long HASH_SEED_2 = 0x6cebe6dca7f118a6L;
 
     public LongBloomFilter(final long numElements, final double fpp) {
         Utils.validateArg(numElements > 0, "Number of elements must be greater than 0");
@@ -141,7 +141,7 @@ public final class LongBloomFilter {
         final long hash1 = SVUtils.fnvLong64(entryValue);
         final long hash2 = SVUtils.fnvLong64(HASH_SEED_2, entryValue);
         for (int i = 0; i < numHashes; i++) {
-            final long bitIndex = applyHashFunction(i, hash1, hash2);
+            final long bitIndex = applyHashFunction(i, hash1, hash2, totalBits);
             final int bucketArray = bitIndexToBucketArray(bitIndex);
             final int bucketIndex = bitIndexToBucketIndex(bitIndex);
             buckets[bucketArray][bucketIndex] |= bucketMask(bitIndex);
@@ -153,7 +153,7 @@ public final class LongBloomFilter {
         final long hash1 = SVUtils.fnvLong64(key);
         final long hash2 = SVUtils.fnvLong64(HASH_SEED_2, key);
         for (int i = 0; i < numHashes; i++) {
-            final long bitIndex = applyHashFunction(i, hash1, hash2);
+            final long bitIndex = applyHashFunction(i, hash1, hash2, totalBits);
             final int bucketArray = bitIndexToBucketArray(bitIndex);
             final int bucketIndex = bitIndexToBucketIndex(bitIndex);
             if ((bucketMask(bitIndex) & buckets[bucketArray][bucketIndex]) == 0) return false;
@@ -182,7 +182,7 @@ public final class LongBloomFilter {
      * Kirsch and Mitzenmacher. 2008. Less hashing, same performance: Building a better Bloom filter. Random
      * Structures & Algorithms. 33:2, 187-218.
      */
-    private long applyHashFunction(final int i, final long fnvHash1, final long fnvHash2) {
+    static long applyHashFunction(final int i, final long fnvHash1, final long fnvHash2, final long totalBits) {
         final long result = (fnvHash1+ i * fnvHash2) % totalBits;
         return result < 0 ? result + totalBits : result;
     }
@@ -204,10 +204,29 @@ public final class LongBloomFilter {
     /**
      * Returns bucket bit mask with 1 in the position of given bit index
      */
-    private byte bucketMask(final long bitIndex) {
+    static byte bucketMask(final long bitIndex) {
         return (byte) (1 << (bitIndex & 7));
     }
 
+    long getTotalBits() {
+        return totalBits;
+    }
+
+    int getNumHashes() {
+        return numHashes;
+    }
+
+    long getTotalBuckets() {
+        return totalBuckets;
+    }
+
+    /**
+     * The bit array of the filter, as consecutive arrays of 8-bit buckets (not copies).
+     */
+    byte[][] getBuckets() {
+        return buckets;
+    }
+
     public void clear() {
         for (int i = 0; i < numBucketArrays; i++) {
             Arrays.fill(buckets[i], (byte) 0);
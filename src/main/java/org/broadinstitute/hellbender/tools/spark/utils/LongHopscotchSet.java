@@ -173,6 +173,20 @@ public final class LongHopscotchSet implements Serializable {
         return size == 0;
     }
 
+    /**
+     * The bucket array of the set (not a copy), for writing it out in {@link MappedLargeLongHopscotchSet}'s format
+     */
+    long[] getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * The status array of the set (not a copy), for writing it out in {@link MappedLargeLongHopscotchSet}'s format
+     */
+    byte[] getStatus() {
+        return status;
+    }
+
     // -------- internal methods ----------
 
     public final LongIterator iterator() {
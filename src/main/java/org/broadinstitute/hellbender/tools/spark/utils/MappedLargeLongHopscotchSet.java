@@ -0,0 +1,125 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Read-only view of a {@link LargeLongHopscotchSet} that has been written to a file with {@link #write}, and mapped
+ * into memory with {@link LargeMappedBuffer}. The buckets and status bytes of each {@link LongHopscotchSet} are
+ * written out as they are in memory, so that lookups follow the same hopscotch chains directly in the mapped file,
+ * instead of re-inserting every element into a new set on the heap as Kryo deserialization does.
+ * <p>
+ * Format, starting at an offset that is a multiple of 8: number of sets (long), the offset of each set relative to
+ * the start of the structure (longs), then for each set its capacity (long), its size (long), its buckets (longs)
+ * and its status bytes, padded to a multiple of 8 bytes.
+ */
+public final class MappedLargeLongHopscotchSet {
+
+    private static final long SET_HEADER_SIZE = 2 * Long.BYTES;
+
+    private final LargeMappedBuffer buffer;
+    private final int numSets;
+    // for each set: its capacity, and the offsets in the buffer of its buckets and status bytes
+    private final int[] capacities;
+    private final long[] bucketsOffsets;
+    private final long[] statusOffsets;
+    private final long size;
+
+    /**
+     * @param buffer the mapped file
+     * @param offset offset of the set within the file
+     */
+    public MappedLargeLongHopscotchSet(final LargeMappedBuffer buffer, final long offset) {
+        Utils.nonNull(buffer);
+        this.buffer = buffer;
+        final long numSets = buffer.getLong(offset);
+        if (numSets <= 0 || numSets > Integer.MAX_VALUE) {
+            throw new GATKException("Malformed mapped hopscotch set header: numSets=" + numSets);
+        }
+        this.numSets = (int) numSets;
+        capacities = new int[this.numSets];
+        bucketsOffsets = new long[this.numSets];
+        statusOffsets = new long[this.numSets];
+        long size = 0;
+        for (int i = 0; i < this.numSets; i++) {
+            final long setOffset = offset + buffer.getLong(offset + Long.BYTES * (1L + i));
+            final long capacity = buffer.getLong(setOffset);
+            if (capacity <= 0 || capacity > Integer.MAX_VALUE || setOffset + getSetSize(capacity) > buffer.size()) {
+                throw new GATKException("Malformed mapped hopscotch set header: capacity=" + capacity + " for set " + i);
+            }
+            capacities[i] = (int) capacity;
+            size += buffer.getLong(setOffset + Long.BYTES);
+            bucketsOffsets[i] = setOffset + SET_HEADER_SIZE;
+            statusOffsets[i] = bucketsOffsets[i] + Long.BYTES * capacity;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Write a set in the format read by {@link #MappedLargeLongHopscotchSet(LargeMappedBuffer, long)}.
+     *
+     * @param output destination of the set, which must have received a multiple of 8 bytes so far
+     * @return the number of bytes written, a multiple of 8
+     */
+    public static long write(final LargeLongHopscotchSet set, final DataOutput output) throws IOException {
+        Utils.nonNull(set);
+        Utils.nonNull(output);
+        final Collection<LongHopscotchSet> sets = set.getSets();
+        output.writeLong(sets.size());
+        long setOffset = Long.BYTES * (1L + sets.size());
+        for (final LongHopscotchSet subset : sets) {
+            output.writeLong(setOffset);
+            setOffset += getSetSize(subset.capacity());
+        }
+        for (final LongHopscotchSet subset : sets) {
+            output.writeLong(subset.capacity());
+            output.writeLong(subset.size());
+            for (final long bucket : subset.getBuckets()) {
+                output.writeLong(bucket);
+            }
+            output.write(subset.getStatus());
+            LargeMappedBuffer.padToLong(output, subset.capacity());
+        }
+        return setOffset;
+    }
+
+    private static long getSetSize(final long capacity) {
+        return SET_HEADER_SIZE + Long.BYTES * capacity + LargeMappedBuffer.alignToLong(capacity);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Same lookup as {@link LongHopscotchSet#contains(long, int)} on the set that {@link LargeLongHopscotchSet}
+     * picks for the key.
+     */
+    public boolean contains(final long key) {
+        final int hash = LongHopscotchSet.longHash(key);
+        final int setIndex = Integer.remainderUnsigned(hash, numSets);
+        final int capacity = capacities[setIndex];
+        final long bucketsOffset = bucketsOffsets[setIndex];
+        final long statusOffset = statusOffsets[setIndex];
+
+        int bucketIndex = hash % capacity;
+        if (bucketIndex < 0) bucketIndex += capacity;
+        byte status = buffer.getByte(statusOffset + bucketIndex);
+        // high bit of the status: the bucket holds a chain head
+        if ((status & Byte.MIN_VALUE) == 0) return false;
+        while (true) {
+            // high bit of the bucket: the bucket is occupied
+            if ((buffer.getLong(bucketsOffset + Long.BYTES * (long) bucketIndex) & Long.MAX_VALUE) == key) return true;
+            // low 7 bits of the status: offset to the next bucket of the chain, or 0 at the end of the chain
+            final int offset = status & Byte.MAX_VALUE;
+            if (offset == 0) return false;
+            bucketIndex += offset;
+            if (bucketIndex >= capacity) bucketIndex -= capacity;
+            status = buffer.getByte(statusOffset + bucketIndex);
+        }
+    }
+}
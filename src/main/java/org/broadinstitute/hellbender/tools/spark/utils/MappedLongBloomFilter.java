@@ -0,0 +1,72 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Read-only view of a {@link LongBloomFilter} that has been written to a file with {@link #write}, and mapped into
+ * memory with {@link LargeMappedBuffer}. Lookups hash exactly as the original filter does, and read the bits straight
+ * from the mapped file, so opening the filter costs nothing and the bits don't take up any heap.
+ * <p>
+ * Format, starting at an offset that is a multiple of 8: total number of bits (long), number of hash functions (long),
+ * number of 8-bit buckets (long), and the buckets, padded to a multiple of 8 bytes.
+ */
+public final class MappedLongBloomFilter {
+
+    private static final long HEADER_SIZE = 3 * Long.BYTES;
+
+    private final LargeMappedBuffer buffer;
+    private final long bucketsOffset;
+    private final long totalBits;
+    private final int numHashes;
+
+    /**
+     * @param buffer the mapped file
+     * @param offset offset of the filter within the file
+     */
+    public MappedLongBloomFilter(final LargeMappedBuffer buffer, final long offset) {
+        Utils.nonNull(buffer);
+        this.buffer = buffer;
+        this.totalBits = buffer.getLong(offset);
+        this.numHashes = (int) buffer.getLong(offset + Long.BYTES);
+        final long totalBuckets = buffer.getLong(offset + 2 * Long.BYTES);
+        this.bucketsOffset = offset + HEADER_SIZE;
+        if (totalBits <= 0 || numHashes <= 0 || totalBuckets != (totalBits + 7) / 8 ||
+                bucketsOffset + totalBuckets > buffer.size()) {
+            throw new GATKException("Malformed mapped Bloom filter header: totalBits=" + totalBits +
+                    ", numHashes=" + numHashes + ", totalBuckets=" + totalBuckets);
+        }
+    }
+
+    /**
+     * Write a Bloom filter in the format read by {@link #MappedLongBloomFilter(LargeMappedBuffer, long)}.
+     *
+     * @param output destination of the filter, which must have received a multiple of 8 bytes so far
+     * @return the number of bytes written, a multiple of 8
+     */
+    public static long write(final LongBloomFilter bloomFilter, final DataOutput output) throws IOException {
+        Utils.nonNull(bloomFilter);
+        Utils.nonNull(output);
+        output.writeLong(bloomFilter.getTotalBits());
+        output.writeLong(bloomFilter.getNumHashes());
+        output.writeLong(bloomFilter.getTotalBuckets());
+        for (final byte[] bucketArray : bloomFilter.getBuckets()) {
+            output.write(bucketArray);
+        }
+        return LargeMappedBuffer.padToLong(output, HEADER_SIZE + bloomFilter.getTotalBuckets());
+    }
+
+    public boolean contains(final long key) {
+        final long hash1 = SVUtils.fnvLong64(key);
+        final long hash2 = SVUtils.fnvLong64(LongBloomFilter.HASH_SEED_2, key);
+        for (int i = 0; i < numHashes; i++) {
+            final long bitIndex = LongBloomFilter.applyHashFunction(i, hash1, hash2, totalBits);
+            if ((LongBloomFilter.bucketMask(bitIndex) & buffer.getByte(bucketsOffset + (bitIndex >>> 3))) == 0) return false;
+        }
+        return true;
+    }
+}
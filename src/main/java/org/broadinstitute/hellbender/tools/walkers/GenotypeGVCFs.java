@@ -77,6 +77,11 @@ import java.util.*;
  * <p>This tool is able to handle any ploidy (or mix of ploidies) intelligently; there is no need to specify ploidy
  * for non-diploid organisms.</p>
  *
+ * <h3>Multi-threading</h3>
+ * <p>With --threads greater than 1, the intervals are split into contiguous partitions that are genotyped concurrently,
+ * each thread reading the input (GVCF or GenomicsDB workspace) on its own. The output is identical to that of a
+ * single-threaded run.</p>
+ *
  */
 @CommandLineProgramProperties(summary = "Perform joint genotyping on a single-sample GVCF from HaplotypeCaller or a multi-sample GVCF from CombineGVCFs or GenomicsDBImport",
         oneLineSummary = "Perform joint genotyping on one or more samples pre-called with HaplotypeCaller",
@@ -122,12 +127,10 @@ public final class GenotypeGVCFs extends VariantWalker {
     @ArgumentCollection
     private final DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
-    // the genotyping engine
-    private GenotypingEngine<?> genotypingEngine;
-    // the annotation engine
-    private VariantAnnotatorEngine annotationEngine;
+    private SampleList samples;
 
-    private ReferenceConfidenceVariantContextMerger merger;
+    // genotyping and annotation engines used by the single-threaded traversal
+    private SiteGenotyper siteGenotyper;
 
     private VariantContextWriter vcfWriter;
 
@@ -151,16 +154,26 @@ public final class GenotypeGVCFs extends VariantWalker {
         intervals = hasIntervals() ? intervalArgumentCollection.getIntervals(getBestAvailableSequenceDictionary()) :
                 Collections.emptyList();
 
-        final SampleList samples = new IndexedSampleList(inputVCFHeader.getGenotypeSamples()); //todo should this be getSampleNamesInOrder?
+        samples = new IndexedSampleList(inputVCFHeader.getGenotypeSamples()); //todo should this be getSampleNamesInOrder?
 
-        annotationEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(variantAnnotationArgumentCollection, dbsnp.dbsnp, Collections.emptyList());
+        siteGenotyper = new SiteGenotyper();
 
-        // We only want the engine to generate the AS_QUAL key if we are using AlleleSpecific annotations.
-        genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs), annotationEngine.isRequestedReducibleRawKey(GATKVCFConstants.AS_QUAL_KEY));
+        setupVCFWriter(inputVCFHeader, samples);
+    }
 
-        merger = new ReferenceConfidenceVariantContextMerger(annotationEngine);
+    @Override
+    protected VariantProcessor.Factory<VariantContext> makeVariantProcessorFactory() {
+        return new VariantProcessor.Factory<VariantContext>() {
+            @Override
+            public VariantProcessor<VariantContext> createProcessor() {
+                return new SiteGenotyper();
+            }
 
-        setupVCFWriter(inputVCFHeader, samples);
+            @Override
+            public void accept(final VariantContext result) {
+                vcfWriter.add(result);
+            }
+        };
     }
 
     private static boolean annotationShouldBeSkippedForHomRefSites(VariantAnnotation annotation) {
@@ -174,8 +187,8 @@ public final class GenotypeGVCFs extends VariantWalker {
         // Remove GCVFBlocks
         headerLines.removeIf(vcfHeaderLine -> vcfHeaderLine.getKey().startsWith(GVCF_BLOCK));
 
-        headerLines.addAll(annotationEngine.getVCFAnnotationDescriptions(false));
-        headerLines.addAll(genotypingEngine.getAppropriateVCFInfoHeaders());
+        headerLines.addAll(siteGenotyper.annotationEngine.getVCFAnnotationDescriptions(false));
+        headerLines.addAll(siteGenotyper.genotypingEngine.getAppropriateVCFInfoHeaders());
 
         // add headers for annotations added by this tool
         headerLines.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.MLE_ALLELE_COUNT_KEY));
@@ -195,74 +208,121 @@ public final class GenotypeGVCFs extends VariantWalker {
 
     @Override
     public void apply(VariantContext variant, ReadsContext reads, ReferenceContext ref, FeatureContext features) {
-        ref.setWindow(10, 10); //TODO this matches the gatk3 behavior but may be unnecessary
-        final VariantContext mergedVC = merger.merge(Collections.singletonList(variant), variant, includeNonVariants ? ref.getBase() : null, true, false);
-        final VariantContext regenotypedVC = regenotypeVC(mergedVC, ref, features, includeNonVariants);
-        if (regenotypedVC != null) {
-            final SimpleInterval variantStart = new SimpleInterval(regenotypedVC.getContig(), regenotypedVC.getStart(), regenotypedVC.getStart());
-            if (!onlyOutputCallsStartingInIntervals || intervals.stream().anyMatch(interval -> interval.contains    (variantStart))) {
-                vcfWriter.add(regenotypedVC);
+        siteGenotyper.process(variant, reads, ref, features).forEach(vcfWriter::add);
+    }
+
+    /**
+     * Merges, re-genotypes and re-annotates the sites. Every instance has its own genotyping and annotation engines, so
+     * that sites can be genotyped concurrently by the processors of multi-threaded traversals (one per worker thread).
+     */
+    private final class SiteGenotyper implements VariantProcessor<VariantContext> {
+        // the genotyping engine
+        private final GenotypingEngine<?> genotypingEngine;
+        // the annotation engine
+        private final VariantAnnotatorEngine annotationEngine;
+
+        private final ReferenceConfidenceVariantContextMerger merger;
+
+        private SiteGenotyper() {
+            annotationEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(variantAnnotationArgumentCollection, dbsnp.dbsnp, Collections.emptyList());
+
+            // We only want the engine to generate the AS_QUAL key if we are using AlleleSpecific annotations.
+            genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs), annotationEngine.isRequestedReducibleRawKey(GATKVCFConstants.AS_QUAL_KEY));
+
+            merger = new ReferenceConfidenceVariantContextMerger(annotationEngine);
+        }
+
+        @Override
+        public List<VariantContext> process(VariantContext variant, ReadsContext reads, ReferenceContext ref, FeatureContext features) {
+            ref.setWindow(10, 10); //TODO this matches the gatk3 behavior but may be unnecessary
+            final VariantContext mergedVC = merger.merge(Collections.singletonList(variant), variant, includeNonVariants ? ref.getBase() : null, true, false);
+            final VariantContext regenotypedVC = regenotypeVC(mergedVC, ref, features, includeNonVariants);
+            if (regenotypedVC != null) {
+                final SimpleInterval variantStart = new SimpleInterval(regenotypedVC.getContig(), regenotypedVC.getStart(), regenotypedVC.getStart());
+                if (!onlyOutputCallsStartingInIntervals || intervals.stream().anyMatch(interval -> interval.contains    (variantStart))) {
+                    return Collections.singletonList(regenotypedVC);
+                }
             }
+            return Collections.emptyList();
         }
-    }
 
+        /**
+         * Re-genotype (and re-annotate) a combined genomic VC
+         * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
+         */
+        private VariantContext  regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
+            Utils.nonNull(originalVC);
+
+            final VariantContext result;
+            if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
+                // only re-genotype polymorphic sites
+                final VariantContext regenotypedVC = calculateGenotypes(originalVC);
+                if (isProperlyPolymorphic(regenotypedVC)) {
+                    // Note that reversetrimAlleles must be performed after the annotations are finalized because the reducible annotation data maps
+                    // were generated and keyed on the un reverseTrimmed alleles from the starting VariantContexts. Thus reversing the order will make
+                    // it difficult to recover the data mapping due to the keyed alleles no longer being present in the variant context.
+                    final VariantContext withGenotypingAnnotations = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
+                    final VariantContext withAnnotations = annotationEngine.finalizeAnnotations(withGenotypingAnnotations, originalVC);
+                    result = GATKVariantContextUtils.reverseTrimAlleles(withAnnotations);
+                } else if (includeNonVariants) {
+                    result = originalVC;
+                } else {
+                    return null;
+                }
+            } else {
+                result = originalVC;
+            }
 
 
-    /**
-     * Re-genotype (and re-annotate) a combined genomic VC
-     * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
-     */
-    private VariantContext  regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
-        Utils.nonNull(originalVC);
-
-        final VariantContext result;
-        if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
-            // only re-genotype polymorphic sites
-            final VariantContext regenotypedVC = calculateGenotypes(originalVC);
-            if (isProperlyPolymorphic(regenotypedVC)) {
-                // Note that reversetrimAlleles must be performed after the annotations are finalized because the reducible annotation data maps
-                // were generated and keyed on the un reverseTrimmed alleles from the starting VariantContexts. Thus reversing the order will make
-                // it difficult to recover the data mapping due to the keyed alleles no longer being present in the variant context.
-                final VariantContext withGenotypingAnnotations = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
-                final VariantContext withAnnotations = annotationEngine.finalizeAnnotations(withGenotypingAnnotations, originalVC);
-                result = GATKVariantContextUtils.reverseTrimAlleles(withAnnotations);
+            // if it turned monomorphic then we either need to ignore or fix such sites
+            // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
+            // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
+            // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
+            // We could theoretically make 2 passes to re-create the genotypes, but that gets extremely expensive with large sample sizes.
+            if (result.isPolymorphicInSamples()) {
+                // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
+                final VariantContext reannotated = annotationEngine.annotateContext(result, features, ref, null, a -> true);
+                return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
             } else if (includeNonVariants) {
-                result = originalVC;
+                // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
+                final VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
+                return annotationEngine.annotateContext(reannotated, features, ref, null, GenotypeGVCFs::annotationShouldBeSkippedForHomRefSites);
             } else {
                 return null;
             }
-        } else {
-            result = originalVC;
         }
 
-
-        // if it turned monomorphic then we either need to ignore or fix such sites
-        // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
-        // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
-        // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
-        // We could theoretically make 2 passes to re-create the genotypes, but that gets extremely expensive with large sample sizes.
-        if (result.isPolymorphicInSamples()) {
-            // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
-            final VariantContext reannotated = annotationEngine.annotateContext(result, features, ref, null, a -> true);
-            return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
-        } else if (includeNonVariants) {
-            // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
-            final VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
-            return annotationEngine.annotateContext(reannotated, features, ref, null, GenotypeGVCFs::annotationShouldBeSkippedForHomRefSites);
-        } else {
-            return null;
+        private VariantContext calculateGenotypes(VariantContext vc){
+            /*
+             * Query the VariantContext for the appropriate model.  If type == MIXED, one would want to use model = BOTH.
+             * However GenotypingEngine.getAlleleFrequencyPriors throws an exception if you give it anything but a SNP or INDEL model.
+             */
+            final GenotypeLikelihoodsCalculationModel model = vc.getType() == VariantContext.Type.INDEL
+                    ? GenotypeLikelihoodsCalculationModel.INDEL
+                    : GenotypeLikelihoodsCalculationModel.SNP;
+            return genotypingEngine.calculateGenotypes(vc, model, null);
         }
-    }
 
-    private VariantContext calculateGenotypes(VariantContext vc){
-        /*
-         * Query the VariantContext for the appropriate model.  If type == MIXED, one would want to use model = BOTH.
-         * However GenotypingEngine.getAlleleFrequencyPriors throws an exception if you give it anything but a SNP or INDEL model.
+        /**
+         * Add genotyping-based annotations to the new VC
+         *
+         * @param originalAttributes the non-null annotations from the original VC
+         * @param newVC the new non-null VC
+         * @return a non-null VC
          */
-        final GenotypeLikelihoodsCalculationModel model = vc.getType() == VariantContext.Type.INDEL
-                ? GenotypeLikelihoodsCalculationModel.INDEL
-                : GenotypeLikelihoodsCalculationModel.SNP;
-        return genotypingEngine.calculateGenotypes(vc, model, null);
+        private VariantContext addGenotypingAnnotations(final Map<String, Object> originalAttributes, final VariantContext newVC) {
+            // we want to carry forward the attributes from the original VC but make sure to add the MLE-based annotations and any other annotations generated by the genotyper.
+            final Map<String, Object> attrs = new LinkedHashMap<>(originalAttributes);
+            attrs.put(GATKVCFConstants.MLE_ALLELE_COUNT_KEY, newVC.getAttribute(GATKVCFConstants.MLE_ALLELE_COUNT_KEY));
+            attrs.put(GATKVCFConstants.MLE_ALLELE_FREQUENCY_KEY, newVC.getAttribute(GATKVCFConstants.MLE_ALLELE_FREQUENCY_KEY));
+            if (newVC.hasAttribute(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY)) {
+                attrs.put(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY, newVC.getAttribute(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY));
+            }
+            if (newVC.hasAttribute(GATKVCFConstants.AS_QUAL_KEY)) {
+                attrs.put(GATKVCFConstants.AS_QUAL_KEY, newVC.getAttribute(GATKVCFConstants.AS_QUAL_KEY));
+            }
+            return new VariantContextBuilder(newVC).attributes(attrs).make();
+        }
     }
 
     /**
@@ -291,28 +351,6 @@ public final class GenotypeGVCFs extends VariantWalker {
         return allele.equals(Allele.SPAN_DEL) || allele.equals(GATKVCFConstants.SPANNING_DELETION_SYMBOLIC_ALLELE_DEPRECATED);
     }
 
-    /**
-     * Add genotyping-based annotations to the new VC
-     *
-     * @param originalAttributes the non-null annotations from the original VC
-     * @param newVC the new non-null VC
-     * @return a non-null VC
-     */
-    private VariantContext addGenotypingAnnotations(final Map<String, Object> originalAttributes, final VariantContext newVC) {
-        // we want to carry forward the attributes from the original VC but make sure to add the MLE-based annotations and any other annotations generated by the genotyper.
-        final Map<String, Object> attrs = new LinkedHashMap<>(originalAttributes);
-        attrs.put(GATKVCFConstants.MLE_ALLELE_COUNT_KEY, newVC.getAttribute(GATKVCFConstants.MLE_ALLELE_COUNT_KEY));
-        attrs.put(GATKVCFConstants.MLE_ALLELE_FREQUENCY_KEY, newVC.getAttribute(GATKVCFConstants.MLE_ALLELE_FREQUENCY_KEY));
-        if (newVC.hasAttribute(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY)) {
-            attrs.put(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY, newVC.getAttribute(GATKVCFConstants.NUMBER_OF_DISCOVERED_ALLELES_KEY));
-        }
-        if (newVC.hasAttribute(GATKVCFConstants.AS_QUAL_KEY)) {
-            attrs.put(GATKVCFConstants.AS_QUAL_KEY, newVC.getAttribute(GATKVCFConstants.AS_QUAL_KEY));
-        }
-        return new VariantContextBuilder(newVC).attributes(attrs).make();
-    }
-
-
     /**
      * Cleans up genotype-level annotations that need to be updated.
      * 1. move MIN_DP to DP if present
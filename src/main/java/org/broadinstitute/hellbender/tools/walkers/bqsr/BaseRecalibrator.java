@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.bqsr;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +14,7 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -24,8 +26,15 @@ import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCo
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * First pass of the base quality score recalibration -- Generates recalibration table based on various covariates
@@ -85,6 +94,18 @@ import java.util.List;
 public final class BaseRecalibrator extends ReadWalker {
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
+    public static final String THREADS_LONG_NAME = "threads";
+
+    /**
+     * Number of reads handed to a worker thread at once, with {@link #threads} > 1.
+     */
+    private static final int READ_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of batches per worker thread that may be waiting to be processed before the traversal waits.
+     */
+    private static final int MAX_PENDING_BATCHES_PER_THREAD = 4;
+
     /**
      * All the command line arguments for BQSR and its covariates.
      */
@@ -110,8 +131,28 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * Number of threads on which to compute the covariates and errors of the reads and update the recalibration tables.
+     * The reads are still traversed on a single thread, and handed out in batches to the worker threads. Every worker
+     * has its own recalibration engine and tables, and the tables of all the workers are combined before being
+     * finalized, so the report is the same as with a single thread.
+     */
+    @Argument(fullName = THREADS_LONG_NAME, doc = "Number of threads on which to process the reads", optional = true, minValue = 1)
+    private int threads = 1;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
+    /**
+     * Workers processing the reads with {@link #threads} > 1, {@code null} otherwise.
+     */
+    private List<RecalibrationWorker> workers;
+
+    private List<ReadWithKnownSites> currentBatch;
+
+    private long submittedBatches = 0L;
+
+    private final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
     /**
@@ -139,6 +180,15 @@ public final class BaseRecalibrator extends ReadWalker {
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+
+        if (threads > 1) {
+            logger.info("Processing reads on " + threads + " threads");
+            workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(new RecalibrationWorker(i));
+            }
+            currentBatch = new ArrayList<>(READ_BATCH_SIZE);
+        }
     }
 
     @Override
@@ -177,11 +227,67 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        if (workers == null) {
+            recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+            return;
+        }
+        // known sites are looked up here, since the feature context can only be used on the traversal thread
+        currentBatch.add(new ReadWithKnownSites(read, featureContext.getValues(knownSites)));
+        if (currentBatch.size() == READ_BATCH_SIZE) {
+            submitCurrentBatch();
+        }
+    }
+
+    /**
+     * Hands the current batch of reads to the next worker, in turn. Batches are always assigned the same way, so that
+     * every worker combines its reads in the same order from one run to the next.
+     */
+    private void submitCurrentBatch() {
+        if (currentBatch.isEmpty()) {
+            return;
+        }
+        final RecalibrationWorker worker = workers.get((int) (submittedBatches++ % workers.size()));
+        pendingBatches.add(worker.submit(currentBatch));
+        currentBatch = new ArrayList<>(READ_BATCH_SIZE);
+
+        // bounds the number of reads held in memory when the workers fall behind the traversal
+        while (pendingBatches.size() > MAX_PENDING_BATCHES_PER_THREAD * workers.size()) {
+            waitForBatch(pendingBatches.poll());
+        }
+    }
+
+    private static void waitForBatch(final Future<?> batch) {
+        try {
+            batch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for the reads to be processed", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error while processing reads", e.getCause());
+        }
+    }
+
+    /**
+     * Waits for all the reads to be processed, and combines the tables of all the workers into {@link #recalibrationEngine}.
+     */
+    private void combineWorkers() {
+        submitCurrentBatch();
+        while (!pendingBatches.isEmpty()) {
+            waitForBatch(pendingBatches.poll());
+        }
+        for (final RecalibrationWorker worker : workers) {
+            recalibrationEngine.combine(worker.engine);
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if (workers != null) {
+            combineWorkers();
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -212,4 +318,58 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
+
+    @Override
+    public void closeTool() {
+        if (workers != null) {
+            workers.forEach(RecalibrationWorker::close);
+        }
+        if (referenceDataSource != null) {
+            referenceDataSource.close();
+        }
+    }
+
+    private static final class ReadWithKnownSites {
+        private final GATKRead read;
+        private final List<Feature> knownSites;
+
+        private ReadWithKnownSites(final GATKRead read, final List<Feature> knownSites) {
+            this.read = read;
+            this.knownSites = knownSites;
+        }
+    }
+
+    /**
+     * Processes batches of reads, in submission order, on its own thread with its own recalibration engine and
+     * reference data source.
+     */
+    private final class RecalibrationWorker implements AutoCloseable {
+        private final BaseRecalibrationEngine engine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        private final ReferenceDataSource reference = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        private final ExecutorService executor;
+
+        private RecalibrationWorker(final int index) {
+            executor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("baseRecalibrator-thread-" + index).setDaemon(true).build());
+        }
+
+        private Future<?> submit(final List<ReadWithKnownSites> batch) {
+            return executor.submit(() -> {
+                for (final ReadWithKnownSites read : batch) {
+                    engine.processRead(read.read, reference, read.knownSites);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reference.close();
+        }
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
@@ -23,7 +24,7 @@ public final class GenotypeLikelihoodCalculator {
      * Offset table for this calculator.
      *
      * <p>
-     *     This is a shallow copy of {@link GenotypeLikelihoodCalculators#alleleFirstGenotypeOffsetByPloidy} when the calculator was created
+     *     This is a shallow copy of the offset table shared by {@link GenotypeLikelihoodCalculators} when the calculator was created
      *     thus it follows the same format as that array. Please refer to its documentation.
      * </p>
      *
@@ -181,6 +182,29 @@ public final class GenotypeLikelihoodCalculator {
         }
     }
 
+    /**
+     * Returns the number of values held by the read buffers of this calculator, which grow with the number of reads
+     * passed to {@link #ensureReadCapacity(int) ensureReadCapacity}.
+     */
+    long readBufferSize() {
+        if (readCapacity == -1) {
+            return 0;
+        }
+        return (long) genotypeCount * readCapacity + readAlleleLikelihoodByAlleleCount.length
+                + readGenotypeLikelihoodComponents.length;
+    }
+
+    /**
+     * Releases the read buffers of this calculator; they are allocated again by the next call to
+     * {@link #ensureReadCapacity(int) ensureReadCapacity}.
+     */
+    void releaseReadBuffers() {
+        readAlleleLikelihoodByAlleleCount = null;
+        Arrays.fill(readLikelihoodsByGenotypeIndex, null);
+        readGenotypeLikelihoodComponents = null;
+        readCapacity = -1;
+    }
+
     /**
      * Give a list of alleles, returns the likelihood array index.
      * @param alleleIndices the indices of the alleles in the genotype, there should be as many repetition of an
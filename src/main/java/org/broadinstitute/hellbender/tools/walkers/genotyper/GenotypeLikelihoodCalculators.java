@@ -7,6 +7,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Genotype likelihood calculator utility.
@@ -15,24 +18,41 @@ import java.util.Arrays;
  *     This class provide genotype likelihood calculators with any number of alleles able given an arbitrary ploidy and allele
  *     count (number of distinct alleles).
  * </p>
+ *
+ * <p>
+ *     The genotype tables the calculators are based on are shared by all instances of this class, and are never
+ *     modified once built: when larger tables are needed, new ones are built and replace the old ones. Therefore
+ *     instances of this class, unlike the calculators, may be used by several threads at the same time.
+ * </p>
+ *
+ * <p>
+ *     Calculators hold the buffers used for their computations, so they are not thread-safe. {@link #getInstance}
+ *     reuses them through a per-thread cache, and evicts the least recently used ones when the calculators cached by a
+ *     thread have more than {@link #MAXIMUM_CACHED_GENOTYPES_PER_THREAD} genotypes in total. The read buffers of the
+ *     cached calculators grow with the number of reads they are given, so the least recently used calculators also
+ *     release theirs when those of a thread hold more than {@link #MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD} values.
+ * </p>
  */
 public final class GenotypeLikelihoodCalculators {
 
     private static final Logger logger = LogManager.getLogger(GenotypeLikelihoodCalculators.class);
 
     /**
-     * The current maximum ploidy supported by the tables.
-     * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #genotypeTableByPloidy}. Feel free
-     *     to change it to anything reasonable that is non-negative.
-     * </p>
+     * Maximum possible number of genotypes that this calculator can handle.
      */
-    private int maximumPloidy = 2; // its initial value is the initial capacity of the shared tables.
+    public static final int MAXIMUM_STRONG_REF_GENOTYPE_PER_PLOIDY = 1000;
 
     /**
-     * Maximum possible number of genotypes that this calculator can handle.
+     * Maximum total number of genotypes of the calculators cached by each thread. Calculators with more genotypes
+     * than this (ie., those for high allele counts or ploidies) are not cached at all.
      */
-    public static final int MAXIMUM_STRONG_REF_GENOTYPE_PER_PLOIDY = 1000;
+    static final int MAXIMUM_CACHED_GENOTYPES_PER_THREAD = 10_000;
+
+    /**
+     * Maximum total number of values (ie., 32 MB) held by the read buffers of the calculators cached by each thread.
+     * The most recently used calculator keeps its buffers even when they alone are larger than this.
+     */
+    static final long MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD = 1 << 22;
 
     /**
      * Mark to indicate genotype-count overflow due to a large number of allele and ploidy;
@@ -40,35 +60,107 @@ public final class GenotypeLikelihoodCalculators {
     static final int GENOTYPE_COUNT_OVERFLOW = -1;
 
     /**
-     * The current maximum allele index supported by the tables.
+     * Shared tables, that hold the largest requested so far in terms of maximum-allele and maximum-ploidy.
+     *
      * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #alleleFirstGenotypeOffsetByPloidy} table.
-     *     Feel free to change it to anything reasonable that is non-negative.
+     *     Their initial capacity is ploidy 2 and maximum allele index 1. Feel free to change it to anything
+     *     reasonable that is non-negative.
      * </p>
      */
-    private int maximumAllele = 1; // its initial value is the initial capacity of the shared tables.
+    private static volatile GenotypeTables tables = new GenotypeTables(2, 1);
 
     /**
-     * Shared copy of the offset table as described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     *
-     * This reference holds the largest requested so far in terms of maximum-allele and maximum-ploidy.
+     * Calculators of each thread, by ploidy and allele count, in least recently used order.
      */
-    private int[][] alleleFirstGenotypeOffsetByPloidy =
-            buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+    private static final ThreadLocal<CalculatorCache> calculatorCache = ThreadLocal.withInitial(CalculatorCache::new);
+
+    public GenotypeLikelihoodCalculators(){
 
+    }
 
     /**
-     * Shared table of genotypes give the ploidy sorted by their index in the likelihood array.
-     *
-     * <p>
-     *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     * </p>
+     * Immutable set of tables supporting up to a maximum ploidy and allele index.
      */
-    private GenotypeAlleleCounts[][] genotypeTableByPloidy =
-            buildGenotypeAlleleCountsTable(maximumPloidy,maximumAllele,alleleFirstGenotypeOffsetByPloidy);
+    private static final class GenotypeTables {
+
+        private final int maximumPloidy;
+
+        private final int maximumAllele;
+
+        /**
+         * Offset table as described in {@link #buildAlleleFirstGenotypeOffsetTable(int, int)}.
+         */
+        private final int[][] alleleFirstGenotypeOffsetByPloidy;
+
+        /**
+         * Table of genotypes give the ploidy sorted by their index in the likelihood array.
+         *
+         * <p>
+         *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
+         * </p>
+         */
+        private final GenotypeAlleleCounts[][] genotypeTableByPloidy;
+
+        private GenotypeTables(final int maximumPloidy, final int maximumAllele) {
+            this.maximumPloidy = maximumPloidy;
+            this.maximumAllele = maximumAllele;
+            alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+            genotypeTableByPloidy = buildGenotypeAlleleCountsTable(maximumPloidy, maximumAllele, alleleFirstGenotypeOffsetByPloidy);
+        }
 
-    public GenotypeLikelihoodCalculators(){
+        private boolean supports(final int ploidy, final int alleleCount) {
+            return ploidy <= maximumPloidy && alleleCount <= maximumAllele;
+        }
+    }
+
+    /**
+     * Per-thread cache of calculators, that evicts the least recently used ones to keep the total number of
+     * genotypes of the cached calculators within {@link #MAXIMUM_CACHED_GENOTYPES_PER_THREAD}, and releases their
+     * read buffers to keep those within {@link #MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD}.
+     */
+    private static final class CalculatorCache {
+
+        private final Map<Long, GenotypeLikelihoodCalculator> calculators = new LinkedHashMap<>(16, 0.75f, true);
 
+        private long cachedGenotypeCount = 0;
+
+        private static long key(final int ploidy, final int alleleCount) {
+            return ((long) ploidy << 32) | alleleCount;
+        }
+
+        private GenotypeLikelihoodCalculator get(final int ploidy, final int alleleCount) {
+            return calculators.get(key(ploidy, alleleCount));
+        }
+
+        private void put(final GenotypeLikelihoodCalculator calculator) {
+            if (calculator.genotypeCount() > MAXIMUM_CACHED_GENOTYPES_PER_THREAD) {
+                return;
+            }
+            calculators.put(key(calculator.ploidy(), calculator.alleleCount()), calculator);
+            cachedGenotypeCount += calculator.genotypeCount();
+            final Iterator<GenotypeLikelihoodCalculator> leastRecentlyUsed = calculators.values().iterator();
+            while (cachedGenotypeCount > MAXIMUM_CACHED_GENOTYPES_PER_THREAD) {
+                cachedGenotypeCount -= leastRecentlyUsed.next().genotypeCount();
+                leastRecentlyUsed.remove();
+            }
+        }
+
+        /**
+         * Releases the read buffers of the least recently used calculators, but never those of the most recently used
+         * one, until the buffers of the cached calculators are within {@link #MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD}.
+         */
+        private void releaseReadBuffers() {
+            long readBufferSize = 0;
+            for (final GenotypeLikelihoodCalculator calculator : calculators.values()) {
+                readBufferSize += calculator.readBufferSize();
+            }
+            final Iterator<GenotypeLikelihoodCalculator> leastRecentlyUsed = calculators.values().iterator();
+            for (int i = 1; i < calculators.size() && readBufferSize > MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD; i++) {
+                final GenotypeLikelihoodCalculator calculator = leastRecentlyUsed.next();
+                readBufferSize -= calculator.readBufferSize();
+                calculator.releaseReadBuffers();
+            }
+        }
     }
 
     /**
@@ -243,6 +335,10 @@ public final class GenotypeLikelihoodCalculators {
         for (int genotypeIndex = 1; genotypeIndex < strongRefLength; genotypeIndex++) {
             result[genotypeIndex] = result[genotypeIndex - 1].next();
         }
+        // the table is shared by all threads, so its lazily computed values are computed up front
+        for (final GenotypeAlleleCounts genotype : result) {
+            genotype.log10CombinationCount();
+        }
         return result;
     }
 
@@ -250,6 +346,11 @@ public final class GenotypeLikelihoodCalculators {
     /**
      * Returns an instance given its ploidy and the number of alleles.
      *
+     * <p>
+     *     The instance may be one returned before to the calling thread (and only to it), so it must not be passed
+     *     on to other threads.
+     * </p>
+     *
      * @param alleleCount the required allele-count.
      * @param ploidy the required ploidy-count.
      *
@@ -260,13 +361,23 @@ public final class GenotypeLikelihoodCalculators {
     public GenotypeLikelihoodCalculator getInstance(final int ploidy, final int alleleCount) {
         checkPloidyAndMaximumAllele(ploidy, alleleCount);
 
-        if (calculateGenotypeCountUsingTables(ploidy, alleleCount) == GENOTYPE_COUNT_OVERFLOW) {
-            final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
-            throw new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
+        final CalculatorCache cache = calculatorCache.get();
+        final GenotypeLikelihoodCalculator cached = cache.get(ploidy, alleleCount);
+        if (cached != null) {
+            cache.releaseReadBuffers();
+            return cached;
         }
 
+        // throws if the number of genotypes is too large, before the tables are expanded for it
+        genotypeCount(ploidy, alleleCount);
+
         // At this point the tables must have at least the requested capacity, likely to be much more.
-        return new GenotypeLikelihoodCalculator(ploidy, alleleCount, alleleFirstGenotypeOffsetByPloidy, genotypeTableByPloidy);
+        final GenotypeTables currentTables = ensureCapacity(alleleCount, ploidy);
+        final GenotypeLikelihoodCalculator result = new GenotypeLikelihoodCalculator(ploidy, alleleCount,
+                currentTables.alleleFirstGenotypeOffsetByPloidy, currentTables.genotypeTableByPloidy);
+        cache.put(result);
+        cache.releaseReadBuffers();
+        return result;
     }
 
     /**
@@ -274,31 +385,29 @@ public final class GenotypeLikelihoodCalculators {
      *
      * @param requestedMaximumAllele the new requested maximum allele maximum.
      * @param requestedMaximumPloidy the new requested ploidy maximum.
+     * @return tables with at least the requested capacity.
      */
-    private void ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
-
-        final boolean needsToExpandAlleleCapacity = requestedMaximumAllele > maximumAllele;
-        final boolean needsToExpandPloidyCapacity = requestedMaximumPloidy > maximumPloidy;
-
-        // Double check with the lock on to avoid double work.
-        if (!needsToExpandAlleleCapacity && !needsToExpandPloidyCapacity) {
-            return;
+    private static GenotypeTables ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
+        final GenotypeTables currentTables = tables;
+        if (currentTables.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+            return currentTables;
         }
 
-        final int newMaximumPloidy = Math.max(maximumPloidy, requestedMaximumPloidy);
-        final int newMaximumAllele = Math.max(maximumAllele, requestedMaximumAllele);
+        synchronized (GenotypeLikelihoodCalculators.class) {
+            // Double check with the lock on to avoid double work.
+            final GenotypeTables lockedTables = tables;
+            if (lockedTables.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+                return lockedTables;
+            }
 
-        logger.debug("Expanding capacity ploidy:" + maximumPloidy + "->" + newMaximumPloidy + " allele:" +  maximumAllele +"->" + newMaximumAllele );
+            final int newMaximumPloidy = Math.max(lockedTables.maximumPloidy, requestedMaximumPloidy);
+            final int newMaximumAllele = Math.max(lockedTables.maximumAllele, requestedMaximumAllele);
 
-        // Update tables first.
-        alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(newMaximumPloidy,newMaximumAllele);
-        genotypeTableByPloidy = buildGenotypeAlleleCountsTable(newMaximumPloidy,newMaximumAllele,alleleFirstGenotypeOffsetByPloidy);
+            logger.debug("Expanding capacity ploidy:" + lockedTables.maximumPloidy + "->" + newMaximumPloidy + " allele:" +  lockedTables.maximumAllele +"->" + newMaximumAllele );
 
-        if (needsToExpandAlleleCapacity) {
-            maximumAllele = requestedMaximumAllele;
-        }
-        if (needsToExpandPloidyCapacity) {
-            maximumPloidy = requestedMaximumPloidy;
+            final GenotypeTables newTables = new GenotypeTables(newMaximumPloidy, newMaximumAllele);
+            tables = newTables;
+            return newTables;
         }
     }
 
@@ -339,7 +448,7 @@ public final class GenotypeLikelihoodCalculators {
      */
     public int genotypeCount(final int ploidy, final int alleleCount) {
 
-        final int result = calculateGenotypeCountUsingTables(ploidy, alleleCount);
+        final int result = calculateGenotypeCount(ploidy, alleleCount);
         if (result == GENOTYPE_COUNT_OVERFLOW) {
             final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
             throw new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
@@ -380,11 +489,33 @@ public final class GenotypeLikelihoodCalculators {
         throw new GATKException("Code should never reach here.");
     }
 
-    private int calculateGenotypeCountUsingTables(int ploidy, int alleleCount) {
+    /**
+     * Returns the number of genotypes, looked up in the shared tables if they are large enough. Otherwise it is
+     * computed directly, so that merely asking for the number of genotypes for a large ploidy or allele count does not
+     * expand the shared tables.
+     *
+     * @return the number of genotypes, or {@link #GENOTYPE_COUNT_OVERFLOW} if it is larger than {@link Integer#MAX_VALUE}.
+     */
+    private static int calculateGenotypeCount(final int ploidy, final int alleleCount) {
         checkPloidyAndMaximumAllele(ploidy, alleleCount);
-        if (ploidy > maximumPloidy || alleleCount > maximumAllele) {
-            ensureCapacity(alleleCount, ploidy);
+        final GenotypeTables currentTables = tables;
+        if (currentTables.supports(ploidy, alleleCount)) {
+            return currentTables.alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
+        }
+        if (alleleCount == 0) {
+            return 0;
+        }
+        // binomial coefficient (ploidy + alleleCount - 1) choose (alleleCount - 1), the same as in the offset table
+        final int n = ploidy + alleleCount - 1;
+        final int k = Math.min(alleleCount - 1, ploidy);
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            // exact at each step since result is (n - k + i) choose i at the end of it
+            result = result * (n - k + i) / i;
+            if (result > Integer.MAX_VALUE) {
+                return GENOTYPE_COUNT_OVERFLOW;
+            }
         }
-        return alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
+        return (int) result;
     }
 }
\ No newline at end of file
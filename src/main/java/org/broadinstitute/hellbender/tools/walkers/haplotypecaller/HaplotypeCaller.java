@@ -2,11 +2,13 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import java.nio.file.Path;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -17,9 +19,12 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFRecordBuffer;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Collections;
 import java.util.List;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
@@ -203,6 +208,69 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
     }
 
+    /**
+     * In multi-threaded and pipelined traversals each worker thread gets its own HaplotypeCallerEngine (with its own reference reader),
+     * while all of the calls still go through the single (possibly GVCF) writer made by the main engine.
+     *
+     * When writing a GVCF, the reference confidence sites of each region are handed over to the writer as primitive values
+     * in a {@link GVCFRecordBuffer} instead of as VariantContexts.
+     */
+    @Override
+    protected AssemblyRegionProcessor.Factory<?> makeAssemblyRegionProcessorFactory() {
+        if ( hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue("multi-threaded or pipelined traversal cannot be combined with --bam-output");
+        }
+
+        if ( vcfWriter instanceof GVCFWriter ) {
+            final GVCFWriter gvcfWriter = (GVCFWriter) vcfWriter;
+            return new AssemblyRegionProcessor.Factory<GVCFRecordBuffer>() {
+                @Override
+                public AssemblyRegionProcessor<GVCFRecordBuffer> createProcessor() {
+                    final HaplotypeCallerEngine workerEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments));
+                    return new AssemblyRegionProcessor<GVCFRecordBuffer>() {
+                        @Override
+                        public AssemblyRegionEvaluator assemblyRegionEvaluator() { return workerEngine; }
+
+                        @Override
+                        public List<GVCFRecordBuffer> process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                            final GVCFRecordBuffer records = new GVCFRecordBuffer();
+                            workerEngine.callRegion(region, featureContext, records);
+                            return Collections.singletonList(records);
+                        }
+
+                        @Override
+                        public void close() { workerEngine.shutdown(); }
+                    };
+                }
+
+                @Override
+                public void accept(final GVCFRecordBuffer records) { records.replayTo(gvcfWriter); }
+            };
+        }
+
+        return new AssemblyRegionProcessor.Factory<VariantContext>() {
+            @Override
+            public AssemblyRegionProcessor<VariantContext> createProcessor() {
+                final HaplotypeCallerEngine workerEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments));
+                return new AssemblyRegionProcessor<VariantContext>() {
+                    @Override
+                    public AssemblyRegionEvaluator assemblyRegionEvaluator() { return workerEngine; }
+
+                    @Override
+                    public List<VariantContext> process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                        return workerEngine.callRegion(region, featureContext);
+                    }
+
+                    @Override
+                    public void close() { workerEngine.shutdown(); }
+                };
+            }
+
+            @Override
+            public void accept(final VariantContext vc) { vcfWriter.add(vc); }
+        };
+    }
+
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
         final CachingIndexedFastaSequenceFile referenceReader;
         final Path reference = IOUtils.getPath(referenceArguments.getReferenceFileName());
@@ -216,7 +284,12 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        if ( vcfWriter instanceof GVCFWriter ) {
+            // stream reference confidence sites straight into the hom-ref bands, without a VariantContext per site
+            hcEngine.callRegion(region, featureContext, (GVCFWriter) vcfWriter);
+        } else {
+            hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        }
     }
 
     @Override
@@ -18,6 +18,7 @@ import org.broadinstitute.hellbender.engine.filters.MappingQualityReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.*;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.*;
@@ -43,11 +44,11 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFRecordSink;
 import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 
 import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * The core engine for the HaplotypeCaller that does all of the actual work of the tool.
@@ -132,8 +133,6 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     private static final int READ_QUALITY_FILTER_THRESHOLD = 20;
 
-    private static final List<VariantContext> NO_CALLS = Collections.emptyList();
-
     private static final Allele FAKE_REF_ALLELE = Allele.create("N", true); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
     private static final Allele FAKE_ALT_ALLELE = Allele.create("<FAKE_ALT>", false); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
 
@@ -474,9 +473,45 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features) {
+        final List<VariantContext> calls = new ArrayList<>();
+        callRegion(region, features, new GVCFRecordSink() {
+            @Override
+            public void add(final VariantContext vc) { calls.add(vc); }
+
+            @Override
+            public void addHomRefSite(final String contig, final int position, final Allele refAllele, final String sampleName,
+                                      final int ploidy, final int gq, final int dp, final int[] pls) {
+                throw new GATKException.ShouldNeverReachHereException("reference confidence sites are materialized as VariantContexts");
+            }
+        }, false);
+        return calls;
+    }
+
+    /**
+     * Generate variant calls for an assembly region, streaming them into {@code sink} in order.
+     *
+     * In reference confidence mode the reference confidence sites are passed to the sink as primitive values
+     * (see {@link GVCFRecordSink#addHomRefSite}), saving the cost of a VariantContext per site when the sink is a
+     * {@link GVCFWriter} that merges them into hom-ref bands anyway. Not suitable for
+     * {@link ReferenceConfidenceMode#BP_RESOLUTION}, which needs every site as a complete VariantContext.
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @param sink destination of the calls and reference confidence sites for this region
+     */
+    public void callRegion(final AssemblyRegion region, final FeatureContext features, final GVCFRecordSink sink) {
+        Utils.nonNull(sink, "sink cannot be null");
+        callRegion(region, features, sink, true);
+    }
+
+    /**
+     * @param streamHomRefSites if true, reference confidence sites are passed to {@code sink} as primitive values,
+     *                          otherwise as VariantContexts
+     */
+    private void callRegion(final AssemblyRegion region, final FeatureContext features, final GVCFRecordSink sink, final boolean streamHomRefSites) {
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
-            return NO_CALLS;
+            return;
         }
 
         if ( hcArgs.sampleNameToUse != null ) {
@@ -485,7 +520,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, sink, streamHomRefSites);
+            return;
         }
 
         final List<VariantContext> givenAlleles = new ArrayList<>();
@@ -494,11 +530,13 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
             // No alleles found in this region so nothing to do!
             if ( givenAlleles.isEmpty() ) {
-                return referenceModelForNoVariation(region, true);
+                referenceModelForNoVariation(region, true, sink, streamHomRefSites);
+                return;
             }
         } else if( region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, sink, streamHomRefSites);
+            return;
         }
 
         // run the local assembler, getting back a collection of information on how we should proceed
@@ -512,7 +550,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, sink, streamHomRefSites);
+            return;
         }
 
         final AssemblyResultSet assemblyResult =
@@ -531,18 +570,20 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, sink, streamHomRefSites);
+            return;
         }
 
         // For sure this is not true if gVCF is on.
         if ( hcArgs.dontGenotype ) {
-            return NO_CALLS; // user requested we not proceed
+            return; // user requested we not proceed
         }
 
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, sink, streamHomRefSites);
+            return;
         }
 
         // evaluate each sample's reads against all haplotypes
@@ -591,31 +632,29 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         if ( emitReferenceConfidence() ) {
             if ( !containsCalls(calledHaplotypes) ) {
                 // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false);
+                referenceModelForNoVariation(region, false, sink, streamHomRefSites);
             }
             else {
-                final List<VariantContext> result = new LinkedList<>();
                 // output left-flanking non-variant section:
                 if (trimmingResult.hasLeftFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false, sink, streamHomRefSites);
                 }
                 // output variant containing region.
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
-                        calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls()));
+                calculateRefConfidence(assemblyResult.getReferenceHaplotype(), calledHaplotypes.getCalledHaplotypes(),
+                        assemblyResult.getPaddedReferenceLoc(), regionForGenotyping, readLikelihoods, calledHaplotypes.getCalls(),
+                        sink, streamHomRefSites);
                 // output right-flanking non-variant section:
                 if (trimmingResult.hasRightFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false, sink, streamHomRefSites);
                 }
-                return result;
             }
         }
         else {
             //TODO this should be updated once reducible annotations are handled properly.
-            return calledHaplotypes.getCalls()
+            calledHaplotypes.getCalls()
                     .stream()
                     .map(RMSMappingQuality.getInstance()::finalizeRawMQ)
-                    .collect(Collectors.toList());
+                    .forEachOrdered(sink::add);
         }
     }
 
@@ -631,9 +670,11 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      *
      * @param region the region to return a no-variation result
      * @param needsToBeFinalized should the region be finalized before computing the ref model (should be false if already done)
-     * @return a list of variant contexts (can be empty) to emit for this ref region
+     * @param sink destination of the variant contexts (if any) to emit for this ref region
+     * @param streamHomRefSites whether to pass reference confidence sites to {@code sink} as primitive values
      */
-    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized) {
+    private void referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized,
+                                              final GVCFRecordSink sink, final boolean streamHomRefSites) {
         if ( emitReferenceConfidence() ) {
             //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
             //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
@@ -645,12 +686,21 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             final SimpleInterval paddedLoc = region.getExtendedSpan();
             final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
             final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
-                    paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList());
+            calculateRefConfidence(refHaplotype, haplotypes, paddedLoc, region,
+                    createDummyStratifiedReadMap(refHaplotype, samplesList, region), Collections.emptyList(), sink, streamHomRefSites);
         }
-        else {
-            return NO_CALLS;
+    }
+
+    private void calculateRefConfidence(final Haplotype refHaplotype, final Collection<Haplotype> calledHaplotypes,
+                                        final SimpleInterval paddedReferenceLoc, final AssemblyRegion region,
+                                        final ReadLikelihoods<Haplotype> readLikelihoods, final List<VariantContext> variantCalls,
+                                        final GVCFRecordSink sink, final boolean streamHomRefSites) {
+        if ( streamHomRefSites ) {
+            referenceConfidenceModel.calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, region,
+                    readLikelihoods, genotypingEngine.getPloidyModel(), variantCalls, sink);
+        } else {
+            referenceConfidenceModel.calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, region,
+                    readLikelihoods, genotypingEngine.getPloidyModel(), variantCalls).forEach(sink::add);
         }
     }
 
@@ -179,10 +179,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
         // Add likelihoods for each sample's reads to our result
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
-        final int sampleCount = result.numberOfSamples();
-        for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
-        }
+        computeReadLikelihoods(result);
 
         result.normalizeLikelihoods(false, log10globalReadMismappingRate);
         result.filterPoorlyModeledReads(EXPECTED_ERROR_RATE_PER_BASE);
@@ -243,16 +240,31 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
     }
 
-    private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
-        // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
+    /**
+     * Compute the likelihoods of the reads of all samples in a single batch, so that the PairHMM's per-call overhead
+     * (the JNI setup for the native implementations) is paid once per region rather than once per sample.
+     */
+    private void computeReadLikelihoods(final ReadLikelihoods<Haplotype> likelihoods) {
+        final int sampleCount = likelihoods.numberOfSamples();
+        final List<LikelihoodMatrix<Haplotype>> sampleMatrices = new ArrayList<>(sampleCount);
+        final List<List<GATKRead>> processedReads = new ArrayList<>(sampleCount);
+        final Map<GATKRead, byte[]> gapContinuationPenalties = new HashMap<>();
+
+        for (int i = 0; i < sampleCount; i++) {
+            final LikelihoodMatrix<Haplotype> sampleMatrix = likelihoods.sampleMatrix(i);
+
+            // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
+            final List<GATKRead> sampleProcessedReads = modifyReadQualities(sampleMatrix.reads());
+            gapContinuationPenalties.putAll(buildGapContinuationPenalties(sampleProcessedReads, constantGCP));
 
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+            sampleMatrices.add(sampleMatrix);
+            processedReads.add(sampleProcessedReads);
+        }
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        pairHMM.computeLog10Likelihoods(sampleMatrices, processedReads, gapContinuationPenalties);
 
-        writeDebugLikelihoods(likelihoods);
+        sampleMatrices.forEach(this::writeDebugLikelihoods);
     }
 
     /**
@@ -27,8 +27,10 @@ import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFRecordSink;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.DoubleStream;
 
 /**
@@ -205,6 +207,45 @@ public final class ReferenceConfidenceModel {
                                                        final ReadLikelihoods<Haplotype> readLikelihoods,
                                                        final PloidyModel ploidyModel,
                                                        final List<VariantContext> variantCalls) {
+        Utils.nonNull(activeRegion, "activeRegion cannot be null");
+        final List<VariantContext> results = new ArrayList<>(activeRegion.getSpan().size());
+        calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, readLikelihoods, ploidyModel, variantCalls, results::add, null);
+        return results;
+    }
+
+    /**
+     * Same as {@link #calculateRefConfidence(Haplotype, Collection, SimpleInterval, AssemblyRegion, ReadLikelihoods, PloidyModel, List)},
+     * but streams the results into {@code sink} in order, passing each reference confidence site as primitive values
+     * (see {@link GVCFRecordSink#addHomRefSite}) instead of as a VariantContext. The AD of reference confidence sites
+     * is not passed on, as hom-ref bands don't carry it.
+     *
+     * @param sink non-null destination of the calls and the reference confidence sites
+     */
+    public void calculateRefConfidence(final Haplotype refHaplotype,
+                                       final Collection<Haplotype> calledHaplotypes,
+                                       final SimpleInterval paddedReferenceLoc,
+                                       final AssemblyRegion activeRegion,
+                                       final ReadLikelihoods<Haplotype> readLikelihoods,
+                                       final PloidyModel ploidyModel,
+                                       final List<VariantContext> variantCalls,
+                                       final GVCFRecordSink sink) {
+        Utils.nonNull(sink, "sink cannot be null");
+        calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, readLikelihoods, ploidyModel, variantCalls, sink::add, sink);
+    }
+
+    /**
+     * @param variantConsumer receives the calls, and the reference confidence VariantContexts if {@code homRefSink} is null
+     * @param homRefSink if not null, receives the reference confidence sites as primitive values
+     */
+    private void calculateRefConfidence(final Haplotype refHaplotype,
+                                        final Collection<Haplotype> calledHaplotypes,
+                                        final SimpleInterval paddedReferenceLoc,
+                                        final AssemblyRegion activeRegion,
+                                        final ReadLikelihoods<Haplotype> readLikelihoods,
+                                        final PloidyModel ploidyModel,
+                                        final List<VariantContext> variantCalls,
+                                        final Consumer<VariantContext> variantConsumer,
+                                        final GVCFRecordSink homRefSink) {
         Utils.nonNull(refHaplotype, "refHaplotype cannot be null");
         Utils.nonNull(calledHaplotypes, "calledHaplotypes cannot be null");
         Utils.validateArg(calledHaplotypes.contains(refHaplotype), "calledHaplotypes must contain the refHaplotype");
@@ -219,7 +260,6 @@ public final class ReferenceConfidenceModel {
         final SimpleInterval refSpan = activeRegion.getSpan();
         final List<ReadPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
         final byte[] ref = refHaplotype.getBases();
-        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
@@ -229,35 +269,52 @@ public final class ReferenceConfidenceModel {
 
             final VariantContext overlappingSite = getOverlappingVariantContext(curPos, variantCalls);
             if ( overlappingSite != null && overlappingSite.getStart() == curPos.getStart() ) {
-                results.add(overlappingSite);
+                variantConsumer.accept(overlappingSite);
             } else {
-                // otherwise emit a reference confidence variant context
-                results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, pileup, curPos, offset));
+                // otherwise emit a reference confidence site
+                // Assume infinite population on a single sample.
+                final int refOffset = offset + globalRefOffset;
+                final byte refBase = ref[refOffset];
+                final Allele refAllele = Allele.create(refBase, true);
+                final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null);
+                final int[] pls = calcReferenceConfidencePLs(ploidy, ref, pileup, refOffset, homRefCalc);
+
+                if ( homRefSink != null ) {
+                    homRefSink.addHomRefSite(curPos.getContig(), curPos.getStart(), refAllele, sampleName, ploidy,
+                            GATKVariantContextUtils.calculateGQFromPLs(pls), homRefCalc.getDP(), pls);
+                } else {
+                    variantConsumer.accept(makeReferenceConfidenceVariantContext(ploidy, refAllele, sampleName, curPos, homRefCalc, pls));
+                }
             }
         }
-
-        return results;
     }
 
-    private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
-                                                                 final byte[] ref,
-                                                                 final String sampleName,
-                                                                 final int globalRefOffset,
-                                                                 final ReadPileup pileup,
-                                                                 final Locatable curPos,
-                                                                 final int offset) {
-        // Assume infinite population on a single sample.
-        final int refOffset = offset + globalRefOffset;
-        final byte refBase = ref[refOffset];
-        final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null);
-
-        final Allele refAllele = Allele.create(refBase, true);
+    private static VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
+                                                                        final Allele refAllele,
+                                                                        final String sampleName,
+                                                                        final Locatable curPos,
+                                                                        final RefVsAnyResult homRefCalc,
+                                                                        final int[] pls) {
         final List<Allele> refSiteAlleles = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
         final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
         final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
         gb.AD(homRefCalc.getAD());
         gb.DP(homRefCalc.getDP());
+        gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(pls));
+        gb.PL(pls);
+
+        vcb.genotypes(gb.make());
+        return vcb.make();
+    }
 
+    /**
+     * @return the PLs of a reference confidence site: those of the SNP or the indel model, whichever is less confident
+     */
+    private int[] calcReferenceConfidencePLs(final int ploidy,
+                                             final byte[] ref,
+                                             final ReadPileup pileup,
+                                             final int refOffset,
+                                             final RefVsAnyResult homRefCalc) {
         // genotype likelihood calculation
         final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
         final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
@@ -270,13 +327,7 @@ public final class ReferenceConfidenceModel {
         // far less confident that the ref base is actually the only thing here.  So we take 0,10,100
         // as our GLs for the site.
         final GenotypeLikelihoods leastConfidenceGLs = getGLwithWorstGQ(indelGLs, snpGLs);
-
-        final int[] leastConfidenceGLsAsPLs = leastConfidenceGLs.getAsPLs();
-        gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs));
-        gb.PL(leastConfidenceGLsAsPLs);
-
-        vcb.genotypes(gb.make());
-        return vcb.make();
+        return leastConfidenceGLs.getAsPLs();
     }
 
     /**
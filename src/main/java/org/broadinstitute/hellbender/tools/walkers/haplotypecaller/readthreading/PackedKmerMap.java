@@ -0,0 +1,182 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from kmers of a fixed size to values, for the read threading graph.
+ *
+ * Kmers of up to {@link #MAX_PACKED_KMER_SIZE} bases made only of A, C, G and T are 2-bit packed into a long and
+ * stored in an open-addressing map with primitive keys, so that looking them up does not create any object.
+ * All other kmers (longer ones, or ones with any other base, such as N or lower-case bases) fall back to a map keyed
+ * by {@link Kmer}, so that kmers keep being compared base by base exactly like {@link Kmer#equals} does.
+ *
+ * Kmers are passed as a position in a sequence together with their packed value, which callers threading a whole
+ * sequence compute for all its positions at once with {@link #packKmers}.
+ *
+ * @param <V> type of the values
+ */
+final class PackedKmerMap<V> {
+
+    /**
+     * Longest kmer that can be packed into a long, keeping {@link #UNPACKABLE} distinct from any packed kmer.
+     */
+    static final int MAX_PACKED_KMER_SIZE = 31;
+
+    /**
+     * Packed value of kmers that cannot be packed.
+     */
+    static final long UNPACKABLE = -1L;
+
+    private final int kmerSize;
+    private final Long2ObjectOpenHashMap<V> packedKmers = new Long2ObjectOpenHashMap<>();
+    private final Map<Kmer, V> unpackableKmers = new HashMap<>();
+
+    /**
+     * @param kmerSize size of all the kmers in this map, must be > 0
+     */
+    PackedKmerMap(final int kmerSize) {
+        Utils.validateArg(kmerSize > 0, () -> "kmerSize must be > 0 but got " + kmerSize);
+        this.kmerSize = kmerSize;
+    }
+
+    /**
+     * Packs all the kmers of size {@code kmerSize} that start within [{@code start}, {@code stop} - {@code kmerSize}]
+     * of {@code sequence}, rolling the packed value along the sequence.
+     *
+     * @return the packed kmer starting at {@code start + i} at index {@code i}, {@link #UNPACKABLE} for kmers that
+     *         cannot be packed. Never {@code null}, and empty if the range is shorter than a kmer.
+     */
+    static long[] packKmers(final byte[] sequence, final int start, final int stop, final int kmerSize) {
+        Utils.nonNull(sequence);
+        Utils.validateArg(start >= 0 && stop <= sequence.length, "range is not within the sequence");
+        final long[] result = new long[Math.max(0, stop - start - kmerSize + 1)];
+        if (kmerSize > MAX_PACKED_KMER_SIZE) {
+            Arrays.fill(result, UNPACKABLE);
+            return result;
+        }
+
+        final long mask = (1L << 2 * kmerSize) - 1;
+        long kmer = 0;
+        int packableBases = 0; // number of consecutive packable bases up to the current position
+        for (int position = start; position < stop; position++) {
+            final int code = baseCode(sequence[position]);
+            if (code < 0) {
+                packableBases = 0;
+            } else {
+                kmer = ((kmer << 2) | code) & mask;
+                packableBases++;
+            }
+
+            final int kmerStart = position - kmerSize + 1;
+            if (kmerStart >= start) {
+                result[kmerStart - start] = packableBases >= kmerSize ? kmer : UNPACKABLE;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the packed value of the kmer of size {@code kmerSize} starting at {@code start} in {@code sequence},
+     *         or {@link #UNPACKABLE}
+     */
+    @VisibleForTesting
+    static long packKmer(final byte[] sequence, final int start, final int kmerSize) {
+        Utils.validateArg(start + kmerSize <= sequence.length, "kmer is not within the sequence");
+        return packKmers(sequence, start, start + kmerSize, kmerSize)[0];
+    }
+
+    private static int baseCode(final byte base) {
+        switch (base) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return the value for the kmer starting at {@code start} in {@code sequence}, whose packed value is
+     *         {@code packedKmer}, or {@code null} if there is none
+     */
+    V get(final byte[] sequence, final int start, final long packedKmer) {
+        return packedKmer != UNPACKABLE ? packedKmers.get(packedKmer) : unpackableKmers.get(new Kmer(sequence, start, kmerSize));
+    }
+
+    /**
+     * @return the value for {@code kmer}, or {@code null} if there is none
+     */
+    V get(final Kmer kmer) {
+        return kmer.length() == kmerSize ? get(kmer.bases(), 0, packKmer(kmer.bases(), 0, kmerSize)) : null;
+    }
+
+    /**
+     * @return whether there is a value for the kmer starting at {@code start} in {@code sequence}, whose packed
+     *         value is {@code packedKmer}
+     */
+    boolean containsKey(final byte[] sequence, final int start, final long packedKmer) {
+        return packedKmer != UNPACKABLE ? packedKmers.containsKey(packedKmer) : unpackableKmers.containsKey(new Kmer(sequence, start, kmerSize));
+    }
+
+    /**
+     * Sets the value for the kmer starting at {@code start} in {@code sequence}, whose packed value is {@code packedKmer}.
+     *
+     * The sequence must not be modified afterwards, as it may be referenced by the key of the entry.
+     *
+     * @return the previous value for that kmer, or {@code null} if there was none
+     */
+    V put(final byte[] sequence, final int start, final long packedKmer, final V value) {
+        Utils.nonNull(value);
+        return packedKmer != UNPACKABLE ? packedKmers.put(packedKmer, value) : unpackableKmers.put(new Kmer(sequence, start, kmerSize), value);
+    }
+
+    /**
+     * Sets the value for {@code kmer}, which must have the size of the kmers in this map.
+     *
+     * @return the previous value for that kmer, or {@code null} if there was none
+     */
+    V put(final Kmer kmer, final V value) {
+        Utils.validateArg(kmer.length() == kmerSize, "wrong kmer size");
+        final byte[] bases = kmer.bases();
+        return put(bases, 0, packKmer(bases, 0, kmerSize), value);
+    }
+
+    /**
+     * Removes the value for the kmer with the bases of {@code kmer}, which must have the size of the kmers in this map.
+     *
+     * @return the removed value, or {@code null} if there was none
+     */
+    V remove(final byte[] kmer) {
+        Utils.validateArg(kmer.length == kmerSize, "wrong kmer size");
+        final long packedKmer = packKmer(kmer, 0, kmerSize);
+        return packedKmer != UNPACKABLE ? packedKmers.remove(packedKmer) : unpackableKmers.remove(new Kmer(kmer));
+    }
+
+    /**
+     * @return all values, in no particular order
+     */
+    Iterable<V> values() {
+        return Iterables.concat(packedKmers.values(), unpackableKmers.values());
+    }
+
+    int size() {
+        return packedKmers.size() + unpackableKmers.size();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear() {
+        packedKmers.clear();
+        unpackableKmers.clear();
+    }
+}
@@ -1,10 +1,13 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
@@ -56,14 +59,14 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     private final Map<String, List<SequenceForKmers>> pending = new LinkedHashMap<>();
 
     /**
-     * A set of non-unique kmers that cannot be used as merge points in the graph
+     * A set of non-unique kmers that cannot be used as merge points in the graph, each mapped to itself
      */
-    private Set<Kmer> nonUniqueKmers;
+    private PackedKmerMap<Kmer> nonUniqueKmers;
 
     /**
      * A map from kmers -> their corresponding vertex in the graph
      */
-    private final Map<Kmer, MultiDeBruijnVertex> uniqueKmers = new LinkedHashMap<>();
+    private final PackedKmerMap<MultiDeBruijnVertex> uniqueKmers = new PackedKmerMap<>(kmerSize);
 
     private final boolean debugGraphTransformations;
     private final byte minBaseQualityToUseInAssembly;
@@ -74,7 +77,10 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     // --------------------------------------------------------------------------------
     // state variables, initialized in resetToInitialState()
     // --------------------------------------------------------------------------------
-    private Kmer refSource;
+    /**
+     * The vertex of the first kmer of the reference. When that kmer is unique, this is also its vertex in uniqueKmers.
+     */
+    private MultiDeBruijnVertex refSource;
 
     /**
      * Constructs an empty read-threading-grpah provided the kmerSize.
@@ -221,12 +227,14 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @param seqForKmers a non-null sequence
      */
     private void threadSequence(final SequenceForKmers seqForKmers) {
-        final int uniqueStartPos = findStart(seqForKmers);
+        // pack all the kmers of the sequence at once, rather than creating a Kmer for each position
+        final long[] packedKmers = PackedKmerMap.packKmers(seqForKmers.sequence, seqForKmers.start, seqForKmers.stop, kmerSize);
+        final int uniqueStartPos = findStart(seqForKmers, packedKmers);
         if ( uniqueStartPos == -1 ) {
             return;
         }
 
-        final MultiDeBruijnVertex startingVertex = getOrCreateKmerVertex(seqForKmers.sequence, uniqueStartPos);
+        final MultiDeBruijnVertex startingVertex = getOrCreateKmerVertex(seqForKmers.sequence, uniqueStartPos, packedKmers[uniqueStartPos - seqForKmers.start]);
 
         // increase the counts of all edges incoming into the starting vertex supported by going back in sequence
         if (INCREASE_COUNTS_BACKWARDS) {
@@ -242,13 +250,13 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
             if ( refSource != null ) {
                 throw new IllegalStateException("Found two refSources! prev: " + refSource + ", new: " + startingVertex);
             }
-            refSource = new Kmer(seqForKmers.sequence, seqForKmers.start, kmerSize);
+            refSource = startingVertex;
         }
 
         // loop over all of the bases in sequence, extending the graph by one base at each point, as appropriate
         MultiDeBruijnVertex vertex = startingVertex;
         for ( int i = uniqueStartPos + 1; i <= seqForKmers.stop - kmerSize; i++ ) {
-            vertex = extendChainByOne(vertex, seqForKmers.sequence, i, seqForKmers.count, seqForKmers.isRef);
+            vertex = extendChainByOne(vertex, seqForKmers.sequence, i, packedKmers[i - seqForKmers.start], seqForKmers.count, seqForKmers.isRef);
             if ( debugGraphTransformations ) {
                 vertex.addRead(seqForKmers.name);
             }
@@ -259,16 +267,16 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * Find vertex and its position in seqForKmers where we should start assembling seqForKmers
      *
      * @param seqForKmers the sequence we want to thread into the graph
+     * @param packedKmers the packed kmers of seqForKmers, starting at seqForKmers.start
      * @return the position of the starting vertex in seqForKmer, or -1 if it cannot find one
      */
-    private int findStart(final SequenceForKmers seqForKmers) {
+    private int findStart(final SequenceForKmers seqForKmers, final long[] packedKmers) {
         if ( seqForKmers.isRef ) {
             return 0;
         }
 
         for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if ( isThreadingStart(kmer1) ) {
+            if ( isThreadingStart(seqForKmers.sequence, i, packedKmers[i - seqForKmers.start]) ) {
                 return i;
             }
         }
@@ -282,12 +290,13 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      * @see #getThreadingStartOnlyAtExistingVertex()
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence containing the query kmer.
+     * @param start the position of the query kmer in the sequence.
+     * @param packedKmer the packed query kmer.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      */
-    private boolean isThreadingStart(final Kmer kmer) {
-        Utils.nonNull(kmer);
-        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : !nonUniqueKmers.contains(kmer);
+    private boolean isThreadingStart(final byte[] sequence, final int start, final long packedKmer) {
+        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(sequence, start, packedKmer) : !nonUniqueKmers.containsKey(sequence, start, packedKmer);
     }
 
     /**
@@ -346,8 +355,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         final boolean result = super.removeVertex(V);
         if (result) {
             final byte[] sequence = V.getSequence();
-            final Kmer kmer = new Kmer(sequence);
-            uniqueKmers.remove(kmer);
+            if (sequence.length == kmerSize) {
+                uniqueKmers.remove(sequence);
+            }
         }
         return result;
     }
@@ -430,9 +440,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
     /** structure that keeps track of the non-unique kmers for a given kmer size */
     private static final class NonUniqueResult {
-        final Set<Kmer> nonUniques;
+        final PackedKmerMap<Kmer> nonUniques;
 
-        private NonUniqueResult(final Set<Kmer> nonUniques) {
+        private NonUniqueResult(final PackedKmerMap<Kmer> nonUniques) {
             this.nonUniques = nonUniques;
         }
     }
@@ -998,7 +1008,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // necessary because the loop breaks with kmerSize = max + 1
-        return new NonUniqueResult(nonUniqueKmers);
+        final PackedKmerMap<Kmer> nonUniques = new PackedKmerMap<>(maxKmerSize);
+        nonUniqueKmers.forEach(kmer -> nonUniques.put(kmer, kmer));
+        return new NonUniqueResult(nonUniques);
     }
 
     /**
@@ -1016,14 +1028,17 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @return a non-null collection of non-unique kmers in sequence
      */
     static Collection<Kmer> determineNonUniqueKmers(final SequenceForKmers seqForKmers, final int kmerSize) {
-        // count up occurrences of kmers within each read
-        final Set<Kmer> allKmers = new LinkedHashSet<>();
+        // count up occurrences of kmers within each read, only creating Kmer objects for the non-unique ones
+        // and for those that cannot be packed
+        final long[] packedKmers = PackedKmerMap.packKmers(seqForKmers.sequence, 0, seqForKmers.stop, kmerSize);
+        final LongSet allPackedKmers = new LongOpenHashSet(packedKmers.length);
+        final Set<Kmer> allUnpackableKmers = new HashSet<>();
         final List<Kmer> nonUniqueKmers = new ArrayList<>();
-        final int stopPosition = seqForKmers.stop - kmerSize;
-        for (int i = 0; i <= stopPosition; i++) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                nonUniqueKmers.add(kmer);
+        for (int i = 0; i < packedKmers.length; i++) {
+            final boolean isFirstOccurrence = packedKmers[i] != PackedKmerMap.UNPACKABLE ?
+                    allPackedKmers.add(packedKmers[i]) : allUnpackableKmers.add(new Kmer(seqForKmers.sequence, i, kmerSize));
+            if (!isFirstOccurrence) {
+                nonUniqueKmers.add(new Kmer(seqForKmers.sequence, i, kmerSize));
             }
         }
         return nonUniqueKmers;
@@ -1058,26 +1073,24 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * Get the vertex for the kmer in sequence starting at start
      * @param sequence the sequence
      * @param start the position of the kmer start
+     * @param packedKmer the packed kmer at start
      * @return a non-null vertex
      */
-    private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start) {
-        final Kmer kmer = new Kmer(sequence, start, kmerSize);
-        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(kmer, true);
-        return ( vertex != null ) ? vertex : createVertex(kmer);
+    private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start, final long packedKmer) {
+        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(sequence, start, packedKmer, true);
+        return ( vertex != null ) ? vertex : createVertex(sequence, start, packedKmer);
     }
 
     /**
-     * Get the unique vertex for kmer, or null if not possible.
+     * Get the unique vertex for the kmer at start in sequence, or null if not possible.
      *
      * @param allowRefSource if true, we will allow kmer to match the reference source vertex
      * @return a vertex for kmer, or null if it's not unique
      */
-    private MultiDeBruijnVertex getUniqueKmerVertex(final Kmer kmer, final boolean allowRefSource) {
-        if ( ! allowRefSource && kmer.equals(refSource) ) {
-            return null;
-        }
-
-        return uniqueKmers.get(kmer);
+    private MultiDeBruijnVertex getUniqueKmerVertex(final byte[] sequence, final int start, final long packedKmer, final boolean allowRefSource) {
+        final MultiDeBruijnVertex vertex = uniqueKmers.get(sequence, start, packedKmer);
+        // the reference source kmer is only in the unique kmers if it's unique, and then it maps to the reference source vertex
+        return ( ! allowRefSource && vertex != null && vertex == refSource ) ? null : vertex;
     }
 
 
@@ -1086,11 +1099,13 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      *
      * kmer must not have a entry in unique kmers, or an error will be thrown
      *
-     * @param kmer the kmer we want to create a vertex for
+     * @param sequence the sequence containing the kmer we want to create a vertex for
+     * @param start the position of the kmer in sequence
+     * @param packedKmer the packed kmer
      * @return the non-null created vertex
      */
-    private MultiDeBruijnVertex createVertex(final Kmer kmer) {
-        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer.bases());
+    private MultiDeBruijnVertex createVertex(final byte[] sequence, final int start, final long packedKmer) {
+        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(Arrays.copyOfRange(sequence, start, start + kmerSize));
         final int prevSize = vertexSet().size();
         addVertex(newVertex);
 
@@ -1100,9 +1115,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // add the vertex to the unique kmer map, if it is in fact unique
-        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) // TODO -- not sure this last test is necessary
+        if ( ! nonUniqueKmers.containsKey(sequence, start, packedKmer) && ! uniqueKmers.containsKey(sequence, start, packedKmer) ) // TODO -- not sure this last test is necessary
         {
-            uniqueKmers.put(kmer, newVertex);
+            uniqueKmers.put(newVertex.getSequence(), 0, packedKmer, newVertex);
         }
 
         return newVertex;
@@ -1115,11 +1130,12 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @param prevVertex a non-null vertex where sequence was last anchored in the graph
      * @param sequence the sequence we're threading through the graph
      * @param kmerStart the start of the current kmer in graph we'd like to add
+     * @param packedKmer the packed kmer at kmerStart
      * @param count the number of observations of this kmer in graph (can be > 1 for GGA)
      * @param isRef is this the reference sequence?
      * @return a non-null vertex connecting prevVertex to in the graph based on sequence
      */
-    private MultiDeBruijnVertex extendChainByOne(final MultiDeBruijnVertex prevVertex, final byte[] sequence, final int kmerStart, final int count, final boolean isRef) {
+    private MultiDeBruijnVertex extendChainByOne(final MultiDeBruijnVertex prevVertex, final byte[] sequence, final int kmerStart, final long packedKmer, final int count, final boolean isRef) {
         final Set<MultiSampleEdge> outgoingEdges = outgoingEdgesOf(prevVertex);
 
         final int nextPos = kmerStart + kmerSize - 1;
@@ -1133,15 +1149,14 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
-        final Kmer kmer = new Kmer(sequence, kmerStart, kmerSize);
-        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(kmer, false);
+        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(sequence, kmerStart, packedKmer, false);
 
         if ( isRef && uniqueMergeVertex != null ) {
             throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
         }
 
         // either use our unique merge vertex, or create a new one in the chain
-        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(kmer) : uniqueMergeVertex;
+        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(sequence, kmerStart, packedKmer) : uniqueMergeVertex;
         addEdge(prevVertex, nextVertex, ((MyEdgeFactory)getEdgeFactory()).createEdge(isRef, count));
         return nextVertex;
     }
@@ -1196,7 +1211,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     @VisibleForTesting
     Set<Kmer> getNonUniqueKmers() {
-        return nonUniqueKmers;
+        return Sets.newHashSet(nonUniqueKmers.values());
     }
 
     @Override
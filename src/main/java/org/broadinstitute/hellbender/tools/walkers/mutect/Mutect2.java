@@ -1,10 +1,12 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -16,6 +18,7 @@ import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
 
 import java.io.File;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Call somatic short variants, both SNVs and indels, via local assembly of haplotypes
@@ -197,8 +200,8 @@ public final class Mutect2 extends AssemblyRegionWalker {
     }
 
     @Override
-    protected ReadsDownsampler createDownsampler() {
-        return new MutectDownsampler(maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride);
+    protected ReadsDownsampler createDownsampler(final Random random) {
+        return new MutectDownsampler(maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride, random);
     }
 
     @Override
@@ -222,6 +225,39 @@ public final class Mutect2 extends AssemblyRegionWalker {
         m2Engine.callRegion(region, referenceContext, featureContext).forEach(vcfWriter::add);
     }
 
+    /**
+     * In multi-threaded and pipelined traversals each worker thread gets its own Mutect2Engine, while all of the calls still go
+     * through the single writer opened in {@link #onTraversalStart}.
+     */
+    @Override
+    protected AssemblyRegionProcessor.Factory<VariantContext> makeAssemblyRegionProcessorFactory() {
+        if ( MTAC.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue("multi-threaded or pipelined traversal cannot be combined with --bam-output");
+        }
+
+        return new AssemblyRegionProcessor.Factory<VariantContext>() {
+            @Override
+            public AssemblyRegionProcessor<VariantContext> createProcessor() {
+                final Mutect2Engine workerEngine = new Mutect2Engine(MTAC, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceArguments.getReferenceFileName());
+                return new AssemblyRegionProcessor<VariantContext>() {
+                    @Override
+                    public AssemblyRegionEvaluator assemblyRegionEvaluator() { return workerEngine; }
+
+                    @Override
+                    public List<VariantContext> process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                        return workerEngine.callRegion(region, referenceContext, featureContext);
+                    }
+
+                    @Override
+                    public void close() { workerEngine.shutdown(); }
+                };
+            }
+
+            @Override
+            public void accept(final VariantContext vc) { vcfWriter.add(vc); }
+        };
+    }
+
     @Override
     public void closeTool() {
         if ( vcfWriter != null ) {
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.vqsr;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -10,6 +11,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import Jama.Matrix;
 
@@ -17,6 +20,14 @@ class GaussianMixtureModel {
 
     protected final static Logger logger = LogManager.getLogger(GaussianMixtureModel.class);
 
+    /**
+     * Number of data in each of the blocks processed by the tasks of the multi-threaded expectation and maximization steps.
+     * The sums over the blocks are added up in block order, and the blocks don't depend on the number of threads, so
+     * multi-threaded models are reproducible whatever the number of threads.
+     */
+    @VisibleForTesting
+    static final int DATA_BLOCK_SIZE = 4096;
+
     private final List<MultivariateGaussian> gaussians;
     private final double shrinkage;
     private final double dirichletParameter;
@@ -59,7 +70,7 @@ class GaussianMixtureModel {
 
     }
 
-    public void initializeRandomModel( final List<VariantDatum> data, final int numKMeansIterations ) {
+    public void initializeRandomModel( final VariantAnnotationMatrix data, final int numKMeansIterations ) {
 
         // initialize random Gaussian means // BUGBUG: this is broken up this way to match the order of calls to rand.nextDouble() in the old code
         for( final MultivariateGaussian gaussian : gaussians ) {
@@ -81,34 +92,37 @@ class GaussianMixtureModel {
         }
     }
 
-    private void initializeMeansUsingKMeans( final List<VariantDatum> data, final int numIterations ) {
+    private void initializeMeansUsingKMeans( final VariantAnnotationMatrix data, final int numIterations ) {
 
+        final double[] values = data.getValues();
+        // index of the Gaussian to which each variant is assigned
+        final int[] assignments = new int[data.getNumData()];
         int ttt = 0;
         while( ttt++ < numIterations ) {
             // E step: assign each variant to the nearest cluster
-            for( final VariantDatum datum : data ) {
+            for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
                 double minDistance = Double.MAX_VALUE;
-                MultivariateGaussian minGaussian = null;
-                datum.assignment = minGaussian;
-                for( final MultivariateGaussian gaussian : gaussians ) {
-                    final double dist = gaussian.calculateDistanceFromMeanSquared( datum );
+                int minGaussianIndex = -1;
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    final double dist = gaussians.get(gaussianIndex).calculateDistanceFromMeanSquared( values, data.getOffset(datumIndex) );
                     if( dist < minDistance ) {
                         minDistance = dist;
-                        minGaussian = gaussian;
+                        minGaussianIndex = gaussianIndex;
                     }
                 }
-                datum.assignment = minGaussian;
+                assignments[datumIndex] = minGaussianIndex;
             }
 
             // M step: update gaussian means based on assigned variants
-            for( final MultivariateGaussian gaussian : gaussians ) {
+            for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                final MultivariateGaussian gaussian = gaussians.get(gaussianIndex);
                 gaussian.zeroOutMu();
                 int numAssigned = 0;
 
-                for( final VariantDatum datum : data ) {
-                    if( datum.assignment.equals(gaussian) ) {
+                for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+                    if( assignments[datumIndex] == gaussianIndex ) {
                         numAssigned++;
-                        gaussian.incrementMu( datum );
+                        gaussian.incrementMu( values, data.getOffset(datumIndex) );
                     }
                 }
                 if( numAssigned != 0 ) {
@@ -120,35 +134,166 @@ class GaussianMixtureModel {
         }
     }
 
-    public void expectationStep( final List<VariantDatum> data ) {
+    public void expectationStep( final VariantAnnotationMatrix data ) {
+        expectationStep(data, null);
+    }
+
+    /**
+     * @param pool pool on which to evaluate the data, or {@code null} to evaluate them on the calling thread.
+     *             Either way, each datum gets exactly the same probabilities.
+     */
+    public void expectationStep( final VariantAnnotationMatrix data, final ForkJoinPool pool ) {
 
         for( final MultivariateGaussian gaussian : gaussians ) {
             gaussian.precomputeDenominatorForVariationalBayes( getSumHyperParameterLambda() );
         }
 
-        for( final VariantDatum datum : data ) {
-            final double[] pVarInGaussianLog10 = gaussians.stream().mapToDouble(g -> g.evaluateDatumLog10(datum)).toArray();
-            final double[] pVarInGaussianNormalized = MathUtils.normalizeLog10DeleteMePlease( pVarInGaussianLog10, false);
-            int gaussianIndex = 0;
-            for( final MultivariateGaussian gaussian : gaussians ) {
-                gaussian.assignPVarInGaussian( pVarInGaussianNormalized[gaussianIndex++] );
+        if( pool == null ) {
+            for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+                final double[] pVarInGaussianNormalized = calculatePVarInGaussianNormalized( data, datumIndex );
+                int gaussianIndex = 0;
+                for( final MultivariateGaussian gaussian : gaussians ) {
+                    gaussian.assignPVarInGaussian( pVarInGaussianNormalized[gaussianIndex++] );
+                }
+            }
+        } else {
+            mapDataBlocks(pool, data.getNumData(), (start, end) -> {
+                for( int datumIndex = start; datumIndex < end; datumIndex++ ) {
+                    final double[] pVarInGaussianNormalized = calculatePVarInGaussianNormalized( data, datumIndex );
+                    for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                        gaussians.get(gaussianIndex).setPVarInGaussian( datumIndex, pVarInGaussianNormalized[gaussianIndex] );
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    private double[] calculatePVarInGaussianNormalized( final VariantAnnotationMatrix data, final int datumIndex ) {
+        final double[] values = data.getValues();
+        final int offset = data.getOffset(datumIndex);
+        final double[] pVarInGaussianLog10 = new double[gaussians.size()];
+        for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+            pVarInGaussianLog10[gaussianIndex] = gaussians.get(gaussianIndex).evaluateDatumLog10(values, offset);
+        }
+        return MathUtils.normalizeLog10DeleteMePlease( pVarInGaussianLog10, false);
+    }
+
+    public void maximizationStep( final VariantAnnotationMatrix data ) {
+        maximizationStep(data, null);
+    }
+
+    /**
+     * @param pool pool on which to accumulate the sufficient statistics of the Gaussians, or {@code null} to do it
+     *             on the calling thread. Multi-threaded results are the same for any pool size, but they may differ
+     *             slightly from single-threaded ones, since the sums are not accumulated in the same order.
+     */
+    public void maximizationStep( final VariantAnnotationMatrix data, final ForkJoinPool pool ) {
+        if( pool == null ) {
+            gaussians.forEach(g -> g.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
+        } else {
+            final List<Matrix> scatters = accumulateMuAndScatter(data, pool, 1E-10);
+            for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                gaussians.get(gaussianIndex).maximizeGaussian( scatters.get(gaussianIndex), empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts);
             }
         }
     }
 
-    public void maximizationStep( final List<VariantDatum> data ) {
-        gaussians.forEach(g -> g.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
+    /**
+     * Set the mean of each Gaussian from the data assigned to it, and compute the scatter of the data around the new means,
+     * by adding up the sufficient statistics of blocks of the data computed on the given pool.
+     *
+     * @return the total scatter of each Gaussian, in the same order as {@link #gaussians}
+     */
+    private List<Matrix> accumulateMuAndScatter( final VariantAnnotationMatrix data, final ForkJoinPool pool, final double initialSumProb ) {
+        final int numGaussians = gaussians.size();
+
+        final List<double[][]> blockWeightedAnnotations = mapDataBlocks(pool, data.getNumData(), (start, end) -> {
+            final double[][] weightedAnnotations = new double[numGaussians][];
+            for( int gaussianIndex = 0; gaussianIndex < numGaussians; gaussianIndex++ ) {
+                weightedAnnotations[gaussianIndex] = gaussians.get(gaussianIndex).sumWeightedAnnotations(data, start, end);
+            }
+            return weightedAnnotations;
+        });
+        for( int gaussianIndex = 0; gaussianIndex < numGaussians; gaussianIndex++ ) {
+            final double[] totals = new double[1 + empiricalMu.length];
+            for( final double[][] weightedAnnotations : blockWeightedAnnotations ) {
+                for( int iii = 0; iii < totals.length; iii++ ) {
+                    totals[iii] += weightedAnnotations[gaussianIndex][iii];
+                }
+            }
+            gaussians.get(gaussianIndex).setMuFromWeightedAnnotations(totals, initialSumProb);
+        }
+
+        final List<Matrix[]> blockScatters = mapDataBlocks(pool, data.getNumData(), (start, end) -> {
+            final Matrix[] scatters = new Matrix[numGaussians];
+            for( int gaussianIndex = 0; gaussianIndex < numGaussians; gaussianIndex++ ) {
+                scatters[gaussianIndex] = gaussians.get(gaussianIndex).sumWeightedScatter(data, start, end);
+            }
+            return scatters;
+        });
+        final List<Matrix> totalScatters = new ArrayList<>(numGaussians);
+        for( int gaussianIndex = 0; gaussianIndex < numGaussians; gaussianIndex++ ) {
+            final Matrix totalScatter = new Matrix(empiricalMu.length, empiricalMu.length);
+            for( final Matrix[] scatters : blockScatters ) {
+                totalScatter.plusEquals(scatters[gaussianIndex]);
+            }
+            totalScatters.add(totalScatter);
+        }
+        return totalScatters;
     }
 
     private double getSumHyperParameterLambda() {
         return gaussians.stream().mapToDouble(g -> g.hyperParameter_lambda).sum();
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
-        gaussians.forEach(g -> g.evaluateFinalModelParameters(data));
+    public void evaluateFinalModelParameters( final VariantAnnotationMatrix data ) {
+        evaluateFinalModelParameters(data, null);
+    }
+
+    /**
+     * @param pool pool on which to accumulate the sufficient statistics of the Gaussians, or {@code null} to do it
+     *             on the calling thread (see {@link #maximizationStep(VariantAnnotationMatrix, ForkJoinPool)}).
+     */
+    public void evaluateFinalModelParameters( final VariantAnnotationMatrix data, final ForkJoinPool pool ) {
+        if( pool == null ) {
+            gaussians.forEach(g -> g.evaluateFinalModelParameters(data));
+        } else {
+            final List<Matrix> scatters = accumulateMuAndScatter(data, pool, 0.0);
+            for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                gaussians.get(gaussianIndex).evaluateFinalModelParameters( scatters.get(gaussianIndex) );
+            }
+        }
         normalizePMixtureLog10();
     }
 
+    /**
+     * Apply a function to consecutive blocks of {@link #DATA_BLOCK_SIZE} data on the given pool.
+     *
+     * @param pool pool on which to run the function
+     * @param numData total number of data
+     * @param blockFunction function of the indices of the first datum of a block and of the datum after the block
+     * @return the results of the function for each block, in block order
+     */
+    static <T> List<T> mapDataBlocks( final ForkJoinPool pool, final int numData, final DataBlockFunction<T> blockFunction ) {
+        final List<ForkJoinTask<T>> tasks = new ArrayList<>((numData + DATA_BLOCK_SIZE - 1) / DATA_BLOCK_SIZE);
+        for( int start = 0; start < numData; start += DATA_BLOCK_SIZE ) {
+            final int blockStart = start;
+            final int blockEnd = Math.min(numData, start + DATA_BLOCK_SIZE);
+            tasks.add(pool.submit(() -> blockFunction.apply(blockStart, blockEnd)));
+        }
+        final List<T> results = new ArrayList<>(tasks.size());
+        for( final ForkJoinTask<T> task : tasks ) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    interface DataBlockFunction<T> {
+        T apply( final int start, final int end );
+    }
+
     public double normalizePMixtureLog10() {
         double sumDiff = 0.0;
         final double sumPK = gaussians.stream().mapToDouble(g -> g.sumProb).sum();
@@ -190,49 +335,54 @@ class GaussianMixtureModel {
         return MathUtils.log10sumLog10(values);
     }
 
-    public double evaluateDatum( final VariantDatum datum ) {
-        for( final boolean isNull : datum.isNull ) {
-            if( isNull ) {
-                return evaluateDatumMarginalized( datum );
-            }
+    /**
+     * @param data annotations of the data
+     * @param datumIndex row of the datum to evaluate in {@code data}
+     */
+    public double evaluateDatum( final VariantAnnotationMatrix data, final int datumIndex ) {
+        if( data.hasMissingAnnotations(datumIndex) ) {
+            return evaluateDatumMarginalized( data, datumIndex );
         }
         // Fill an array with the log10 probability coming from each Gaussian and then use MathUtils to sum them up correctly
         final double[] pVarInGaussianLog10 = new double[gaussians.size()];
         int gaussianIndex = 0;
         for( final MultivariateGaussian gaussian : gaussians ) {
-            pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + gaussian.evaluateDatumLog10( datum );
+            pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + gaussian.evaluateDatumLog10( data.getValues(), data.getOffset(datumIndex) );
         }
         return nanTolerantLog10SumLog10(pVarInGaussianLog10); // Sum(pi_k * p(v|n,k))
     }
 
     // Used only to decide which covariate dimension is most divergent in order to report in the culprit info field annotation
-    public Double evaluateDatumInOneDimension( final VariantDatum datum, final int iii ) {
-        if(datum.isNull[iii]) { return null; }
+    public Double evaluateDatumInOneDimension( final VariantAnnotationMatrix data, final int datumIndex, final int iii ) {
+        if(data.isNull(datumIndex, iii)) { return null; }
 
         final double[] pVarInGaussianLog10 = new double[gaussians.size()];
         int gaussianIndex = 0;
         for( final MultivariateGaussian gaussian : gaussians ) {
-            pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + MathUtils.normalDistributionLog10(gaussian.mu[iii], gaussian.sigma.get(iii, iii), datum.annotations[iii]);
+            pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + MathUtils.normalDistributionLog10(gaussian.mu[iii], gaussian.sigma.get(iii, iii), data.get(datumIndex, iii));
         }
         return nanTolerantLog10SumLog10(pVarInGaussianLog10); // Sum(pi_k * p(v|n,k))
     }
 
-    public double evaluateDatumMarginalized( final VariantDatum datum ) {
+    /**
+     * Note that this overwrites the missing annotations of the datum in {@code data} with random samples.
+     */
+    public double evaluateDatumMarginalized( final VariantAnnotationMatrix data, final int datumIndex ) {
         int numRandomDraws = 0;
         double sumPVarInGaussian = 0.0;
         final int numIterPerMissingAnnotation = 20; // Trade off here between speed of computation and accuracy of the marginalization
         final double[] pVarInGaussianLog10 = new double[gaussians.size()];
         // for each dimension
-        for( int iii = 0; iii < datum.annotations.length; iii++ ) {
+        for( int iii = 0; iii < data.getNumAnnotations(); iii++ ) {
             // if it is missing marginalize over the missing dimension by drawing X random values for the missing annotation and averaging the lod
-            if( datum.isNull[iii] ) {
+            if( data.isNull(datumIndex, iii) ) {
                 for( int ttt = 0; ttt < numIterPerMissingAnnotation; ttt++ ) {
-                    datum.annotations[iii] = Utils.getRandomGenerator().nextGaussian(); // draw a random sample from the standard normal distribution
+                    data.set(datumIndex, iii, Utils.getRandomGenerator().nextGaussian()); // draw a random sample from the standard normal distribution
 
                     // evaluate this random data point
                     int gaussianIndex = 0;
                     for( final MultivariateGaussian gaussian : gaussians ) {
-                        pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + gaussian.evaluateDatumLog10( datum );
+                        pVarInGaussianLog10[gaussianIndex++] = gaussian.pMixtureLog10 + gaussian.evaluateDatumLog10( data.getValues(), data.getOffset(datumIndex) );
                     }
 
                     // add this sample's probability to the pile in order to take an average in the end
@@ -7,7 +7,6 @@ import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.collections.ExpandingArrayList;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 
 import Jama.Matrix;
@@ -67,17 +66,25 @@ class MultivariateGaussian {
         sigma.setMatrix(0, mu.length - 1, 0, mu.length - 1, tmp);
     }
 
-    public double calculateDistanceFromMeanSquared( final VariantDatum datum ) {
-        return MathUtils.distanceSquared( datum.annotations, mu );
+    /**
+     * @param values packed annotations (see {@link VariantAnnotationMatrix#getValues()})
+     * @param offset index in {@code values} of the first annotation of the datum
+     */
+    public double calculateDistanceFromMeanSquared( final double[] values, final int offset ) {
+        double distance = 0.0;
+        for( int jjj = 0; jjj < mu.length; jjj++ ) {
+            distance += MathUtils.square(values[offset + jjj] - mu[jjj]);
+        }
+        return distance;
     }
 
-    public void incrementMu( final VariantDatum datum ) {
-        incrementMu( datum, 1.0 );
+    public void incrementMu( final double[] values, final int offset ) {
+        incrementMu( values, offset, 1.0 );
     }
 
-    public void incrementMu( final VariantDatum datum, final double prob ) {
+    public void incrementMu( final double[] values, final int offset, final double prob ) {
         for( int jjj = 0; jjj < mu.length; jjj++ ) {
-            mu[jjj] += prob * datum.annotations[jjj];
+            mu[jjj] += prob * values[offset + jjj];
         }
     }
 
@@ -124,17 +131,21 @@ class MultivariateGaussian {
         cachedDenomLog10 = (pi / Math.log(10.0)) + (lambda / Math.log(10.0)) + (beta / Math.log(10.0));
     }
 
-    public double evaluateDatumLog10( final VariantDatum datum ) {
+    /**
+     * @param values packed annotations (see {@link VariantAnnotationMatrix#getValues()})
+     * @param offset index in {@code values} of the first annotation of the datum
+     */
+    public double evaluateDatumLog10( final double[] values, final int offset ) {
         double sumKernel = 0.0;
         final double[] crossProdTmp = new double[mu.length];
         Arrays.fill(crossProdTmp, 0.0);
         for( int iii = 0; iii < mu.length; iii++ ) {
             for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                crossProdTmp[iii] += (datum.annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
+                crossProdTmp[iii] += (values[offset + jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
             }
         }
         for( int iii = 0; iii < mu.length; iii++ ) {
-            sumKernel += crossProdTmp[iii] * (datum.annotations[iii] - mu[iii]);
+            sumKernel += crossProdTmp[iii] * (values[offset + iii] - mu[iii]);
         }
 
         return (( -0.5 * sumKernel ) / Math.log(10.0)) + cachedDenomLog10; // This is the definition of a Gaussian PDF Log10
@@ -144,23 +155,31 @@ class MultivariateGaussian {
         pVarInGaussian[pVarInGaussianIndex++] = pVar;
     }
 
+    /**
+     * Set the probability of the datum at the given index being in this Gaussian (as {@link #assignPVarInGaussian}
+     * does for the next datum), so that the data can be assigned out of order by multiple threads.
+     */
+    public void setPVarInGaussian( final int datumIndex, final double pVar ) {
+        pVarInGaussian[datumIndex] = pVar;
+    }
+
     public void resetPVarInGaussian() {
         Arrays.fill(pVarInGaussian, 0.0);
         pVarInGaussianIndex = 0;
     }
 
-    public void maximizeGaussian(final List<VariantDatum> data, final double[] empiricalMu, final Matrix empiricalSigma,
+    public void maximizeGaussian(final VariantAnnotationMatrix data, final double[] empiricalMu, final Matrix empiricalSigma,
                                  final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
         sumProb = 1E-10;
         final Matrix wishart = new Matrix(mu.length, mu.length);
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        final double[] values = data.getValues();
+        for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
             sumProb += prob;
-            incrementMu( datum, prob );
+            incrementMu( values, data.getOffset(datumIndex), prob );
         }
         divideEqualsMu( sumProb );
 
@@ -172,14 +191,14 @@ class MultivariateGaussian {
             }
         }
 
-        datumIndex = 0;
         final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final int offset = data.getOffset(datumIndex);
             for( int iii = 0; iii < mu.length; iii++ ) {
-                double deltaMu = prob * (datum.annotations[iii]-mu[iii]);
+                double deltaMu = prob * (values[offset + iii]-mu[iii]);
                 for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, deltaMu * (datum.annotations[jjj]-mu[jjj]));
+                    pVarSigma.set(iii, jjj, deltaMu * (values[offset + jjj]-mu[jjj]));
                 }
             }
             sigma.plusEquals( pVarSigma );
@@ -199,26 +218,132 @@ class MultivariateGaussian {
         resetPVarInGaussian(); // clean up some memory
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
+    /**
+     * Sufficient statistics for the mean of this Gaussian, over a block of the data: the sum of the probabilities of
+     * the data being in this Gaussian, followed by the probability-weighted sums of each annotation.
+     * Summing the statistics of consecutive blocks in order gives reproducible totals whatever the number of threads.
+     *
+     * @param data the data assigned to the Gaussians by the last expectation step
+     * @param start index of the first datum of the block
+     * @param end index after the last datum of the block
+     * @return an array of length {@code 1 + mu.length}
+     */
+    public double[] sumWeightedAnnotations( final VariantAnnotationMatrix data, final int start, final int end ) {
+        final double[] sums = new double[1 + mu.length];
+        final double[] values = data.getValues();
+        for( int datumIndex = start; datumIndex < end; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final int offset = data.getOffset(datumIndex);
+            sums[0] += prob;
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                sums[1 + jjj] += prob * values[offset + jjj];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Sufficient statistics for the covariance of this Gaussian, over a block of the data: the probability-weighted
+     * sum of the outer products of the deviations of the data from the current mean (see {@link #sumWeightedAnnotations}).
+     *
+     * @param data the data assigned to the Gaussians by the last expectation step
+     * @param start index of the first datum of the block
+     * @param end index after the last datum of the block
+     * @return a {@code mu.length} x {@code mu.length} matrix
+     */
+    public Matrix sumWeightedScatter( final VariantAnnotationMatrix data, final int start, final int end ) {
+        final double[][] scatter = new double[mu.length][mu.length];
+        final double[] values = data.getValues();
+        for( int datumIndex = start; datumIndex < end; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final int offset = data.getOffset(datumIndex);
+            for( int iii = 0; iii < mu.length; iii++ ) {
+                final double deltaMu = prob * (values[offset + iii]-mu[iii]);
+                for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                    scatter[iii][jjj] += deltaMu * (values[offset + jjj]-mu[jjj]);
+                }
+            }
+        }
+        return new Matrix(scatter);
+    }
+
+    /**
+     * Set the mean of this Gaussian from the totals of {@link #sumWeightedAnnotations} over all the data, as the first
+     * half of {@link #maximizeGaussian} or {@link #evaluateFinalModelParameters} does.
+     *
+     * @param weightedAnnotationTotals totals of {@link #sumWeightedAnnotations} over all the data
+     * @param initialSumProb initial value of {@link #sumProb}, to which the sum of the probabilities is added
+     */
+    public void setMuFromWeightedAnnotations( final double[] weightedAnnotationTotals, final double initialSumProb ) {
+        sumProb = initialSumProb + weightedAnnotationTotals[0];
+        for( int jjj = 0; jjj < mu.length; jjj++ ) {
+            mu[jjj] = weightedAnnotationTotals[1 + jjj] / sumProb;
+        }
+    }
+
+    /**
+     * Finish {@link #maximizeGaussian} given the totals of {@link #sumWeightedScatter} over all the data, once the mean
+     * has been set by {@link #setMuFromWeightedAnnotations} (with an initial sum of probabilities of 1E-10).
+     */
+    public void maximizeGaussian( final Matrix weightedScatterTotal, final double[] empiricalMu, final Matrix empiricalSigma,
+                                  final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
+        final Matrix wishart = new Matrix(mu.length, mu.length);
+        final double shrinkageFactor = (SHRINKAGE * sumProb) / (SHRINKAGE + sumProb);
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            double deltaMu = shrinkageFactor * (mu[iii] - empiricalMu[iii]);
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                wishart.set(iii, jjj, deltaMu * (mu[jjj] - empiricalMu[jjj]));
+            }
+        }
+
+        zeroOutSigma();
+        sigma.plusEquals( weightedScatterTotal );
+        sigma.plusEquals( empiricalSigma );
+        sigma.plusEquals( wishart );
+
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            mu[iii] = (sumProb * mu[iii] + SHRINKAGE * empiricalMu[iii]) / (sumProb + SHRINKAGE);
+        }
+
+        hyperParameter_a = sumProb + DEGREES_OF_FREEDOM;
+        hyperParameter_b = sumProb + SHRINKAGE;
+        hyperParameter_lambda = sumProb + DIRICHLET_PARAMETER;
+
+        resetPVarInGaussian(); // clean up some memory
+    }
+
+    /**
+     * Finish {@link #evaluateFinalModelParameters} given the totals of {@link #sumWeightedScatter} over all the data,
+     * once the mean has been set by {@link #setMuFromWeightedAnnotations} (with an initial sum of probabilities of 0).
+     */
+    public void evaluateFinalModelParameters( final Matrix weightedScatterTotal ) {
+        zeroOutSigma();
+        sigma.plusEquals( weightedScatterTotal );
+        sigma.timesEquals( 1.0 / sumProb );
+
+        resetPVarInGaussian(); // clean up some memory
+    }
+
+    public void evaluateFinalModelParameters( final VariantAnnotationMatrix data ) {
         sumProb = 0.0;
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        final double[] values = data.getValues();
+        for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
             sumProb += prob;
-            incrementMu( datum, prob );
+            incrementMu( values, data.getOffset(datumIndex), prob );
         }
         divideEqualsMu( sumProb );
 
-        datumIndex = 0;
         final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < data.getNumData(); datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final int offset = data.getOffset(datumIndex);
             for( int iii = 0; iii < mu.length; iii++ ) {
                 for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]));
+                    pVarSigma.set(iii, jjj, prob * (values[offset + iii]-mu[iii]) * (values[offset + jjj]-mu[jjj]));
                 }
             }
             sigma.plusEquals( pVarSigma );
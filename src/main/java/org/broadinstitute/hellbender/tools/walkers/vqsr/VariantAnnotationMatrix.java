@@ -0,0 +1,203 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The annotations of the VQSR data, stored row by row in a single contiguous array, with one row per datum, and
+ * whether each annotation is missing, stored in a single bit set.
+ *
+ * This is the only copy of the annotations: each VariantDatum refers to its row by {@link VariantDatum#index}, and the
+ * data used to train a model are a view of some of the rows (see {@link #getRows(int[])}). Training a Gaussian mixture
+ * model sweeps over the same data many times (once per k-means iteration, and a few times per expectation-maximization
+ * iteration), so it goes through the rows of this array rather than through one object per site.
+ * Package private because it's not usable outside of VQSR.
+ */
+final class VariantAnnotationMatrix {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int numAnnotations;
+    // the matrix which stores the annotations of a view, or null if this matrix stores them itself
+    private final VariantAnnotationMatrix source;
+    // the rows of the source matrix in a view, or null if this matrix stores the annotations itself
+    private final int[] rows;
+    private int numData;
+    private double[] values;
+    // bit (datum * numAnnotations + annotation) is set if the annotation of the datum is missing
+    private final BitSet isNull;
+
+    /**
+     * Create an empty matrix, to which rows are then added by {@link #addRow}.
+     */
+    public VariantAnnotationMatrix( final int numAnnotations ) {
+        Utils.validateArg(numAnnotations >= 0, "the number of annotations cannot be negative");
+        this.numAnnotations = numAnnotations;
+        this.source = null;
+        this.rows = null;
+        this.numData = 0;
+        this.values = new double[Math.multiplyExact(INITIAL_CAPACITY, numAnnotations)];
+        this.isNull = new BitSet();
+    }
+
+    private VariantAnnotationMatrix( final VariantAnnotationMatrix source, final int[] rows ) {
+        this.numAnnotations = source.numAnnotations;
+        this.source = source;
+        this.rows = rows;
+        this.numData = rows.length;
+        this.values = null;
+        this.isNull = null;
+    }
+
+    /**
+     * Add a row at the end of this matrix.
+     *
+     * @param annotations the annotations of the new datum
+     * @param isNull whether each of these annotations is missing
+     * @return the index of the new row
+     */
+    public int addRow( final double[] annotations, final boolean[] isNull ) {
+        validateIsStorage();
+        Utils.validateArg(annotations.length == numAnnotations && isNull.length == numAnnotations,
+                () -> "expected " + numAnnotations + " annotations but found " + annotations.length);
+        final int offset = getOffset(numData);
+        if( offset + numAnnotations > values.length ) {
+            // grow by half, as ArrayList does
+            values = Arrays.copyOf(values, Math.max(offset + numAnnotations, Math.addExact(values.length, values.length >> 1)));
+        }
+        System.arraycopy(annotations, 0, values, offset, numAnnotations);
+        for( int iii = 0; iii < numAnnotations; iii++ ) {
+            this.isNull.set(offset + iii, isNull[iii]);
+        }
+        return numData++;
+    }
+
+    /**
+     * @param rows indices of rows of this matrix
+     * @return a matrix whose row {@code i} is row {@code rows[i]} of this matrix, which shares (rather than copies) the
+     *         annotations of this matrix
+     */
+    public VariantAnnotationMatrix getRows( final int[] rows ) {
+        Utils.nonNull(rows);
+        final int[] sourceRows = new int[rows.length];
+        for( int i = 0; i < rows.length; i++ ) {
+            Utils.validIndex(rows[i], numData);
+            sourceRows[i] = getSourceRow(rows[i]);
+        }
+        return new VariantAnnotationMatrix(source == null ? this : source, sourceRows);
+    }
+
+    public int getNumData() {
+        return numData;
+    }
+
+    public int getNumAnnotations() {
+        return numAnnotations;
+    }
+
+    /**
+     * @return the value of the given annotation of the given datum
+     */
+    public double get( final int datumIndex, final int annotationIndex ) {
+        return getValues()[getOffset(datumIndex) + annotationIndex];
+    }
+
+    public void set( final int datumIndex, final int annotationIndex, final double value ) {
+        getValues()[getOffset(datumIndex) + annotationIndex] = value;
+    }
+
+    /**
+     * @return whether the given annotation of the given datum is missing
+     */
+    public boolean isNull( final int datumIndex, final int annotationIndex ) {
+        return getIsNull().get(getOffset(datumIndex) + annotationIndex);
+    }
+
+    /**
+     * @return whether any annotation of the given datum is missing
+     */
+    public boolean hasMissingAnnotations( final int datumIndex ) {
+        final int offset = getOffset(datumIndex);
+        final int firstNull = getIsNull().nextSetBit(offset);
+        return firstNull >= 0 && firstNull < offset + numAnnotations;
+    }
+
+    /**
+     * @return the index in {@link #getValues()} of the first annotation of the given datum
+     */
+    public int getOffset( final int datumIndex ) {
+        return getSourceRow(datumIndex) * numAnnotations;
+    }
+
+    /**
+     * @return the backing array of this matrix (not a copy), in which the annotations of datum {@code i} are at indices
+     *         {@code getOffset(i)} to {@code getOffset(i) + getNumAnnotations() - 1}
+     */
+    double[] getValues() {
+        return source == null ? values : source.values;
+    }
+
+    /**
+     * Reorder the annotations of every row.
+     *
+     * @param order the index of the annotation to put at each index
+     */
+    public void reorderAnnotations( final List<Integer> order ) {
+        validateIsStorage();
+        Utils.validateArg(order.size() == numAnnotations, "the order must have one index per annotation");
+        final double[] valuesTmp = new double[numAnnotations];
+        final boolean[] isNullTmp = new boolean[numAnnotations];
+        for( int datumIndex = 0; datumIndex < numData; datumIndex++ ) {
+            final int offset = getOffset(datumIndex);
+            for( int iii = 0; iii < numAnnotations; iii++ ) {
+                valuesTmp[iii] = values[offset + order.get(iii)];
+                isNullTmp[iii] = isNull.get(offset + order.get(iii));
+            }
+            System.arraycopy(valuesTmp, 0, values, offset, numAnnotations);
+            for( int iii = 0; iii < numAnnotations; iii++ ) {
+                isNull.set(offset + iii, isNullTmp[iii]);
+            }
+        }
+    }
+
+    /**
+     * Overwrite a row with another one.
+     */
+    public void copyRow( final int fromDatumIndex, final int toDatumIndex ) {
+        validateIsStorage();
+        Utils.validIndex(fromDatumIndex, numData);
+        Utils.validIndex(toDatumIndex, numData);
+        final int fromOffset = getOffset(fromDatumIndex);
+        final int toOffset = getOffset(toDatumIndex);
+        System.arraycopy(values, fromOffset, values, toOffset, numAnnotations);
+        for( int iii = 0; iii < numAnnotations; iii++ ) {
+            isNull.set(toOffset + iii, isNull.get(fromOffset + iii));
+        }
+    }
+
+    /**
+     * Remove the rows after the given number of rows, and release the memory they used.
+     */
+    public void truncate( final int newNumData ) {
+        validateIsStorage();
+        Utils.validateArg(newNumData >= 0 && newNumData <= numData, "cannot truncate to a larger number of rows");
+        values = Arrays.copyOf(values, getOffset(newNumData));
+        isNull.clear(getOffset(newNumData), getOffset(numData));
+        numData = newNumData;
+    }
+
+    private int getSourceRow( final int datumIndex ) {
+        return rows == null ? datumIndex : rows[datumIndex];
+    }
+
+    private BitSet getIsNull() {
+        return source == null ? isNull : source.isNull;
+    }
+
+    private void validateIsStorage() {
+        Utils.validate(source == null, "a view of the rows of a matrix cannot be modified this way");
+    }
+}
@@ -6,7 +6,6 @@ import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -19,10 +18,17 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 
 public class VariantDataManager {
     private List<VariantDatum> data = Collections.emptyList();
+    // the annotations of the data, by VariantDatum.index
+    private final VariantAnnotationMatrix annotations;
+    // the training status of the data, by VariantDatum.index
+    private final BitSet atTrainingSite = new BitSet();
+    private final BitSet atAntiTrainingSite = new BitSet();
+    private final BitSet failingSTDThreshold = new BitSet();
     private double[] meanVector;
     private double[] varianceVector; // this is really the standard deviation
     public List<String> annotationKeys;
@@ -36,11 +42,16 @@ public class VariantDataManager {
         this.data = Collections.emptyList();
         this.annotationKeys = new ArrayList<>( annotationKeys );
         this.VRAC = VRAC;
+        annotations = new VariantAnnotationMatrix(this.annotationKeys.size());
         meanVector = new double[this.annotationKeys.size()];
         varianceVector = new double[this.annotationKeys.size()];
         trainingSets = new ArrayList<>();
     }
 
+    /**
+     * @param data data whose annotations were added to this manager (see {@link #addAnnotations}), in the order in
+     *             which they were added
+     */
     public void setData( final List<VariantDatum> data ) {
         this.data = data;
     }
@@ -56,6 +67,25 @@ public class VariantDataManager {
         return data;
     }
 
+    /**
+     * @return the annotations of the data, in which the annotations of a datum are in row {@link VariantDatum#index}
+     */
+    VariantAnnotationMatrix getAnnotations() {
+        return annotations;
+    }
+
+    public boolean isAtTrainingSite( final VariantDatum datum ) {
+        return atTrainingSite.get(datum.index);
+    }
+
+    void setAtTrainingSite( final VariantDatum datum, final boolean isAtTrainingSite ) {
+        atTrainingSite.set(datum.index, isAtTrainingSite);
+    }
+
+    public boolean isAtAntiTrainingSite( final VariantDatum datum ) {
+        return atAntiTrainingSite.get(datum.index);
+    }
+
     public void normalizeData(final boolean calculateMeans) {
         boolean foundZeroVarianceAnnotation = false;
         for( int iii = 0; iii < meanVector.length; iii++ ) {
@@ -78,7 +108,7 @@ public class VariantDataManager {
             logger.info(annotationKeys.get(iii) + String.format(": \t mean = %.2f\t standard deviation = %.2f", theMean, theSTD));
             for( final VariantDatum datum : data ) {
                 // Transform each data point via: (x - mean) / standard deviation
-                datum.annotations[iii] = ( datum.isNull[iii] ? 0.1 * Utils.getRandomGenerator().nextGaussian() : ( datum.annotations[iii] - theMean ) / theSTD );
+                annotations.set(datum.index, iii, annotations.isNull(datum.index, iii) ? 0.1 * Utils.getRandomGenerator().nextGaussian() : ( annotations.get(datum.index, iii) - theMean ) / theSTD );
             }
         }
         if( foundZeroVarianceAnnotation ) {
@@ -88,22 +118,19 @@ public class VariantDataManager {
         // trim data by standard deviation threshold and mark failing data for exclusion later
         for( final VariantDatum datum : data ) {
             boolean remove = false;
-            for( final double val : datum.annotations ) {
-                remove = remove || (Math.abs(val) > VRAC.STD_THRESHOLD);
+            for( int iii = 0; iii < annotations.getNumAnnotations(); iii++ ) {
+                remove = remove || (Math.abs(annotations.get(datum.index, iii)) > VRAC.STD_THRESHOLD);
             }
-            datum.failingSTDThreshold = remove;
+            failingSTDThreshold.set(datum.index, remove);
         }
 
         // re-order the data by increasing standard deviation so that the results don't depend on the order things were specified on the command line
         // standard deviation over the training points is used as a simple proxy for information content, perhaps there is a better thing to use here
         final List<Integer> theOrder = calculateSortOrder(meanVector);
         annotationKeys = reorderList(annotationKeys, theOrder);
-        varianceVector = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(varianceVector), theOrder));
-        meanVector = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(meanVector), theOrder));
-        for( final VariantDatum datum : data ) {
-            datum.annotations = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.annotations), theOrder));
-            datum.isNull = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.isNull), theOrder));
-        }
+        varianceVector = reorderArray(varianceVector, theOrder);
+        meanVector = reorderArray(meanVector, theOrder);
+        annotations.reorderAnnotations(theOrder);
         logger.info("Annotations are now ordered by their information content: " + annotationKeys.toString());
     }
 
@@ -153,8 +180,12 @@ public class VariantDataManager {
     /**
      * Convenience connector method to work with arrays instead of lists. See ##reorderList##
      */
-    private <T> T[] reorderArray(final T[] data, final List<Integer> order) {
-        return reorderList(Arrays.asList(data), order).toArray(data);
+    private static double[] reorderArray(final double[] data, final List<Integer> order) {
+        final double[] reordered = new double[data.length];
+        for( int iii = 0; iii < data.length; iii++ ) {
+            reordered[iii] = data[order.get(iii)];
+        }
+        return reordered;
     }
 
     /**
@@ -209,72 +240,121 @@ public class VariantDataManager {
         return false;
     }
 
-    public List<VariantDatum> getTrainingData() {
-        final List<VariantDatum> trainingData = new ExpandingArrayList<>();
-        for( final VariantDatum datum : data ) {
-            if( datum.atTrainingSite && !datum.failingSTDThreshold ) {
-                trainingData.add( datum );
-            }
-        }
-        logger.info( "Training with " + trainingData.size() + " variants after standard deviation thresholding." );
-        if( trainingData.size() < VRAC.MIN_NUM_BAD_VARIANTS ) {
+    /**
+     * @return the indices of the training data, from which the positive model is built
+     */
+    public int[] getTrainingData() {
+        int[] trainingData = selectData(datum -> atTrainingSite.get(datum.index) && !failingSTDThreshold.get(datum.index));
+        logger.info( "Training with " + trainingData.length + " variants after standard deviation thresholding." );
+        if( trainingData.length < VRAC.MIN_NUM_BAD_VARIANTS ) {
             logger.warn( "WARNING: Training with very few variant sites! Please check the model reporting PDF to ensure the quality of the model is reliable." );
-        } else if( trainingData.size() > VRAC.MAX_NUM_TRAINING_DATA ) {
+        } else if( trainingData.length > VRAC.MAX_NUM_TRAINING_DATA ) {
             logger.warn( "WARNING: Very large training set detected. Downsampling to " + VRAC.MAX_NUM_TRAINING_DATA + " training variants." );
-            Collections.shuffle(trainingData, Utils.getRandomGenerator());
-            return trainingData.subList(0, VRAC.MAX_NUM_TRAINING_DATA);
+            shuffle(trainingData);
+            trainingData = Arrays.copyOf(trainingData, VRAC.MAX_NUM_TRAINING_DATA);
         }
         return trainingData;
     }
 
-    public List<VariantDatum> selectWorstVariants() {
-        final List<VariantDatum> trainingData = new ExpandingArrayList<>();
-
-        for( final VariantDatum datum : data ) {
-            if( datum != null && !datum.failingSTDThreshold && !Double.isInfinite(datum.lod) && datum.lod < VRAC.BAD_LOD_CUTOFF ) {
-                datum.atAntiTrainingSite = true;
-                trainingData.add( datum );
-            }
+    /**
+     * Mark the worst variants as being at anti-training sites.
+     *
+     * @return the indices of the worst variants, from which the negative model is built
+     */
+    public int[] selectWorstVariants() {
+        final int[] trainingData = selectData(datum -> !failingSTDThreshold.get(datum.index) && !Double.isInfinite(datum.lod) && datum.lod < VRAC.BAD_LOD_CUTOFF);
+        for( final int datumIndex : trainingData ) {
+            atAntiTrainingSite.set(datumIndex);
         }
 
-        logger.info( "Selected worst " + trainingData.size() + " scoring variants --> variants with LOD <= " + String.format("%.4f", VRAC.BAD_LOD_CUTOFF) + "." );
+        logger.info( "Selected worst " + trainingData.length + " scoring variants --> variants with LOD <= " + String.format("%.4f", VRAC.BAD_LOD_CUTOFF) + "." );
 
         return trainingData;
     }
 
-    public List<VariantDatum> getEvaluationData() {
-        final List<VariantDatum> evaluationData = new ExpandingArrayList<>();
+    /**
+     * @return the indices of the data used in neither model
+     */
+    public int[] getEvaluationData() {
+        return selectData(datum -> !failingSTDThreshold.get(datum.index) && !atTrainingSite.get(datum.index) && !atAntiTrainingSite.get(datum.index));
+    }
+
+    /**
+     * @return the indices of the data which pass the given test, in data order
+     */
+    private int[] selectData( final Predicate<VariantDatum> test ) {
+        return data.stream().filter(datum -> datum != null && test.test(datum)).mapToInt(datum -> datum.index).toArray();
+    }
 
-        for( final VariantDatum datum : data ) {
-            if( datum != null && !datum.failingSTDThreshold && !datum.atTrainingSite && !datum.atAntiTrainingSite ) {
-                evaluationData.add( datum );
-            }
+    /**
+     * Shuffle the given indices in place, drawing the same random numbers as {@link Collections#shuffle(List, Random)}
+     * does for a list of the same size.
+     */
+    private static void shuffle( final int[] indices ) {
+        final Random random = Utils.getRandomGenerator();
+        for( int i = indices.length; i > 1; i-- ) {
+            final int j = random.nextInt(i);
+            final int tmp = indices[i - 1];
+            indices[i - 1] = indices[j];
+            indices[j] = tmp;
         }
-
-        return evaluationData;
     }
 
     /**
-     * Remove all VariantDatum's from the data list which are marked as aggregate data
+     * Remove all VariantDatum's from the data list which are marked as aggregate data, along with their annotations and
+     * training status, renumbering the remaining data. The data must still be in the order in which their annotations
+     * were added.
+     *
+     * @param subsets indices of subsets of the data taken before the aggregate data are dropped, such as the training
+     *                data (see {@link #getTrainingData()}), whose indices would refer to the wrong data afterwards
+     * @return the indices of the retained data of each subset, renumbered as the data are, in the order of {@code subsets}
      */
-    public void dropAggregateData() {
-        final Iterator<VariantDatum> iter = data.iterator();
-        while (iter.hasNext()) {
-            final VariantDatum datum = iter.next();
-            if( datum.isAggregate ) {
-                iter.remove();
+    public int[][] dropAggregateData( final int[]... subsets ) {
+        // the new index of each datum, or -1 if it is dropped
+        final int[] newIndices = new int[annotations.getNumData()];
+        Arrays.fill(newIndices, -1);
+        int numRetained = 0;
+        int previousIndex = -1;
+        for( final VariantDatum datum : data ) {
+            Utils.validate(datum.index > previousIndex, "the data are not in the order of their annotations");
+            previousIndex = datum.index;
+            if( !datum.isAggregate ) {
+                annotations.copyRow(datum.index, numRetained);
+                atTrainingSite.set(numRetained, atTrainingSite.get(datum.index));
+                atAntiTrainingSite.set(numRetained, atAntiTrainingSite.get(datum.index));
+                failingSTDThreshold.set(numRetained, failingSTDThreshold.get(datum.index));
+                newIndices[datum.index] = numRetained;
+                datum.index = numRetained;
+                data.set(numRetained++, datum);
             }
         }
+        data.subList(numRetained, data.size()).clear();
+        annotations.truncate(numRetained);
+        atTrainingSite.clear(numRetained, Math.max(numRetained, atTrainingSite.length()));
+        atAntiTrainingSite.clear(numRetained, Math.max(numRetained, atAntiTrainingSite.length()));
+        failingSTDThreshold.clear(numRetained, Math.max(numRetained, failingSTDThreshold.length()));
+
+        final int[][] retainedSubsets = new int[subsets.length][];
+        for( int i = 0; i < subsets.length; i++ ) {
+            retainedSubsets[i] = Arrays.stream(subsets[i]).map(index -> newIndices[index]).filter(index -> index >= 0).toArray();
+        }
+        return retainedSubsets;
     }
 
-    public List<VariantDatum> getRandomDataForPlotting( final int numToAdd, final List<VariantDatum> trainingData, final List<VariantDatum> antiTrainingData, final List<VariantDatum> evaluationData ) {
+    public List<VariantDatum> getRandomDataForPlotting( final int numToAdd, final int[] trainingData, final int[] antiTrainingData, final int[] evaluationData ) {
+        final VariantDatum[] dataByIndex = new VariantDatum[annotations.getNumData()];
+        for( final VariantDatum datum : data ) {
+            dataByIndex[datum.index] = datum;
+        }
         final List<VariantDatum> returnData = new ExpandingArrayList<>();
-        Collections.shuffle(trainingData, Utils.getRandomGenerator());
-        Collections.shuffle(antiTrainingData, Utils.getRandomGenerator());
-        Collections.shuffle(evaluationData, Utils.getRandomGenerator());
-        returnData.addAll(trainingData.subList(0, Math.min(numToAdd, trainingData.size())));
-        returnData.addAll(antiTrainingData.subList(0, Math.min(numToAdd, antiTrainingData.size())));
-        returnData.addAll(evaluationData.subList(0, Math.min(numToAdd, evaluationData.size())));
+        for( final int[] indices : Arrays.asList(trainingData, antiTrainingData, evaluationData) ) {
+            shuffle(indices);
+        }
+        for( final int[] indices : Arrays.asList(trainingData, antiTrainingData, evaluationData) ) {
+            for( int i = 0; i < Math.min(numToAdd, indices.length); i++ ) {
+                returnData.add(dataByIndex[indices[i]]);
+            }
+        }
         Collections.shuffle(returnData, Utils.getRandomGenerator());
         return returnData;
     }
@@ -283,8 +363,8 @@ public class VariantDataManager {
         double sum = 0.0;
         int numNonNull = 0;
         for( final VariantDatum datum : data ) {
-            if( (trainingData == datum.atTrainingSite) && !datum.isNull[index] ) {
-                sum += datum.annotations[index];
+            if( (trainingData == atTrainingSite.get(datum.index)) && !annotations.isNull(datum.index, index) ) {
+                sum += annotations.get(datum.index, index);
                 numNonNull++;
             }
         }
@@ -295,23 +375,36 @@ public class VariantDataManager {
         double sum = 0.0;
         int numNonNull = 0;
         for( final VariantDatum datum : data ) {
-            if( (trainingData == datum.atTrainingSite) && !datum.isNull[index] ) { sum += ((datum.annotations[index] - mean)*(datum.annotations[index] - mean)); numNonNull++; }
+            if( (trainingData == atTrainingSite.get(datum.index)) && !annotations.isNull(datum.index, index) ) {
+                final double value = annotations.get(datum.index, index);
+                sum += ((value - mean)*(value - mean));
+                numNonNull++;
+            }
         }
         return Math.sqrt( sum / ((double) numNonNull) );
     }
 
     public void decodeAnnotations( final VariantDatum datum, final VariantContext vc, final boolean jitter ) {
         final double[] annotations = new double[annotationKeys.size()];
-        final boolean[] isNull = new boolean[annotationKeys.size()];
         int iii = 0;
         for( final String key : annotationKeys ) {
-            isNull[iii] = false;
             annotations[iii] = decodeAnnotation( key, vc, jitter, VRAC, datum );
-            if( Double.isNaN(annotations[iii]) ) { isNull[iii] = true; }
             iii++;
         }
-        datum.annotations = annotations;
-        datum.isNull = isNull;
+        addAnnotations( datum, annotations );
+    }
+
+    /**
+     * Add the annotations of a new datum to this manager, and set the index of the datum to their row.
+     *
+     * @param annotations the annotations of the datum, in the order of {@link #getAnnotationKeys()}, with NaN for missing ones
+     */
+    void addAnnotations( final VariantDatum datum, final double[] annotations ) {
+        final boolean[] isNull = new boolean[annotations.length];
+        for( int iii = 0; iii < annotations.length; iii++ ) {
+            isNull[iii] = Double.isNaN(annotations[iii]);
+        }
+        datum.index = this.annotations.addRow( annotations, isNull );
     }
     /** Transforms an interval [xmin, xmax] to (-inf, +inf) **/
     private static double logitTransform( final double x, final double xmin, final double xmax) {
@@ -367,8 +460,8 @@ public class VariantDataManager {
             final boolean TRUST_ALL_POLYMORPHIC ) {
         datum.isKnown = false;
         datum.atTruthSite = false;
-        datum.atTrainingSite = false;
-        datum.atAntiTrainingSite = false;
+        boolean isAtTrainingSite = false;
+        boolean isAtAntiTrainingSite = false;
         datum.prior = 2.0;
 
         for( final TrainingSet trainingSet : trainingSets ) {
@@ -379,14 +472,16 @@ public class VariantDataManager {
                 if( isValidVariant( evalVC, trainVC, TRUST_ALL_POLYMORPHIC ) ) {
                     datum.isKnown = datum.isKnown || trainingSet.isKnown;
                     datum.atTruthSite = datum.atTruthSite || trainingSet.isTruth;
-                    datum.atTrainingSite = datum.atTrainingSite || trainingSet.isTraining;
+                    isAtTrainingSite = isAtTrainingSite || trainingSet.isTraining;
                     datum.prior = Math.max( datum.prior, trainingSet.prior );
                 }
                 if( trainVC != null ) {
-                    datum.atAntiTrainingSite = datum.atAntiTrainingSite || trainingSet.isAntiTraining;
+                    isAtAntiTrainingSite = isAtAntiTrainingSite || trainingSet.isAntiTraining;
                 }
             }
         }
+        atTrainingSite.set(datum.index, isAtTrainingSite);
+        atAntiTrainingSite.set(datum.index, isAtAntiTrainingSite);
     }
 
     private boolean isValidVariant( final VariantContext evalVC, final VariantContext trainVC, final boolean TRUST_ALL_POLYMORPHIC) {
@@ -455,8 +550,8 @@ public class VariantDataManager {
             builder.attribute(GATKVCFConstants.VQS_LOD_KEY, String.format("%.4f", datum.lod));
             builder.attribute(GATKVCFConstants.CULPRIT_KEY, (datum.worstAnnotation != -1 ? annotationKeys.get(datum.worstAnnotation) : "NULL"));
 
-            if ( datum.atTrainingSite ) builder.attribute(GATKVCFConstants.POSITIVE_LABEL_KEY, true);
-            if ( datum.atAntiTrainingSite ) builder.attribute(GATKVCFConstants.NEGATIVE_LABEL_KEY, true);
+            if ( atTrainingSite.get(datum.index) ) builder.attribute(GATKVCFConstants.POSITIVE_LABEL_KEY, true);
+            if ( atAntiTrainingSite.get(datum.index) ) builder.attribute(GATKVCFConstants.NEGATIVE_LABEL_KEY, true);
 
             recalWriter.add(builder.make());
         }
@@ -14,22 +14,19 @@ import java.util.List;
  */
 final class VariantDatum {
 
-    public double[] annotations;
-    public boolean[] isNull;
+    // the row of the annotations of this datum in the VariantAnnotationMatrix of its VariantDataManager, which is
+    // also the index of its training flags there
+    public int index;
     public boolean isKnown;
     public double lod;
     public boolean atTruthSite;
-    public boolean atTrainingSite;
-    public boolean atAntiTrainingSite;
     public boolean isTransition;
     public boolean isSNP;
-    public boolean failingSTDThreshold;
     public double originalQual;
     public double prior;
     public SimpleInterval loc;
     public int worstAnnotation;
     public double worstValue;
-    public MultivariateGaussian assignment; // used in K-means implementation
     public boolean isAggregate; // this datum was provided to aid in modeling but isn't part of the input callset
     public Allele referenceAllele;
     public Allele alternateAllele;
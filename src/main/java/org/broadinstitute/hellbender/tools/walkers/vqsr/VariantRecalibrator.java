@@ -611,22 +611,22 @@ public class VariantRecalibrator extends MultiVariantWalker {
                 final GaussianMixtureModel goodModel;
                 final GaussianMixtureModel badModel;
 
-                final List<VariantDatum> positiveTrainingData = dataManager.getTrainingData();
-                final List<VariantDatum> negativeTrainingData;
+                final int[] positiveTrainingData = dataManager.getTrainingData();
+                final int[] negativeTrainingData;
 
                 if (inputModel != null) {  // GMMs were loaded from a file
                     logger.info("Using serialized GMMs from file...");
-                    goodModel = GMMFromTables(pmmTable, pmcTable, pPMixTable, numAnnotations, positiveTrainingData.size());
-                    engine.evaluateData(dataManager.getData(), goodModel, false);
+                    goodModel = GMMFromTables(pmmTable, pmcTable, pPMixTable, numAnnotations, positiveTrainingData.length);
+                    engine.evaluateData(dataManager.getData(), dataManager.getAnnotations(), goodModel, false);
                     negativeTrainingData = dataManager.selectWorstVariants();
-                    badModel = GMMFromTables(nmmTable, nmcTable, nPMixTable, numAnnotations, negativeTrainingData.size());
+                    badModel = GMMFromTables(nmmTable, nmcTable, nPMixTable, numAnnotations, negativeTrainingData.length);
                 } else { // Generate the GMMs from scratch
                     // Generate the positive model using the training data and evaluate each variant
-                    goodModel = engine.generateModel(positiveTrainingData, VRAC.MAX_GAUSSIANS);
-                    engine.evaluateData(dataManager.getData(), goodModel, false);
+                    goodModel = engine.generateModel(dataManager.getAnnotations().getRows(positiveTrainingData), VRAC.MAX_GAUSSIANS);
+                    engine.evaluateData(dataManager.getData(), dataManager.getAnnotations(), goodModel, false);
                     // Generate the negative model using the worst performing data and evaluate each variant contrastively
                     negativeTrainingData = dataManager.selectWorstVariants();
-                    badModel = engine.generateModel(negativeTrainingData,
+                    badModel = engine.generateModel(dataManager.getAnnotations().getRows(negativeTrainingData),
                             Math.min(VRAC.MAX_GAUSSIANS_FOR_NEGATIVE_MODEL, VRAC.MAX_GAUSSIANS));
 
                     if (badModel.failedToConverge || goodModel.failedToConverge) {
@@ -635,8 +635,9 @@ public class VariantRecalibrator extends MultiVariantWalker {
                     }
                 }
 
-                dataManager.dropAggregateData(); // Don't need the aggregate data anymore so let's free up the memory
-                engine.evaluateData(dataManager.getData(), badModel, true);
+                // Don't need the aggregate data anymore so let's free up the memory (which renumbers the training data)
+                final int[][] retainedTrainingData = dataManager.dropAggregateData(positiveTrainingData, negativeTrainingData);
+                engine.evaluateData(dataManager.getData(), dataManager.getAnnotations(), badModel, true);
 
                 if (outputModel != null) {
                     final GATKReport report = writeModelReport(goodModel, badModel, USE_ANNOTATIONS);
@@ -647,7 +648,7 @@ public class VariantRecalibrator extends MultiVariantWalker {
                     }
                 }
 
-                engine.calculateWorstPerformingAnnotation(dataManager.getData(), goodModel, badModel);
+                engine.calculateWorstPerformingAnnotation(dataManager.getData(), dataManager.getAnnotations(), goodModel, badModel);
 
 
                 // Find the VQSLOD cutoff values which correspond to the various tranches of calls requested by the user
@@ -670,8 +671,8 @@ public class VariantRecalibrator extends MultiVariantWalker {
                     logger.info("Writing out visualization Rscript file...");
                     createVisualizationScript(dataManager.getRandomDataForPlotting(
                             1000,
-                            positiveTrainingData,
-                            negativeTrainingData,
+                            retainedTrainingData[0],
+                            retainedTrainingData[1],
                             dataManager.getEvaluationData()),
                             goodModel,
                             badModel,
@@ -719,6 +720,7 @@ public class VariantRecalibrator extends MultiVariantWalker {
 
     @Override
     public void closeTool(){
+        engine.close();
         if (recalWriter != null) {
             recalWriter.close();
         }
@@ -977,6 +979,7 @@ private GATKReportTable makeVectorTable(final String tableName,
             final GaussianMixtureModel badModel,
             final double lodCutoff,
             final String[] annotationKeys ) {
+        final VariantAnnotationMatrix annotations = dataManager.getAnnotations();
         final PrintStream stream;
         try {
             stream = new PrintStream(RSCRIPT_FILE);
@@ -1001,12 +1004,13 @@ private GATKReportTable makeVectorTable(final String tableName,
                 logger.info( "Building " + annotationKeys[iii] + " x " + annotationKeys[jjj] + " plot...");
 
                 final List<VariantDatum> fakeData = new ExpandingArrayList<>();
+                final VariantAnnotationMatrix fakeAnnotations = new VariantAnnotationMatrix(annotationKeys.length);
                 double minAnn1 = 100.0, maxAnn1 = -100.0, minAnn2 = 100.0, maxAnn2 = -100.0;
                 for( final VariantDatum datum : randomData ) {
-                    minAnn1 = Math.min(minAnn1, datum.annotations[iii]);
-                    maxAnn1 = Math.max(maxAnn1, datum.annotations[iii]);
-                    minAnn2 = Math.min(minAnn2, datum.annotations[jjj]);
-                    maxAnn2 = Math.max(maxAnn2, datum.annotations[jjj]);
+                    minAnn1 = Math.min(minAnn1, annotations.get(datum.index, iii));
+                    maxAnn1 = Math.max(maxAnn1, annotations.get(datum.index, iii));
+                    minAnn2 = Math.min(minAnn2, annotations.get(datum.index, jjj));
+                    maxAnn2 = Math.max(maxAnn2, annotations.get(datum.index, jjj));
                 }
                 // Create a fake set of data which spans the full extent of these two annotation dimensions in order
                 // to calculate the model PDF projected to 2D
@@ -1015,28 +1019,26 @@ private GATKReportTable makeVectorTable(final String tableName,
                     for(double ann2 = minAnn2; ann2 <= maxAnn2; ann2+= (maxAnn2 - minAnn2) / NUM_STEPS) {
                         final VariantDatum datum = new VariantDatum();
                         datum.prior = 0.0;
-                        datum.annotations = new double[randomData.get(0).annotations.length];
-                        datum.isNull = new boolean[randomData.get(0).annotations.length];
-                        for(int ann=0; ann< datum.annotations.length; ann++) {
-                            datum.annotations[ann] = 0.0;
-                            datum.isNull[ann] = true;
-                        }
-                        datum.annotations[iii] = ann1;
-                        datum.annotations[jjj] = ann2;
-                        datum.isNull[iii] = false;
-                        datum.isNull[jjj] = false;
+                        final double[] fakeValues = new double[annotationKeys.length];
+                        final boolean[] fakeIsNull = new boolean[annotationKeys.length];
+                        Arrays.fill(fakeIsNull, true);
+                        fakeValues[iii] = ann1;
+                        fakeValues[jjj] = ann2;
+                        fakeIsNull[iii] = false;
+                        fakeIsNull[jjj] = false;
+                        datum.index = fakeAnnotations.addRow(fakeValues, fakeIsNull);
                         fakeData.add(datum);
                     }
                 }
 
-                engine.evaluateData( fakeData, goodModel, false );
-                engine.evaluateData( fakeData, badModel, true );
+                engine.evaluateData( fakeData, fakeAnnotations, goodModel, false );
+                engine.evaluateData( fakeData, fakeAnnotations, badModel, true );
 
                 stream.print("surface <- c(");
                 for( final VariantDatum datum : fakeData ) {
                     stream.print(String.format("%.4f, %.4f, %.4f, ",
-                            dataManager.denormalizeDatum(datum.annotations[iii], iii),
-                            dataManager.denormalizeDatum(datum.annotations[jjj], jjj),
+                            dataManager.denormalizeDatum(fakeAnnotations.get(datum.index, iii), iii),
+                            dataManager.denormalizeDatum(fakeAnnotations.get(datum.index, jjj), jjj),
                             Math.min(4.0, Math.max(-4.0, datum.lod))));
                 }
                 stream.println("NA,NA,NA)");
@@ -1045,10 +1047,10 @@ private GATKReportTable makeVectorTable(final String tableName,
                 stream.print("data <- c(");
                 for( final VariantDatum datum : randomData ) {
                     stream.print(String.format("%.4f, %.4f, %.4f, %d, %d,",
-                            dataManager.denormalizeDatum(datum.annotations[iii], iii),
-                            dataManager.denormalizeDatum(datum.annotations[jjj], jjj),
+                            dataManager.denormalizeDatum(annotations.get(datum.index, iii), iii),
+                            dataManager.denormalizeDatum(annotations.get(datum.index, jjj), jjj),
                             (datum.lod < lodCutoff ? -1.0 : 1.0),
-                            (datum.atAntiTrainingSite ? -1 : (datum.atTrainingSite ? 1 : 0)), (datum.isKnown ? 1 : -1)));
+                            (dataManager.isAtAntiTrainingSite(datum) ? -1 : (dataManager.isAtTrainingSite(datum) ? 1 : 0)), (datum.isKnown ? 1 : -1)));
                 }
                 stream.println("NA,NA,NA,NA,1)");
                 stream.println("d <- matrix(data,ncol=5,byrow=T)");
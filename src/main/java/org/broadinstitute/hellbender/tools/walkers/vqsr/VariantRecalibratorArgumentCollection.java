@@ -107,6 +107,15 @@ final class VariantRecalibratorArgumentCollection {
     @Argument(fullName = "bad-lod-score-cutoff", shortName = "bad-lod-cutoff", doc = "LOD score cutoff for selecting bad variants", optional = true)
     public double BAD_LOD_CUTOFF = -5.0;
 
+    /**
+     * Number of threads on which to train the Gaussian mixture models and to evaluate the variants. The data are
+     * split into fixed-size blocks whose sums are added up in order, so models trained with any number of threads
+     * greater than one are identical for the same random seed. They may differ slightly from single-threaded models,
+     * whose sums are accumulated one variant at a time.
+     */
+    @Argument(fullName = "threads", doc = "Number of threads on which to train the models and evaluate the variants", optional = true, minValue = 1)
+    public int THREADS = 1;
+
     /**
      * MQ is capped at a "max" value (60 for bwa-mem) when the alignment is considered perfect. Typically, a huge
      * proportion of the reads in a dataset are perfectly mapped, which yields a distribution of MQ values with a
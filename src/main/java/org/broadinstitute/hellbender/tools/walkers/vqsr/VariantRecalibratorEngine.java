@@ -6,8 +6,9 @@ import org.apache.logging.log4j.LogManager;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-public class VariantRecalibratorEngine {
+public class VariantRecalibratorEngine implements AutoCloseable {
 
     /////////////////////////////
     // Private Member Variables
@@ -21,6 +22,9 @@ public class VariantRecalibratorEngine {
 
     private final static double MIN_PROB_CONVERGENCE = 2E-3;
 
+    // pool on which models are trained and data evaluated, with VRAC.THREADS > 1 (created on first use)
+    private ForkJoinPool pool;
+
     /////////////////////////////
     // Public Methods to interface with the Engine
     /////////////////////////////
@@ -29,8 +33,12 @@ public class VariantRecalibratorEngine {
         this.VRAC = VRAC;
     }
 
-    public GaussianMixtureModel generateModel(final List<VariantDatum> data, final int maxGaussians ) {
-        if( data == null || data.isEmpty() ) {
+    /**
+     * @param data annotations of the training data, usually a view of the rows of the training data in the matrix of
+     *             all the annotations (see {@link VariantAnnotationMatrix#getRows(int[])})
+     */
+    public GaussianMixtureModel generateModel(final VariantAnnotationMatrix data, final int maxGaussians ) {
+        if( data == null || data.getNumData() == 0 ) {
             throw new IllegalArgumentException("No data found.");
         }
         if( maxGaussians <= 0 ) {
@@ -39,8 +47,8 @@ public class VariantRecalibratorEngine {
 
         final GaussianMixtureModel model = new GaussianMixtureModel(
                 maxGaussians,
-                data.size(),
-                data.get(0).annotations.length,
+                data.getNumData(),
+                data.getNumAnnotations(),
                 VRAC.SHRINKAGE,
                 VRAC.DIRICHLET_PARAMETER,
                 VRAC.PRIOR_COUNTS );
@@ -48,7 +56,15 @@ public class VariantRecalibratorEngine {
         return model;
     }
 
-    public void evaluateData( final List<VariantDatum> data, final GaussianMixtureModel model, final boolean evaluateContrastively ) {
+    /**
+     * With multiple threads, the data without missing annotations are evaluated concurrently. The others, and the
+     * contrastive lods of data with infinite positive lods, draw random numbers, so they are computed afterwards in data
+     * order, in order to draw the same random numbers as the single-threaded evaluation.  The resulting lods are
+     * exactly the same whatever the number of threads.
+     *
+     * @param annotations matrix in which the annotations of each datum are in row {@link VariantDatum#index}
+     */
+    public void evaluateData( final List<VariantDatum> data, final VariantAnnotationMatrix annotations, final GaussianMixtureModel model, final boolean evaluateContrastively ) {
         if( !model.isModelReadyForEvaluation ) {
             try {
                 model.precomputeDenominatorForEvaluation();
@@ -60,8 +76,11 @@ public class VariantRecalibratorEngine {
         }
 
         logger.info("Evaluating full set of " + data.size() + " variants...");
-        for( final VariantDatum datum : data ) {
-            final double thisLod = evaluateDatum( datum, model );
+        final double[] lodsWithoutMissingAnnotations = getPool() == null ? null : evaluateDataWithoutMissingAnnotations( data, annotations, model );
+        for( int datumIndex = 0; datumIndex < data.size(); datumIndex++ ) {
+            final VariantDatum datum = data.get(datumIndex);
+            final double thisLod = lodsWithoutMissingAnnotations == null || annotations.hasMissingAnnotations(datum.index) ?
+                    evaluateDatum( annotations, datum.index, model ) : lodsWithoutMissingAnnotations[datumIndex];
             if( Double.isNaN(thisLod) ) {
                 logger.warn("Evaluate datum returned a NaN.");
                 model.failedToConverge = true;
@@ -76,17 +95,42 @@ public class VariantRecalibratorEngine {
         }
     }
 
-    public void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
-        for( final VariantDatum datum : data ) {
+    public void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final VariantAnnotationMatrix annotations,
+                                                    final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
+        if( getPool() == null ) {
+            calculateWorstPerformingAnnotation(data, annotations, 0, data.size(), goodModel, badModel);
+        } else {
+            GaussianMixtureModel.mapDataBlocks(getPool(), data.size(), (start, end) -> {
+                calculateWorstPerformingAnnotation(data, annotations, start, end, goodModel, badModel);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Shut down the threads used to train the models and evaluate the data, if any.
+     */
+    @Override
+    public void close() {
+        if( pool != null ) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final VariantAnnotationMatrix annotations,
+                                                     final int start, final int end,
+                                                     final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
+        for( final VariantDatum datum : data.subList(start, end) ) {
             int worstAnnotation = -1;
             double minProb = Double.MAX_VALUE;
             double worstValue = -1;
-            for( int iii = 0; iii < datum.annotations.length; iii++ ) {
-                final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
-                final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
+            for( int iii = 0; iii < annotations.getNumAnnotations(); iii++ ) {
+                final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(annotations, datum.index, iii);
+                final Double badProbLog10 = badModel.evaluateDatumInOneDimension(annotations, datum.index, iii);
                 if( goodProbLog10 != null && badProbLog10 != null ) {
                     final double prob = goodProbLog10 - badProbLog10;
-                    if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
+                    if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = annotations.get(datum.index, iii);}
                 }
             }
             datum.worstAnnotation = worstAnnotation;
@@ -99,21 +143,22 @@ public class VariantRecalibratorEngine {
     // Private Methods used for generating a GaussianMixtureModel
     /////////////////////////////
 
-    private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final List<VariantDatum> data ) {
+    private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final VariantAnnotationMatrix data ) {
 
         model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS );
 
         // The VBEM loop
+        final ForkJoinPool pool = getPool();
         model.normalizePMixtureLog10();
-        model.expectationStep( data );
+        model.expectationStep( data, pool );
         double currentChangeInMixtureCoefficients;
         int iteration = 0;
         logger.info("Finished iteration " + iteration + ".");
         while( iteration < VRAC.MAX_ITERATIONS ) {
             iteration++;
-            model.maximizationStep( data );
+            model.maximizationStep( data, pool );
             currentChangeInMixtureCoefficients = model.normalizePMixtureLog10();
-            model.expectationStep( data );
+            model.expectationStep( data, pool );
             if( iteration % 5 == 0 ) { // cut down on the number of output lines so that users can read the warning messages
                 logger.info("Finished iteration " + iteration + ". \tCurrent change in mixture coefficients = " + String.format("%.5f", currentChangeInMixtureCoefficients));
             }
@@ -123,14 +168,45 @@ public class VariantRecalibratorEngine {
             }
         }
 
-        model.evaluateFinalModelParameters( data );
+        model.evaluateFinalModelParameters( data, pool );
+    }
+
+    /**
+     * @return the pool on which to train the models and evaluate the data, or {@code null} to do it on the calling thread
+     */
+    private ForkJoinPool getPool() {
+        if( pool == null && VRAC.THREADS > 1 ) {
+            logger.info("Training the models and evaluating the data on " + VRAC.THREADS + " threads");
+            pool = new ForkJoinPool(VRAC.THREADS);
+        }
+        return pool;
     }
 
     /////////////////////////////
     // Private Methods used for evaluating data given a GaussianMixtureModel
     /////////////////////////////
 
-    private double evaluateDatum( final VariantDatum datum, final GaussianMixtureModel model ) {
-        return model.evaluateDatum( datum );
+    private double evaluateDatum( final VariantAnnotationMatrix annotations, final int datumIndex, final GaussianMixtureModel model ) {
+        return model.evaluateDatum( annotations, datumIndex );
+    }
+
+    /**
+     * Evaluate the data without missing annotations on the pool (which involves no random numbers).
+     *
+     * @return the lod of each datum without missing annotations, by index in {@code data} (the others are left at 0)
+     */
+    private double[] evaluateDataWithoutMissingAnnotations( final List<VariantDatum> data, final VariantAnnotationMatrix annotations,
+                                                            final GaussianMixtureModel model ) {
+        final double[] lods = new double[data.size()];
+        GaussianMixtureModel.mapDataBlocks(getPool(), data.size(), (start, end) -> {
+            for( int datumIndex = start; datumIndex < end; datumIndex++ ) {
+                final VariantDatum datum = data.get(datumIndex);
+                if( !annotations.hasMissingAnnotations(datum.index) ) {
+                    lods[datumIndex] = evaluateDatum( annotations, datum.index, model );
+                }
+            }
+            return null;
+        });
+        return lods;
     }
 }
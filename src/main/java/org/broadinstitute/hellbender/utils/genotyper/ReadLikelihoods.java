@@ -47,6 +47,16 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
      */
     private final double[][][] valuesBySampleIndex;
 
+    /**
+     * Indexed per sample, with the allele indices whose likelihood array in {@link #valuesBySampleIndex} may be shared
+     * with another read-likelihoods collection.
+     *
+     * <p>{@link #marginalize} reuses the likelihood arrays of the old alleles that map alone to a new allele rather than
+     * copying them, so any in-place modification of an allele likelihood array must go through
+     * {@link #writableAlleleValues}, which copies shared arrays first.</p>
+     */
+    private final BitSet[] sharedValuesBySampleIndex;
+
     /**
      * Sample list
      */
@@ -123,6 +133,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         readsBySampleIndex = new GATKRead[sampleCount][];
         readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
         valuesBySampleIndex = new double[sampleCount][][];
+        sharedValuesBySampleIndex = newSharedValues(sampleCount);
         referenceAlleleIndex = findReferenceAllele(alleles);
 
         readIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -139,11 +150,13 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                             final SampleList samples,
                             final GATKRead[][] readsBySampleIndex,
                             final Object2IntMap<GATKRead>[] readIndex,
-                            final double[][][] values) {
+                            final double[][][] values,
+                            final BitSet[] sharedValues) {
         this.samples = samples;
         this.alleles = alleles;
         this.readsBySampleIndex = readsBySampleIndex;
         this.valuesBySampleIndex = values;
+        this.sharedValuesBySampleIndex = sharedValues;
         this.readIndexBySampleIndex = readIndex;
         final int sampleCount = samples.numberOfSamples();
         this.readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
@@ -152,6 +165,26 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         sampleMatrices = (LikelihoodMatrix<A>[]) new LikelihoodMatrix[sampleCount];
     }
 
+    private static BitSet[] newSharedValues(final int sampleCount) {
+        final BitSet[] result = new BitSet[sampleCount];
+        for (int s = 0; s < sampleCount; s++) {
+            result[s] = new BitSet();
+        }
+        return result;
+    }
+
+    // Returns the likelihood array of an allele in a sample to be modified in place, copying it first if it may be
+    // shared with another collection.
+    private double[] writableAlleleValues(final int sampleIndex, final int alleleIndex) {
+        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final BitSet sharedValues = sharedValuesBySampleIndex[sampleIndex];
+        if (sharedValues.get(alleleIndex)) {
+            sampleValues[alleleIndex] = sampleValues[alleleIndex].clone();
+            sharedValues.clear(alleleIndex);
+        }
+        return sampleValues[alleleIndex];
+    }
+
     // Add all the indices to alleles, sample and reads in the look-up maps.
     private void setupIndexes(final Map<String, List<GATKRead>> reads, final int sampleCount, final int alleleCount) {
         for (int i = 0; i < sampleCount; i++) {
@@ -202,7 +235,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 samples,
                 newReadsBySampleIndex,
                 newReadIndexBySampleIndex,
-                newLikelihoodValues);
+                newLikelihoodValues,
+                newSharedValues(sampleCount));
     }
 
 
@@ -346,6 +380,9 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
+            for (int a = 0; a < alleleCount; a++) {
+                writableAlleleValues(s, a);
+            }
             final double[][] sampleValues = valuesBySampleIndex[s];
             final int readCount = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
@@ -568,11 +605,12 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         // allele does not map to any new; supported but typically not the case.
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
-        // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
-
         final int sampleCount = samples.numberOfSamples();
 
+        // We calculate the marginal likelihoods.
+        final BitSet[] newSharedValues = newSharedValues(sampleCount);
+        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null, newSharedValues);
+
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
@@ -585,7 +623,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 new IndexedAlleleList(newAlleles),
                 samples,
                 newReadsBySampleIndex,
-                newReadIndexBySampleIndex, newLikelihoodValues);
+                newReadIndexBySampleIndex, newLikelihoodValues, newSharedValues);
     }
 
 
@@ -621,12 +659,12 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         final int[][] readsToKeep = overlappingReadIndicesBySampleIndex(overlap);
-        // We calculate the marginal likelihoods.
-
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
-
         final int sampleCount = samples.numberOfSamples();
 
+        // We calculate the marginal likelihoods.
+        final BitSet[] newSharedValues = newSharedValues(sampleCount);
+        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep, newSharedValues);
+
         @SuppressWarnings({"rawtypes","unchecked"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = (Object2IntMap<GATKRead>[])new Object2IntMap[sampleCount];
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
@@ -649,7 +687,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         // Finally we create the new read-likelihood
         return new ReadLikelihoods<>(new IndexedAlleleList<>(newAlleles), samples,
                 newReadsBySampleIndex,
-                newReadIndexBySampleIndex, newLikelihoodValues);
+                newReadIndexBySampleIndex, newLikelihoodValues, newSharedValues);
     }
 
     private int[][] overlappingReadIndicesBySampleIndex(final Locatable overlap) {
@@ -698,32 +736,42 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     }
 
     // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
+    //
+    // Likelihoods are combined one allele array at a time. When all the reads of a sample are kept, a new allele that
+    // corresponds to a single old allele just takes its likelihood array, which is then flagged as shared in both
+    // collections (in newSharedValues for the result) so that it gets copied before either modifies it.
+    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap,
+                                             final int[][] readsToKeep, final BitSet[] newSharedValues) {
 
         final int sampleCount = samples.numberOfSamples();
         final double[][][] result = new double[sampleCount][][];
+        final int[][] newToOldAlleleIndices = newToOldAlleleIndices(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap);
 
         for (int s = 0; s < sampleCount; s++) {
             final int sampleReadCount = readsBySampleIndex[s].length;
             final double[][] oldSampleValues = valuesBySampleIndex[s];
             final int[] sampleReadToKeep = readsToKeep == null || readsToKeep[s].length == sampleReadCount ? null : readsToKeep[s];
             final int newSampleReadCount = sampleReadToKeep == null ? sampleReadCount : sampleReadToKeep.length;
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][newSampleReadCount];
-            // We initiate all likelihoods to -Inf.
+            final double[][] newSampleValues = result[s] = new double[newAlleleCount][];
             for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
-            }
-            // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < newSampleReadCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int oldReadIndex = newSampleReadCount == sampleReadCount ? r : sampleReadToKeep[r];
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == -1) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][oldReadIndex];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+                final int[] oldAlleleIndices = newToOldAlleleIndices[a];
+                // NaN likelihoods are never the maximum and turn into -Inf, so those arrays cannot be shared.
+                if (oldAlleleIndices.length == 1 && sampleReadToKeep == null && !containsNaN(oldSampleValues[oldAlleleIndices[0]])) {
+                    newSampleValues[a] = oldSampleValues[oldAlleleIndices[0]];
+                    sharedValuesBySampleIndex[s].set(oldAlleleIndices[0]);
+                    newSharedValues[s].set(a);
+                    continue;
+                }
+                // We initiate all likelihoods to -Inf and keep the maximum likelihood of the old alleles for each read.
+                final double[] newAlleleValues = newSampleValues[a] = new double[newSampleReadCount];
+                Arrays.fill(newAlleleValues, Double.NEGATIVE_INFINITY);
+                for (final int oldAlleleIndex : oldAlleleIndices) {
+                    final double[] oldAlleleValues = oldSampleValues[oldAlleleIndex];
+                    for (int r = 0; r < newSampleReadCount; r++) {
+                        final double likelihood = oldAlleleValues[sampleReadToKeep == null ? r : sampleReadToKeep[r]];
+                        if (likelihood > newAlleleValues[r]) {
+                            newAlleleValues[r] = likelihood;
+                        }
                     }
                 }
             }
@@ -731,6 +779,33 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         return result;
     }
 
+    // inverts the old to new allele index map array, old allele indices are sorted in increasing order.
+    private static int[][] newToOldAlleleIndices(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap) {
+        final IntArrayList[] buffers = new IntArrayList[newAlleleCount];
+        for (int a = 0; a < newAlleleCount; a++) {
+            buffers[a] = new IntArrayList(1);
+        }
+        for (int a = 0; a < oldAlleleCount; a++) {
+            if (oldToNewAlleleIndexMap[a] != -1) {
+                buffers[oldToNewAlleleIndexMap[a]].add(a);
+            }
+        }
+        final int[][] result = new int[newAlleleCount][];
+        for (int a = 0; a < newAlleleCount; a++) {
+            result[a] = buffers[a].toIntArray();
+        }
+        return result;
+    }
+
+    private static boolean containsNaN(final double[] values) {
+        for (final double value : values) {
+            if (Double.isNaN(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // calculates an old to new allele index map array.
     private <B extends Allele> int[] oldToNewAlleleIndexMap(final Map<B, List<A>> newToOldAlleleMap, final int oldAlleleCount, final B[] newAlleles) {
         Arrays.stream(newAlleles).forEach(Utils::nonNull);
@@ -838,6 +913,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         for (int a = 0; a < alleleCount; a++) {
             sampleValues[a] = Arrays.copyOf(sampleValues[a], newSampleReadCount);
         }
+        sharedValuesBySampleIndex[sampleIndex].clear();
         if (initialLikelihood != 0.0) // the default array new value.
         {
             for (int a = 0; a < alleleCount; a++) {
@@ -921,6 +997,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
+            final double[] nonRefValues = writableAlleleValues(s, nonRefAlleleIndex);
             final double[][] sampleValues = valuesBySampleIndex[s];
             final int readCount = sampleValues[0].length;
             for (int r = 0; r < readCount; r++) {
@@ -938,7 +1015,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 // so the read is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                nonRefValues[r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
                         : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
             }
         }
@@ -1221,6 +1298,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
         }
         valuesBySampleIndex[sampleIndex] = newSampleValues;
+        sharedValuesBySampleIndex[sampleIndex].clear();
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
@@ -1279,6 +1357,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
         }
         valuesBySampleIndex[sampleIndex] = newSampleValues;
+        sharedValuesBySampleIndex[sampleIndex].clear();
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
@@ -1321,7 +1400,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         public void set(final int alleleIndex, final int readIndex, final double value) {
             Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
             Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            valuesBySampleIndex[sampleIndex][alleleIndex][readIndex] = value;
+            writableAlleleValues(sampleIndex, alleleIndex)[readIndex] = value;
         }
 
         @Override
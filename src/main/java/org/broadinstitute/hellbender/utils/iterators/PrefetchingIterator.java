@@ -0,0 +1,130 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapper around an iterator that pulls items from it on a dedicated background thread, keeping up to a fixed
+ * number of items ready for the client. This lets an expensive producer (eg., region discovery over a stream of reads)
+ * run ahead of an expensive consumer, while the bounded queue keeps the producer from running arbitrarily far ahead.
+ *
+ * The wrapped iterator is only ever touched by the background thread, so it need not be thread-safe, but it must not
+ * share unsynchronized state with whatever the client does with the items. Any exception thrown by the wrapped iterator
+ * is rethrown to the client once the items produced before it have been consumed.
+ *
+ * Clients must call {@link #close} if they stop iterating before the end, to release the background thread. Once close
+ * returns, the background thread no longer touches the wrapped iterator, so the client may close whatever it reads from.
+ */
+public final class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(PrefetchingIterator.class);
+
+    private static final Object END_OF_INPUT = new Object();
+
+    /**
+     * How long {@link #close} waits for the background thread to finish the item it is fetching
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final BlockingQueue<Object> queue;
+    private final Thread producer;
+    private volatile Throwable producerFailure;
+    private Object nextItem;
+
+    /**
+     * @param wrappedIter iterator to pull items from on the background thread
+     * @param capacity maximum number of items to fetch ahead of the client
+     * @param threadName name for the background thread
+     */
+    public PrefetchingIterator( final Iterator<T> wrappedIter, final int capacity, final String threadName ) {
+        Utils.nonNull(wrappedIter);
+        Utils.validateArg(capacity > 0, "capacity must be > 0");
+        Utils.nonNull(threadName);
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.producer = new Thread(() -> {
+            try {
+                while ( wrappedIter.hasNext() ) {
+                    queue.put(Utils.nonNull(wrappedIter.next(), "null items are not supported"));
+                }
+            } catch ( final InterruptedException e ) {
+                // closed by the client, who isn't waiting for the end marker
+                return;
+            } catch ( final Throwable e ) {
+                producerFailure = e;
+            }
+
+            try {
+                queue.put(END_OF_INPUT);
+            } catch ( final InterruptedException e ) {
+                // closed by the client, who isn't waiting for the end marker
+            }
+        }, threadName);
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ( nextItem == null ) {
+            try {
+                nextItem = queue.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for the next item from " + producer.getName(), e);
+            }
+        }
+
+        if ( nextItem == END_OF_INPUT ) {
+            final Throwable failure = producerFailure;
+            if ( failure instanceof RuntimeException ) {
+                throw (RuntimeException)failure;
+            } else if ( failure instanceof Error ) {
+                throw (Error)failure;
+            } else if ( failure != null ) {
+                throw new GATKException("Error in " + producer.getName(), failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("next() called when there are no more items");
+        }
+
+        final T item = (T)nextItem;
+        nextItem = null;
+        return item;
+    }
+
+    /**
+     * Stop the background thread, and wait (for a bounded time) until it has finished. Items that have already been
+     * fetched are discarded.
+     */
+    @Override
+    public void close() {
+        producer.interrupt();
+        try {
+            // The producer only notices the interrupt once the wrapped iterator returns the item it is working on
+            producer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if ( producer.isAlive() ) {
+            logger.warn(producer.getName() + " did not stop within " + CLOSE_TIMEOUT_SECONDS + " seconds of being closed");
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure-Java version of the logless PairHMM that computes a read against {@link #LANES} haplotypes at a time.
+ *
+ * The haplotypes of a group are interleaved, so that the innermost loop of the dynamic programming runs over independent
+ * lanes in contiguous memory (which the JIT can turn into vector instructions), and only two rows of each of the
+ * match, insertion and deletion matrices are kept. As in the native implementations, every group is first computed in
+ * single precision, and the lanes whose likelihoods underflow are recomputed in double precision.
+ *
+ * Unlike {@link LoglessPairHMM}, this implementation does not cache computations across consecutive haplotypes.
+ */
+public final class InterleavedLoglessPairHMM extends PairHMM {
+
+    /**
+     * Number of haplotypes computed together against each read.
+     */
+    static final int LANES = 8;
+
+    static final float INITIAL_CONDITION_FLOAT = (float)Math.pow(2, 120);
+    static final double INITIAL_CONDITION_FLOAT_LOG10 = Math.log10(INITIAL_CONDITION_FLOAT);
+
+    /**
+     * Single-precision likelihood sums below this value are considered to have underflowed, and are recomputed in
+     * double precision (same threshold as the native implementations).
+     */
+    static final float MIN_ACCEPTED_FLOAT = 1e-28f;
+
+    // per-read values, indexed by 1-based read position
+    private double[][] transition;
+    private double[] doubleTransition;
+    private float[] floatTransition;
+    private double[] doubleMatchPrior, doubleMismatchPrior;
+    private float[] floatMatchPrior, floatMismatchPrior;
+    private byte[] readBases;
+
+    // haplotype bases of the current group, interleaved: position j of lane l is at j * LANES + l
+    private byte[] laneHaplotypeBases;
+    private final int[] laneHaplotypeLengths = new int[LANES];
+
+    // rolling rows of the match, insertion and deletion matrices: column j of lane l is at j * LANES + l
+    private float[] floatPrevM, floatPrevI, floatPrevD, floatCurM, floatCurI, floatCurD;
+    private double[] doublePrevM, doublePrevI, doublePrevD, doubleCurM, doubleCurI, doubleCurD;
+
+    private final float[] floatSums = new float[LANES];
+    private final double[] doubleSums = new double[LANES];
+    private final double[] laneResults = new double[LANES];
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        transition = PairHMMModel.createTransitionMatrix(readMaxLength);
+        doubleTransition = new double[paddedMaxReadLength * TRANS_PROB_ARRAY_LENGTH];
+        floatTransition = new float[paddedMaxReadLength * TRANS_PROB_ARRAY_LENGTH];
+        doubleMatchPrior = new double[paddedMaxReadLength];
+        doubleMismatchPrior = new double[paddedMaxReadLength];
+        floatMatchPrior = new float[paddedMaxReadLength];
+        floatMismatchPrior = new float[paddedMaxReadLength];
+
+        laneHaplotypeBases = new byte[haplotypeMaxLength * LANES];
+
+        final int rowLength = paddedMaxHaplotypeLength * LANES;
+        floatPrevM = new float[rowLength];
+        floatPrevI = new float[rowLength];
+        floatPrevD = new float[rowLength];
+        floatCurM = new float[rowLength];
+        floatCurI = new float[rowLength];
+        floatCurD = new float[rowLength];
+        doublePrevM = new double[rowLength];
+        doublePrevI = new double[rowLength];
+        doublePrevD = new double[rowLength];
+        doubleCurM = new double[rowLength];
+        doubleCurI = new double[rowLength];
+        doubleCurD = new double[rowLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Each read is computed against groups of {@link #LANES} haplotypes at a time.
+     */
+    @Override
+    public void computeLog10Likelihoods( final LikelihoodMatrix<Haplotype> logLikelihoods,
+                                         final List<GATKRead> processedReads,
+                                         final Map<GATKRead, byte[]> gcp ) {
+        if (processedReads.isEmpty()) {
+            return;
+        }
+        if (doProfiling) {
+            startTime = System.nanoTime();
+        }
+
+        final List<Haplotype> haplotypes = logLikelihoods.alleles();
+        final int haplotypeCount = haplotypes.size();
+
+        // (re)initialize only if necessary
+        final int readMaxLength = findMaxReadLength(processedReads);
+        final int haplotypeMaxLength = haplotypes.stream().mapToInt(h -> h.getBases().length).max().orElse(0);
+        if (!initialized || readMaxLength > maxReadLength || haplotypeMaxLength > maxHaplotypeLength) {
+            initialize(readMaxLength, haplotypeMaxLength);
+        }
+
+        mLogLikelihoodArray = new double[processedReads.size() * haplotypeCount];
+        int readIndex = 0;
+        for (final GATKRead read : processedReads) {
+            loadRead(read.getBases(), read.getBaseQualities(), ReadUtils.getBaseInsertionQualities(read),
+                    ReadUtils.getBaseDeletionQualities(read), gcp.get(read));
+
+            for (int firstHaplotype = 0; firstHaplotype < haplotypeCount; firstHaplotype += LANES) {
+                final int lanes = Math.min(LANES, haplotypeCount - firstHaplotype);
+                final int groupLength = loadHaplotypes(haplotypes, firstHaplotype, lanes);
+                computeGroup(groupLength, lanes);
+
+                for (int l = 0; l < lanes; l++) {
+                    logLikelihoods.set(firstHaplotype + l, readIndex, laneResults[l]);
+                    mLogLikelihoodArray[readIndex * haplotypeCount + firstHaplotype + l] = laneResults[l];
+                }
+            }
+            readIndex++;
+        }
+
+        if (doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Computes a group with a single lane; the caching arguments are ignored.
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                                  final byte[] readBases,
+                                                                  final byte[] readQuals,
+                                                                  final byte[] insertionGOP,
+                                                                  final byte[] deletionGOP,
+                                                                  final byte[] overallGCP,
+                                                                  final int hapStartIndex,
+                                                                  final boolean recacheReadValues,
+                                                                  final int nextHapStartIndex ) {
+        loadRead(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+        final int groupLength = loadHaplotypes(Collections.singletonList(haplotypeBases), 0, 1, bases -> bases);
+        computeGroup(groupLength, 1);
+        return laneResults[0];
+    }
+
+    /**
+     * Precompute the transition probabilities and the match/mismatch priors for each position of the read.
+     */
+    private void loadRead( final byte[] bases, final byte[] quals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP ) {
+        Utils.nonNull(overallGCP, "no gap continuation penalties for read");
+        readBases = bases;
+        PairHMMModel.qualToTransProbs(transition, insertionGOP, deletionGOP, overallGCP);
+
+        final double mismatchDivisor = doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION;
+        for (int i = 1; i <= bases.length; i++) {
+            final int offset = i * TRANS_PROB_ARRAY_LENGTH;
+            for (int t = 0; t < TRANS_PROB_ARRAY_LENGTH; t++) {
+                doubleTransition[offset + t] = transition[i][t];
+                floatTransition[offset + t] = (float)transition[i][t];
+            }
+
+            final byte qual = quals[i - 1];
+            doubleMatchPrior[i] = QualityUtils.qualToProb(qual);
+            doubleMismatchPrior[i] = QualityUtils.qualToErrorProb(qual) / mismatchDivisor;
+            floatMatchPrior[i] = (float)doubleMatchPrior[i];
+            floatMismatchPrior[i] = (float)doubleMismatchPrior[i];
+        }
+    }
+
+    private int loadHaplotypes( final List<Haplotype> haplotypes, final int firstHaplotype, final int lanes ) {
+        return loadHaplotypes(haplotypes, firstHaplotype, lanes, Haplotype::getBases);
+    }
+
+    /**
+     * Interleave the bases of up to {@link #LANES} haplotypes into {@link #laneHaplotypeBases}. Unused lanes and the
+     * positions past the end of the shorter haplotypes are padded; their values are ignored.
+     *
+     * @return the length of the longest haplotype of the group
+     */
+    private <H> int loadHaplotypes( final List<H> haplotypes, final int firstHaplotype, final int lanes, final Function<H, byte[]> getBases ) {
+        int groupLength = 0;
+        for (int l = 0; l < LANES; l++) {
+            laneHaplotypeLengths[l] = l < lanes ? getBases.apply(haplotypes.get(firstHaplotype + l)).length : 0;
+            groupLength = Math.max(groupLength, laneHaplotypeLengths[l]);
+        }
+
+        for (int l = 0; l < LANES; l++) {
+            final byte[] bases = l < lanes ? getBases.apply(haplotypes.get(firstHaplotype + l)) : null;
+            final int length = laneHaplotypeLengths[l];
+            for (int j = 0; j < groupLength; j++) {
+                laneHaplotypeBases[j * LANES + l] = j < length ? bases[j] : 0;
+            }
+        }
+        return groupLength;
+    }
+
+    /**
+     * Compute the log10 likelihoods of the current read against the current group of haplotypes into {@link #laneResults},
+     * in single precision first and then in double precision for any lane that underflowed.
+     */
+    private void computeGroup( final int groupLength, final int lanes ) {
+        computeGroupFloat(groupLength, floatSums);
+
+        boolean underflow = false;
+        for (int l = 0; l < lanes; l++) {
+            if (floatSums[l] < MIN_ACCEPTED_FLOAT) {
+                underflow = true;
+            } else {
+                laneResults[l] = Math.log10(floatSums[l]) - INITIAL_CONDITION_FLOAT_LOG10;
+            }
+        }
+
+        if (underflow) {
+            computeGroupDouble(groupLength, doubleSums);
+            for (int l = 0; l < lanes; l++) {
+                if (floatSums[l] < MIN_ACCEPTED_FLOAT) {
+                    laneResults[l] = Math.log10(doubleSums[l]) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+                }
+            }
+        }
+    }
+
+    private void computeGroupFloat( final int groupLength, final float[] sums ) {
+        float[] prevM = floatPrevM, prevI = floatPrevI, prevD = floatPrevD;
+        float[] curM = floatCurM, curI = floatCurI, curD = floatCurD;
+
+        // first row: free deletions in the beginning, with the initial value spread over the length of each haplotype
+        Arrays.fill(prevM, 0, (groupLength + 1) * LANES, 0.0f);
+        Arrays.fill(prevI, 0, (groupLength + 1) * LANES, 0.0f);
+        for (int l = 0; l < LANES; l++) {
+            final float initialValue = laneHaplotypeLengths[l] == 0 ? 0.0f : INITIAL_CONDITION_FLOAT / laneHaplotypeLengths[l];
+            for (int j = 0; j <= groupLength; j++) {
+                prevD[j * LANES + l] = initialValue;
+            }
+        }
+
+        for (int i = 1; i <= readBases.length; i++) {
+            final byte x = readBases[i - 1];
+            final boolean xIsN = x == (byte) 'N';
+            final float matchPrior = floatMatchPrior[i];
+            final float mismatchPrior = floatMismatchPrior[i];
+            final int t = i * TRANS_PROB_ARRAY_LENGTH;
+            final float mToM = floatTransition[t + matchToMatch];
+            final float indelToM = floatTransition[t + indelToMatch];
+            final float mToI = floatTransition[t + matchToInsertion];
+            final float iToI = floatTransition[t + insertionToInsertion];
+            final float mToD = floatTransition[t + matchToDeletion];
+            final float dToD = floatTransition[t + deletionToDeletion];
+
+            for (int l = 0; l < LANES; l++) {
+                curM[l] = 0.0f;
+                curI[l] = 0.0f;
+                curD[l] = 0.0f;
+            }
+
+            for (int j = 1; j <= groupLength; j++) {
+                final int cell = j * LANES;
+                final int diagonal = cell - LANES;
+                for (int l = 0; l < LANES; l++) {
+                    final byte y = laneHaplotypeBases[diagonal + l];
+                    final float prior = x == y || xIsN || y == (byte) 'N' ? matchPrior : mismatchPrior;
+                    curM[cell + l] = prior * (prevM[diagonal + l] * mToM + prevI[diagonal + l] * indelToM + prevD[diagonal + l] * indelToM);
+                    curI[cell + l] = prevM[cell + l] * mToI + prevI[cell + l] * iToI;
+                    curD[cell + l] = curM[diagonal + l] * mToD + curD[diagonal + l] * dToD;
+                }
+            }
+
+            float[] swap = prevM; prevM = curM; curM = swap;
+            swap = prevI; prevI = curI; curI = swap;
+            swap = prevD; prevD = curD; curD = swap;
+        }
+
+        // sum all the paths ending in the M and I states of the last row (now in prev)
+        for (int l = 0; l < LANES; l++) {
+            float sum = 0.0f;
+            for (int j = 1; j <= laneHaplotypeLengths[l]; j++) {
+                sum += prevM[j * LANES + l] + prevI[j * LANES + l];
+            }
+            sums[l] = sum;
+        }
+    }
+
+    private void computeGroupDouble( final int groupLength, final double[] sums ) {
+        double[] prevM = doublePrevM, prevI = doublePrevI, prevD = doublePrevD;
+        double[] curM = doubleCurM, curI = doubleCurI, curD = doubleCurD;
+
+        // first row: free deletions in the beginning, with the initial value spread over the length of each haplotype
+        Arrays.fill(prevM, 0, (groupLength + 1) * LANES, 0.0);
+        Arrays.fill(prevI, 0, (groupLength + 1) * LANES, 0.0);
+        for (int l = 0; l < LANES; l++) {
+            final double initialValue = laneHaplotypeLengths[l] == 0 ? 0.0 : LoglessPairHMM.INITIAL_CONDITION / laneHaplotypeLengths[l];
+            for (int j = 0; j <= groupLength; j++) {
+                prevD[j * LANES + l] = initialValue;
+            }
+        }
+
+        for (int i = 1; i <= readBases.length; i++) {
+            final byte x = readBases[i - 1];
+            final boolean xIsN = x == (byte) 'N';
+            final double matchPrior = doubleMatchPrior[i];
+            final double mismatchPrior = doubleMismatchPrior[i];
+            final int t = i * TRANS_PROB_ARRAY_LENGTH;
+            final double mToM = doubleTransition[t + matchToMatch];
+            final double indelToM = doubleTransition[t + indelToMatch];
+            final double mToI = doubleTransition[t + matchToInsertion];
+            final double iToI = doubleTransition[t + insertionToInsertion];
+            final double mToD = doubleTransition[t + matchToDeletion];
+            final double dToD = doubleTransition[t + deletionToDeletion];
+
+            for (int l = 0; l < LANES; l++) {
+                curM[l] = 0.0;
+                curI[l] = 0.0;
+                curD[l] = 0.0;
+            }
+
+            for (int j = 1; j <= groupLength; j++) {
+                final int cell = j * LANES;
+                final int diagonal = cell - LANES;
+                for (int l = 0; l < LANES; l++) {
+                    final byte y = laneHaplotypeBases[diagonal + l];
+                    final double prior = x == y || xIsN || y == (byte) 'N' ? matchPrior : mismatchPrior;
+                    curM[cell + l] = prior * (prevM[diagonal + l] * mToM + prevI[diagonal + l] * indelToM + prevD[diagonal + l] * indelToM);
+                    curI[cell + l] = prevM[cell + l] * mToI + prevI[cell + l] * iToI;
+                    curD[cell + l] = curM[diagonal + l] * mToD + curD[diagonal + l] * dToD;
+                }
+            }
+
+            double[] swap = prevM; prevM = curM; curM = swap;
+            swap = prevI; prevI = curI; curI = swap;
+            swap = prevD; prevD = curD; curD = swap;
+        }
+
+        // sum all the paths ending in the M and I states of the last row (now in prev)
+        for (int l = 0; l < LANES; l++) {
+            double sum = 0.0;
+            for (int j = 1; j <= laneHaplotypeLengths[l]; j++) {
+                sum += prevM[j * LANES + l] + prevI[j * LANES + l];
+            }
+            sums[l] = sum;
+        }
+    }
+}
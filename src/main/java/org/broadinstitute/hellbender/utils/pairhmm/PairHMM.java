@@ -51,6 +51,13 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation");
             return hmm;
         }),
+        /* Pure-Java version of LOGLESS_CACHING that computes each read against several haplotypes at once in interleaved
+           lanes, in single precision with recomputation in double precision on underflow (as the native implementations do) */
+        INTERLEAVED_LOGLESS(args -> {
+            final InterleavedLoglessPairHMM hmm = new InterleavedLoglessPairHMM();
+            logger.info("Using the non-hardware-accelerated Java INTERLEAVED_LOGLESS PairHMM implementation");
+            return hmm;
+        }),
         /* Optimized AVX implementation of LOGLESS_CACHING called through JNI. Throws if AVX is not available */
         AVX_LOGLESS_CACHING(args -> {
             // Constructor will throw a UserException if AVX is not available
@@ -259,6 +266,31 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     *  Batched version of {@link #computeLog10Likelihoods(LikelihoodMatrix, List, Map)}: computes the likelihoods of
+     *  several groups of reads (typically, one per sample) against the haplotypes in a single call, so that
+     *  implementations with a per-call overhead (such as the native ones) pay it only once.
+     *
+     *  All matrices must be over haplotypes passed to the last call to {@link #initialize(List, Map, int, int)}.
+     *  The default implementation simply computes each matrix in turn.
+     *
+     * @param logLikelihoods where to store the log likelihoods of each group of reads, one matrix per group.
+     * @param processedReads reads to analyze instead of the ones present in the destination matrices, one list per
+     *                       matrix and in the same order.
+     * @param gcp penalty for gap continuations base array map for processed reads (of all groups).
+     */
+    public void computeLog10Likelihoods(final List<? extends LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                        final List<List<GATKRead>> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        Utils.nonNull(logLikelihoods);
+        Utils.nonNull(processedReads);
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), () -> "there must be one list of reads per likelihood matrix, but got " + processedReads.size() + " lists for " + logLikelihoods.size() + " matrices");
+
+        for (int i = 0; i < logLikelihoods.size(); i++) {
+            computeLog10Likelihoods(logLikelihoods.get(i), processedReads.get(i), gcp);
+        }
+    }
+
     /**
      * Compute the total probability of read arising from haplotypeBases given base substitution, insertion, and deletion
      * probabilities.
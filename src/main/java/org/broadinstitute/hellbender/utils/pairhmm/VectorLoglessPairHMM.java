@@ -10,11 +10,13 @@ import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeBinding;
 import org.broadinstitute.gatk.nativebindings.pairhmm.ReadDataHolder;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -121,24 +123,39 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
     public void computeLog10Likelihoods(final LikelihoodMatrix<Haplotype> logLikelihoods,
                                         final List<GATKRead> processedReads,
                                         final Map<GATKRead, byte[]> gcp) {
-        if (processedReads.isEmpty()) {
+        computeLog10Likelihoods(Collections.singletonList(logLikelihoods), Collections.singletonList(processedReads), gcp);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The reads of all the matrices are sent to the native code in a single call.
+     */
+    @Override
+    public void computeLog10Likelihoods(final List<? extends LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                        final List<List<GATKRead>> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), () -> "there must be one list of reads per likelihood matrix, but got " + processedReads.size() + " lists for " + logLikelihoods.size() + " matrices");
+        final int readListSize = processedReads.stream().mapToInt(List::size).sum();
+        if (readListSize == 0) {
             return;
         }
         if (doProfiling) {
             startTime = System.nanoTime();
         }
-        int readListSize = processedReads.size();
-        int numHaplotypes = logLikelihoods.numberOfAlleles();
+        int numHaplotypes = mHaplotypeDataArray.length;
         ReadDataHolder[] readDataArray = new ReadDataHolder[readListSize];
         int idx = 0;
-        for (GATKRead read : processedReads) {
-            readDataArray[idx] = new ReadDataHolder();
-            readDataArray[idx].readBases = read.getBases();
-            readDataArray[idx].readQuals = read.getBaseQualities();
-            readDataArray[idx].insertionGOP = ReadUtils.getBaseInsertionQualities(read);
-            readDataArray[idx].deletionGOP = ReadUtils.getBaseDeletionQualities(read);
-            readDataArray[idx].overallGCP = gcp.get(read);
-            ++idx;
+        for (final List<GATKRead> reads : processedReads) {
+            for (GATKRead read : reads) {
+                readDataArray[idx] = new ReadDataHolder();
+                readDataArray[idx].readBases = read.getBases();
+                readDataArray[idx].readQuals = read.getBaseQualities();
+                readDataArray[idx].insertionGOP = ReadUtils.getBaseInsertionQualities(read);
+                readDataArray[idx].deletionGOP = ReadUtils.getBaseDeletionQualities(read);
+                readDataArray[idx].overallGCP = gcp.get(read);
+                ++idx;
+            }
         }
 
         mLogLikelihoodArray = new double[readListSize * numHaplotypes];      //to store results
@@ -150,18 +167,23 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
         //       compute_full_prob()
         pairHmm.computeLikelihoods(readDataArray, mHaplotypeDataArray, mLogLikelihoodArray);
 
+        // scatter the results back to each matrix; reads are laid out in the order of the matrices
         int readIdx = 0;
-        for (int r = 0; r < readListSize; r++) {
-            int hapIdx = 0;
-            for (final Haplotype haplotype : logLikelihoods.alleles()) {
-
-                //Since the order of haplotypes in the List<Haplotype> and alleleHaplotypeMap is different,
-                //get idx of current haplotype in the list and use this idx to get the right likelihoodValue
-                final int idxInsideHaplotypeList = haplotypeToHaplotypeListIdxMap.get(haplotype);
-                logLikelihoods.set(hapIdx, r, mLogLikelihoodArray[readIdx + idxInsideHaplotypeList]);
-                ++hapIdx;
+        for (int m = 0; m < logLikelihoods.size(); m++) {
+            final LikelihoodMatrix<Haplotype> matrix = logLikelihoods.get(m);
+            final int matrixReadCount = processedReads.get(m).size();
+            for (int r = 0; r < matrixReadCount; r++) {
+                int hapIdx = 0;
+                for (final Haplotype haplotype : matrix.alleles()) {
+
+                    //Since the order of haplotypes in the List<Haplotype> and alleleHaplotypeMap is different,
+                    //get idx of current haplotype in the list and use this idx to get the right likelihoodValue
+                    final int idxInsideHaplotypeList = haplotypeToHaplotypeListIdxMap.get(haplotype);
+                    matrix.set(hapIdx, r, mLogLikelihoodArray[readIdx + idxInsideHaplotypeList]);
+                    ++hapIdx;
+                }
+                readIdx += numHaplotypes;
             }
-            readIdx += numHaplotypes;
         }
         if (doProfiling) {
             threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
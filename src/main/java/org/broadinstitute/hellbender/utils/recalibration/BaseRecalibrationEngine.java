@@ -62,6 +62,20 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationTables recalTables;
 
+    /**
+     * Dense accumulators for the tables updated by processRead, indexed like the tables in {@link #recalTables}
+     * (with {@code null} for the read group table, which is only computed by finalizeData), or {@code null} if the
+     * tables are too large to be kept dense, in which case {@link #recalTables} is updated directly.
+     *
+     * Their data is moved to {@link #recalTables} whenever the tables are needed, see {@link #flushFlatTables()}.
+     */
+    private FlatRecalibrationTable[] flatTables;
+
+    /**
+     * The element of {@link #flatTables} for the quality score table, if any.
+     */
+    private FlatRecalibrationTable flatQualityScoreTable;
+
     private SAMFileHeader readsHeader;
 
     /**
@@ -96,10 +110,48 @@ public final class BaseRecalibrationEngine implements Serializable {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
         recalTables = new RecalibrationTables(covariates, numReadGroups);
+        flatTables = makeFlatTables(recalTables);
+        if (flatTables != null) {
+            for (int i = 0; i < recalTables.numTables(); i++) {
+                if (recalTables.isQualityScoreTable(recalTables.getTable(i))) {
+                    flatQualityScoreTable = flatTables[i];
+                }
+            }
+        }
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
 
+    private static FlatRecalibrationTable[] makeFlatTables(final RecalibrationTables tables) {
+        final FlatRecalibrationTable[] result = new FlatRecalibrationTable[tables.numTables()];
+        for (int i = 0; i < tables.numTables(); i++) {
+            final NestedIntegerArray<RecalDatum> table = tables.getTable(i);
+            if (tables.isReadGroupTable(table)) {
+                continue;
+            }
+            if (!FlatRecalibrationTable.fitsDimensions(table.getDimensions())) {
+                logger.debug("Recalibration tables are too large to be kept dense, updating them directly");
+                return null;
+            }
+            result[i] = new FlatRecalibrationTable(table.getDimensions());
+        }
+        return result;
+    }
+
+    /**
+     * Moves the data accumulated in {@link #flatTables} to {@link #recalTables}.
+     */
+    private void flushFlatTables() {
+        if (flatTables == null) {
+            return;
+        }
+        for (int i = 0; i < flatTables.length; i++) {
+            if (flatTables[i] != null) {
+                flatTables[i].addTo(recalTables.getTable(i));
+            }
+        }
+    }
+
     public void logCovariatesUsed() {
         logger.info("The covariates being used here: ");
         for (final Covariate cov : covariates) { // list all the covariates being used
@@ -147,6 +199,24 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Adds the data collected by another engine, created with the same arguments and header, to the data of this one.
+     *
+     * Lets several engines process disjoint sets of reads, eg. on different threads, and produce the same tables
+     * as a single engine once combined. Neither engine can have been finalized.
+     *
+     * @param other engine whose data to add to this one. It must not be used afterwards, since the tables of this
+     *              engine may then share some of its data.
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine engines after finalizeData() has been called");
+        flushFlatTables();
+        other.flushFlatTables();
+        recalTables.combine(other.recalTables);
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -157,6 +227,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        flushFlatTables();
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -210,6 +281,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      * Get a possibly not-final recalibration table, to deal with distributed execution.
      */
     public RecalibrationTables getRecalibrationTables() {
+        flushFlatTables();
         return recalTables;
     }
 
@@ -261,6 +333,17 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
+                    if (flatTables != null) {
+                        flatQualityScoreTable.increment3Keys(qual, isError, key0, key1, eventIndex);
+                        for (int i = nSpecialCovariates; i < nCovariates; i++) {
+                            final int keyi = keys[i];
+                            if (keyi >= 0) {
+                                flatTables[i].increment4Keys(qual, isError, key0, key1, keyi, eventIndex);
+                            }
+                        }
+                        continue;
+                    }
+
                     RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
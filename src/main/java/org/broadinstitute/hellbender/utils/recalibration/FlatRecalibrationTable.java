@@ -0,0 +1,139 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Dense, primitive accumulator for the data of one of the {@link RecalibrationTables}, used while the reads are
+ * processed instead of incrementing one {@link RecalDatum} object per cell.
+ *
+ * The cells have the same keys as in the {@link NestedIntegerArray} of the table: the first key is the read group,
+ * and the others (quality, optionally the value of an additional covariate, and event type) are combined into a
+ * flat index within the block of the read group. Each read group block stores the number of observations, the number
+ * of mismatches (scaled like in {@link RecalDatum}) and the reported quality of every cell in parallel arrays, and
+ * is only allocated when the first observation of the read group is added.
+ *
+ * The accumulated data is turned into {@link RecalDatum}s with {@link #addTo}.
+ */
+final class FlatRecalibrationTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of cells per read group for which a table is worth keeping dense.
+     */
+    static final int MAX_CELLS_PER_READ_GROUP = 1 << 21;
+
+    private final int[] dimensions;
+    private final int cellsPerReadGroup;
+
+    private final long[][] observationsByReadGroup;
+    private final double[][] scaledMismatchesByReadGroup;
+    private final byte[][] reportedQualitiesByReadGroup;
+
+    /**
+     * @param dimensions dimensions of the {@link NestedIntegerArray} of the table, the first one being the read group.
+     *                   The number of cells per read group must be at most {@link #MAX_CELLS_PER_READ_GROUP}.
+     */
+    FlatRecalibrationTable(final int[] dimensions) {
+        Utils.validateArg(dimensions.length == 3 || dimensions.length == 4, "tables have either 3 or 4 dimensions");
+        Utils.validateArg(fitsDimensions(dimensions), () -> "too many cells per read group for table of dimensions " + Arrays.toString(dimensions));
+        this.dimensions = dimensions.clone();
+        this.cellsPerReadGroup = (int) cellsPerReadGroup(dimensions);
+        observationsByReadGroup = new long[dimensions[0]][];
+        scaledMismatchesByReadGroup = new double[dimensions[0]][];
+        reportedQualitiesByReadGroup = new byte[dimensions[0]][];
+    }
+
+    /**
+     * @return whether a table of the given dimensions can be made dense
+     */
+    static boolean fitsDimensions(final int[] dimensions) {
+        return cellsPerReadGroup(dimensions) <= MAX_CELLS_PER_READ_GROUP;
+    }
+
+    private static long cellsPerReadGroup(final int[] dimensions) {
+        long result = 1;
+        for (int i = 1; i < dimensions.length; i++) {
+            result *= dimensions[i];
+        }
+        return result;
+    }
+
+    /**
+     * Adds an observation to the cell of a table with 3 keys.
+     *
+     * @param reportedQuality reported quality of the cell, only kept for its first observation like in
+     *                        {@link RecalUtils#incrementDatumOrPutIfNecessary3keys}
+     * @param isError error value of the observation
+     */
+    void increment3Keys(final byte reportedQuality, final double isError, final int key0, final int key1, final int key2) {
+        increment(key0, key1 * dimensions[2] + key2, reportedQuality, isError);
+    }
+
+    /**
+     * Adds an observation to the cell of a table with 4 keys.
+     *
+     * @param reportedQuality reported quality of the cell, only kept for its first observation like in
+     *                        {@link RecalUtils#incrementDatumOrPutIfNecessary4keys}
+     * @param isError error value of the observation
+     */
+    void increment4Keys(final byte reportedQuality, final double isError, final int key0, final int key1, final int key2, final int key3) {
+        increment(key0, (key1 * dimensions[2] + key2) * dimensions[3] + key3, reportedQuality, isError);
+    }
+
+    private void increment(final int readGroup, final int cell, final byte reportedQuality, final double isError) {
+        long[] observations = observationsByReadGroup[readGroup];
+        if (observations == null) {
+            observations = observationsByReadGroup[readGroup] = new long[cellsPerReadGroup];
+            scaledMismatchesByReadGroup[readGroup] = new double[cellsPerReadGroup];
+            reportedQualitiesByReadGroup[readGroup] = new byte[cellsPerReadGroup];
+        }
+        if (observations[cell]++ == 0) {
+            reportedQualitiesByReadGroup[readGroup][cell] = reportedQuality;
+        }
+        scaledMismatchesByReadGroup[readGroup][cell] += RecalDatum.scaleMismatches(isError);
+    }
+
+    /**
+     * Adds the accumulated data to {@code table}, which must have the same dimensions as this one, and clears it.
+     *
+     * Cells that have no datum in {@code table} get a new one, identical to the one that incrementing the table
+     * directly with the same observations would have created.
+     */
+    void addTo(final NestedIntegerArray<RecalDatum> table) {
+        Utils.validateArg(Arrays.equals(table.getDimensions(), dimensions), "table dimensions don't match");
+        final int[] keys = new int[dimensions.length];
+        for (int readGroup = 0; readGroup < dimensions[0]; readGroup++) {
+            final long[] observations = observationsByReadGroup[readGroup];
+            if (observations == null) {
+                continue;
+            }
+            final double[] scaledMismatches = scaledMismatchesByReadGroup[readGroup];
+            final byte[] reportedQualities = reportedQualitiesByReadGroup[readGroup];
+            keys[0] = readGroup;
+            for (int cell = 0; cell < cellsPerReadGroup; cell++) {
+                if (observations[cell] == 0) {
+                    continue;
+                }
+                // decode the flat index into the other keys, last key first
+                int remainder = cell;
+                for (int i = dimensions.length - 1; i > 0; i--) {
+                    keys[i] = remainder % dimensions[i];
+                    remainder /= dimensions[i];
+                }
+                final RecalDatum existingDatum = table.get(keys);
+                if (existingDatum == null) {
+                    table.put(RecalDatum.fromScaledCounts(observations[cell], scaledMismatches[cell], reportedQualities[cell]), keys);
+                } else {
+                    existingDatum.incrementScaled(observations[cell], scaledMismatches[cell]);
+                }
+            }
+            observationsByReadGroup[readGroup] = null;
+            scaledMismatchesByReadGroup[readGroup] = null;
+            reportedQualitiesByReadGroup[readGroup] = null;
+        }
+    }
+}
@@ -220,6 +220,34 @@ public final class RecalDatum implements Serializable {
         increment(1, isError ? 1.0 : 0.0);
     }
 
+    // Scaled mismatches are mismatches multiplied by the internal multiplier, so that accumulators outside this class
+    // (see FlatRecalibrationTable) can sum them the same way as numMismatches is summed here.
+
+    /**
+     * @return the number of mismatches {@code mismatches}, scaled like the internal number of mismatches
+     */
+    static double scaleMismatches(final double mismatches) {
+        return mismatches * MULTIPLIER;
+    }
+
+    /**
+     * Create a new RecalDatum with given observation count, scaled mismatch count and reported quality
+     */
+    static RecalDatum fromScaledCounts(final long numObservations, final double scaledNumMismatches, final byte reportedQuality) {
+        final RecalDatum result = new RecalDatum(numObservations, 0.0, reportedQuality);
+        result.numMismatches = scaledNumMismatches;
+        return result;
+    }
+
+    /**
+     * Same as {@link #increment(long, double)}, with a scaled number of mismatches
+     */
+    final void incrementScaled(final long incObservations, final double scaledIncMismatches) {
+        numObservations += incObservations;
+        numMismatches += scaledIncMismatches;
+        empiricalQuality = UNINITIALIZED;
+    }
+
     // -------------------------------------------------------------------------------------
     //
     // Private implementation helper functions
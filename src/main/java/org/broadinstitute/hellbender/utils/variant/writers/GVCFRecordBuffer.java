@@ -0,0 +1,93 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link GVCFRecordSink} that holds on to the records added to it, in order, until they are replayed into another sink
+ * with {@link #replayTo}. Used to hand the output of one region over from the thread that produced it to the thread
+ * that writes it.
+ *
+ * Hom-ref sites are kept as primitive values in parallel arrays, so buffering them costs a few ints per site rather than
+ * a VariantContext and a Genotype each.
+ */
+public final class GVCFRecordBuffer implements GVCFRecordSink {
+
+    private final List<VariantContext> variants = new ArrayList<>();
+
+    // one entry per record, in order: the index of a variant (>= 0), or the index of a hom-ref site encoded as -(index + 1)
+    private final IntArrayList records = new IntArrayList();
+
+    // hom-ref sites; contigs, alleles and sample names are shared references, not copies
+    private final List<String> contigs = new ArrayList<>();
+    private final List<Allele> refAlleles = new ArrayList<>();
+    private final List<String> sampleNames = new ArrayList<>();
+    private final IntArrayList positions = new IntArrayList();
+    private final IntArrayList ploidies = new IntArrayList();
+    private final IntArrayList gqs = new IntArrayList();
+    private final IntArrayList dps = new IntArrayList();
+    private final IntArrayList plOffsets = new IntArrayList();
+    private final IntArrayList pls = new IntArrayList();
+
+    @Override
+    public void add(final VariantContext vc) {
+        Utils.nonNull(vc);
+        records.add(variants.size());
+        variants.add(vc);
+    }
+
+    @Override
+    public void addHomRefSite(final String contig, final int position, final Allele refAllele, final String sampleName,
+                              final int ploidy, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(pls, "pls cannot be null");
+        records.add(-(positions.size() + 1));
+        contigs.add(contig);
+        refAlleles.add(refAllele);
+        sampleNames.add(sampleName);
+        positions.add(position);
+        ploidies.add(ploidy);
+        gqs.add(gq);
+        dps.add(dp);
+        plOffsets.add(this.pls.size());
+        this.pls.addElements(this.pls.size(), pls);
+    }
+
+    /**
+     * @return the number of records (variants and hom-ref sites) in this buffer
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Add all the records of this buffer to {@code sink}, in the order in which they were added to this buffer.
+     *
+     * @param sink non-null destination of the records
+     */
+    public void replayTo(final GVCFRecordSink sink) {
+        Utils.nonNull(sink);
+        int[] sitePLs = new int[0];
+        for (int i = 0; i < records.size(); i++) {
+            final int record = records.getInt(i);
+            if (record >= 0) {
+                sink.add(variants.get(record));
+            } else {
+                final int site = -record - 1;
+                final int plStart = plOffsets.getInt(site);
+                final int plLength = (site + 1 < plOffsets.size() ? plOffsets.getInt(site + 1) : pls.size()) - plStart;
+                if (sitePLs.length != plLength) {
+                    sitePLs = new int[plLength];
+                }
+                // sinks don't hold on to the PLs array, so it can be reused across sites
+                pls.getElements(plStart, sitePLs, 0, plLength);
+                sink.addHomRefSite(contigs.get(site), positions.getInt(site), refAlleles.get(site), sampleNames.get(site),
+                        ploidies.getInt(site), gqs.getInt(site), dps.getInt(site), sitePLs);
+            }
+        }
+    }
+}
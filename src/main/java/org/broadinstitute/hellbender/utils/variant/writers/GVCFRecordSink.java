@@ -0,0 +1,39 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+
+/**
+ * Destination for the records of a single-sample GVCF, in coordinate order.
+ *
+ * Besides complete VariantContexts, a sink accepts reference confidence sites as a handful of primitive values,
+ * so that a producer such as the ReferenceConfidenceModel does not have to build a VariantContext and a Genotype
+ * for each hom-ref position only for them to be merged into a band (see {@link GVCFWriter}).
+ */
+public interface GVCFRecordSink {
+
+    /**
+     * Add a complete record (a variant call, or any record that is not a plain reference confidence site)
+     *
+     * @param vc a non-null VariantContext with exactly one genotype
+     */
+    void add(final VariantContext vc);
+
+    /**
+     * Add a single-base hom-ref site with a {@code <NON_REF>} alternate allele. Equivalent to adding a VariantContext
+     * with alleles {@code [refAllele, <NON_REF>]} and a single hom-ref genotype with the given GQ, DP and PLs.
+     *
+     * The sink must neither modify nor hold on to {@code pls} after this method returns, so callers may reuse the array.
+     *
+     * @param contig contig of the site
+     * @param position 1-based position of the site
+     * @param refAllele reference allele at the site
+     * @param sampleName name of the sample
+     * @param ploidy ploidy of the hom-ref genotype
+     * @param gq genotype quality of the hom-ref genotype
+     * @param dp depth of the site
+     * @param pls phred-scaled genotype likelihoods of the site, in VCF order (ie., hom-ref first)
+     */
+    void addHomRefSite(final String contig, final int position, final Allele refAllele, final String sampleName,
+                       final int ploidy, final int gq, final int dp, final int[] pls);
+}
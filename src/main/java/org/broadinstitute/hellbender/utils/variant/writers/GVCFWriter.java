@@ -23,8 +23,11 @@ import static htsjdk.variant.vcf.VCFConstants.MAX_GENOTYPE_QUAL;
 
 /**
  * Genome-wide VCF writer
+ *
+ * Hom-ref sites may be added either as VariantContexts or, through {@link #addHomRefSite(String, int, Allele, String, int, int, int, int[])},
+ * as primitive values, in which case no VariantContext is made until the band containing them is emitted.
  */
-public final class GVCFWriter implements VariantContextWriter {
+public final class GVCFWriter implements VariantContextWriter, GVCFRecordSink {
 
     /** Where we'll ultimately write our VCF records */
     private final VariantContextWriter underlyingWriter;
@@ -153,15 +156,8 @@ public final class GVCFWriter implements VariantContextWriter {
      * @return a VariantContext to be emitted, or null if non is appropriate
      */
     protected VariantContext addHomRefSite(final VariantContext vc, final Genotype g) {
-
-        if (nextAvailableStart != -1) {
-            // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
-            if (vc.getStart() <= nextAvailableStart && vc.getContig().equals(contigOfNextAvailableStart)) {
-                return null;
-            }
-            // otherwise, reset to non-relevant
-            nextAvailableStart = -1;
-            contigOfNextAvailableStart = null;
+        if (isCoveredByPreviousVariant(vc.getContig(), vc.getStart())) {
+            return null;
         }
 
         final VariantContext result;
@@ -175,11 +171,66 @@ public final class GVCFWriter implements VariantContextWriter {
         return result;
     }
 
+    /**
+     * Add a hom-ref site given as primitive values to this writer, merging it into the current band where possible.
+     * Produces the same output as adding the equivalent single-base VariantContext with {@link #add(VariantContext)},
+     * without making one.
+     */
+    @Override
+    public void addHomRefSite(final String contig, final int position, final Allele refAllele, final String sampleName,
+                              final int ploidy, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(contig, "contig cannot be null");
+        Utils.nonNull(refAllele, "refAllele cannot be null");
+        Utils.nonNull(pls, "pls cannot be null");
+
+        if (this.sampleName == null) {
+            this.sampleName = Utils.nonNull(sampleName, "sampleName cannot be null");
+        }
+
+        if (currentBlock != null && !currentBlock.isContiguous(contig, position)) {
+            // we've made a non-contiguous step (across interval, onto another chr), so finalize
+            emitCurrentBlock();
+        }
+
+        if (isCoveredByPreviousVariant(contig, position)) {
+            return;
+        }
+
+        if (siteCanBeMergedInCurrentBlock(ploidy, gq, pls)) {
+            currentBlock.add(position, ploidy, gq, dp, pls);
+        } else {
+            emitCurrentBlock();
+            currentBlock = createNewBlock(contig, position, refAllele, ploidy, gq, dp, pls);
+        }
+    }
+
+    /**
+     * Hom-ref sites that fall under the previously emitted variant (eg., within a deletion) don't go into any band.
+     *
+     * @return true if a hom-ref site at {@code contig:position} must be dropped
+     */
+    private boolean isCoveredByPreviousVariant(final String contig, final int position) {
+        if (nextAvailableStart != -1) {
+            // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
+            if (position <= nextAvailableStart && contig.equals(contigOfNextAvailableStart)) {
+                return true;
+            }
+            // otherwise, reset to non-relevant
+            nextAvailableStart = -1;
+            contigOfNextAvailableStart = null;
+        }
+        return false;
+    }
+
     private boolean genotypeCanBeMergedInCurrentBlock(final Genotype g) {
+        return siteCanBeMergedInCurrentBlock(g.getPloidy(), g.getGQ(), g.hasPL() ? g.getPL() : null);
+    }
+
+    private boolean siteCanBeMergedInCurrentBlock(final int ploidy, final int gq, final int[] pls) {
         return currentBlock != null
-                && currentBlock.withinBounds(Math.min(g.getGQ(), MAX_GENOTYPE_QUAL))
-                && currentBlock.getPloidy() == g.getPloidy()
-                && (currentBlock.getMinPLs() == null || !g.hasPL() || (currentBlock.getMinPLs().length == g.getPL().length));
+                && currentBlock.withinBounds(Math.min(gq, MAX_GENOTYPE_QUAL))
+                && currentBlock.getPloidy() == ploidy
+                && (currentBlock.getMinPLs() == null || pls == null || (currentBlock.getMinPLs().length == pls.length));
     }
 
     /**
@@ -215,6 +266,22 @@ public final class GVCFWriter implements VariantContextWriter {
         return block;
     }
 
+    /**
+     * Same as {@link #createNewBlock(VariantContext, Genotype)}, for a site given as primitive values
+     */
+    private HomRefBlock createNewBlock(final String contig, final int position, final Allele refAllele,
+                                       final int ploidy, final int gq, final int dp, final int[] pls) {
+        final Range<Integer> partition = gqPartitions.get(Math.min(gq, MAX_GENOTYPE_QUAL));
+
+        if( partition == null) {
+            throw new GATKException("GQ " + gq + " at " + contig + ":" + position + " didn't fit into any partition");
+        }
+
+        final HomRefBlock block = new HomRefBlock(contig, position, refAllele, ploidy, partition.lowerEndpoint(), partition.upperEndpoint());
+        block.add(position, ploidy, gq, dp, pls);
+        return block;
+    }
+
     /**
      * Add a VariantContext to this writer for emission
      *
@@ -7,16 +7,15 @@ import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.broadinstitute.hellbender.exceptions.GATKException;
-import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 
 /**
  * Helper class for calculating a GQ band in the GVCF writer
@@ -25,14 +24,21 @@ import java.util.List;
  * and provides summary information about the entire block of genotypes.
  *
  * Genotypes within the HomRefBlock are restricted to hom-ref genotypes within a band of GQ scores
+ *
+ * Only the primitive values of each site (GQ, DP and PLs) are kept, the VariantContext of the block is
+ * materialized by {@link #toVariantContext} when the block is emitted.
  */
 final class HomRefBlock implements Locatable {
 
     private static final int HOM_REF_PL_POSITION = 0;  //the first value in the minPL[] is always the HomRef
 
+    private static final String SOURCE = "GVCF";
+
     private final VariantContext startingVC;
+    private final String contig;
+    private final int start;
     private final int minGQ, maxGQ;
-    private final List<Integer> DPs = new ArrayList<>();
+    private final IntArrayList DPs = new IntArrayList();
     private final Allele ref;
     private final int ploidy;
 
@@ -47,16 +53,38 @@ final class HomRefBlock implements Locatable {
      * @param upperGQBound the upperGQBound (exclusive) to use in this band
      */
     public HomRefBlock(final VariantContext startingVC, final int lowerGQBound, final int upperGQBound, final int defaultPloidy) {
-        Utils.nonNull(startingVC, "startingVC cannot be null");
+        this(Utils.nonNull(startingVC, "startingVC cannot be null"), startingVC.getContig(), startingVC.getStart(),
+                startingVC.getReference(), startingVC.getMaxPloidy(defaultPloidy), lowerGQBound, upperGQBound);
+    }
+
+    /**
+     * Create a new HomRefBlock starting at a reference confidence site that was not given as a VariantContext.
+     * The block will have alleles {@code [ref, <NON_REF>]}, and no ID, QUAL or FILTER values.
+     *
+     * @param contig contig of the site that starts this band
+     * @param start position of the site that starts this band
+     * @param ref reference allele of the site that starts this band
+     * @param ploidy ploidy of the genotypes in this band
+     * @param lowerGQBound the lowerGQBound (inclusive) to use in this band
+     * @param upperGQBound the upperGQBound (exclusive) to use in this band
+     */
+    public HomRefBlock(final String contig, final int start, final Allele ref, final int ploidy, final int lowerGQBound, final int upperGQBound) {
+        this(null, Utils.nonNull(contig, "contig cannot be null"), start, Utils.nonNull(ref, "ref cannot be null"), ploidy, lowerGQBound, upperGQBound);
+    }
+
+    private HomRefBlock(final VariantContext startingVC, final String contig, final int start, final Allele ref, final int ploidy,
+                        final int lowerGQBound, final int upperGQBound) {
         Utils.validateArg(upperGQBound <= VCFConstants.MAX_GENOTYPE_QUAL + 1, "upperGQBound must be <= " + (VCFConstants.MAX_GENOTYPE_QUAL + 1));
         if ( lowerGQBound > upperGQBound ) { throw new IllegalArgumentException("bad lowerGQBound " + lowerGQBound + " as it's >= upperGQBound " + upperGQBound); }
 
         this.startingVC = startingVC;
-        this.end = getStart() - 1;
-        this.ref = startingVC.getReference();
+        this.contig = contig;
+        this.start = start;
+        this.end = start - 1;
+        this.ref = ref;
         this.minGQ = lowerGQBound;
         this.maxGQ = upperGQBound;
-        this.ploidy = startingVC.getMaxPloidy(defaultPloidy);
+        this.ploidy = ploidy;
     }
 
     /**
@@ -68,7 +96,8 @@ final class HomRefBlock implements Locatable {
      * is no variant-context to be output into the VCF.
      */
     public VariantContext toVariantContext(String sampleName) {
-        final VariantContextBuilder vcb = new VariantContextBuilder(getStartingVC());
+        final VariantContextBuilder vcb = startingVC != null ? new VariantContextBuilder(startingVC)
+                : new VariantContextBuilder(SOURCE, contig, start, start, Arrays.asList(ref, Allele.NON_REF_ALLELE));
         vcb.attributes(new LinkedHashMap<>(2)); // clear the attributes
         vcb.stop(getEnd());
         vcb.attribute(VCFConstants.END_KEY, getEnd());
@@ -102,18 +131,33 @@ final class HomRefBlock implements Locatable {
     public void add(final int pos, final Genotype genotype) {
         Utils.nonNull(genotype, "genotype cannot be null");
         if ( ! genotype.hasPL() ) { throw new IllegalArgumentException("genotype must have PL field");}
+        add(pos, genotype.getPloidy(), genotype.getGQ(), genotype.getDP(), genotype.getPL());
+    }
+
+    /**
+     * Add the GQ, DP and PLs of a hom-ref site to this band.
+     *
+     * Treats GQ values > 99 as 99.
+     *
+     * @param pos Current genomic position. Must be 1 base after the previous position
+     * @param ploidy ploidy of the hom-ref genotype at this site, must be the ploidy of this band
+     * @param gq GQ of the site
+     * @param dp DP of the site, negative values are treated as 0
+     * @param pls non-null PLs of the site, not retained by this band
+     */
+    public void add(final int pos, final int ploidy, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(pls, "pls cannot be null");
         if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
-        if ( genotype.getPloidy() != ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + genotype.getPloidy() + " != " + ploidy); }
+        if ( ploidy != this.ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + ploidy + " != " + this.ploidy); }
         // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
-        if ( !withinBounds(Math.min(genotype.getGQ(), VCFConstants.MAX_GENOTYPE_QUAL))) {
-            throw new IllegalArgumentException("cannot add a genotype with GQ=" + genotype.getGQ() + " because it's not within bounds ["
+        if ( !withinBounds(Math.min(gq, VCFConstants.MAX_GENOTYPE_QUAL))) {
+            throw new IllegalArgumentException("cannot add a genotype with GQ=" + gq + " because it's not within bounds ["
                     + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
         }
 
         if( minPLs == null ) {
-            minPLs = genotype.getPL();
+            minPLs = pls.clone();
         } else { // otherwise take the min with the provided genotype's PLs
-            final int[] pls = genotype.getPL();
             if (pls.length != minPLs.length) {
                 throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
             }
@@ -122,7 +166,7 @@ final class HomRefBlock implements Locatable {
             }
         }
         end = pos;
-        DPs.add(Math.max(genotype.getDP(), 0)); // DP must be >= 0
+        DPs.add(Math.max(dp, 0)); // DP must be >= 0
     }
 
     /**
@@ -136,13 +180,22 @@ final class HomRefBlock implements Locatable {
 
     /** Get the min DP observed within this band */
     public int getMinDP() {
-        return Collections.min(DPs);
+        Utils.validateArg(!DPs.isEmpty(), "cannot take the minimum DP of a band with no DPs.");
+        int minDP = DPs.getInt(0);
+        for (int i = 1; i < DPs.size(); i++) {
+            minDP = Math.min(minDP, DPs.getInt(i));
+        }
+        return minDP;
     }
 
     /** Get the median DP observed within this band
      * If there are an even number of DPs recorded in this band the median is the mean of the two middle values */
     public int getMedianDP() {
-        return (int) Math.round(MathUtils.median(DPs));
+        Utils.validateArg(!DPs.isEmpty(), "cannot take the median DP of a band with no DPs.");
+        final int[] sortedDPs = DPs.toIntArray();
+        Arrays.sort(sortedDPs);
+        final int middle = sortedDPs.length / 2;
+        return sortedDPs.length % 2 == 1 ? sortedDPs[middle] : (int) Math.round((sortedDPs[middle - 1] + (double) sortedDPs[middle]) / 2);
     }
 
     /** Get the min PLs observed within this band, can be null if no PLs have yet been observed */
@@ -158,21 +211,31 @@ final class HomRefBlock implements Locatable {
     }
 
     public boolean isContiguous(final VariantContext vc) {
-        return (vc.getEnd() == getEnd() + 1) && startingVC.getContig().equals(vc.getContig());
+        return isContiguous(vc.getContig(), vc.getEnd());
     }
 
+    /**
+     * @return true if a record on {@code contig} ending at {@code end} immediately follows this band
+     */
+    public boolean isContiguous(final String contig, final int end) {
+        return (end == getEnd() + 1) && this.contig.equals(contig);
+    }
+
+    /**
+     * @return the VariantContext that started this band, or null if the band was started from a site given as primitives
+     */
     public VariantContext getStartingVC() {
         return startingVC;
     }
 
     @Override
     public String getContig() {
-        return startingVC.getContig();
+        return contig;
     }
 
     @Override
     public int getStart() {
-        return startingVC.getStart();
+        return start;
     }
 
     @Override
@@ -0,0 +1,187 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.TestProgramGroup;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public final class FeatureIntervalIndexUnitTest extends GATKBaseTest {
+
+    @CommandLineProgramProperties(summary = "", oneLineSummary = "", programGroup = TestProgramGroup.class)
+    private static class ArtificialFeatureContainingCommandLineProgram extends CommandLineProgram {
+        @Argument(fullName = "variantArgument")
+        FeatureInput<VariantContext> variantArgument;
+
+        @Argument(fullName = "otherVariantArgument")
+        FeatureInput<VariantContext> otherVariantArgument;
+
+        public ArtificialFeatureContainingCommandLineProgram() {
+            variantArgument = new FeatureInput<>(publicTestDir + "org/broadinstitute/hellbender/engine/feature_data_source_test.vcf");
+            otherVariantArgument = new FeatureInput<>("other:" + publicTestDir + "org/broadinstitute/hellbender/engine/feature_data_source_test_gvcf.vcf");
+        }
+
+        @Override
+        protected Object doWork() {
+            return null;
+        }
+    }
+
+    // Includes overlapping intervals, intervals out of order, and a deletion (1:203-206) overlapping two intervals
+    private static final List<SimpleInterval> INDEXED_INTERVALS = Arrays.asList(
+            new SimpleInterval("2", 500, 600),
+            new SimpleInterval("1", 150, 204),
+            new SimpleInterval("1", 206, 270),
+            new SimpleInterval("1", 250, 290),
+            new SimpleInterval("1", 995, 1001),
+            new SimpleInterval("3", 300, 300));
+
+    @DataProvider(name = "IndexedQueries")
+    public Object[][] getIndexedQueries() {
+        return new Object[][] {
+                { new SimpleInterval("1", 150, 290) },
+                { new SimpleInterval("1", 199, 200) },
+                { new SimpleInterval("1", 205, 205) },
+                { new SimpleInterval("1", 206, 206) },
+                { new SimpleInterval("1", 284, 286) },
+                { new SimpleInterval("1", 995, 1001) },
+                { new SimpleInterval("1", 1000, 1000) },
+                { new SimpleInterval("2", 500, 600) },
+                { new SimpleInterval("2", 550, 560) },
+                { new SimpleInterval("3", 300, 300) }
+        };
+    }
+
+    @Test(dataProvider = "IndexedQueries")
+    public void testQueriesWithinIndexedIntervalsMatchFeatureManager( final SimpleInterval query ) {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Arrays.asList(toolInstance.variantArgument, toolInstance.otherVariantArgument), INDEXED_INTERVALS);
+
+            for ( final FeatureInput<VariantContext> input : Arrays.asList(toolInstance.variantArgument, toolInstance.otherVariantArgument) ) {
+                Assert.assertEquals(getKeys(index.getFeatures(input, query)), getKeys(featureManager.getFeatures(input, query)),
+                        "Wrong features for " + input.getName() + " over " + query);
+            }
+        }
+    }
+
+    @Test
+    public void testFeaturesSpanningIntervalsAreIndexedOnce() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Collections.singletonList(toolInstance.variantArgument), INDEXED_INTERVALS);
+
+            final List<VariantContext> deletions = index.getFeatures(toolInstance.variantArgument, new SimpleInterval("1", 203, 206));
+            Assert.assertEquals(deletions.stream().map(VariantContext::getID).collect(Collectors.toList()), Collections.singletonList("d"));
+        }
+    }
+
+    @Test
+    public void testFeaturesOutsideOfIndexedIntervalsAreNotReturned() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Collections.singletonList(toolInstance.variantArgument), INDEXED_INTERVALS);
+
+            Assert.assertFalse(featureManager.getFeatures(toolInstance.variantArgument, new SimpleInterval("1", 100, 100)).isEmpty());
+            Assert.assertTrue(index.getFeatures(toolInstance.variantArgument, new SimpleInterval("1", 100, 100)).isEmpty());
+            Assert.assertTrue(index.getFeatures(toolInstance.variantArgument, new SimpleInterval("4", 1, 1000)).isEmpty());
+        }
+    }
+
+    @Test
+    public void testVariantsAreCompacted() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Arrays.asList(toolInstance.variantArgument, toolInstance.otherVariantArgument), INDEXED_INTERVALS);
+
+            for ( final FeatureInput<VariantContext> input : Arrays.asList(toolInstance.variantArgument, toolInstance.otherVariantArgument) ) {
+                final SimpleInterval query = new SimpleInterval("1", 150, 290);
+                final List<VariantContext> indexed = index.getFeatures(input, query);
+                final List<VariantContext> original = featureManager.getFeatures(input, query);
+                Assert.assertEquals(indexed.size(), original.size());
+                for ( int i = 0; i < indexed.size(); i++ ) {
+                    // only the fields needed to match IDs or genotype given alleles are kept
+                    Assert.assertEquals(indexed.get(i).getContig(), original.get(i).getContig());
+                    Assert.assertEquals(indexed.get(i).getStart(), original.get(i).getStart());
+                    Assert.assertEquals(indexed.get(i).getEnd(), original.get(i).getEnd());
+                    Assert.assertEquals(indexed.get(i).getAlleles(), original.get(i).getAlleles());
+                    Assert.assertEquals(indexed.get(i).getID(), original.get(i).getID());
+                    Assert.assertEquals(indexed.get(i).getFilters(), original.get(i).getFilters());
+                    Assert.assertEquals(indexed.get(i).isFiltered(), original.get(i).isFiltered());
+                    Assert.assertTrue(indexed.get(i).getAttributes().isEmpty());
+                    Assert.assertFalse(indexed.get(i).hasGenotypes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetAllInputs() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Collections.singletonList(toolInstance.variantArgument), INDEXED_INTERVALS);
+
+            Assert.assertEquals(index.getAllInputs(), Collections.singleton(toolInstance.variantArgument));
+        }
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testQueryUnindexedInput() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Collections.singletonList(toolInstance.variantArgument), INDEXED_INTERVALS);
+
+            index.getFeatures(toolInstance.otherVariantArgument, new SimpleInterval("1", 150, 290));
+        }
+    }
+
+    @Test
+    public void testFeatureContextBackedByIndex() {
+        final ArtificialFeatureContainingCommandLineProgram toolInstance = new ArtificialFeatureContainingCommandLineProgram();
+        try ( final FeatureManager featureManager = new FeatureManager(toolInstance) ) {
+            final FeatureIntervalIndex index = FeatureIntervalIndex.of(featureManager,
+                    Collections.singletonList(toolInstance.variantArgument), INDEXED_INTERVALS);
+            final SimpleInterval interval = new SimpleInterval("1", 280, 290);
+            final FeatureContext indexedContext = FeatureContext.fromFeatureIndex(index, interval);
+            final FeatureContext managedContext = new FeatureContext(featureManager, interval);
+
+            Assert.assertTrue(indexedContext.hasBackingDataSource());
+            Assert.assertEquals(indexedContext.getInterval(), interval);
+            Assert.assertEquals(getKeys(indexedContext.getValues(toolInstance.variantArgument)),
+                    getKeys(managedContext.getValues(toolInstance.variantArgument)));
+            Assert.assertEquals(getKeys(indexedContext.getValues(toolInstance.variantArgument, 285)),
+                    getKeys(managedContext.getValues(toolInstance.variantArgument, 285)));
+            Assert.assertNull(indexedContext.getHeader(toolInstance.variantArgument));
+        }
+    }
+
+    @Test
+    public void testFeatureContextBackedByNullIndex() {
+        final FeatureContext featureContext = FeatureContext.fromFeatureIndex(null, new SimpleInterval("1", 280, 290));
+        Assert.assertFalse(featureContext.hasBackingDataSource());
+        Assert.assertTrue(featureContext.getValues(new ArtificialFeatureContainingCommandLineProgram().variantArgument).isEmpty());
+    }
+
+    private static List<String> getKeys( final List<? extends Feature> features ) {
+        return features.stream()
+                .map(feature -> feature.getContig() + ":" + feature.getStart() + "-" + feature.getEnd() + " " + ((VariantContext)feature).getID())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -695,4 +695,49 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
     public void testIdentifySortOrder(final List<SAMFileHeader> headers, final SAMFileHeader.SortOrder expected) {
         Assert.assertEquals(ReadsDataSource.identifySortOrder(headers), expected);
     }
+
+    @Test
+    public void testQueryCaching() {
+        final Path bam = IOUtils.getPath(READS_DATA_SOURCE_TEST_DIRECTORY + "CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10000000-10000020.with.unmapped.bam");
+        final List<SimpleInterval> queries = new ArrayList<>();
+        // overlapping windows with increasing starts, one within the last window, then going backwards, to another
+        // contig, and a query too long to cache
+        for ( int start = 9_999_900; start <= 10_000_100; start += 20 ) {
+            queries.add(new SimpleInterval("20", start, start + 49));
+        }
+        queries.add(new SimpleInterval("20", 10_000_110, 10_000_120));
+        queries.add(new SimpleInterval("20", 10_000_010, 10_000_012));
+        queries.add(new SimpleInterval("20", 9_999_950, 10_000_000));
+        // queries starting just past the end of the cache
+        queries.add(new SimpleInterval("20", 10_000_000, 10_000_000));
+        queries.add(new SimpleInterval("20", 10_000_001, 10_000_001));
+        queries.add(new SimpleInterval("20", 10_000_001, 10_000_050));
+        queries.add(new SimpleInterval("21", 10_000_000, 10_000_020));
+        queries.add(new SimpleInterval("21", 10_000_010, 10_000_030));
+        queries.add(new SimpleInterval("21", 1, ReadsDataSource.MAX_CACHED_QUERY_LENGTH + 10_000_000));
+
+        try ( final ReadsDataSource uncachedSource = new ReadsDataSource(bam);
+              final ReadsDataSource cachedSource = new ReadsDataSource(bam) ) {
+            cachedSource.setQueryCaching(true);
+            for ( final SimpleInterval query : queries ) {
+                final List<String> expectedReads = new ArrayList<>();
+                uncachedSource.query(query).forEachRemaining(read -> expectedReads.add(read.commonToString()));
+                final List<String> actualReads = new ArrayList<>();
+                cachedSource.query(query).forEachRemaining(read -> actualReads.add(read.commonToString()));
+                Assert.assertEquals(actualReads, expectedReads, "Wrong reads for " + query);
+            }
+
+            final ReadCache cache = cachedSource.getQueryCache();
+            Assert.assertEquals(cache.getNumCacheHits(), 2);
+            Assert.assertEquals(cache.getNumCacheExtensions(), 13);
+            Assert.assertEquals(cache.getNumCacheMisses(), 4);
+
+            // cached reads are handed out as copies
+            final SimpleInterval query = new SimpleInterval("21", 10_000_010, 10_000_010);
+            final GATKRead read = cachedSource.query(query).next();
+            final String name = read.getName();
+            read.setName("modified");
+            Assert.assertEquals(cachedSource.query(query).next().getName(), name);
+        }
+    }
 }
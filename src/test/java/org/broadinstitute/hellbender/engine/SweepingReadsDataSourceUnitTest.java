@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public final class SweepingReadsDataSourceUnitTest extends GATKBaseTest {
+    private static final Path TEST_BAM = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/engine/CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10000000-10000020.with.unmapped.bam");
+
+    private static List<SimpleInterval> makeSites( final String contig, final int start, final int end, final int step, final int length ) {
+        final List<SimpleInterval> sites = new ArrayList<>();
+        for ( int position = start; position <= end; position += step ) {
+            sites.add(new SimpleInterval(contig, position, position + length - 1));
+        }
+        return sites;
+    }
+
+    private static List<SimpleInterval> concat( final List<SimpleInterval> first, final List<SimpleInterval> second ) {
+        final List<SimpleInterval> result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    @DataProvider(name = "queries")
+    public Object[][] getQueries() {
+        return new Object[][] {
+                // dense sites, streamed
+                { makeSites("20", 9_999_800, 10_000_200, 3, 1), 100 },
+                // overlapping deletions of various lengths
+                { makeSites("20", 9_999_900, 10_000_150, 7, 25), 100 },
+                // several contigs
+                { concat(makeSites("20", 9_999_900, 10_000_150, 11, 1), makeSites("21", 9_999_900, 10_000_150, 11, 1)), 100 },
+                // gaps larger than the maximum, so that the stream is re-opened for every query
+                { makeSites("20", 9_999_800, 10_000_200, 50, 1), 10 },
+                // queries going backwards, and back to an earlier contig
+                { concat(concat(makeSites("20", 10_000_000, 10_000_050, 10, 1), makeSites("20", 9_999_950, 10_000_100, 10, 1)),
+                        concat(makeSites("21", 10_000_000, 10_000_050, 10, 1), makeSites("20", 10_000_000, 10_000_050, 10, 1))), 100 },
+                // the same site repeatedly
+                { Arrays.asList(new SimpleInterval("20", 10_000_010, 10_000_010), new SimpleInterval("20", 10_000_010, 10_000_010),
+                        new SimpleInterval("20", 10_000_010, 10_000_020), new SimpleInterval("20", 10_000_011, 10_000_011)), 100 }
+        };
+    }
+
+    @Test(dataProvider = "queries")
+    public void testQueriesMatchReadsDataSource( final List<SimpleInterval> queries, final int maxGapForStreaming ) {
+        try ( final ReadsDataSource expectedSource = new ReadsDataSource(TEST_BAM);
+              final ReadsDataSource sweptSource = new ReadsDataSource(TEST_BAM) ) {
+            final SweepingReadsDataSource sweepingSource = new SweepingReadsDataSource(sweptSource, maxGapForStreaming);
+            int totalReads = 0;
+            for ( final SimpleInterval query : queries ) {
+                final List<String> expectedReads = getReadKeys(expectedSource.query(query));
+                Assert.assertEquals(getReadKeys(sweepingSource.query(query)), expectedReads, "Wrong reads for " + query);
+                totalReads += expectedReads.size();
+            }
+            Assert.assertTrue(totalReads > 0, "Test queries should overlap some reads");
+            Assert.assertEquals(sweepingSource.getNumQueriesFromWindow() + sweepingSource.getNumSeeks() + sweepingSource.getNumDirectQueries(), queries.size());
+        }
+    }
+
+    @Test
+    public void testDenseQueriesAreStreamed() {
+        final List<SimpleInterval> queries = makeSites("20", 9_999_900, 10_000_150, 1, 1);
+        try ( final ReadsDataSource sweptSource = new ReadsDataSource(TEST_BAM) ) {
+            final SweepingReadsDataSource sweepingSource = new SweepingReadsDataSource(sweptSource);
+            queries.forEach(query -> sweepingSource.query(query).forEachRemaining(read -> {}));
+            Assert.assertEquals(sweepingSource.getNumSeeks(), 1);
+            Assert.assertEquals(sweepingSource.getNumDirectQueries(), 0);
+            Assert.assertEquals(sweepingSource.getNumQueriesFromWindow(), queries.size() - 1);
+        }
+    }
+
+    @Test
+    public void testReturnedReadsAreCopies() {
+        final SimpleInterval query = new SimpleInterval("20", 10_000_010, 10_000_010);
+        try ( final ReadsDataSource sweptSource = new ReadsDataSource(TEST_BAM) ) {
+            final SweepingReadsDataSource sweepingSource = new SweepingReadsDataSource(sweptSource);
+            final GATKRead read = sweepingSource.query(query).next();
+            final String name = read.getName();
+            read.setName("modified");
+            Assert.assertEquals(sweepingSource.query(query).next().getName(), name);
+        }
+    }
+
+    private static List<String> getReadKeys( final Iterator<GATKRead> reads ) {
+        final List<String> keys = new ArrayList<>();
+        reads.forEachRemaining(read -> keys.add(read.getName() + " " + read.getAssignedContig() + ":" + read.getAssignedStart() + " " + read.isFirstOfPair() + " " + read.isUnmapped()));
+        return keys;
+    }
+}
@@ -0,0 +1,70 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class VariantWalkerUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testMakePartitionsSplitsAndGroupsIntervals() {
+        final List<SimpleInterval> intervals = Arrays.asList(
+                new SimpleInterval("1", 1, 250),
+                new SimpleInterval("1", 301, 320),
+                new SimpleInterval("1", 401, 420),
+                new SimpleInterval("2", 1, 100));
+
+        final List<VariantWalker.VariantPartition> partitions = VariantWalker.makePartitions(intervals, 100);
+
+        Assert.assertEquals(partitions.size(), 4);
+        Assert.assertEquals(partitions.get(0).getIntervals(), Collections.singletonList(new SimpleInterval("1", 1, 100)));
+        Assert.assertNull(partitions.get(0).getPrecedingInterval());
+        Assert.assertEquals(partitions.get(1).getIntervals(), Collections.singletonList(new SimpleInterval("1", 101, 200)));
+        Assert.assertEquals(partitions.get(1).getPrecedingInterval(), new SimpleInterval("1", 1, 100));
+        Assert.assertEquals(partitions.get(2).getIntervals(), Arrays.asList(
+                new SimpleInterval("1", 201, 250),
+                new SimpleInterval("1", 301, 320),
+                new SimpleInterval("1", 401, 420),
+                new SimpleInterval("2", 1, 10)));
+        Assert.assertEquals(partitions.get(2).getPrecedingInterval(), new SimpleInterval("1", 101, 200));
+        Assert.assertEquals(partitions.get(3).getIntervals(), Collections.singletonList(new SimpleInterval("2", 11, 100)));
+        Assert.assertEquals(partitions.get(3).getPrecedingInterval(), new SimpleInterval("2", 1, 10));
+    }
+
+    @Test
+    public void testMakePartitionsOfNoIntervals() {
+        Assert.assertTrue(VariantWalker.makePartitions(Collections.emptyList(), 100).isEmpty());
+    }
+
+    @Test
+    public void testVariantsSpanningPartitionsAreTraversedOnce() {
+        final List<VariantWalker.VariantPartition> partitions = VariantWalker.makePartitions(
+                Collections.singletonList(new SimpleInterval("1", 1, 300)), 100);
+
+        // a deletion starting in the first partition and ending in the second one belongs to the first partition only
+        final VariantContext spanningDeletion = makeVariant("1", 90, 110);
+        Assert.assertFalse(partitions.get(0).isTraversedByPrecedingPartition(spanningDeletion));
+        Assert.assertTrue(partitions.get(1).isTraversedByPrecedingPartition(spanningDeletion));
+
+        final VariantContext snp = makeVariant("1", 150, 150);
+        Assert.assertFalse(partitions.get(1).isTraversedByPrecedingPartition(snp));
+        Assert.assertFalse(partitions.get(2).isTraversedByPrecedingPartition(snp));
+    }
+
+    private static VariantContext makeVariant(final String contig, final int start, final int end) {
+        final StringBuilder refBases = new StringBuilder();
+        for ( int i = start; i <= end; i++ ) {
+            refBases.append('A');
+        }
+        final List<Allele> alleles = Arrays.asList(Allele.create(refBases.toString(), true), Allele.create(start == end ? "C" : "A"));
+        return new VariantContextBuilder("test", contig, start, end, alleles).make();
+    }
+}
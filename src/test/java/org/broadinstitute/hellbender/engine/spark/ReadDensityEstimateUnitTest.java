@@ -0,0 +1,124 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.Shard;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class ReadDensityEstimateUnitTest extends GATKBaseTest {
+
+    // Has reads around 10,000,000 on contigs 20 and 21, and none elsewhere
+    private static final String INDEXED_BAM = publicTestDir + "org/broadinstitute/hellbender/engine/CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10000000-10000020.with.unmapped.bam";
+    private static final String UNINDEXED_SAM = publicTestDir + "org/broadinstitute/hellbender/engine/cramtest.sam";
+
+    private static SAMSequenceDictionary getDictionary() throws IOException {
+        try ( final SamReader reader = SamReaderFactory.makeDefault().open(new File(INDEXED_BAM)) ) {
+            return reader.getFileHeader().getSequenceDictionary();
+        }
+    }
+
+    @Test
+    public void testEstimateCost() {
+        final ReadDensityEstimate readDensity = ReadDensityEstimate.fromReadsPath(INDEXED_BAM);
+        Assert.assertNotNull(readDensity);
+
+        Assert.assertTrue(readDensity.estimateCost("20", 9_999_901, 10_000_100) > 0.0);
+        Assert.assertTrue(readDensity.estimateCost("21", 9_999_901, 10_000_100) > 0.0);
+        Assert.assertEquals(readDensity.estimateCost("20", 1, 1_000_000), 0.0);
+        Assert.assertEquals(readDensity.estimateCost("20", 10_000_100, 9_999_901), 0.0);
+        Assert.assertEquals(readDensity.estimateCost("unknownContig", 1, 1_000_000), 0.0);
+
+        // costs are additive
+        Assert.assertEquals(readDensity.estimateCost("20", 9_990_001, 10_010_000),
+                readDensity.estimateCost("20", 9_990_001, 10_000_000) + readDensity.estimateCost("20", 10_000_001, 10_010_000), 1e-6);
+    }
+
+    @Test
+    public void testNoEstimateWithoutIndex() {
+        Assert.assertNull(ReadDensityEstimate.fromReadsPath(UNINDEXED_SAM));
+    }
+
+    @Test
+    public void testDenseShardsAreSmaller() throws IOException {
+        final SAMSequenceDictionary dictionary = getDictionary();
+        final ReadDensityEstimate readDensity = ReadDensityEstimate.fromReadsPath(INDEXED_BAM);
+        Assert.assertNotNull(readDensity);
+
+        // The short third interval has few reads, so the median cost of the (whole) intervals is the cost of
+        // the one of the first two with fewer reads
+        final SimpleInterval on20 = new SimpleInterval("20", 9_990_001, 10_010_000);
+        final SimpleInterval on21 = new SimpleInterval("21", 9_990_001, 10_010_000);
+        final SimpleInterval tail = new SimpleInterval("20", 10_010_001, 10_010_600);
+        final List<SimpleInterval> intervals = Arrays.asList(on20, on21, tail);
+        final int maxShardSize = 20_000;
+        final int minShardSize = 1_000;
+        final int padding = 100;
+        final List<ShardBoundary> shards = readDensity.divideIntervalsIntoShards(intervals, maxShardSize, minShardSize, padding, dictionary);
+
+        final double cost20 = readDensity.estimateCost(on20.getContig(), on20.getStart(), on20.getEnd());
+        final double cost21 = readDensity.estimateCost(on21.getContig(), on21.getStart(), on21.getEnd());
+        Assert.assertNotEquals(cost20, cost21);
+        final SimpleInterval denser = cost20 > cost21 ? on20 : on21;
+        final SimpleInterval sparser = cost20 > cost21 ? on21 : on20;
+
+        for ( final SimpleInterval interval : intervals ) {
+            final List<ShardBoundary> intervalShards = getShardsWithin(shards, interval);
+            assertShardsTile(intervalShards, interval, maxShardSize, minShardSize, padding);
+        }
+        Assert.assertTrue(getShardsWithin(shards, denser).size() > 1);
+        Assert.assertEquals(getShardsWithin(shards, sparser).size(), 1);
+        Assert.assertEquals(getShardsWithin(shards, tail).size(), 1);
+    }
+
+    @Test
+    public void testFixedShardsWithoutReads() throws IOException {
+        final SAMSequenceDictionary dictionary = getDictionary();
+        final ReadDensityEstimate readDensity = ReadDensityEstimate.fromReadsPath(INDEXED_BAM);
+        Assert.assertNotNull(readDensity);
+
+        final SimpleInterval interval = new SimpleInterval("20", 1, 100_000);
+        final List<ShardBoundary> shards = readDensity.divideIntervalsIntoShards(Collections.singletonList(interval), 30_000, 1_000, 50, dictionary);
+        Assert.assertEquals(shards, Shard.divideIntervalIntoShards(interval, 30_000, 50, dictionary));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMinShardSizeLargerThanMax() throws IOException {
+        final ReadDensityEstimate readDensity = ReadDensityEstimate.fromReadsPath(INDEXED_BAM);
+        Assert.assertNotNull(readDensity);
+        readDensity.divideIntervalsIntoShards(Collections.singletonList(new SimpleInterval("20", 1, 100_000)), 1_000, 2_000, 0, getDictionary());
+    }
+
+    private static List<ShardBoundary> getShardsWithin(final List<ShardBoundary> shards, final SimpleInterval interval) {
+        return shards.stream().filter(shard -> interval.contains(shard.getInterval())).collect(Collectors.toList());
+    }
+
+    private static void assertShardsTile(final List<ShardBoundary> shards, final SimpleInterval interval, final int maxShardSize,
+                                         final int minShardSize, final int padding) {
+        Assert.assertFalse(shards.isEmpty());
+        int expectedStart = interval.getStart();
+        for ( int i = 0; i < shards.size(); i++ ) {
+            final SimpleInterval shard = shards.get(i).getInterval();
+            Assert.assertEquals(shard.getStart(), expectedStart, "Shards of " + interval + " are not contiguous");
+            Assert.assertTrue(shard.size() <= maxShardSize);
+            if ( i < shards.size() - 1 ) {
+                Assert.assertTrue(shard.size() >= minShardSize);
+            }
+            Assert.assertEquals(shards.get(i).getPaddedInterval(),
+                    new SimpleInterval(shard.getContig(), shard.getStart() - padding, shard.getEnd() + padding));
+            expectedStart = shard.getEnd() + 1;
+        }
+        Assert.assertEquals(expectedStart, interval.getEnd() + 1);
+    }
+}
@@ -0,0 +1,77 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.Iterators;
+import org.apache.spark.util.AccumulatorV2;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+public final class ShardTimingAccumulatorUnitTest extends GATKBaseTest {
+
+    private static final SimpleInterval SHARD1 = new SimpleInterval("1", 1, 100);
+    private static final SimpleInterval SHARD2 = new SimpleInterval("1", 101, 200);
+    private static final SimpleInterval SHARD3 = new SimpleInterval("2", 1, 100);
+
+    @Test
+    public void testEmpty() {
+        final ShardTimingAccumulator accumulator = new ShardTimingAccumulator();
+        Assert.assertTrue(accumulator.isZero());
+        Assert.assertEquals(accumulator.value().getNumShards(), 0);
+        Assert.assertEquals(accumulator.value().getMeanMillis(), 0.0);
+        Assert.assertNull(accumulator.value().getSlowestShard());
+        Assert.assertEquals(accumulator.value().getPercentileUpperBoundMillis(0.5), 0);
+        Assert.assertEquals(accumulator.value().toString(), "No shards were processed");
+    }
+
+    @Test
+    public void testAddAndMerge() {
+        final ShardTimingAccumulator accumulator = new ShardTimingAccumulator();
+        accumulator.add(SHARD1, TimeUnit.MILLISECONDS.toNanos(3));
+        accumulator.add(SHARD2, TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertFalse(accumulator.isZero());
+
+        final AccumulatorV2<ShardTimingAccumulator.ShardTiming, ShardTimingAccumulator.Statistics> other = accumulator.copy();
+        other.reset();
+        Assert.assertTrue(other.isZero());
+        other.add(new ShardTimingAccumulator.ShardTiming(SHARD3, TimeUnit.MILLISECONDS.toNanos(5)));
+        accumulator.merge(other);
+
+        final ShardTimingAccumulator.Statistics statistics = accumulator.value();
+        Assert.assertEquals(statistics.getNumShards(), 3);
+        Assert.assertEquals(statistics.getMeanMillis(), 36.0, 1e-9);
+        Assert.assertEquals(statistics.getMaxMillis(), 100.0, 1e-9);
+        Assert.assertEquals(statistics.getSlowestShard(), SHARD2);
+        // 3 ms is in the bucket of times < 4 ms, 5 ms in the bucket < 8 ms, and 100 ms in the bucket < 128 ms
+        Assert.assertEquals(statistics.getPercentileUpperBoundMillis(0.3), 4);
+        Assert.assertEquals(statistics.getPercentileUpperBoundMillis(0.5), 8);
+        Assert.assertEquals(statistics.getPercentileUpperBoundMillis(1.0), 128);
+
+        // merging doesn't change the merged accumulator
+        Assert.assertEquals(other.value().getNumShards(), 1);
+    }
+
+    @Test
+    public void testRecordWhenExhausted() {
+        final ShardTimingAccumulator accumulator = new ShardTimingAccumulator();
+        final Iterator<Integer> results = accumulator.recordWhenExhausted(SHARD1, System.nanoTime(), Arrays.asList(1, 2, 3).iterator());
+        Assert.assertEquals(accumulator.value().getNumShards(), 0);
+        Assert.assertEquals(Iterators.size(results), 3);
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals(accumulator.value().getNumShards(), 1);
+        Assert.assertEquals(accumulator.value().getSlowestShard(), SHARD1);
+
+        Assert.assertFalse(accumulator.recordWhenExhausted(SHARD2, System.nanoTime(), Collections.emptyIterator()).hasNext());
+        Assert.assertEquals(accumulator.value().getNumShards(), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeTime() {
+        new ShardTimingAccumulator().add(SHARD1, -1);
+    }
+}
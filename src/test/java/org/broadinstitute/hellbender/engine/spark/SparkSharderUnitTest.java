@@ -190,6 +190,26 @@ public class SparkSharderUnitTest extends GATKBaseTest implements Serializable {
         }
     }
 
+    @Test
+    public void testShardsAreInCoordinateOrder() throws IOException {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        // One read starting at each position of contig 1, and one interval per position, so that there are many
+        // intervals in each partition of reads, and the intervals are parallelized over many slices.
+        List<TestRead> readList = new ArrayList<>();
+        List<ShardBoundary> shardBoundaries = new ArrayList<>();
+        for (int start = 1; start <= 98; start++) {
+            readList.add(new TestRead(start, start + STANDARD_READ_LENGTH - 1));
+            SimpleInterval interval = new SimpleInterval("1", start, start);
+            shardBoundaries.add(new ShardBoundary(interval, interval));
+        }
+        JavaRDD<TestRead> reads = ctx.parallelize(readList, 4);
+
+        List<SimpleInterval> shardIntervals = SparkSharder.shard(ctx, reads, TestRead.class, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, false)
+                .map(Shard::getInterval).collect();
+        assertEquals(shardIntervals, shardBoundaries.stream().map(ShardBoundary::getInterval).collect(Collectors.toList()));
+    }
+
     @Test
     public void testContigBoundary() throws IOException {
         JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine.spark.datasources;
 
+import com.google.common.base.Throwables;
 import com.google.common.io.Files;
 import htsjdk.samtools.seekablestream.SeekablePathStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
@@ -12,6 +13,7 @@ import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -27,6 +29,8 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
@@ -62,6 +66,29 @@ public final class VariantsSparkSinkUnitTest extends GATKBaseTest {
         assertSingleShardedWritingWorks(vcf, outputFile.getAbsolutePath());
     }
 
+    @Test(dataProvider = "loadVariants", groups = "spark")
+    public void variantsSinkSortedTest(String vcf, String outputFileExtension) throws IOException {
+        final File outputFile = createTempFile(outputFileName, outputFileExtension);
+        assertSingleShardedWritingWorks(vcf, outputFile.getAbsolutePath(), true);
+    }
+
+    @Test(groups = "spark")
+    public void variantsSinkSortedRejectsUnsortedVariants() throws IOException {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final List<VariantContext> variants = new ArrayList<>(new VariantsSparkSource(ctx).getParallelVariantContexts(hg19_chr1_1M_dbSNP, null).collect());
+        Assert.assertTrue(variants.size() > 1);
+        Collections.reverse(variants);
+
+        final File outputFile = createTempFile(outputFileName, ".vcf");
+        try {
+            VariantsSparkSink.writeSortedVariants(ctx, outputFile.getAbsolutePath(), ctx.parallelize(variants, 1), getHeader(hg19_chr1_1M_dbSNP), false, null, 0);
+            Assert.fail("Writing unsorted variants should fail");
+        } catch (final Exception e) {
+            // The check runs in a Spark task, so Spark may wrap the GATKException it throws
+            Assert.assertTrue(Throwables.getCausalChain(e).stream().anyMatch(cause -> cause instanceof GATKException), "Unexpected exception: " + e);
+        }
+    }
+
     @Test(dataProvider = "loadVariants", groups = "spark")
     public void variantsSinkHDFSTest(String vcf, String outputFileExtension) throws IOException {
         final String outputHDFSPath = MiniClusterUtils.getTempPath(cluster, outputFileName, outputFileExtension).toString();
@@ -85,16 +112,25 @@ public final class VariantsSparkSinkUnitTest extends GATKBaseTest {
     }
 
     private void assertSingleShardedWritingWorks(String vcf, String outputPath) throws IOException {
+        assertSingleShardedWritingWorks(vcf, outputPath, false);
+    }
+
+    private void assertSingleShardedWritingWorks(String vcf, String outputPath, boolean writeSorted) throws IOException {
         JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
 
         VariantsSparkSource variantsSparkSource = new VariantsSparkSource(ctx);
         JavaRDD<VariantContext> variants = variantsSparkSource.getParallelVariantContexts(vcf, null);
         if (variants.getNumPartitions() == 1) {
-            variants = variants.repartition(3); // repartition to more than 1 partition
+            // repartition to more than 1 partition (keeping the variants in order when writing them without sorting)
+            variants = writeSorted ? ctx.parallelize(variants.collect(), 3) : variants.repartition(3);
         }
         VCFHeader header = getHeader(vcf);
 
-        VariantsSparkSink.writeVariants(ctx, outputPath, variants, header);
+        if (writeSorted) {
+            VariantsSparkSink.writeSortedVariants(ctx, outputPath, variants, header, false, null, 0);
+        } else {
+            VariantsSparkSink.writeVariants(ctx, outputPath, variants, header);
+        }
 
         JavaRDD<VariantContext> variants2 = variantsSparkSource.getParallelVariantContexts(outputPath, null);
         final List<VariantContext> writtenVariants = variants2.collect();
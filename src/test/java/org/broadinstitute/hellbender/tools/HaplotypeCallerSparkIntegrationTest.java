@@ -1,10 +1,17 @@
 package org.broadinstitute.hellbender.tools;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.util.LongAccumulator;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.Main;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceWindowFunctions;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
@@ -12,6 +19,8 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculationArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerArgumentCollection;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
@@ -19,8 +28,9 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.*;
 
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCaller;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerIntegrationTest;
 
 public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest {
@@ -159,6 +169,110 @@ public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest
         Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.8 in AS GVCF mode is < 99% (" +  concordance + ")");
     }
 
+    /*
+     * Test that the variants overlapping --dbsnp and --comp are annotated as by the non-spark HaplotypeCaller
+     */
+    @Test
+    public void testDbsnpAndCompAnnotationsMatchHaplotypeCaller() throws Exception {
+        final File sparkOutput = createTempFile("testDbsnpAndCompAnnotationsSpark", ".vcf");
+        final File walkerOutput = createTempFile("testDbsnpAndCompAnnotationsWalker", ".vcf");
+        final List<String> featureArgs = Arrays.asList(
+                "-L", "20:10000000-10010000",
+                "--dbsnp", dbsnp_138_b37_20_21_vcf,
+                "--comp:knownSites", dbsnp_138_b37_20_21_vcf,
+                "-pairHMM", "AVX_LOGLESS_CACHING");
+
+        Utils.resetRandomGenerator();
+        final List<String> sparkArgs = new ArrayList<>(Arrays.asList("-I", NA12878_20_21_WGS_bam, "-R", b37_2bit_reference_20_21, "-O", sparkOutput.getAbsolutePath()));
+        sparkArgs.addAll(featureArgs);
+        runCommandLine(sparkArgs);
+
+        Utils.resetRandomGenerator();
+        final List<String> walkerArgs = new ArrayList<>(Arrays.asList("-I", NA12878_20_21_WGS_bam, "-R", b37_reference_20_21, "-O", walkerOutput.getAbsolutePath()));
+        walkerArgs.addAll(featureArgs);
+        new Main().instanceMain(makeCommandLineArgs(walkerArgs, HaplotypeCaller.class.getSimpleName()));
+
+        final Map<String, VariantContext> sparkVariants = readVariants(sparkOutput);
+        final Map<String, VariantContext> walkerVariants = readVariants(walkerOutput);
+        Assert.assertTrue(sparkVariants.values().stream().anyMatch(vc -> vc.getID().startsWith("rs")), "No rsIDs were filled in");
+        Assert.assertTrue(sparkVariants.values().stream().anyMatch(vc -> vc.hasAttribute("knownSites")), "No variants were marked as known");
+
+        int numCompared = 0;
+        for ( final Map.Entry<String, VariantContext> entry : sparkVariants.entrySet() ) {
+            final VariantContext walkerVariant = walkerVariants.get(entry.getKey());
+            if ( walkerVariant != null ) {
+                Assert.assertEquals(entry.getValue().getID(), walkerVariant.getID(), "Wrong ID for " + entry.getKey());
+                Assert.assertEquals(entry.getValue().hasAttribute("knownSites"), walkerVariant.hasAttribute("knownSites"), "Wrong comp annotation for " + entry.getKey());
+                ++numCompared;
+            }
+        }
+        Assert.assertTrue(numCompared >= 0.99 * sparkVariants.size(), "Too few variants in common with HaplotypeCaller");
+    }
+
+    /*
+     * Test that the alleles given with --alleles are genotyped as by the non-spark HaplotypeCaller
+     */
+    @Test
+    public void testGenotypeGivenAllelesModeIsConcordantWithHaplotypeCaller() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testGenotypeGivenAllelesMode", ".vcf");
+        final File givenAlleles = new File(TEST_FILES_DIR, "testGenotypeGivenAllelesMode_givenAlleles.vcf");
+        // Made by HaplotypeCallerIntegrationTest.testGenotypeGivenAllelesMode, with the same arguments
+        final File expected = new File(TEST_FILES_DIR, "expected.testGenotypeGivenAllelesMode.gatk4.vcf");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false",
+                "--genotyping-mode", "GENOTYPE_GIVEN_ALLELES",
+                "--alleles", givenAlleles.getAbsolutePath()
+        };
+
+        runCommandLine(args);
+
+        final Set<String> givenSites = new HashSet<>();
+        readVariants(givenAlleles).values().forEach(vc -> givenSites.add(vc.getContig() + ":" + vc.getStart()));
+        final Map<String, VariantContext> variants = readVariants(output);
+        Assert.assertFalse(variants.isEmpty(), "No given alleles were genotyped");
+        for ( final VariantContext vc : variants.values() ) {
+            Assert.assertTrue(givenSites.contains(vc.getContig() + ":" + vc.getStart()), "Called a variant that isn't a given allele: " + vc);
+        }
+
+        final double concordance = HaplotypeCallerIntegrationTest.calculateConcordance(output, expected);
+        Assert.assertTrue(concordance >= 0.99, "Concordance with HaplotypeCaller in GGA mode is < 99% (" +  concordance + ")");
+    }
+
+    private static Map<String, VariantContext> readVariants(final File vcf) {
+        final Map<String, VariantContext> variants = new LinkedHashMap<>();
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(vcf) ) {
+            for ( final VariantContext vc : source ) {
+                variants.put(vc.getContig() + ":" + vc.getStart() + " " + vc.getReference() + "->" + vc.getAlternateAlleles(), vc);
+            }
+        }
+        return variants;
+    }
+
+    @Test
+    public void testReadsLongerThanTheShardSizeAreSkipped() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+        final GATKRead shortRead = ArtificialReadUtils.createArtificialRead(header, "short", 0, 100, 150);
+        final GATKRead longRead = ArtificialReadUtils.createArtificialRead(header, "long", 0, 200, 1001);
+        final GATKRead unmappedRead = ArtificialReadUtils.createArtificialUnmappedRead(header, new byte[]{'A'}, new byte[]{30});
+
+        final LongAccumulator skippedReads = ctx.sc().longAccumulator();
+        final List<GATKRead> keptReads = HaplotypeCallerSpark.skipReadsLongerThan(ctx.parallelize(Arrays.asList(shortRead, longRead, unmappedRead), 2), 1000, skippedReads).collect();
+
+        Assert.assertEquals(keptReads.size(), 2);
+        Assert.assertEquals(keptReads.get(0).getName(), shortRead.getName());
+        Assert.assertTrue(keptReads.get(1).isUnmapped());
+        Assert.assertEquals(skippedReads.value().longValue(), 1L);
+    }
+
     @Test
     public void testReferenceAdapterIsSerializable() throws IOException {
         final ReferenceMultiSource referenceMultiSource = new ReferenceMultiSource(b37_2bit_reference_20_21, ReferenceWindowFunctions.IDENTITY_FUNCTION);
@@ -2,14 +2,19 @@ package org.broadinstitute.hellbender.tools.funcotator;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.VariantWalker;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv.SimpleKeyXsvFuncotationFactory;
+import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * An integration test for the {@link Funcotator} tool.
@@ -59,6 +64,9 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
         arguments.add(variantFileName);
         arguments.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
         arguments.add(outputFile.getAbsolutePath());
+        // Keep the stores of any XSV data sources out of the source tree:
+        arguments.add("--" + FuncotatorArgumentDefinitions.XSV_STORE_DIRECTORY_LONG_NAME);
+        arguments.add(createTempDir("funcotator_xsv_stores").getAbsolutePath());
 
         runCommandLine(arguments);
     }
@@ -88,6 +96,9 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
         arguments.add(variantFileName);
         arguments.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
         arguments.add(outputFile.getAbsolutePath());
+        // Keep the stores of any XSV data sources out of the source tree:
+        arguments.add("--" + FuncotatorArgumentDefinitions.XSV_STORE_DIRECTORY_LONG_NAME);
+        arguments.add(createTempDir("funcotator_xsv_stores").getAbsolutePath());
 
         // Transcript selection:
         arguments.add("--" + FuncotatorArgumentDefinitions.TRANSCRIPT_SELECTION_MODE_LONG_NAME);
@@ -106,4 +117,52 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
         // Run the beast:
         runCommandLine(arguments);
     }
+
+    @Test(dataProvider = "provideForIntegrationTest")
+    public void testMultiThreadedMatchesSingleThreaded(final String dataSourcesPath,
+                                                       final FuncotatorArgumentDefinitions.ReferenceVersionType refVer,
+                                                       final String referenceFileName,
+                                                       final String variantFileName,
+                                                       final String transcriptName,
+                                                       final SimpleKeyXsvFuncotationFactory.XsvDataKeyType xsvMatchType) throws IOException {
+
+        final File singleThreadedOutputFile = createTempFile("funcotator_tmp_out_single_threaded", ".vcf");
+        final File multiThreadedOutputFile = createTempFile("funcotator_tmp_out_multi_threaded", ".vcf");
+
+        runCommandLine(makeRequiredArguments(dataSourcesPath, refVer, referenceFileName, variantFileName, singleThreadedOutputFile));
+
+        // small partitions, so that the variants are split across threads
+        final List<String> multiThreadedArguments = makeRequiredArguments(dataSourcesPath, refVer, referenceFileName, variantFileName, multiThreadedOutputFile);
+        multiThreadedArguments.addAll(Arrays.asList("--" + VariantWalker.THREADS_LONG_NAME, "2", "--" + VariantWalker.PARTITION_SIZE_LONG_NAME, "10000"));
+        runCommandLine(multiThreadedArguments);
+
+        // the headers differ in the recorded command lines
+        Assert.assertEquals(readVariantLines(multiThreadedOutputFile), readVariantLines(singleThreadedOutputFile));
+    }
+
+    private static List<String> makeRequiredArguments(final String dataSourcesPath,
+                                                      final FuncotatorArgumentDefinitions.ReferenceVersionType refVer,
+                                                      final String referenceFileName,
+                                                      final String variantFileName,
+                                                      final File outputFile) {
+        final List<String> arguments = new ArrayList<>();
+        arguments.add("--" + FuncotatorArgumentDefinitions.DATA_SOURCES_PATH_LONG_NAME);
+        arguments.add(dataSourcesPath);
+        arguments.add("--" + FuncotatorArgumentDefinitions.REFERENCE_VERSION_LONG_NAME);
+        arguments.add(refVer.toString());
+        arguments.add("-" + StandardArgumentDefinitions.REFERENCE_SHORT_NAME);
+        arguments.add(referenceFileName);
+        arguments.add("-" + StandardArgumentDefinitions.VARIANT_SHORT_NAME);
+        arguments.add(variantFileName);
+        arguments.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
+        arguments.add(outputFile.getAbsolutePath());
+        // Keep the stores of any XSV data sources out of the source tree:
+        arguments.add("--" + FuncotatorArgumentDefinitions.XSV_STORE_DIRECTORY_LONG_NAME);
+        arguments.add(createTempDir("funcotator_xsv_stores").getAbsolutePath());
+        return arguments;
+    }
+
+    private static List<String> readVariantLines(final File vcf) throws IOException {
+        return Files.readAllLines(vcf.toPath()).stream().filter(line -> !line.startsWith("#")).collect(Collectors.toList());
+    }
 }
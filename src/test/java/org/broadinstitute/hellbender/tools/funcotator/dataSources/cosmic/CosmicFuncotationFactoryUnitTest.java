@@ -280,4 +280,45 @@ public class CosmicFuncotationFactoryUnitTest extends GATKBaseTest {
             expected
         );
     }
+
+    @Test
+    public void testCreateFuncotationsFromCachedGeneRecords() {
+        // A single factory for all the cases, so that all but the first query for each gene are served from memory:
+        final CosmicFuncotationFactory cosmicFuncotationFactory = new CosmicFuncotationFactory(PATH_TO_TEST_DB);
+
+        for ( int round = 0; round < 2; ++round ) {
+            for ( final Object[] testCase : provideForTestCreateFuncotations() ) {
+                @SuppressWarnings("unchecked")
+                final List<GencodeFuncotation> gencodeFuncotations = (List<GencodeFuncotation>) testCase[3];
+                Assert.assertEquals(
+                    cosmicFuncotationFactory.createFuncotations(
+                        (VariantContext) testCase[0],
+                        (ReferenceContext) testCase[1],
+                        Collections.emptyList(),
+                        gencodeFuncotations
+                    ),
+                    testCase[4]
+                );
+            }
+        }
+        cosmicFuncotationFactory.close();
+    }
+
+    @Test
+    public void testCountOverlapsOfGeneRecords() {
+        final CosmicFuncotationFactory.CosmicGeneRecords geneRecords = new CosmicFuncotationFactory.CosmicGeneRecords(
+                Arrays.asList(new SimpleInterval("chr3", 100, 110), new SimpleInterval("chr3", 200, 200), null, null),
+                Arrays.asList(new SimpleInterval("P", 5, 5), null, new SimpleInterval("P", 10, 20), null)
+        );
+        Assert.assertEquals(geneRecords.size(), 4);
+
+        // Genome position overlaps count once per record, even if the protein position overlaps too:
+        Assert.assertEquals(geneRecords.countOverlaps(new SimpleInterval("chr3", 105, 200), new SimpleInterval("P", 5, 5)), 2);
+        Assert.assertEquals(geneRecords.countOverlaps(new SimpleInterval("chr3", 105, 200), null), 2);
+        Assert.assertEquals(geneRecords.countOverlaps(new SimpleInterval("chr4", 105, 200), null), 0);
+
+        // Protein position overlaps:
+        Assert.assertEquals(geneRecords.countOverlaps(new SimpleInterval("chr3", 1, 1), new SimpleInterval("P", 1, 10)), 2);
+        Assert.assertEquals(geneRecords.countOverlaps(new SimpleInterval("chr3", 1, 1), new SimpleInterval("P", 21, 30)), 0);
+    }
 }
@@ -32,6 +32,8 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
     // Private Static Members:
 
     private static final int squareSize = 20;
+    // Keep the stores of the XSV test files out of the source tree:
+    private static final Path storeDirectory = createTempDir("simpleKeyXsvFuncotationFactoryStores").toPath();
     private static final String defaultName = "XSVCSV";
     private static final List<List<String>> headerRowTable;
     private static final List<List<String>> dataTable;
@@ -129,7 +131,9 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                         keyColumn,
                                         SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
                                         new LinkedHashMap<>(),
-                                        startingHeaderRow
+                                        startingHeaderRow,
+                                        false,
+                                        storeDirectory
                                 ),
                                 Collections.singletonList(
                                         new GencodeFuncotationBuilder().setHugoSymbol(dataTable.get(startingHeaderRow+1).get(keyColumn)).build()
@@ -154,7 +158,9 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                         keyColumn,
                                         SimpleKeyXsvFuncotationFactory.XsvDataKeyType.TRANSCRIPT_ID,
                                         new LinkedHashMap<>(),
-                                        startingHeaderRow
+                                        startingHeaderRow,
+                                        false,
+                                        storeDirectory
                                 ),
                                 Collections.singletonList(
                                         new GencodeFuncotationBuilder().setAnnotationTranscript(dataTable.get(startingHeaderRow+1).get(keyColumn)).build()
@@ -198,7 +204,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                             "VERSION",
                             ",",
                             0,
-                            SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                            SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                            new LinkedHashMap<>(),
+                            0,
+                            false,
+                            storeDirectory
                     ),
                     defaultName
                 },
@@ -209,7 +219,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         "Donatello"
                 },
@@ -220,7 +234,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         "Leonardo"
                 },
@@ -231,7 +249,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         "Michelangelo"
                 },
@@ -242,7 +264,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                         "VERSION",
                         ",",
                         0,
-                        SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                        SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                        new LinkedHashMap<>(),
+                        0,
+                        false,
+                        storeDirectory
                 ),
                 "Raphael"
                 },
@@ -263,7 +289,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         Collections.emptyList(),
                         Collections.emptyList()
@@ -277,7 +307,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         Collections.singletonList(
                                 new GencodeFuncotationBuilder().setHugoSymbol("NOT THE RIGHT GENE NAME").build()
@@ -293,7 +327,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                                 "VERSION",
                                 ",",
                                 0,
-                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.TRANSCRIPT_ID
+                                SimpleKeyXsvFuncotationFactory.XsvDataKeyType.TRANSCRIPT_ID,
+                                new LinkedHashMap<>(),
+                                0,
+                                false,
+                                storeDirectory
                         ),
                         Collections.singletonList(
                                 new GencodeFuncotationBuilder().setAnnotationTranscript("NOT THE RIGHT TRANSCRIPT ID").build()
@@ -324,10 +362,10 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
 
         final SimpleKeyXsvFuncotationFactory xsvFuncotationFactory;
         if ( headerLinesToIgnore == 0 ) {
-            xsvFuncotationFactory = new SimpleKeyXsvFuncotationFactory(name, inputPath, "VERSION", delimiter, keyColumn, dataKeyType);
+            xsvFuncotationFactory = new SimpleKeyXsvFuncotationFactory(name, inputPath, "VERSION", delimiter, keyColumn, dataKeyType, new LinkedHashMap<>(), 0, false, storeDirectory);
         }
         else {
-            xsvFuncotationFactory = new SimpleKeyXsvFuncotationFactory(name, inputPath, "VERSION", delimiter, keyColumn, dataKeyType, new LinkedHashMap<>(), headerLinesToIgnore);
+            xsvFuncotationFactory = new SimpleKeyXsvFuncotationFactory(name, inputPath, "VERSION", delimiter, keyColumn, dataKeyType, new LinkedHashMap<>(), headerLinesToIgnore, false, storeDirectory);
         }
 
         final LinkedHashSet<String> supportedFields = xsvFuncotationFactory.getSupportedFuncotationFields();
@@ -349,7 +387,11 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
                     "VERSION",
                     ",",
                     0,
-                    SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME
+                    SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                    new LinkedHashMap<>(),
+                    0,
+                    false,
+                    storeDirectory
                 );
 
         simpleKeyXsvFuncotationFactory.createFuncotations(defaultVariantContext, defaultReferenceContext, Collections.emptyList());
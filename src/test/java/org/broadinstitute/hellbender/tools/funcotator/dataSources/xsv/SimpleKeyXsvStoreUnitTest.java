@@ -0,0 +1,108 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Unit test class for {@link SimpleKeyXsvStore}.
+ */
+public class SimpleKeyXsvStoreUnitTest extends GATKBaseTest {
+
+    private static final Consumer<SimpleKeyXsvStore.Builder> ROWS = builder -> {
+        builder.add("PIK3CA", Arrays.asList("1", "oncogene"));
+        builder.add("MUC16", Arrays.asList("2", ""));
+        builder.add("ÉLAN", Arrays.asList("3", "naïve"));
+        builder.add("A", Arrays.asList("4", "first"));
+        // later rows win:
+        builder.add("PIK3CA", Arrays.asList("5", "replaced"));
+    };
+
+    private static Path createSourceFile() throws IOException {
+        final File sourceDirectory = createTempDir("simpleKeyXsvStore");
+        final Path sourcePath = sourceDirectory.toPath().resolve("source.csv");
+        Files.write(sourcePath, Collections.singletonList("key,count,description"));
+        return sourcePath;
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        final SimpleKeyXsvStore store = SimpleKeyXsvStore.openOrBuild(createSourceFile(), null, "settings", 2, ROWS);
+
+        Assert.assertEquals(store.size(), 4);
+        Assert.assertEquals(store.getNumColumns(), 2);
+        Assert.assertEquals(store.get("PIK3CA"), Arrays.asList("5", "replaced"));
+        Assert.assertEquals(store.get("MUC16"), Arrays.asList("2", ""));
+        Assert.assertEquals(store.get("ÉLAN"), Arrays.asList("3", "naïve"));
+        Assert.assertEquals(store.get("A"), Arrays.asList("4", "first"));
+        Assert.assertNull(store.get("AA"));
+        Assert.assertNull(store.get(""));
+        Assert.assertNull(store.get("ZZZ"));
+        Assert.assertNull(store.get(null));
+    }
+
+    @Test
+    public void testEmptyStore() throws IOException {
+        final SimpleKeyXsvStore store = SimpleKeyXsvStore.openOrBuild(createSourceFile(), null, "settings", 2, builder -> {});
+        Assert.assertEquals(store.size(), 0);
+        Assert.assertNull(store.get("PIK3CA"));
+    }
+
+    @Test
+    public void testStoreIsReusedUnlessSettingsOrSourceChange() throws IOException {
+        final Path sourcePath = createSourceFile();
+        final AtomicInteger numBuilds = new AtomicInteger();
+        final Consumer<SimpleKeyXsvStore.Builder> countingRows = builder -> {
+            numBuilds.incrementAndGet();
+            ROWS.accept(builder);
+        };
+
+        SimpleKeyXsvStore.openOrBuild(sourcePath, null, "settings", 2, countingRows);
+        Assert.assertEquals(numBuilds.get(), 1);
+        Assert.assertTrue(Files.exists(sourcePath.resolveSibling(sourcePath.getFileName() + SimpleKeyXsvStore.STORE_EXTENSION)));
+
+        final SimpleKeyXsvStore reusedStore = SimpleKeyXsvStore.openOrBuild(sourcePath, null, "settings", 2, countingRows);
+        Assert.assertEquals(numBuilds.get(), 1);
+        Assert.assertEquals(reusedStore.get("MUC16"), Arrays.asList("2", ""));
+
+        SimpleKeyXsvStore.openOrBuild(sourcePath, null, "other settings", 2, countingRows);
+        Assert.assertEquals(numBuilds.get(), 2);
+
+        Files.write(sourcePath, Collections.singletonList("key,count,description,more"));
+        SimpleKeyXsvStore.openOrBuild(sourcePath, null, "other settings", 2, countingRows);
+        Assert.assertEquals(numBuilds.get(), 3);
+    }
+
+    @Test
+    public void testStoreInStoreDirectory() throws IOException {
+        final Path sourcePath = createSourceFile();
+        final Path storeDirectory = createTempDir("simpleKeyXsvStoreDirectory").toPath();
+        final AtomicInteger numBuilds = new AtomicInteger();
+        final Consumer<SimpleKeyXsvStore.Builder> countingRows = builder -> {
+            numBuilds.incrementAndGet();
+            ROWS.accept(builder);
+        };
+
+        SimpleKeyXsvStore.openOrBuild(sourcePath, storeDirectory, "settings", 2, countingRows);
+        Assert.assertTrue(Files.exists(storeDirectory.resolve(sourcePath.getFileName() + SimpleKeyXsvStore.STORE_EXTENSION)));
+        Assert.assertFalse(Files.exists(sourcePath.resolveSibling(sourcePath.getFileName() + SimpleKeyXsvStore.STORE_EXTENSION)));
+
+        final SimpleKeyXsvStore reusedStore = SimpleKeyXsvStore.openOrBuild(sourcePath, storeDirectory, "settings", 2, countingRows);
+        Assert.assertEquals(numBuilds.get(), 1);
+        Assert.assertEquals(reusedStore.get("PIK3CA"), Arrays.asList("5", "replaced"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRowWithWrongNumberOfValues() throws IOException {
+        SimpleKeyXsvStore.openOrBuild(createSourceFile(), null, "settings", 3, ROWS);
+    }
+}
@@ -169,4 +169,45 @@ public class PSKmerUtilsTest extends CommandLineProgramTest {
         }
     }
 
+    @Test
+    public void testReadWriteMappedSets() {
+        final long numElements = 100000L;
+        final int kSize = 31;
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{3, 20, 25}, kSize);
+        final Random rand = new Random(SEED);
+
+        final LargeLongHopscotchSet hssMasked = new LargeLongHopscotchSet(numElements);
+        final LongBloomFilter bfMasked = new LongBloomFilter(numElements, 0.01);
+        for (long i = 0; i < numElements; i++) {
+            final long maskedKmer = PSKmerCollection.canonicalizeAndMask(new SVKmerShort(rand.nextLong() >>> 2), kSize, mask);
+            hssMasked.add(maskedKmer);
+            bfMasked.add(maskedKmer);
+        }
+
+        final File hssFile = createTempFile("set", PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION);
+        PSKmerUtils.writeMappedKmerSet(hssFile.getPath(), new PSKmerSet(hssMasked, kSize, mask));
+        final PSKmerCollection hssIn = PSKmerUtils.readKmerFilter(hssFile.getPath());
+        Assert.assertEquals(hssIn.kmerSize(), kSize);
+        Assert.assertEquals(hssIn.getMask(), mask);
+
+        final File bfFile = createTempFile("bloom", PSKmerUtils.MAPPED_BLOOM_FILTER_EXTENSION);
+        PSKmerUtils.writeMappedKmerBloomFilter(bfFile.getPath(), new PSKmerBloomFilter(bfMasked, kSize, mask, numElements));
+        final PSKmerCollection bloomIn = PSKmerUtils.readKmerFilter(bfFile.getPath());
+        Assert.assertEquals(bloomIn.kmerSize(), kSize);
+        Assert.assertEquals(bloomIn.getMask(), mask);
+
+        final LongIterator hssIter = hssMasked.iterator();
+        while (hssIter.hasNext()) {
+            final SVKmerShort kmer = new SVKmerShort(hssIter.next());
+            Assert.assertTrue(hssIn.contains(kmer), "Mapped hopscotch set is missing a kmer");
+            Assert.assertTrue(bloomIn.contains(kmer), "Mapped Bloom filter is missing a kmer");
+        }
+        for (int i = 0; i < 10000; i++) {
+            final SVKmerShort kmer = new SVKmerShort(rand.nextLong() >>> 2);
+            final long maskedKmer = PSKmerCollection.canonicalizeAndMask(kmer, kSize, mask);
+            Assert.assertEquals(hssIn.contains(kmer), hssMasked.contains(maskedKmer), "Mapped hopscotch set differs from the original");
+            Assert.assertEquals(bloomIn.contains(kmer), bfMasked.contains(maskedKmer), "Mapped Bloom filter differs from the original");
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package org.broadinstitute.hellbender.tools.spark.sv.utils;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for SVFileUtils.
+ */
+public class SVFileUtilsUnitTest extends GATKBaseTest {
+    private static final int KSIZE = 51;
+    private static final String SEQUENCE =
+            "ACGTTGCAAGGCTTAACGGATCCTAGCTAGGATCCATGCATGCAACGTTAGCTAGCATCGATCGGATCCGATTACAGATTACAGGGCCCAT";
+
+    private static List<SVKmer> getKmers() {
+        return SVKmerizer.canonicalStream(SEQUENCE.getBytes(), KSIZE, new SVKmerLong(KSIZE))
+                .collect(Collectors.toList());
+    }
+
+    private static SAMSequenceDictionary getDictionary() {
+        return new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("chr1", 1000)));
+    }
+
+    @DataProvider(name = "kmersFileExtensions")
+    public Object[][] getKmersFileExtensions() {
+        return new Object[][] { {".txt"}, {SVFileUtils.BINARY_KMERS_FILE_EXTENSION} };
+    }
+
+    @Test(dataProvider = "kmersFileExtensions", groups = "sv")
+    public void testKmersFileRoundTrip( final String extension ) {
+        final File kmersFile = createTempFile("kmers", extension);
+        final List<SVKmer> kmers = getKmers();
+        SVFileUtils.writeKmersFile(kmersFile.getAbsolutePath(), KSIZE, kmers, getDictionary());
+
+        final Set<SVKmer> expectedKmers = new HashSet<>(kmers);
+        Assert.assertEquals(new HashSet<>(SVFileUtils.readKmersFile(kmersFile.getAbsolutePath(), KSIZE)), expectedKmers);
+        Assert.assertEquals(new HashSet<>(SVFileUtils.readKmersFile(kmersFile.getAbsolutePath(), KSIZE, getDictionary())), expectedKmers);
+    }
+
+    @Test(dataProvider = "kmersFileExtensions", groups = "sv")
+    public void testEmptyKmersFile( final String extension ) {
+        final File kmersFile = createTempFile("kmers", extension);
+        SVFileUtils.writeKmersFile(kmersFile.getAbsolutePath(), KSIZE, Collections.<SVKmer>emptyList());
+        Assert.assertTrue(SVFileUtils.readKmersFile(kmersFile.getAbsolutePath(), KSIZE).isEmpty());
+    }
+
+    @Test(dataProvider = "kmersFileExtensions", expectedExceptions = GATKException.class, groups = "sv")
+    public void testKmersFileWithWrongKSize( final String extension ) {
+        final File kmersFile = createTempFile("kmers", extension);
+        SVFileUtils.writeKmersFile(kmersFile.getAbsolutePath(), KSIZE, getKmers());
+        SVFileUtils.readKmersFile(kmersFile.getAbsolutePath(), KSIZE - 2);
+    }
+}
@@ -14,6 +14,8 @@ import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.VariantWalker;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -178,6 +180,23 @@ public class GenotypeGVCFsIntegrationTest extends CommandLineProgramTest {
         assertVariantContextsMatch(input, expected, extraArgs, reference);
     }
 
+    @Test(dataProvider = "gvcfsToGenotype")
+    public void testEntireVariantContextMultiThreaded(File input, File expected, List<String> extraArgs, String reference) throws IOException {
+        // small partitions, so that the intervals are split across threads
+        final List<String> multiThreadedArgs = new ArrayList<>(extraArgs);
+        multiThreadedArgs.addAll(Arrays.asList("--" + VariantWalker.THREADS_LONG_NAME, "3", "--" + VariantWalker.PARTITION_SIZE_LONG_NAME, "50000"));
+        assertVariantContextsMatch(input, expected, multiThreadedArgs, reference);
+    }
+
+    @Test(dataProvider = "getGVCFsForGenomicsDB")
+    public void assertMatchingGenotypesFromTileDBMultiThreaded(File input, File expected, Locatable interval, String reference) throws IOException {
+        final File tempGenomicsDB = GenomicsDBTestUtils.createTempGenomicsDB(input, interval);
+        final String genomicsDBUri = GenomicsDBTestUtils.makeGenomicsDBUri(tempGenomicsDB);
+        runGenotypeGVCFSAndAssertSomething(genomicsDBUri, expected,
+                Arrays.asList("-L", IntervalUtils.locatableToString(interval), "--" + VariantWalker.THREADS_LONG_NAME, "2", "--" + VariantWalker.PARTITION_SIZE_LONG_NAME, "1000000"),
+                VariantContextTestUtils::assertVariantContextsHaveSameGenotypes, reference);
+    }
+
     private void assertVariantContextsMatch(File input, File expected, List<String> extraArgs, String reference) throws IOException {
         try {
             final VCFHeader header = VCFHeaderReader.readHeaderFrom(new SeekablePathStream( IOUtils.getPath(expected.getAbsolutePath())));
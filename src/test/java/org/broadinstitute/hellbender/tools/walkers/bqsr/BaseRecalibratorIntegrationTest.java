@@ -106,6 +106,16 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
         spec.executeTest("testBQSR-" + params.args, this);
     }
 
+    @Test(dataProvider = "BQSRTest")
+    public void testBQSRMultiThreaded(BQSRTest params) throws IOException {
+        final BQSRTest multiThreadedParams = new BQSRTest(params.reference, params.bam, params.knownSites,
+                params.args + " --" + BaseRecalibrator.THREADS_LONG_NAME + " 3", params.expectedFileName);
+        IntegrationTestSpec spec = new IntegrationTestSpec(
+                multiThreadedParams.getCommandLine(),
+                Arrays.asList(multiThreadedParams.expectedFileName));
+        spec.executeTest("testBQSRMultiThreaded-" + params.args, this);
+    }
+
     @Test(description = "This is to test https://github.com/broadinstitute/hellbender/issues/322")
     public void testPlottingWorkflow() throws IOException {
         final String resourceDir = getTestDataDir() + "/" + "BQSR" + "/";
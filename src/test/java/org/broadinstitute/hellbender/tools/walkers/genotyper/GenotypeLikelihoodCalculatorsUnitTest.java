@@ -9,6 +9,9 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
 
@@ -99,4 +102,99 @@ public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
         Assert.assertEquals(3, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(20, 1024));
         Assert.assertEquals(2, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(100, 1024));
     }
+
+    @Test
+    public void testGenotypeCountBeyondTables() {
+        // (1000 + 3 - 1) choose 3
+        Assert.assertEquals(calcs.genotypeCount(3, 1000), 167_167_000);
+        Assert.assertEquals(calcs.genotypeCount(1, 100_000), 100_000);
+        Assert.assertEquals(calcs.genotypeCount(100_000, 1), 1);
+    }
+
+    @Test
+    public void testGetInstanceReusesCalculatorsWithinThread() {
+        final GenotypeLikelihoodCalculator calculator = calcs.getInstance(2, 3);
+        Assert.assertSame(new GenotypeLikelihoodCalculators().getInstance(2, 3), calculator);
+        Assert.assertNotSame(calcs.getInstance(3, 3), calculator);
+    }
+
+    @Test
+    public void testGetInstanceDoesNotShareCalculatorsAcrossThreads() throws Exception {
+        final GenotypeLikelihoodCalculator calculator = calcs.getInstance(2, 4);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GenotypeLikelihoodCalculator otherThreadCalculator = executor.submit(() -> calcs.getInstance(2, 4)).get();
+            Assert.assertNotSame(otherThreadCalculator, calculator);
+            Assert.assertEquals(otherThreadCalculator.genotypeCount(), calculator.genotypeCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetInstanceDoesNotCacheLargeCalculators() {
+        // 20100 genotypes
+        final GenotypeLikelihoodCalculator calculator = calcs.getInstance(2, 200);
+        Assert.assertTrue(calculator.genotypeCount() > GenotypeLikelihoodCalculators.MAXIMUM_CACHED_GENOTYPES_PER_THREAD);
+        Assert.assertNotSame(calcs.getInstance(2, 200), calculator);
+    }
+
+    @Test
+    public void testGetInstanceEvictsLeastRecentlyUsedCalculators() {
+        // 5050 and 5456 genotypes, so that only one of them fits in the cache
+        final GenotypeLikelihoodCalculator first = calcs.getInstance(2, 100);
+        final GenotypeLikelihoodCalculator second = calcs.getInstance(3, 31);
+        Assert.assertSame(calcs.getInstance(3, 31), second);
+        Assert.assertNotSame(calcs.getInstance(2, 100), first);
+    }
+
+    @Test
+    public void testGetInstanceReleasesReadBuffersOfLeastRecentlyUsedCalculators() {
+        // 5050 genotypes, so that the buffers for 1000 reads are larger than the cache allows
+        final GenotypeLikelihoodCalculator large = calcs.getInstance(2, 100);
+        large.ensureReadCapacity(1000);
+        final long readBufferSize = large.readBufferSize();
+        Assert.assertTrue(readBufferSize > GenotypeLikelihoodCalculators.MAXIMUM_CACHED_READ_BUFFER_SIZE_PER_THREAD);
+
+        // the most recently used calculator keeps its buffers
+        Assert.assertSame(calcs.getInstance(2, 100), large);
+        Assert.assertEquals(large.readBufferSize(), readBufferSize);
+
+        calcs.getInstance(2, 3);
+        Assert.assertEquals(large.readBufferSize(), 0);
+
+        // the buffers are allocated again when needed
+        Assert.assertSame(calcs.getInstance(2, 100), large);
+        large.ensureReadCapacity(10);
+        Assert.assertTrue(large.readBufferSize() > 0);
+    }
+
+    @Test
+    public void testConcurrentTableExpansion() throws Exception {
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                results.add(executor.submit(() -> {
+                    final int[] genotypeCounts = new int[20];
+                    for (int i = 0; i < genotypeCounts.length; i++) {
+                        final int ploidy = 1 + (i + offset) % genotypeCounts.length;
+                        genotypeCounts[(i + offset) % genotypeCounts.length] = new GenotypeLikelihoodCalculators().getInstance(ploidy, 3).genotypeCount();
+                    }
+                    return genotypeCounts;
+                }));
+            }
+            for (final Future<int[]> result : results) {
+                final int[] genotypeCounts = result.get();
+                for (int i = 0; i < genotypeCounts.length; i++) {
+                    final int ploidy = i + 1;
+                    Assert.assertEquals(genotypeCounts[i], calcs.genotypeCount(ploidy, 3));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
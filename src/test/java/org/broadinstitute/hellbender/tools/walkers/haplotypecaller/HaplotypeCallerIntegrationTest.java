@@ -6,6 +6,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.exceptions.UserException;
@@ -19,7 +20,11 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
@@ -304,6 +309,77 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         IntegrationTestSpec.assertEqualTextFiles(output, expected);
     }
 
+    @DataProvider(name = "concurrentTraversalArgs")
+    public Object[][] getConcurrentTraversalArgs() {
+        final List<List<String>> concurrencyArgs = Arrays.asList(
+                Arrays.asList("--" + AssemblyRegionWalker.THREADS_LONG_NAME, "2"),
+                Arrays.asList("--" + AssemblyRegionWalker.PIPELINE_LONG_NAME, "true"),
+                Arrays.asList("--" + AssemblyRegionWalker.THREADS_LONG_NAME, "2", "--" + AssemblyRegionWalker.PIPELINE_LONG_NAME, "true")
+        );
+        // The default maximum number of reads per alignment start is rarely reached at this depth, so also traverse
+        // with a maximum low enough that most alignment starts are downsampled
+        final List<List<String>> downsamplingArgs = Arrays.asList(
+                Collections.emptyList(),
+                Arrays.asList("--" + AssemblyRegionWalker.MAX_STARTS_LONG_NAME, "1")
+        );
+
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final List<String> concurrency : concurrencyArgs ) {
+            for ( final List<String> downsampling : downsamplingArgs ) {
+                tests.add(new Object[]{ concurrency, downsampling });
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "concurrentTraversalArgs")
+    public void testConcurrentTraversalMatchesSingleThreaded(final List<String> concurrencyArgs, final List<String> downsamplingArgs) throws IOException {
+        final File singleThreadedOutput = createTempFile("testConcurrentTraversalSingleThreaded", ".g.vcf");
+        final File concurrentOutput = createTempFile("testConcurrentTraversalConcurrent", ".g.vcf");
+
+        for ( final File output : Arrays.asList(singleThreadedOutput, concurrentOutput) ) {
+            Utils.resetRandomGenerator();
+
+            final List<String> args = new ArrayList<>(Arrays.asList(
+                    "-I", NA12878_20_21_WGS_bam,
+                    "-R", b37_reference_20_21,
+                    "-L", "20:10000000-10050000",
+                    "-L", "21:10000000-10050000",
+                    "-O", output.getAbsolutePath(),
+                    "-ERC", "GVCF",
+                    "-pairHMM", "AVX_LOGLESS_CACHING",
+                    "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+            ));
+            args.addAll(downsamplingArgs);
+            if ( output == concurrentOutput ) {
+                args.addAll(concurrencyArgs);
+            }
+
+            runCommandLine(args);
+        }
+
+        // The shards and regions are processed (and downsampled) concurrently, but the output must be exactly the same
+        IntegrationTestSpec.assertEqualTextFiles(concurrentOutput, singleThreadedOutput);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultiThreadedTraversalNotAllowedWithBamout() throws IOException {
+        final File output = createTempFile("testMultiThreadedTraversalNotAllowedWithBamout", ".vcf");
+        final File bamOutput = createTempFile("testMultiThreadedTraversalNotAllowedWithBamout", ".bam");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "-bamout", bamOutput.getAbsolutePath(),
+                "--" + AssemblyRegionWalker.THREADS_LONG_NAME, "2"
+        };
+
+        // Should throw, since every worker would write to the same bamout
+        runCommandLine(args);
+    }
+
     @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
     public void testGenotypeGivenAllelesModeNotAllowedInGVCFMode() throws IOException {
         Utils.resetRandomGenerator();
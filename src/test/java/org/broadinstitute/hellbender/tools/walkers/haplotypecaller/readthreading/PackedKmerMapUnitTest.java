@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class PackedKmerMapUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testPackKmer() {
+        Assert.assertEquals(PackedKmerMap.packKmer("AAAA".getBytes(), 0, 4), 0L);
+        Assert.assertEquals(PackedKmerMap.packKmer("ACGT".getBytes(), 0, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.packKmer("TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTT".getBytes(), 0, 31), (1L << 62) - 1);
+        Assert.assertEquals(PackedKmerMap.packKmer("GGACGTC".getBytes(), 2, 4), 0b00011011L);
+    }
+
+    @DataProvider(name = "unpackableKmers")
+    public Object[][] getUnpackableKmers() {
+        return new Object[][] {
+                {"ACNT"},
+                {"ACGt"},
+                {"ACG*"},
+                {"ACGTACGTACGTACGTACGTACGTACGTACGT"} // 32 bases
+        };
+    }
+
+    @Test(dataProvider = "unpackableKmers")
+    public void testUnpackableKmers(final String kmer) {
+        Assert.assertEquals(PackedKmerMap.packKmer(kmer.getBytes(), 0, kmer.length()), PackedKmerMap.UNPACKABLE);
+    }
+
+    @DataProvider(name = "sequences")
+    public Object[][] getSequences() {
+        return new Object[][] {
+                {"ACGTTGCAAGCTTACG", 1},
+                {"ACGTTGCAAGCTTACG", 5},
+                {"ACGTTGCAAGCTTACG", 16},
+                {"ACGTTGCAAGCTTACG", 17},
+                {"ACGTTNCAAGCTTACGATTTTAAGCGCGGGGACGTTGCAAGCTTACGA", 5},
+                {"NACGTTGCAAGCTTNNNTACGATTTTAAGCGCGGGGACGTTGCAAGCTTACGAN", 31},
+                {"ACGTTGCAAGCTTACGATTTTAAGCGCGGGGACGTTGCAAGCTTACGA", 32}
+        };
+    }
+
+    @Test(dataProvider = "sequences")
+    public void testRollingPackingMatchesPackingEachKmer(final String sequence, final int kmerSize) {
+        final byte[] bases = sequence.getBytes();
+        for (int start = 0; start < 3; start++) {
+            final long[] packed = PackedKmerMap.packKmers(bases, start, bases.length, kmerSize);
+            Assert.assertEquals(packed.length, Math.max(0, bases.length - start - kmerSize + 1));
+            for (int i = 0; i < packed.length; i++) {
+                Assert.assertEquals(packed[i], PackedKmerMap.packKmer(bases, start + i, kmerSize), "kmer at " + (start + i));
+            }
+        }
+    }
+
+    @Test(dataProvider = "sequences")
+    public void testMapMatchesKmerSemantics(final String sequence, final int kmerSize) {
+        final byte[] bases = sequence.getBytes();
+        final PackedKmerMap<Integer> map = new PackedKmerMap<>(kmerSize);
+        final Set<Kmer> distinctKmers = new HashSet<>();
+
+        final long[] packed = PackedKmerMap.packKmers(bases, 0, bases.length, kmerSize);
+        for (int i = 0; i < packed.length; i++) {
+            final boolean isNew = distinctKmers.add(new Kmer(bases, i, kmerSize));
+            Assert.assertEquals(map.containsKey(bases, i, packed[i]), !isNew);
+            if (isNew) {
+                Assert.assertNull(map.put(bases, i, packed[i], i));
+            }
+            Assert.assertNotNull(map.get(bases, i, packed[i]));
+            Assert.assertNotNull(map.get(new Kmer(bases, i, kmerSize)));
+        }
+        Assert.assertEquals(map.size(), distinctKmers.size());
+
+        final List<Integer> values = new ArrayList<>();
+        map.values().forEach(values::add);
+        Assert.assertEquals(values.size(), distinctKmers.size());
+        for (final Integer value : values) {
+            Assert.assertEquals(map.remove(new Kmer(bases, value, kmerSize).bases()), value);
+        }
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testKmersOfOtherSizesAreNotFound() {
+        final PackedKmerMap<String> map = new PackedKmerMap<>(4);
+        map.put(new Kmer("ACGT"), "ACGT");
+        Assert.assertEquals(map.get(new Kmer("ACGT")), "ACGT");
+        Assert.assertNull(map.get(new Kmer("ACG")));
+        Assert.assertNull(map.get(new Kmer("AACGT")));
+    }
+}
@@ -0,0 +1,156 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+public final class VariantAnnotationMatrixUnitTest extends GATKBaseTest {
+
+    private static VariantAnnotationMatrix makeMatrix(final int numAnnotations, final int numData) {
+        final VariantAnnotationMatrix matrix = new VariantAnnotationMatrix(numAnnotations);
+        for( int i = 0; i < numData; i++ ) {
+            final double[] annotations = new double[numAnnotations];
+            final boolean[] isNull = new boolean[numAnnotations];
+            for( int j = 0; j < numAnnotations; j++ ) {
+                annotations[j] = i * numAnnotations + j;
+                isNull[j] = (i + j) % 7 == 0;
+            }
+            Assert.assertEquals(matrix.addRow(annotations, isNull), i);
+        }
+        return matrix;
+    }
+
+    @Test
+    public void testPackedAnnotations() {
+        final VariantAnnotationMatrix matrix = new VariantAnnotationMatrix(3);
+        Assert.assertEquals(matrix.addRow(new double[]{1.0, 2.0, 3.0}, new boolean[]{false, false, false}), 0);
+        Assert.assertEquals(matrix.addRow(new double[]{4.0, 5.0, 6.0}, new boolean[]{false, true, false}), 1);
+
+        Assert.assertEquals(matrix.getNumData(), 2);
+        Assert.assertEquals(matrix.getNumAnnotations(), 3);
+        Assert.assertEquals(Arrays.copyOf(matrix.getValues(), 6), new double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0});
+        Assert.assertEquals(matrix.getOffset(1), 3);
+        Assert.assertEquals(matrix.get(1, 2), 6.0);
+        Assert.assertFalse(matrix.isNull(0, 1));
+        Assert.assertTrue(matrix.isNull(1, 1));
+        Assert.assertFalse(matrix.hasMissingAnnotations(0));
+        Assert.assertTrue(matrix.hasMissingAnnotations(1));
+
+        matrix.set(0, 0, 10.0);
+        Assert.assertEquals(matrix.get(0, 0), 10.0);
+    }
+
+    @Test
+    public void testManyRows() {
+        final int numData = 5000;
+        final VariantAnnotationMatrix matrix = makeMatrix(3, numData);
+        Assert.assertEquals(matrix.getNumData(), numData);
+        for( int i = 0; i < numData; i++ ) {
+            for( int j = 0; j < 3; j++ ) {
+                Assert.assertEquals(matrix.get(i, j), (double) (i * 3 + j));
+                Assert.assertEquals(matrix.isNull(i, j), (i + j) % 7 == 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRowsAreAViewOfTheMatrix() {
+        final VariantAnnotationMatrix matrix = makeMatrix(3, 20);
+        final int[] rows = {17, 2, 5};
+        final VariantAnnotationMatrix view = matrix.getRows(rows);
+        Assert.assertEquals(view.getNumData(), rows.length);
+        Assert.assertEquals(view.getNumAnnotations(), 3);
+        Assert.assertSame(view.getValues(), matrix.getValues());
+        for( int i = 0; i < rows.length; i++ ) {
+            Assert.assertEquals(view.getOffset(i), matrix.getOffset(rows[i]));
+            Assert.assertEquals(view.hasMissingAnnotations(i), matrix.hasMissingAnnotations(rows[i]));
+            for( int j = 0; j < 3; j++ ) {
+                Assert.assertEquals(view.get(i, j), matrix.get(rows[i], j));
+                Assert.assertEquals(view.isNull(i, j), matrix.isNull(rows[i], j));
+            }
+        }
+
+        // not a copy
+        view.set(0, 1, -1.0);
+        Assert.assertEquals(matrix.get(17, 1), -1.0);
+
+        // a view of a view is a view of the matrix
+        final VariantAnnotationMatrix viewOfView = view.getRows(new int[]{2, 0});
+        Assert.assertEquals(viewOfView.getOffset(0), matrix.getOffset(5));
+        Assert.assertEquals(viewOfView.getOffset(1), matrix.getOffset(17));
+    }
+
+    @Test
+    public void testReorderAnnotations() {
+        final VariantAnnotationMatrix matrix = makeMatrix(3, 10);
+        final VariantAnnotationMatrix original = makeMatrix(3, 10);
+        matrix.reorderAnnotations(Arrays.asList(2, 0, 1));
+        for( int i = 0; i < 10; i++ ) {
+            Assert.assertEquals(matrix.get(i, 0), original.get(i, 2));
+            Assert.assertEquals(matrix.get(i, 1), original.get(i, 0));
+            Assert.assertEquals(matrix.get(i, 2), original.get(i, 1));
+            Assert.assertEquals(matrix.isNull(i, 0), original.isNull(i, 2));
+            Assert.assertEquals(matrix.isNull(i, 1), original.isNull(i, 0));
+            Assert.assertEquals(matrix.isNull(i, 2), original.isNull(i, 1));
+        }
+    }
+
+    @Test
+    public void testCopyRowAndTruncate() {
+        final VariantAnnotationMatrix matrix = makeMatrix(2, 10);
+        final VariantAnnotationMatrix original = makeMatrix(2, 10);
+        matrix.copyRow(7, 1);
+        matrix.truncate(2);
+        Assert.assertEquals(matrix.getNumData(), 2);
+        Assert.assertEquals(matrix.getValues().length, 4);
+        for( int j = 0; j < 2; j++ ) {
+            Assert.assertEquals(matrix.get(0, j), original.get(0, j));
+            Assert.assertEquals(matrix.isNull(0, j), original.isNull(0, j));
+            Assert.assertEquals(matrix.get(1, j), original.get(7, j));
+            Assert.assertEquals(matrix.isNull(1, j), original.isNull(7, j));
+        }
+
+        // rows can be added again after truncation
+        Assert.assertEquals(matrix.addRow(new double[]{1.0, 2.0}, new boolean[]{false, false}), 2);
+        Assert.assertEquals(matrix.get(2, 1), 2.0);
+        Assert.assertFalse(matrix.hasMissingAnnotations(2));
+    }
+
+    @Test
+    public void testEvaluateDatumFromPackedAnnotations() {
+        final MultivariateGaussian gaussian = new MultivariateGaussian(2, 2);
+        gaussian.mu[0] = 0.5;
+        gaussian.mu[1] = -1.0;
+        gaussian.sigma.set(0, 0, 2.0);
+        gaussian.sigma.set(1, 1, 0.5);
+        gaussian.sigma.set(0, 1, 0.25);
+        gaussian.sigma.set(1, 0, 0.25);
+        gaussian.precomputeDenominatorForEvaluation();
+
+        final double[][] data = {{1.0, 2.0}, {-0.5, 0.25}};
+        final VariantAnnotationMatrix matrix = new VariantAnnotationMatrix(2);
+        for( final double[] annotations : data ) {
+            matrix.addRow(annotations, new boolean[2]);
+        }
+        for( int i = 0; i < data.length; i++ ) {
+            Assert.assertEquals(gaussian.evaluateDatumLog10(matrix.getValues(), matrix.getOffset(i)), gaussian.evaluateDatumLog10(data[i], 0));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongNumberOfAnnotations() {
+        new VariantAnnotationMatrix(2).addRow(new double[]{1.0}, new boolean[1]);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testViewCannotGrow() {
+        makeMatrix(2, 3).getRows(new int[]{1}).addRow(new double[2], new boolean[2]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRowOutOfBounds() {
+        makeMatrix(2, 3).getRows(new int[]{3});
+    }
+}
@@ -8,48 +8,42 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 public class VariantDataManagerUnitTest extends GATKBaseTest {
 
+    private static VariantDatum addDatum(final VariantDataManager vdm, final boolean atTrainingSite, final double... annotations) {
+        final VariantDatum datum = new VariantDatum();
+        vdm.addAnnotations(datum, annotations);
+        vdm.setAtTrainingSite(datum, atTrainingSite);
+        return datum;
+    }
+
     @Test
     public final void testCalculateSortOrder() {
         final double passingQual = 400.0;
         final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
 
-        VariantDataManager vdm = new VariantDataManager(new ArrayList<String>(), VRAC);
+        VariantDataManager vdm = new VariantDataManager(Arrays.asList("A", "B", "C"), VRAC);
 
         final List<VariantDatum> theData = new ArrayList<>();
-        final VariantDatum datum1 = new VariantDatum();
-        datum1.atTrainingSite = true;
-        datum1.failingSTDThreshold = false;
+        final VariantDatum datum1 = addDatum(vdm, true, 0.0,-10.0,10.0);
         datum1.originalQual = passingQual;
-        datum1.annotations = new double[]{0.0,-10.0,10.0};
-        datum1.isNull = new boolean[]{false, false, false};
         theData.add(datum1);
 
-        final VariantDatum datum2 = new VariantDatum();
-        datum2.atTrainingSite = true;
-        datum2.failingSTDThreshold = false;
+        final VariantDatum datum2 = addDatum(vdm, true, 0.0,-9.0,15.0);
         datum2.originalQual = passingQual;
-        datum2.annotations = new double[]{0.0,-9.0,15.0};
-        datum2.isNull = new boolean[]{false, false, false};
         theData.add(datum2);
 
-        final VariantDatum datum3 = new VariantDatum();
-        datum3.atTrainingSite = false;
-        datum3.failingSTDThreshold = false;
+        final VariantDatum datum3 = addDatum(vdm, false, 0.0,1.0,999.0);
         datum3.originalQual = passingQual;
-        datum3.annotations = new double[]{0.0,1.0,999.0};
-        datum3.isNull = new boolean[]{false, false, false};
         theData.add(datum3);
 
-        final VariantDatum datum4 = new VariantDatum();
-        datum4.atTrainingSite = false;
-        datum4.failingSTDThreshold = false;
+        final VariantDatum datum4 = addDatum(vdm, false, 0.015,2.0,1001.11);
         datum4.originalQual = passingQual;
-        datum4.annotations = new double[]{0.015,2.0,1001.11};
-        datum4.isNull = new boolean[]{false, false, false};
         theData.add(datum4);
 
         vdm.setData(theData);
@@ -72,25 +66,25 @@ public class VariantDataManagerUnitTest extends GATKBaseTest {
         VariantDataManager vdm = new VariantDataManager(new ArrayList<String>(), VRAC);
         final List<VariantDatum> theData = new ArrayList<>();
         for( int iii = 0; iii < MAX_NUM_TRAINING_DATA * 10; iii++) {
-            final VariantDatum datum = new VariantDatum();
-            datum.atTrainingSite = true;
-            datum.failingSTDThreshold = false;
+            final VariantDatum datum = addDatum(vdm, true);
             datum.originalQual = passingQual;
             theData.add(datum);
         }
 
         for( int iii = 0; iii < MAX_NUM_TRAINING_DATA * 2; iii++) {
-            final VariantDatum datum = new VariantDatum();
-            datum.atTrainingSite = false;
-            datum.failingSTDThreshold = false;
+            final VariantDatum datum = addDatum(vdm, false);
             datum.originalQual = passingQual;
             theData.add(datum);
         }
 
         vdm.setData(theData);
-        final List<VariantDatum> trainingData = vdm.getTrainingData();
+        final int[] trainingData = vdm.getTrainingData();
 
-        Assert.assertTrue( trainingData.size() == MAX_NUM_TRAINING_DATA );
+        Assert.assertTrue( trainingData.length == MAX_NUM_TRAINING_DATA );
+        for( final int datumIndex : trainingData ) {
+            Assert.assertTrue( vdm.isAtTrainingSite(theData.get(datumIndex)) );
+        }
+        Assert.assertEquals( Arrays.stream(trainingData).distinct().count(), MAX_NUM_TRAINING_DATA );
     }
 
     @Test
@@ -100,31 +94,147 @@ public class VariantDataManagerUnitTest extends GATKBaseTest {
         final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
         VRAC.MAX_NUM_TRAINING_DATA = MAX_NUM_TRAINING_DATA;
 
-        VariantDataManager vdm = new VariantDataManager(new ArrayList<String>(), VRAC);
+        VariantDataManager vdm = new VariantDataManager(Collections.singletonList("A"), VRAC);
         final List<VariantDatum> theData = new ArrayList<>();
         for( int iii = 0; iii < MAX_NUM_TRAINING_DATA * 10; iii++) {
-            final VariantDatum datum = new VariantDatum();
-            datum.atTrainingSite = true;
-            datum.isAggregate = false;
-            datum.failingSTDThreshold = false;
+            // interleave the aggregate data with the others
+            final boolean isAggregate = iii % 5 == 0;
+            final VariantDatum datum = addDatum(vdm, !isAggregate, iii);
+            datum.isAggregate = isAggregate;
             datum.originalQual = passingQual;
             theData.add(datum);
         }
 
-        for( int iii = 0; iii < MAX_NUM_TRAINING_DATA * 2; iii++) {
-            final VariantDatum datum = new VariantDatum();
-            datum.atTrainingSite = false;
-            datum.isAggregate = true;
-            datum.failingSTDThreshold = false;
-            datum.originalQual = passingQual;
+        vdm.setData(theData);
+        vdm.dropAggregateData();
+
+        Assert.assertEquals( vdm.getData().size(), MAX_NUM_TRAINING_DATA * 8 );
+        Assert.assertEquals( vdm.getAnnotations().getNumData(), MAX_NUM_TRAINING_DATA * 8 );
+        for( int iii = 0; iii < vdm.getData().size(); iii++ ) {
+            final VariantDatum datum = vdm.getData().get(iii);
+            Assert.assertFalse( datum.isAggregate );
+            Assert.assertEquals( datum.index, iii );
+            Assert.assertTrue( vdm.isAtTrainingSite(datum) );
+            // the annotations and the flags follow their datum
+            Assert.assertEquals( vdm.getAnnotations().get(datum.index, 0), (double) (iii / 4 * 5 + iii % 4 + 1) );
+        }
+    }
+
+    @Test
+    public final void testDropAggregateDataRenumbersSubsets() {
+        final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
+        VRAC.STD_THRESHOLD = Double.MAX_VALUE;
+        VRAC.BAD_LOD_CUTOFF = -5.0;
+        final VariantDataManager vdm = new VariantDataManager(Collections.singletonList("A"), VRAC);
+
+        // the annotation of each datum is its original index
+        final List<VariantDatum> theData = new ArrayList<>();
+        for( int iii = 0; iii < 60; iii++ ) {
+            final VariantDatum datum = addDatum(vdm, iii % 2 == 0, iii);
+            datum.isAggregate = iii % 3 == 0;
+            datum.lod = iii % 4 == 0 ? -10.0 : 10.0;
             theData.add(datum);
         }
+        vdm.setData(theData);
+        final int[] trainingData = vdm.getTrainingData();
+        final int[] worstData = vdm.selectWorstVariants();
+        final int[] evaluationData = vdm.getEvaluationData();
+
+        final int[][] retained = vdm.dropAggregateData(trainingData, worstData);
+        Assert.assertEquals(retained.length, 2);
+        final VariantAnnotationMatrix annotations = vdm.getAnnotations();
+        Assert.assertEquals(Arrays.stream(retained[0]).mapToDouble(i -> annotations.get(i, 0)).toArray(),
+                Arrays.stream(trainingData).filter(i -> i % 3 != 0).asDoubleStream().toArray());
+        Assert.assertEquals(Arrays.stream(retained[1]).mapToDouble(i -> annotations.get(i, 0)).toArray(),
+                Arrays.stream(worstData).filter(i -> i % 3 != 0).asDoubleStream().toArray());
+        for( final int datumIndex : retained[0] ) {
+            Assert.assertTrue(vdm.isAtTrainingSite(vdm.getData().get(datumIndex)));
+        }
+        for( final int datumIndex : retained[1] ) {
+            Assert.assertTrue(vdm.isAtAntiTrainingSite(vdm.getData().get(datumIndex)));
+        }
 
+        // the plotted data are the retained data of the subsets
+        final List<VariantDatum> plotData = vdm.getRandomDataForPlotting(1000, retained[0], retained[1], vdm.getEvaluationData());
+        Assert.assertEquals(plotData.size(), retained[0].length + retained[1].length + Arrays.stream(evaluationData).filter(i -> i % 3 != 0).count());
+        for( final VariantDatum datum : plotData ) {
+            Assert.assertFalse(datum.isAggregate);
+            Assert.assertSame(vdm.getData().get(datum.index), datum);
+        }
+    }
+
+    @Test
+    public final void testSubsetsAreIndicesOfTheData() {
+        final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
+        VRAC.STD_THRESHOLD = 3.0;
+        VRAC.BAD_LOD_CUTOFF = -5.0;
+        final VariantDataManager vdm = new VariantDataManager(Collections.singletonList("A"), VRAC);
+
+        final List<VariantDatum> theData = new ArrayList<>();
+        for( int iii = 0; iii < 100; iii++ ) {
+            // the last datum is an outlier, which is in none of the subsets
+            final VariantDatum datum = addDatum(vdm, iii % 2 == 0, iii == 99 ? 1000.0 : iii % 10);
+            datum.lod = iii % 3 == 0 ? -10.0 : 10.0;
+            theData.add(datum);
+        }
         vdm.setData(theData);
-        vdm.dropAggregateData();
+        vdm.normalizeData(true);
 
-        for( final VariantDatum datum : vdm.getData() ) {
-            Assert.assertFalse( datum.isAggregate );
+        final int[] trainingData = vdm.getTrainingData();
+        Assert.assertEquals(trainingData, theData.stream().filter(d -> d.index % 2 == 0 && d.index != 99).mapToInt(d -> d.index).toArray());
+
+        final int[] worstData = vdm.selectWorstVariants();
+        Assert.assertEquals(worstData, theData.stream().filter(d -> d.index % 3 == 0 && d.index != 99).mapToInt(d -> d.index).toArray());
+        for( final VariantDatum datum : theData ) {
+            Assert.assertEquals(vdm.isAtAntiTrainingSite(datum), datum.index % 3 == 0 && datum.index != 99);
+        }
+
+        final int[] evaluationData = vdm.getEvaluationData();
+        Assert.assertEquals(evaluationData, theData.stream().filter(d -> d.index % 2 != 0 && d.index % 3 != 0 && d.index != 99).mapToInt(d -> d.index).toArray());
+
+        // the training data are a view of the rows of the annotations
+        final VariantAnnotationMatrix trainingAnnotations = vdm.getAnnotations().getRows(trainingData);
+        Assert.assertEquals(trainingAnnotations.getNumData(), trainingData.length);
+        Assert.assertSame(trainingAnnotations.getValues(), vdm.getAnnotations().getValues());
+        for( int iii = 0; iii < trainingData.length; iii++ ) {
+            Assert.assertEquals(trainingAnnotations.get(iii, 0), vdm.getAnnotations().get(trainingData[iii], 0));
+        }
+    }
+
+    @Test
+    public final void testNormalizeDataReordersAnnotationsWithTheirKeys() {
+        final List<String> keys = Arrays.asList("A", "B", "C");
+        final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
+        VRAC.STD_THRESHOLD = Double.MAX_VALUE;
+        final VariantDataManager vdm = new VariantDataManager(keys, VRAC);
+
+        final Random random = new Random(13);
+        final List<VariantDatum> theData = new ArrayList<>();
+        final List<double[]> originalAnnotations = new ArrayList<>();
+        for( int iii = 0; iii < 50; iii++ ) {
+            final boolean atTrainingSite = iii % 2 == 0;
+            // C differs the most between training and non-training data, so it goes first
+            final double shiftC = atTrainingSite ? 0.0 : 10.0;
+            final double[] annotations = {random.nextGaussian(), iii == 7 ? Double.NaN : 3.0 * random.nextGaussian(), shiftC + 2.0 * random.nextGaussian()};
+            originalAnnotations.add(annotations.clone());
+            theData.add(addDatum(vdm, atTrainingSite, annotations));
+        }
+        vdm.setData(theData);
+        vdm.normalizeData(true);
+
+        Assert.assertEquals(new HashSet<>(vdm.annotationKeys), new HashSet<>(keys));
+        Assert.assertEquals(vdm.annotationKeys.get(0), "C");
+        final VariantAnnotationMatrix annotations = vdm.getAnnotations();
+        for( int iii = 0; iii < theData.size(); iii++ ) {
+            final VariantDatum datum = theData.get(iii);
+            for( int jjj = 0; jjj < keys.size(); jjj++ ) {
+                final int originalIndex = keys.indexOf(vdm.annotationKeys.get(jjj));
+                Assert.assertEquals(annotations.isNull(datum.index, jjj), iii == 7 && originalIndex == 1);
+                if( !annotations.isNull(datum.index, jjj) ) {
+                    final double expected = (originalAnnotations.get(iii)[originalIndex] - vdm.getMeanVector()[jjj]) / vdm.getVarianceVector()[jjj];
+                    Assert.assertEquals(annotations.get(datum.index, jjj), expected, 1e-12);
+                }
+            }
         }
     }
 }
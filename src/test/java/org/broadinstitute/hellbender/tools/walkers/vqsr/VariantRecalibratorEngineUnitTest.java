@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public final class VariantRecalibratorEngineUnitTest extends GATKBaseTest {
+
+    // more than a few blocks, so that the multi-threaded reductions add up several blocks
+    private static final int NUM_DATA = 3 * GaussianMixtureModel.DATA_BLOCK_SIZE + 123;
+    private static final int NUM_ANNOTATIONS = 3;
+
+    private static VariantAnnotationMatrix makeAnnotations(final boolean withMissingAnnotations) {
+        final Random random = new Random(42);
+        final VariantAnnotationMatrix annotations = new VariantAnnotationMatrix(NUM_ANNOTATIONS);
+        for (int i = 0; i < NUM_DATA; i++) {
+            final double[] values = new double[NUM_ANNOTATIONS];
+            final boolean[] isNull = new boolean[NUM_ANNOTATIONS];
+            // two clusters
+            final double center = i % 3 == 0 ? -2.0 : 1.5;
+            for (int j = 0; j < NUM_ANNOTATIONS; j++) {
+                values[j] = center + random.nextGaussian();
+            }
+            if (withMissingAnnotations && i % 17 == 0) {
+                isNull[i % NUM_ANNOTATIONS] = true;
+            }
+            annotations.addRow(values, isNull);
+        }
+        return annotations;
+    }
+
+    private static List<VariantDatum> makeData() {
+        final List<VariantDatum> data = new ArrayList<>(NUM_DATA);
+        for (int i = 0; i < NUM_DATA; i++) {
+            final VariantDatum datum = new VariantDatum();
+            datum.index = i;
+            datum.prior = 2.0;
+            data.add(datum);
+        }
+        return data;
+    }
+
+    private static GaussianMixtureModel trainModel(final VariantAnnotationMatrix annotations, final int threads) {
+        final VariantRecalibratorArgumentCollection vrac = new VariantRecalibratorArgumentCollection();
+        vrac.THREADS = threads;
+        vrac.MAX_ITERATIONS = 20;
+        vrac.NUM_KMEANS_ITERATIONS = 10;
+        Utils.resetRandomGenerator();
+        try (final VariantRecalibratorEngine engine = new VariantRecalibratorEngine(vrac)) {
+            return engine.generateModel(annotations, 4);
+        }
+    }
+
+    private static GaussianMixtureModel trainModel(final int threads) {
+        return trainModel(makeAnnotations(false), threads);
+    }
+
+    private static List<VariantDatum> evaluateData(final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel, final int threads) {
+        final VariantRecalibratorArgumentCollection vrac = new VariantRecalibratorArgumentCollection();
+        vrac.THREADS = threads;
+        final VariantAnnotationMatrix annotations = makeAnnotations(true);
+        final List<VariantDatum> data = makeData();
+        Utils.resetRandomGenerator();
+        try (final VariantRecalibratorEngine engine = new VariantRecalibratorEngine(vrac)) {
+            engine.evaluateData(data, annotations, goodModel, false);
+            // makes some lods infinite, whose contrastive lods are random
+            data.get(5).lod = Double.NEGATIVE_INFINITY;
+            data.get(NUM_DATA - 1).lod = Double.NEGATIVE_INFINITY;
+            engine.evaluateData(data, annotations, badModel, true);
+            engine.calculateWorstPerformingAnnotation(data, annotations, goodModel, badModel);
+        }
+        return data;
+    }
+
+    private static void assertSameModels(final GaussianMixtureModel actual, final GaussianMixtureModel expected, final double tolerance) {
+        final List<MultivariateGaussian> actualGaussians = actual.getModelGaussians();
+        final List<MultivariateGaussian> expectedGaussians = expected.getModelGaussians();
+        Assert.assertEquals(actualGaussians.size(), expectedGaussians.size());
+        for (int k = 0; k < actualGaussians.size(); k++) {
+            final MultivariateGaussian actualGaussian = actualGaussians.get(k);
+            final MultivariateGaussian expectedGaussian = expectedGaussians.get(k);
+            Assert.assertEquals(actualGaussian.pMixtureLog10, expectedGaussian.pMixtureLog10, tolerance);
+            for (int i = 0; i < NUM_ANNOTATIONS; i++) {
+                Assert.assertEquals(actualGaussian.mu[i], expectedGaussian.mu[i], tolerance);
+                for (int j = 0; j < NUM_ANNOTATIONS; j++) {
+                    Assert.assertEquals(actualGaussian.sigma.get(i, j), expectedGaussian.sigma.get(i, j), tolerance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultiThreadedTrainingIsReproducible() {
+        final GaussianMixtureModel singleThreadedModel = trainModel(1);
+        final GaussianMixtureModel twoThreadModel = trainModel(2);
+        final GaussianMixtureModel threeThreadModel = trainModel(3);
+
+        // the same for any number of threads > 1
+        assertSameModels(threeThreadModel, twoThreadModel, 0.0);
+        // and only differing by rounding from the single-threaded model
+        assertSameModels(twoThreadModel, singleThreadedModel, 1e-5);
+    }
+
+    @Test
+    public void testTrainingOnRowsMatchesTrainingOnACopyOfTheRows() {
+        final VariantAnnotationMatrix annotations = makeAnnotations(false);
+        final int[] rows = IntStream.range(0, NUM_DATA).filter(i -> i % 4 != 1).toArray();
+        final VariantAnnotationMatrix copy = new VariantAnnotationMatrix(NUM_ANNOTATIONS);
+        for (final int row : rows) {
+            final double[] values = new double[NUM_ANNOTATIONS];
+            for (int j = 0; j < NUM_ANNOTATIONS; j++) {
+                values[j] = annotations.get(row, j);
+            }
+            copy.addRow(values, new boolean[NUM_ANNOTATIONS]);
+        }
+
+        assertSameModels(trainModel(annotations.getRows(rows), 1), trainModel(copy, 1), 0.0);
+        assertSameModels(trainModel(annotations.getRows(rows), 2), trainModel(copy, 2), 0.0);
+    }
+
+    @Test
+    public void testMultiThreadedEvaluationMatchesSingleThreaded() {
+        final GaussianMixtureModel goodModel = trainModel(1);
+        final GaussianMixtureModel badModel = trainModel(1);
+
+        final List<VariantDatum> expected = evaluateData(goodModel, badModel, 1);
+        final List<VariantDatum> actual = evaluateData(goodModel, badModel, 3);
+
+        for (int i = 0; i < NUM_DATA; i++) {
+            Assert.assertEquals(actual.get(i).lod, expected.get(i).lod, "lod of datum " + i);
+            Assert.assertEquals(actual.get(i).worstAnnotation, expected.get(i).worstAnnotation, "worst annotation of datum " + i);
+            Assert.assertEquals(actual.get(i).worstValue, expected.get(i).worstValue, "worst value of datum " + i);
+        }
+    }
+}
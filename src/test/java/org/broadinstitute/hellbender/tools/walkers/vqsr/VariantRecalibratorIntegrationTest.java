@@ -153,6 +153,29 @@ public class VariantRecalibratorIntegrationTest extends CommandLineProgramTest {
         Assert.assertEquals(varRecalTool.max_attempts, 4);
     }
 
+    @Test(dataProvider = "VarRecalSNP", groups = {"R"})
+    public void testVariantRecalibratorSNPWithAggregateDataAndRscript(final String[] params) throws IOException {
+        // the aggregate data are dropped after training, before the training data are sampled for the plots
+        final List<String> args = new ArrayList<>(params.length);
+        Stream.of(params).forEach(arg -> args.add(arg));
+        final File recalOut = createTempFile("testVarRecalAggregate", ".vcf");
+        final File tranchesOut = createTempFile("testVarRecalAggregate", ".txt");
+        final File rscriptOut = createTempFile("testVarRecalAggregate", ".R");
+        args.addAll(addTempFileArgs(recalOut, tranchesOut));
+        args.add("--aggregate");
+        args.add(getLargeVQSRTestDataDir() + "phase1.projectConsensus.chr20.1M-10M.raw.snps.vcf");
+        args.add("--rscript-file");
+        args.add(rscriptOut.getAbsolutePath());
+        // only fail on errors in the plots, not on the few attempts the model may take with more training data
+        args.add("--max-attempts");
+        args.add("4");
+
+        final VariantRecalibrator varRecalTool = new VariantRecalibrator();
+        Assert.assertEquals(varRecalTool.instanceMain(args.toArray(new String[args.size()])), true);
+        Assert.assertTrue(rscriptOut.length() > 0);
+        Assert.assertTrue(new File(rscriptOut.getAbsolutePath() + ".pdf").exists());
+    }
+
     private List<String> addTempFileArgs(final File recalOutFile, final File tranchesOutFile) {
         List<java.lang.String> args = new ArrayList<>(2);
         args.add("--output");
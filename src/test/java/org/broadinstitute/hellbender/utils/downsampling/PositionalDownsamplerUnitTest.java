@@ -150,6 +150,27 @@ public class PositionalDownsamplerUnitTest extends GATKBaseTest {
         Assert.assertTrue(downsampler.hasFinalizedItems());
     }
 
+    @Test
+    public void testPositionalDownsamplerWithItsOwnRandom() {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int start = 1; start <= 10; start++ ) {
+            reads.addAll(createStackOfMappedReads(20, "1", start));
+        }
+
+        final List<List<GATKRead>> downsampledReads = new ArrayList<>();
+        for ( int i = 0; i < 2; i++ ) {
+            // Drawing from the shared random number generator in between must not change the reads retained
+            Utils.getRandomGenerator().nextInt();
+            final ReadsDownsampler downsampler = new PositionalDownsampler(5, header, new Random(42L));
+            downsampler.submit(reads);
+            downsampler.signalEndOfInput();
+            downsampledReads.add(downsampler.consumeFinalizedItems());
+        }
+
+        Assert.assertEquals(downsampledReads.get(0).size(), 50);
+        Assert.assertEquals(downsampledReads.get(1), downsampledReads.get(0));
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testPositionalDownsamplerZeroTargetCoverage() {
         final PositionalDownsampler downsampler = new PositionalDownsampler(0, header);
@@ -247,6 +247,33 @@ public final class ReadLikelihoodsUnitTest {
         }
     }
 
+    @Test(dataProvider = "dataSets")
+    public void testMarginalizationCopiesOnWrite(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        final double[][][] originalLikelihoods = fillWithRandomLikelihoods(samples, alleles, original);
+        final Map<Allele,List<Allele>> identityMapping = new LinkedHashMap<>(alleles.length);
+        for (final Allele allele : alleles) {
+            identityMapping.put(allele, Collections.singletonList(allele));
+        }
+
+        // changes to the marginalized likelihoods must not show in the original ones...
+        final ReadLikelihoods<Allele> marginalized = original.marginalize(identityMapping);
+        for (int s = 0; s < samples.length; s++) {
+            final LikelihoodMatrix<Allele> sampleLikelihoods = marginalized.sampleMatrix(s);
+            for (int a = 0; a < sampleLikelihoods.numberOfAlleles(); a++) {
+                for (int r = 0; r < sampleLikelihoods.numberOfReads(); r++) {
+                    sampleLikelihoods.set(a, r, 1.0);
+                }
+            }
+        }
+        testLikelihoodMatrixQueries(samples, original, originalLikelihoods);
+
+        // ... and the other way around.
+        final ReadLikelihoods<Allele> otherMarginalized = original.marginalize(identityMapping);
+        original.normalizeLikelihoods(true, -0.001);
+        testLikelihoodMatrixQueries(samples, otherMarginalized, originalLikelihoods);
+    }
+
     @Test(dataProvider = "dataSets")
     public void testNormalizeBestToZero(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
         final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
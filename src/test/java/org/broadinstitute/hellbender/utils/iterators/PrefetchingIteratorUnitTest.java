@@ -0,0 +1,101 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PrefetchingIteratorUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "prefetchingData")
+    public Object[][] getPrefetchingData() {
+        return new Object[][] {
+                { 0, 1 },
+                { 1, 1 },
+                { 10, 1 },
+                { 10, 3 },
+                { 1000, 16 }
+        };
+    }
+
+    @Test(dataProvider = "prefetchingData")
+    public void testItemsAreReturnedInOrder( final int numItems, final int capacity ) {
+        final List<Integer> items = IntStream.range(0, numItems).boxed().collect(Collectors.toList());
+
+        final List<Integer> prefetched = new ArrayList<>();
+        try ( final PrefetchingIterator<Integer> iter = new PrefetchingIterator<>(items.iterator(), capacity, "testPrefetch") ) {
+            iter.forEachRemaining(prefetched::add);
+            Assert.assertFalse(iter.hasNext());
+        }
+
+        Assert.assertEquals(prefetched, items);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextPastEnd() {
+        try ( final PrefetchingIterator<Integer> iter = new PrefetchingIterator<>(Collections.<Integer>emptyIterator(), 1, "testPrefetch") ) {
+            iter.next();
+        }
+    }
+
+    @Test
+    public void testProducerFailureIsRethrownAfterPrecedingItems() {
+        final Iterator<Integer> failingIter = new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() { return true; }
+
+            @Override
+            public Integer next() {
+                if ( next == 2 ) {
+                    throw new IllegalStateException("boom");
+                }
+                return next++;
+            }
+        };
+
+        try ( final PrefetchingIterator<Integer> iter = new PrefetchingIterator<>(failingIter, 5, "testPrefetch") ) {
+            Assert.assertEquals(iter.next().intValue(), 0);
+            Assert.assertEquals(iter.next().intValue(), 1);
+            Assert.assertThrows(IllegalStateException.class, iter::hasNext);
+        }
+    }
+
+    @Test
+    public void testCloseBeforeEnd() {
+        final Iterator<Integer> endlessIter = IntStream.iterate(0, i -> i + 1).boxed().iterator();
+        final AtomicReference<Thread> producer = new AtomicReference<>();
+        final Iterator<Integer> recordingIter = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() { return endlessIter.hasNext(); }
+
+            @Override
+            public Integer next() {
+                producer.set(Thread.currentThread());
+                return endlessIter.next();
+            }
+        };
+
+        final PrefetchingIterator<Integer> iter = new PrefetchingIterator<>(recordingIter, 2, "testPrefetch");
+        Assert.assertEquals(iter.next().intValue(), 0);
+        iter.close();
+
+        // close() waits for the background thread, so the wrapped iterator is no longer in use
+        Assert.assertFalse(producer.get().isAlive());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new PrefetchingIterator<>(Collections.<Integer>emptyIterator(), 0, "testPrefetch");
+    }
+}
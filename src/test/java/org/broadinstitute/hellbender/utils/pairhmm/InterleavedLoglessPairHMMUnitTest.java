@@ -0,0 +1,200 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.util.BasicInputParser;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.*;
+
+public final class InterleavedLoglessPairHMMUnitTest extends GATKBaseTest {
+
+    private static final String pairHMMTestData = publicTestDir + "pairhmm-testdata.txt";
+
+    @Test
+    public void testLikelihoodsFromTestData() {
+        final InterleavedLoglessPairHMM hmm = new InterleavedLoglessPairHMM();
+
+        BasicInputParser parser = null;
+        try {
+            parser = new BasicInputParser(true, new FileInputStream(pairHMMTestData));
+        } catch (FileNotFoundException e) {
+            Assert.fail("PairHMM test data not found : " + pairHMMTestData);
+        }
+
+        while (parser.hasNext()) {
+            final String tokens[] = parser.next();
+
+            final Haplotype hap = new Haplotype(tokens[0].getBytes(), true);
+            final GATKRead read = makeRead(tokens[1].getBytes(), normalize(tokens[2].getBytes(), 6), normalize(tokens[3].getBytes(), 0), normalize(tokens[4].getBytes(), 0));
+            final byte[] gcp = normalize(tokens[5].getBytes(), 0);
+            final double expectedResult = Double.parseDouble(tokens[6]);
+
+            final Map<GATKRead, byte[]> gcps = Collections.singletonMap(read, gcp);
+            hmm.computeLog10Likelihoods(matrix(Collections.singletonList(hap)), Collections.singletonList(read), gcps);
+
+            Assert.assertEquals(hmm.getLogLikelihoodArray()[0], expectedResult, 1e-4, "Likelihood not in expected range.");
+        }
+
+        hmm.close();
+    }
+
+    @DataProvider(name = "haplotypeCounts")
+    public Object[][] getHaplotypeCounts() {
+        // less than, exactly and more than one group of lanes, and several groups with a partial last one
+        return new Object[][] { {1}, {3}, {InterleavedLoglessPairHMM.LANES}, {InterleavedLoglessPairHMM.LANES + 1}, {3 * InterleavedLoglessPairHMM.LANES + 5} };
+    }
+
+    @Test(dataProvider = "haplotypeCounts")
+    public void testMatchesLoglessPairHMM(final int haplotypeCount) {
+        final Random random = new Random(13);
+        final byte[] reference = randomBases(random, 150);
+
+        // haplotypes of different lengths: the reference with a few substitutions, insertions and deletions
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        for (int h = 0; h < haplotypeCount; h++) {
+            final byte[] bases = reference.clone();
+            for (int k = 0; k < h % 4; k++) {
+                bases[random.nextInt(bases.length)] = randomBases(random, 1)[0];
+            }
+            final int cut = 20 + random.nextInt(100);
+            final byte[] edited = h % 3 == 0 ? bases : h % 3 == 1 ?
+                    concat(Arrays.copyOfRange(bases, 0, cut), randomBases(random, 1 + h % 5), Arrays.copyOfRange(bases, cut, bases.length)) :
+                    concat(Arrays.copyOfRange(bases, 0, cut), Arrays.copyOfRange(bases, cut + 1 + h % 5, bases.length));
+            haplotypes.add(new Haplotype(edited, h == 0));
+        }
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for (int r = 0; r < 10; r++) {
+            final int length = 50 + random.nextInt(51);
+            final int start = random.nextInt(reference.length - length);
+            final byte[] bases = Arrays.copyOfRange(reference, start, start + length);
+            bases[random.nextInt(length)] = 'N';
+            final byte[] quals = new byte[length];
+            for (int i = 0; i < length; i++) {
+                quals[i] = (byte) (10 + random.nextInt(30));
+            }
+            reads.add(makeRead(bases, quals, Utils.dupBytes((byte) 45, length), Utils.dupBytes((byte) 45, length)));
+        }
+
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        reads.forEach(read -> gcps.put(read, Utils.dupBytes((byte) 10, read.getLength())));
+
+        final LoglessPairHMM logless = new LoglessPairHMM();
+        logless.computeLog10Likelihoods(matrix(haplotypes), reads, gcps);
+        final InterleavedLoglessPairHMM interleaved = new InterleavedLoglessPairHMM();
+        interleaved.computeLog10Likelihoods(matrix(haplotypes), reads, gcps);
+
+        final double[] expected = logless.getLogLikelihoodArray();
+        final double[] actual = interleaved.getLogLikelihoodArray();
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(actual[i], expected[i], 1e-4, "likelihood " + i + " differs");
+        }
+    }
+
+    @Test
+    public void testUnderflowIsRecomputedInDoublePrecision() {
+        // every base of this long, high-quality read mismatches the haplotype, so the single-precision computation underflows
+        final byte[] haplotypeBases = Utils.dupBytes((byte) 'A', 300);
+        final byte[] readBases = Utils.dupBytes((byte) 'C', 100);
+        final byte[] quals = Utils.dupBytes((byte) 40, readBases.length);
+        final byte[] gcp = Utils.dupBytes((byte) 10, readBases.length);
+
+        final LoglessPairHMM logless = new LoglessPairHMM();
+        logless.initialize(readBases.length, haplotypeBases.length);
+        final double expected = logless.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, quals, quals, quals, gcp, true, null);
+
+        final InterleavedLoglessPairHMM interleaved = new InterleavedLoglessPairHMM();
+        interleaved.initialize(readBases.length, haplotypeBases.length);
+        final double actual = interleaved.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, quals, quals, quals, gcp, true, null);
+
+        Assert.assertTrue(expected < Math.log10(InterleavedLoglessPairHMM.MIN_ACCEPTED_FLOAT) - InterleavedLoglessPairHMM.INITIAL_CONDITION_FLOAT_LOG10,
+                "test case should underflow in single precision");
+        Assert.assertEquals(actual, expected, 1e-9);
+    }
+
+    @Test
+    public void testSelectableByImplementation() {
+        Assert.assertTrue(PairHMM.Implementation.INTERLEAVED_LOGLESS.makeNewHMM(null) instanceof InterleavedLoglessPairHMM);
+    }
+
+    private static GATKRead makeRead(final byte[] bases, final byte[] quals, final byte[] insertionQuals, final byte[] deletionQuals) {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, bases.length + "M");
+        ReadUtils.setInsertionBaseQualities(read, insertionQuals);
+        ReadUtils.setDeletionBaseQualities(read, deletionQuals);
+        return read;
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = "ACGT".getBytes()[random.nextInt(4)];
+        }
+        return bases;
+    }
+
+    private static byte[] concat(final byte[]... arrays) {
+        final byte[] result = new byte[Arrays.stream(arrays).mapToInt(a -> a.length).sum()];
+        int offset = 0;
+        for (final byte[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+
+    private static byte[] normalize(byte[] scores, int min) {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] -= 33;
+            scores[i] = scores[i] < min ? (byte)min : scores[i];
+        }
+        return scores;
+    }
+
+    private static LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
+        return new LikelihoodMatrix<Haplotype>() {
+            @Override
+            public List<GATKRead> reads() { throw new UnsupportedOperationException(); }
+
+            @Override
+            public List<Haplotype> alleles() { return haplotypes; }
+
+            @Override
+            public void set(int alleleIndex, int readIndex, double value) { }
+
+            @Override
+            public double get(int alleleIndex, int readIndex) { throw new UnsupportedOperationException(); }
+
+            @Override
+            public int indexOfAllele(Haplotype allele) { throw new UnsupportedOperationException(); }
+
+            @Override
+            public int indexOfRead(GATKRead read) { throw new UnsupportedOperationException(); }
+
+            @Override
+            public int numberOfAlleles() { return haplotypes.size(); }
+
+            @Override
+            public int numberOfReads() { throw new UnsupportedOperationException(); }
+
+            @Override
+            public Haplotype getAllele(int alleleIndex) { return haplotypes.get(alleleIndex); }
+
+            @Override
+            public GATKRead getRead(int readIndex) { throw new UnsupportedOperationException(); }
+
+            @Override
+            public void copyAlleleLikelihoods(int alleleIndex, double[] dest, int offset) { throw new UnsupportedOperationException(); }
+        };
+    }
+}
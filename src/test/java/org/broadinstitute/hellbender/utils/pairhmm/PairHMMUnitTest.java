@@ -532,6 +532,95 @@ public final class PairHMMUnitTest extends GATKBaseTest {
 
     }
 
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchedLikelihoodsMatchPerMatrixLikelihoods(final PairHMM hmm) {
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype("ACGTGTCAAACCGGGTTACGT".getBytes(), true),
+                new Haplotype("ACGTGTCACACTGGGTTACGT".getBytes(), false),
+                new Haplotype("ACGTGTCACTCCGCGTTACGT".getBytes(), false));
+
+        // three groups of reads, as for three samples, one of them empty
+        final List<List<GATKRead>> readGroups = Arrays.asList(
+                Arrays.asList(read("ACGTGTCACACTGG"), read("GTCAAACCGGGTT")),
+                Collections.emptyList(),
+                Arrays.asList(read("CACTCCGCGTTAC"), read("ACGTGTCAAACC"), read("TGTCACACTGGGT")));
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        readGroups.forEach(reads -> gcps.putAll(buildGapContinuationPenalties(reads, (byte) 10)));
+
+        final List<double[][]> expected = new ArrayList<>();
+        for ( final List<GATKRead> reads : readGroups ) {
+            final double[][] values = new double[haplotypes.size()][reads.size()];
+            hmm.computeLog10Likelihoods(recordingMatrix(haplotypes, values), reads, gcps);
+            expected.add(values);
+        }
+
+        final List<double[][]> batched = new ArrayList<>();
+        final List<LikelihoodMatrix<Haplotype>> matrices = new ArrayList<>();
+        for ( final List<GATKRead> reads : readGroups ) {
+            final double[][] values = new double[haplotypes.size()][reads.size()];
+            batched.add(values);
+            matrices.add(recordingMatrix(haplotypes, values));
+        }
+        hmm.computeLog10Likelihoods(matrices, readGroups, gcps);
+
+        for ( int i = 0; i < readGroups.size(); i++ ) {
+            for ( int a = 0; a < haplotypes.size(); a++ ) {
+                Assert.assertEquals(batched.get(i)[a], expected.get(i)[a]);
+            }
+        }
+    }
+
+    @Test(dataProvider = "JustHMMProvider", expectedExceptions = IllegalArgumentException.class)
+    public void testBatchedLikelihoodsRequireOneReadListPerMatrix(final PairHMM hmm) {
+        final List<Haplotype> haplotypes = Collections.singletonList(new Haplotype("ACGTGTCAAACCGGGTT".getBytes(), true));
+        hmm.computeLog10Likelihoods(Collections.singletonList(matrix(haplotypes)), Collections.emptyList(), Collections.emptyMap());
+    }
+
+    private static GATKRead read(final String bases) {
+        final byte[] readBases = bases.getBytes();
+        return ArtificialReadUtils.createArtificialRead(readBases, Utils.dupBytes((byte) 30, readBases.length), readBases.length + "M");
+    }
+
+    private LikelihoodMatrix<Haplotype> recordingMatrix(final List<Haplotype> haplotypes, final double[][] values) {
+        final LikelihoodMatrix<Haplotype> base = matrix(haplotypes);
+        return new LikelihoodMatrix<Haplotype>() {
+            @Override
+            public List<GATKRead> reads() { return base.reads(); }
+
+            @Override
+            public List<Haplotype> alleles() { return haplotypes; }
+
+            @Override
+            public void set(int alleleIndex, int readIndex, double value) { values[alleleIndex][readIndex] = value; }
+
+            @Override
+            public double get(int alleleIndex, int readIndex) { return values[alleleIndex][readIndex]; }
+
+            @Override
+            public int indexOfAllele(Haplotype allele) { return haplotypes.indexOf(allele); }
+
+            @Override
+            public int indexOfRead(GATKRead read) { return base.indexOfRead(read); }
+
+            @Override
+            public int numberOfAlleles() { return haplotypes.size(); }
+
+            @Override
+            public int numberOfReads() { return values[0].length; }
+
+            @Override
+            public Haplotype getAllele(int alleleIndex) { return haplotypes.get(alleleIndex); }
+
+            @Override
+            public GATKRead getRead(int readIndex) { return base.getRead(readIndex); }
+
+            @Override
+            public void copyAlleleLikelihoods(int alleleIndex, double[] dest, int offset) {
+                System.arraycopy(values[alleleIndex], 0, dest, offset, values[alleleIndex].length);
+            }
+        };
+    }
+
     private LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
         return new LikelihoodMatrix<Haplotype>() {
             @Override
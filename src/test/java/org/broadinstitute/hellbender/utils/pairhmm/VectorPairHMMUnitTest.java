@@ -112,6 +112,70 @@ public final class VectorPairHMMUnitTest extends GATKBaseTest {
         hmm.close();
     }
 
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchedLikelihoodsMatchPerSampleLikelihoods(final PairHMM hmm, Boolean loaded) {
+
+        // skip if not loaded
+        if(!loaded.booleanValue()) {
+            throw new SkipException("AVX PairHMM is not supported on this system or the library is not available");
+        }
+
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype("ACGTGTCAAACCGGGTTACGTTAGCA".getBytes(), true),
+                new Haplotype("ACGTGTCACACTGGGTTACGTTAGCA".getBytes(), false),
+                new Haplotype("ACGTGTCACTCCGCGTTACGATAGCA".getBytes(), false));
+
+        // reads of four samples, with uneven read counts and one sample with no reads
+        final List<List<GATKRead>> perSampleReads = Arrays.asList(
+                Arrays.asList(read("ACGTGTCACACTGG"), read("GTCAAACCGGGTT"), read("GGTTACGTTAGC")),
+                Collections.emptyList(),
+                Collections.singletonList(read("CACTCCGCGTTAC")),
+                Arrays.asList(read("ACGTGTCAAACC"), read("TGTCACACTGGGTTACG")));
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        for ( final List<GATKRead> reads : perSampleReads ) {
+            for ( final GATKRead read : reads ) {
+                gcps.put(read, new byte[read.getLength()]);
+                Arrays.fill(gcps.get(read), (byte) 10);
+            }
+        }
+
+        hmm.initialize(haplotypes, null, 0, 0);
+        final List<double[][]> expected = new ArrayList<>();
+        for ( final List<GATKRead> reads : perSampleReads ) {
+            final double[][] values = new double[haplotypes.size()][reads.size()];
+            hmm.computeLog10Likelihoods(recordingMatrix(haplotypes, values), reads, gcps);
+            expected.add(values);
+        }
+
+        final List<double[][]> batched = new ArrayList<>();
+        final List<LikelihoodMatrix<Haplotype>> matrices = new ArrayList<>();
+        for ( final List<GATKRead> reads : perSampleReads ) {
+            final double[][] values = new double[haplotypes.size()][reads.size()];
+            batched.add(values);
+            matrices.add(recordingMatrix(haplotypes, values));
+        }
+        hmm.computeLog10Likelihoods(matrices, perSampleReads, gcps);
+
+        for ( int sample = 0; sample < perSampleReads.size(); sample++ ) {
+            for ( int h = 0; h < haplotypes.size(); h++ ) {
+                for ( int r = 0; r < perSampleReads.get(sample).size(); r++ ) {
+                    Assert.assertEquals(batched.get(sample)[h][r], expected.get(sample)[h][r], 1e-10,
+                            "Wrong likelihood of read " + r + " of sample " + sample + " for haplotype " + h);
+                    Assert.assertTrue(batched.get(sample)[h][r] < 0.0);
+                }
+            }
+        }
+
+        hmm.close();
+    }
+
+    private static GATKRead read(final String bases) {
+        final byte[] readBases = bases.getBytes();
+        final byte[] readQuals = new byte[readBases.length];
+        Arrays.fill(readQuals, (byte) 30);
+        return ArtificialReadUtils.createArtificialRead(readBases, readQuals, readBases.length + "M");
+    }
+
     private static byte[] normalize(byte[] scores) {
         return normalize(scores, 0);
     }
@@ -124,6 +188,46 @@ public final class VectorPairHMMUnitTest extends GATKBaseTest {
         return scores;
     }
 
+    private LikelihoodMatrix<Haplotype> recordingMatrix(final List<Haplotype> haplotypes, final double[][] values) {
+        final LikelihoodMatrix<Haplotype> base = matrix(haplotypes);
+        return new LikelihoodMatrix<Haplotype>() {
+            @Override
+            public List<GATKRead> reads() { return base.reads(); }
+
+            @Override
+            public List<Haplotype> alleles() { return haplotypes; }
+
+            @Override
+            public void set(int alleleIndex, int readIndex, double value) { values[alleleIndex][readIndex] = value; }
+
+            @Override
+            public double get(int alleleIndex, int readIndex) { return values[alleleIndex][readIndex]; }
+
+            @Override
+            public int indexOfAllele(Haplotype allele) { return haplotypes.indexOf(allele); }
+
+            @Override
+            public int indexOfRead(GATKRead read) { return base.indexOfRead(read); }
+
+            @Override
+            public int numberOfAlleles() { return haplotypes.size(); }
+
+            @Override
+            public int numberOfReads() { return values[0].length; }
+
+            @Override
+            public Haplotype getAllele(int alleleIndex) { return haplotypes.get(alleleIndex); }
+
+            @Override
+            public GATKRead getRead(int readIndex) { return base.getRead(readIndex); }
+
+            @Override
+            public void copyAlleleLikelihoods(int alleleIndex, double[] dest, int offset) {
+                System.arraycopy(values[alleleIndex], 0, dest, offset, values[alleleIndex].length);
+            }
+        };
+    }
+
     private LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
         return new LikelihoodMatrix<Haplotype>() {
             @Override
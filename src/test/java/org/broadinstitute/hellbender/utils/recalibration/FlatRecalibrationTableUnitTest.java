@@ -0,0 +1,77 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public final class FlatRecalibrationTableUnitTest extends GATKBaseTest {
+
+    private static final int NUM_READ_GROUPS = 3;
+    private static final int QUAL_DIMENSION = 50;
+    private static final int COVARIATE_DIMENSION = 20;
+    private static final int EVENT_DIMENSION = EventType.values().length;
+
+    @Test
+    public void testMatchesDirectUpdatesOf3KeyTable() {
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(NUM_READ_GROUPS, QUAL_DIMENSION, EVENT_DIMENSION);
+        final NestedIntegerArray<RecalDatum> actual = new NestedIntegerArray<>(NUM_READ_GROUPS, QUAL_DIMENSION, EVENT_DIMENSION);
+        final FlatRecalibrationTable flatTable = new FlatRecalibrationTable(actual.getDimensions());
+
+        final Random random = new Random(13);
+        for (int i = 0; i < 10000; i++) {
+            final int readGroup = random.nextInt(NUM_READ_GROUPS - 1); // leaves one read group without data
+            final byte qual = (byte) random.nextInt(QUAL_DIMENSION);
+            final int event = random.nextInt(EVENT_DIMENSION);
+            final double isError = random.nextBoolean() ? 0.0 : random.nextDouble();
+            RecalUtils.incrementDatumOrPutIfNecessary3keys(expected, qual, isError, readGroup, qual, event);
+            flatTable.increment3Keys(qual, isError, readGroup, qual, event);
+        }
+        flatTable.addTo(actual);
+        assertSameTables(actual, expected);
+    }
+
+    @Test
+    public void testMatchesDirectUpdatesOf4KeyTable() {
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(NUM_READ_GROUPS, QUAL_DIMENSION, COVARIATE_DIMENSION, EVENT_DIMENSION);
+        final NestedIntegerArray<RecalDatum> actual = new NestedIntegerArray<>(NUM_READ_GROUPS, QUAL_DIMENSION, COVARIATE_DIMENSION, EVENT_DIMENSION);
+        final FlatRecalibrationTable flatTable = new FlatRecalibrationTable(actual.getDimensions());
+
+        final Random random = new Random(17);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 10000; i++) {
+                final int readGroup = random.nextInt(NUM_READ_GROUPS);
+                final byte qual = (byte) random.nextInt(QUAL_DIMENSION);
+                final int covariate = random.nextInt(COVARIATE_DIMENSION);
+                final int event = random.nextInt(EVENT_DIMENSION);
+                final double isError = random.nextBoolean() ? 0.0 : random.nextDouble();
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(expected, qual, isError, readGroup, qual, covariate, event);
+                flatTable.increment4Keys(qual, isError, readGroup, qual, covariate, event);
+            }
+            // the second round adds to the datums created by the first one
+            flatTable.addTo(actual);
+        }
+        assertSameTables(actual, expected);
+    }
+
+    @Test
+    public void testFitsDimensions() {
+        Assert.assertTrue(FlatRecalibrationTable.fitsDimensions(new int[]{1000, QUAL_DIMENSION, COVARIATE_DIMENSION, EVENT_DIMENSION}));
+        Assert.assertFalse(FlatRecalibrationTable.fitsDimensions(new int[]{1, 94, 1 << 16, EVENT_DIMENSION}));
+    }
+
+    private static void assertSameTables(final NestedIntegerArray<RecalDatum> actual, final NestedIntegerArray<RecalDatum> expected) {
+        final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getAllLeaves();
+        Assert.assertEquals(actual.getAllLeaves().size(), expectedLeaves.size());
+        for (final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedLeaves) {
+            final RecalDatum actualDatum = actual.get(leaf.keys);
+            Assert.assertNotNull(actualDatum);
+            Assert.assertEquals(actualDatum.getNumObservations(), leaf.value.getNumObservations());
+            Assert.assertEquals(actualDatum.getNumMismatches(), leaf.value.getNumMismatches(), 1e-9);
+            Assert.assertEquals(actualDatum.getEstimatedQReported(), leaf.value.getEstimatedQReported());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class GVCFRecordBufferUnitTest extends GATKBaseTest {
+
+    private static final Allele REF = Allele.create("G", true);
+    private static final String SAMPLE_NAME = "XXYYZZ";
+
+    /**
+     * Records everything it's given as strings, in order
+     */
+    private static final class RecordingSink implements GVCFRecordSink {
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void add(final VariantContext vc) {
+            records.add("variant " + vc.getContig() + ":" + vc.getStart());
+        }
+
+        @Override
+        public void addHomRefSite(final String contig, final int position, final Allele refAllele, final String sampleName,
+                                  final int ploidy, final int gq, final int dp, final int[] pls) {
+            records.add(String.join(" ", "site", contig + ":" + position, refAllele.getDisplayString(), sampleName,
+                    String.valueOf(ploidy), String.valueOf(gq), String.valueOf(dp), Arrays.toString(pls)));
+        }
+    }
+
+    @Test
+    public void testReplayKeepsOrderAndValues() {
+        final GVCFRecordBuffer buffer = new GVCFRecordBuffer();
+        final RecordingSink expected = new RecordingSink();
+        final VariantContext snp = new VariantContextBuilder("test", "1", 3, 3, Arrays.asList(REF, Allele.create("A"))).make();
+
+        for ( final GVCFRecordSink sink : Arrays.asList(buffer, expected) ) {
+            sink.addHomRefSite("1", 1, REF, SAMPLE_NAME, 2, 10, 5, new int[]{0, 10, 100});
+            sink.addHomRefSite("1", 2, Allele.create("T", true), SAMPLE_NAME, 2, 99, 30, new int[]{0, 99, 990});
+            sink.add(snp);
+            sink.addHomRefSite("1", 4, REF, SAMPLE_NAME, 3, 0, 0, new int[]{0, 0, 0, 0});
+            sink.addHomRefSite("2", 1, REF, SAMPLE_NAME, 1, 40, 12, new int[]{0, 40});
+            sink.add(snp);
+        }
+        Assert.assertEquals(buffer.size(), 6);
+
+        final RecordingSink actual = new RecordingSink();
+        buffer.replayTo(actual);
+        Assert.assertEquals(actual.records, expected.records);
+
+        // replaying doesn't consume the buffer
+        final RecordingSink again = new RecordingSink();
+        buffer.replayTo(again);
+        Assert.assertEquals(again.records, expected.records);
+    }
+
+    @Test
+    public void testEmptyBuffer() {
+        final GVCFRecordBuffer buffer = new GVCFRecordBuffer();
+        final RecordingSink sink = new RecordingSink();
+        buffer.replayTo(sink);
+        Assert.assertEquals(buffer.size(), 0);
+        Assert.assertTrue(sink.records.isEmpty());
+    }
+}
@@ -340,6 +340,66 @@ public class GVCFWriterUnitTest extends GATKBaseTest {
         assertGoodVC(mockWriter.emitted.get(2), CHR1, 6, 7, false);
     }
 
+    @Test
+    public void testHomRefSitesAsPrimitivesMatchHomRefVariantContexts() {
+        final List<VariantContext> records = Arrays.asList(
+                makeHomRef(1), makeHomRef(2, 5), makeHomRef(3, 7), makeHomRef(4, 50),
+                makeDeletion(5, 3), makeHomRef(6), makeHomRef(7, 99), makeHomRef(8, 99),
+                makeNonRef(CHR1, 9), makeHomRef(12), makeHomRef(CHR2, 1, 30), makeHomRef(CHR2, 2, 25));
+
+        final MockWriter fromVariantContexts = new MockWriter();
+        final GVCFWriter vcWriter = new GVCFWriter(fromVariantContexts, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        records.forEach(vcWriter::add);
+        vcWriter.close();
+
+        final MockWriter fromPrimitives = new MockWriter();
+        final GVCFWriter primitiveWriter = new GVCFWriter(fromPrimitives, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        for ( final VariantContext vc : records ) {
+            if ( vc.getAlternateAllele(0).equals(Allele.NON_REF_ALLELE) ) {
+                final Genotype g = vc.getGenotype(0);
+                primitiveWriter.addHomRefSite(vc.getContig(), vc.getStart(), vc.getReference(), g.getSampleName(), g.getPloidy(), g.getGQ(), g.getDP(), g.getPL());
+            } else {
+                primitiveWriter.add(vc);
+            }
+        }
+        primitiveWriter.close();
+
+        Assert.assertEquals(fromPrimitives.emitted.size(), fromVariantContexts.emitted.size());
+        for ( int i = 0; i < fromVariantContexts.emitted.size(); i++ ) {
+            final VariantContext expected = fromVariantContexts.emitted.get(i);
+            final VariantContext actual = fromPrimitives.emitted.get(i);
+            Assert.assertEquals(actual.getContig(), expected.getContig());
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getEnd(), expected.getEnd());
+            Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+            Assert.assertEquals(actual.getID(), expected.getID());
+            Assert.assertEquals(actual.getAttributes(), expected.getAttributes());
+            Assert.assertEquals(actual.getGenotype(0).toString(), expected.getGenotype(0).toString());
+        }
+    }
+
+    @Test
+    public void testHomRefSitePLsAreNotRetained() {
+        final MockWriter mockWriter = new MockWriter();
+        final GVCFWriter writer = new GVCFWriter(mockWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+
+        // callers may reuse the PLs array for the next site
+        final int[] pls = {0, 20, 40};
+        writer.addHomRefSite(CHR1, 1, REF, SAMPLE_NAME, 2, 20, 10, pls);
+        pls[1] = 30;
+        pls[2] = 50;
+        writer.addHomRefSite(CHR1, 2, REF, SAMPLE_NAME, 2, 30, 12, pls);
+        Assert.assertEquals(pls, new int[]{0, 30, 50});
+        writer.close();
+
+        Assert.assertEquals(mockWriter.emitted.size(), 1);
+        assertGoodVC(mockWriter.emitted.get(0), CHR1, 1, 2, false);
+        final Genotype g = mockWriter.emitted.get(0).getGenotype(SAMPLE_NAME);
+        Assert.assertEquals(g.getPL(), new int[]{0, 20, 40});
+        Assert.assertEquals(g.getDP(), 11);
+        Assert.assertEquals(g.getExtendedAttribute(GATKVCFConstants.MIN_DP_FORMAT_KEY), 10);
+    }
+
     @Test
     public void testHomRefAlt() {
         final MockWriter mockWriter = new MockWriter();